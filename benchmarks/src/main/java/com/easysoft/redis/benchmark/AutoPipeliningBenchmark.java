@@ -0,0 +1,75 @@
+package com.easysoft.redis.benchmark;
+
+import com.easysoft.redis.RedisOperater;
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 64 个线程并发 GET：每条命令单独刷新与自动 pipeline 合并刷新的吞吐量对比
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-31 10:30
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-31 10:30
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class AutoPipeliningBenchmark {
+
+    private static final int KEY_COUNT = 100;
+
+    @Param({"false", "true"})
+    public boolean autoPipelining;
+
+    /**
+     * 刷新前等待的微秒数
+     */
+    @Param({"0"})
+    public int windowMicros;
+
+    private RedisOperater redisOperater;
+
+    @Setup(Level.Trial)
+    public void setUp(RedisFixture fixture) {
+        RedisProperties properties = new RedisProperties();
+        properties.setNamespace("bench");
+        properties.getAutoPipelining().setEnabled(autoPipelining);
+        properties.getAutoPipelining().setWindow(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(windowMicros)));
+        redisOperater = new RedisOperater(properties, fixture.redisTemplate);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            redisOperater.set("auto::" + i, "value-" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redisOperater.destroy();
+    }
+
+    @Benchmark
+    public Object get() {
+        return redisOperater.get("auto::" + ThreadLocalRandom.current().nextInt(KEY_COUNT));
+    }
+}
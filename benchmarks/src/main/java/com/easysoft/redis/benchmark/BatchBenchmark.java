@@ -0,0 +1,82 @@
+package com.easysoft.redis.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多key读取：逐个 key 执行与 pipeline 批量执行的对比
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-20 10:30
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-20 10:30
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark {
+
+    @Param({"10", "200"})
+    public int keyCount;
+
+    private List<String> keys;
+
+    @Setup
+    public void setUp(RedisFixture fixture) {
+        keys = new ArrayList<>(keyCount);
+        for (int i = 0; i < keyCount; i++) {
+            String key = "user::" + i;
+            Map<String, Object> user = new HashMap<>();
+            user.put("name", "user-" + i);
+            user.put("age", i);
+            fixture.redisOperater.hmset(key, user);
+            keys.add(key);
+        }
+    }
+
+    @Benchmark
+    public Object hgetAllSingle(RedisFixture fixture) {
+        List<Map<String, Object>> result = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            result.add(fixture.redisOperater.hgetAll(key));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Object hgetAllPipelined(RedisFixture fixture) {
+        return fixture.redisOperater.hgetAllMulti(keys);
+    }
+
+    @Benchmark
+    public Object hmgetSingle(RedisFixture fixture) {
+        List<List<Object>> result = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            result.add(fixture.redisOperater.hmget(key, "name", "age"));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Object hmgetPipelined(RedisFixture fixture) {
+        return fixture.redisOperater.hmgetMulti(keys, "name", "age");
+    }
+}
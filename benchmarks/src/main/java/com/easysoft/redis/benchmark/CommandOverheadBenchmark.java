@@ -0,0 +1,56 @@
+package com.easysoft.redis.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedisOperater 在 RedisTemplate 之上增加的开销(namespace、耗时统计、异常包装等)
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-20 10:30
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-20 10:30
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandOverheadBenchmark {
+
+    @Setup
+    public void setUp(RedisFixture fixture) {
+        fixture.redisOperater.set("user::1", "zyp");
+    }
+
+    @Benchmark
+    public Object operaterGet(RedisFixture fixture) {
+        return fixture.redisOperater.get("user::1");
+    }
+
+    @Benchmark
+    public Object templateGet(RedisFixture fixture) {
+        return fixture.redisTemplate.opsForValue().get("bench.user::1");
+    }
+
+    @Benchmark
+    public void operaterSet(RedisFixture fixture) {
+        fixture.redisOperater.set("user::2", "zyp");
+    }
+
+    @Benchmark
+    public void templateSet(RedisFixture fixture) {
+        fixture.redisTemplate.opsForValue().set("bench.user::2", "zyp");
+    }
+}
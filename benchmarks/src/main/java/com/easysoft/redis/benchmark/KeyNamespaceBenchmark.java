@@ -0,0 +1,83 @@
+package com.easysoft.redis.benchmark;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.RedisOperater;
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * key 添加 namespace 的开销，不访问 Redis
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-20 10:30
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-20 10:30
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyNamespaceBenchmark {
+
+    private final StringRedisSerializer keySerializer = new StringRedisSerializer();
+
+    private RedisOperater redisOperater;
+
+    private IRedisOperater tenant;
+
+    private String tenantId = "tenant1";
+
+    @Setup
+    public void setUp() {
+        RedisProperties properties = new RedisProperties();
+        properties.setNamespace("bench");
+        redisOperater = new RedisOperater(properties, new RedisTemplate());
+        tenant = redisOperater.withNamespace(tenantId);
+    }
+
+    @Benchmark
+    public String getNamespace() {
+        return redisOperater.getNamespace();
+    }
+
+    @Benchmark
+    public String namespacedKey() {
+        return redisOperater.getNamespace() + "user::10086";
+    }
+
+    /**
+     * 租户 key 手工拼接前缀
+     */
+    @Benchmark
+    public String concatTenantKey() {
+        return redisOperater.key(tenantId + "." + "user::10086");
+    }
+
+    /**
+     * 通过 namespace 视图添加租户前缀
+     */
+    @Benchmark
+    public String viewKey() {
+        return tenant.key("user::10086");
+    }
+
+    @Benchmark
+    public byte[] rawKey() {
+        return keySerializer.serialize(redisOperater.getNamespace() + "user::10086");
+    }
+}
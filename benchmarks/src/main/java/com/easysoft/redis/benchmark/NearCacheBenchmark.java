@@ -0,0 +1,60 @@
+package com.easysoft.redis.benchmark;
+
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import com.easysoft.redis.cache.RedisOperaterCacheManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.Cache;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CacheManager 命中路径：本地一级缓存命中与直接读 Redis 的对比
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-20 10:30
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-20 10:30
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NearCacheBenchmark {
+
+    @Param({"true", "false"})
+    public boolean local;
+
+    private Cache cache;
+
+    @Setup
+    public void setUp(RedisFixture fixture) {
+        RedisProperties.Cache config = new RedisProperties.Cache();
+        config.getLocal().setEnabled(local);
+        config.getLocal().setTtl(Duration.ofHours(1));
+        cache = new RedisOperaterCacheManager(fixture.redisOperater, config).getCache("user");
+        cache.put(1L, "zyp");
+    }
+
+    @Benchmark
+    public Object hit() {
+        return cache.get(1L);
+    }
+
+    @Benchmark
+    public Object syncHit() {
+        return cache.get(1L, () -> "zyp");
+    }
+}
@@ -0,0 +1,93 @@
+package com.easysoft.redis.benchmark;
+
+import com.easysoft.redis.RedisOperater;
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import com.easysoft.redis.embedded.EmbeddedRedisServer;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基准测试共享的 Redis 环境：内嵌 Redis 模拟服务 + 与自动配置一致的 RedisTemplate 和 RedisOperater
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-20 10:30
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-20 10:30
+ */
+@State(Scope.Benchmark)
+public class RedisFixture {
+
+    /**
+     * 服务端每条命令的模拟延迟(微秒)，可通过 -p latencyMicros=200 模拟跨机房网络
+     */
+    @Param({"0"})
+    public int latencyMicros;
+
+    public EmbeddedRedisServer server;
+
+    public LettuceConnectionFactory connectionFactory;
+
+    public RedisTemplate<String, Serializable> redisTemplate;
+
+    public RedisProperties properties;
+
+    public RedisOperater redisOperater;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new EmbeddedRedisServer().start();
+        server.setLatency(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(latencyMicros)));
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(server.getHost(),
+                server.getPort()), LettucePoolingClientConfiguration.builder().poolConfig(poolConfig()).build());
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = newTemplate(connectionFactory);
+        properties = new RedisProperties();
+        properties.setNamespace("bench");
+        redisOperater = new RedisOperater(properties, redisTemplate);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redisOperater.destroy();
+        connectionFactory.destroy();
+        server.close();
+    }
+
+    /**
+     * 与生产环境一样使用连接池，pipeline 和阻塞命令从池中借用独占连接
+     */
+    private static GenericObjectPoolConfig poolConfig() {
+        GenericObjectPoolConfig poolConfig = new GenericObjectPoolConfig();
+        poolConfig.setMaxTotal(64);
+        poolConfig.setMaxIdle(64);
+        return poolConfig;
+    }
+
+    static RedisTemplate<String, Serializable> newTemplate(LettuceConnectionFactory connectionFactory) {
+        RedisTemplate<String, Serializable> template = new RedisTemplate<>();
+        GenericJackson2JsonRedisSerializer valueSerializer = new GenericJackson2JsonRedisSerializer();
+        template.setConnectionFactory(connectionFactory);
+        template.setValueSerializer(valueSerializer);
+        template.setHashValueSerializer(valueSerializer);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setHashKeySerializer(new StringRedisSerializer());
+        template.afterPropertiesSet();
+        return template;
+    }
+}
@@ -0,0 +1,106 @@
+package com.easysoft.redis.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * value 序列化器的序列化/反序列化开销
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-20 10:30
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-20 10:30
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+
+    @Param({"jackson", "jdk", "string"})
+    public String serializer;
+
+    @Param({"small", "large"})
+    public String payload;
+
+    private RedisSerializer<Object> redisSerializer;
+
+    private Object value;
+
+    private byte[] serialized;
+
+    @Setup
+    public void setUp() {
+        switch (serializer) {
+            case "jdk":
+                redisSerializer = new JdkSerializationRedisSerializer();
+                break;
+            case "string":
+                RedisSerializer<String> string = RedisSerializer.string();
+                redisSerializer = (RedisSerializer) string;
+                break;
+            default:
+                redisSerializer = new GenericJackson2JsonRedisSerializer();
+        }
+        value = "string".equals(serializer) ? payloadString() : payloadObject();
+        serialized = redisSerializer.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return redisSerializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return redisSerializer.deserialize(serialized);
+    }
+
+    private String payloadString() {
+        StringBuilder builder = new StringBuilder();
+        int size = "small".equals(payload) ? 8 : 1000;
+        for (int i = 0; i < size; i++) {
+            builder.append("item-").append(i).append(',');
+        }
+        return builder.toString();
+    }
+
+    private Serializable payloadObject() {
+        HashMap<String, Object> map = new HashMap<>();
+        map.put("id", 10086L);
+        map.put("name", "zyp");
+        if ("large".equals(payload)) {
+            List<Map<String, Object>> items = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                Map<String, Object> item = new HashMap<>();
+                item.put("id", i);
+                item.put("title", "item-" + i);
+                item.put("price", i * 1.5);
+                items.add(item);
+            }
+            map.put("items", items);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,139 @@
+package com.easysoft.redis.benchmark;
+
+import com.easysoft.redis.RedisOperater;
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import com.easysoft.redis.connection.VirtualThreads;
+import com.easysoft.redis.embedded.EmbeddedRedisServer;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 10000 个并发任务同时读取：平台线程池(模拟 Servlet 容器的 200 个工作线程)与每个任务一个虚拟线程的对比。
+ * <p>
+ * 两种方式都使用共享连接执行非阻塞命令，连接池按虚拟线程模式限制为 8 个连接；virtual 需要在 JDK 21 上运行，
+ * 运行时打印载体线程被占用(pinned)的调用栈
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-30 10:15
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-30 10:15
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.tracePinnedThreads=short")
+public class VirtualThreadBenchmark {
+
+    private static final int CONCURRENCY = 10000;
+
+    private static final int PLATFORM_THREADS = 200;
+
+    private static final int KEY_COUNT = 100;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    /**
+     * 服务端每条命令的模拟延迟(微秒)
+     */
+    @Param({"0"})
+    public int latencyMicros;
+
+    private EmbeddedRedisServer server;
+
+    private LettuceConnectionFactory connectionFactory;
+
+    private RedisOperater redisOperater;
+
+    private ExecutorService executor;
+
+    private List<String> keys;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        boolean virtual = "virtual".equals(threads);
+        if (virtual && !VirtualThreads.isSupported()) {
+            throw new IllegalStateException("threads=virtual requires JDK 21, current java.version="
+                    + System.getProperty("java.version"));
+        }
+        server = new EmbeddedRedisServer().start();
+        server.setLatency(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(latencyMicros)));
+        RedisProperties properties = new RedisProperties();
+        properties.setNamespace("bench");
+        properties.getConnection().setVirtualThreads(virtual);
+        GenericObjectPoolConfig poolConfig = new GenericObjectPoolConfig();
+        poolConfig.setMaxTotal(properties.getConnection().getBlockingPoolSize());
+        poolConfig.setMaxIdle(properties.getConnection().getBlockingPoolSize());
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(server.getHost(),
+                server.getPort()), LettucePoolingClientConfiguration.builder().poolConfig(poolConfig).build());
+        connectionFactory.setShareNativeConnection(true);
+        connectionFactory.afterPropertiesSet();
+        redisOperater = new RedisOperater(properties, RedisFixture.newTemplate(connectionFactory));
+        keys = new ArrayList<>(KEY_COUNT);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            String key = "vt::" + i;
+            redisOperater.set(key, "value-" + i);
+            keys.add(key);
+        }
+        if (virtual) {
+            executor = VirtualThreads.newExecutor("bench-virtual-");
+        } else {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("bench-platform-");
+            threadFactory.setDaemon(true);
+            executor = Executors.newFixedThreadPool(PLATFORM_THREADS, threadFactory);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        redisOperater.destroy();
+        connectionFactory.destroy();
+        server.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENCY)
+    public void concurrentGet() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(CONCURRENCY);
+        for (int i = 0; i < CONCURRENCY; i++) {
+            String key = keys.get(i % KEY_COUNT);
+            executor.execute(() -> {
+                try {
+                    redisOperater.get(key);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+    }
+}
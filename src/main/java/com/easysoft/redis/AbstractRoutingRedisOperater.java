@@ -0,0 +1,626 @@
+package com.easysoft.redis;
+
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * 把命令按 key 分发到多个 IRedisOperater 的基类，子类通过 {@link #route(String)} 决定 key 所属的实例。
+ * <p>
+ * 单key命令直接转发；多key命令按实例分组后执行，结果按 keys 的原始顺序合并。
+ * 指定了 executor 时各组并行执行(第一组在调用线程执行)，否则依次执行。scan 在各实例并行遍历，遍历线程池由根实例持有，
+ * 视图共用，销毁根实例时关闭。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-04 10:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-04 10:00
+ */
+public abstract class AbstractRoutingRedisOperater implements IRedisOperater, DisposableBean {
+
+    private final Executor executor;
+
+    private final ScanStreams scanStreams;
+
+    private final boolean ownsScanStreams;
+
+    /**
+     * @param executor 并行执行多key命令各组的线程池，null 表示依次执行
+     * @param scan     并行 scan 的遍历线程配置
+     */
+    protected AbstractRoutingRedisOperater(Executor executor, RedisProperties.Scan scan) {
+        this.executor = executor;
+        this.scanStreams = new ScanStreams(scan);
+        this.ownsScanStreams = true;
+    }
+
+    /**
+     * 创建视图，与根实例共用遍历线程池
+     */
+    AbstractRoutingRedisOperater(Executor executor, AbstractRoutingRedisOperater root) {
+        this.executor = executor;
+        this.scanStreams = root.scanStreams;
+        this.ownsScanStreams = false;
+    }
+
+    /**
+     * @param key 不含namespace的key
+     * @return key 所属的实例
+     */
+    public abstract IRedisOperater route(String key);
+
+    /**
+     * @return 所有实例，去重
+     */
+    protected abstract Collection<IRedisOperater> operaters();
+
+    /**
+     * @return 发布消息的实例，RedisSubscriber 只订阅默认实例，所有频道都在同一个实例发布
+     */
+    protected abstract IRedisOperater publisher();
+
+    @Override
+    public String key(String key) {
+        return route(key).key(key);
+    }
+
+    @Override
+    public Boolean exists(String key) {
+        return route(key).exists(key);
+    }
+
+    @Override
+    public <T> void set(String key, T value) {
+        route(key).set(key, value);
+    }
+
+    @Override
+    public <T> SetOperation<T> setWith(String key, T value) {
+        return route(key).setWith(key, value);
+    }
+
+    @Override
+    public <T> Boolean setex(String key, T value, int expire) {
+        return route(key).setex(key, value, expire);
+    }
+
+    @Override
+    public <T> Boolean setnx(String key, T value, int expire) {
+        return route(key).setnx(key, value, expire);
+    }
+
+    @Override
+    public <T> T get(String key) {
+        return route(key).get(key);
+    }
+
+    @Override
+    public Long getLong(String key) {
+        return route(key).getLong(key);
+    }
+
+    @Override
+    public <T> T getSet(String key, T value) {
+        return route(key).getSet(key, value);
+    }
+
+    @Override
+    public Long getSetLong(String key, Long value) {
+        return route(key).getSetLong(key, value);
+    }
+
+    @Override
+    public Boolean delete(String key) {
+        return route(key).delete(key);
+    }
+
+    @Override
+    public Boolean expire(String key, int expire) {
+        return route(key).expire(key, expire);
+    }
+
+    @Override
+    public Long ttl(String key) {
+        return route(key).ttl(key);
+    }
+
+    @Override
+    public Long expireAll(Collection<String> keys, int expire) {
+        BiFunction<IRedisOperater, List<String>, Long> command = (operater, group) -> operater.expireAll(group, expire);
+        long count = 0;
+        for (Long expired : forEachGroup(groupByOperater(keys), command)) {
+            count += null == expired ? 0 : expired;
+        }
+        return count;
+    }
+
+    @Override
+    public Map<String, Long> ttlAll(Collection<String> keys) {
+        return merge(keys, (operater, group) -> operater.ttlAll(group));
+    }
+
+    @Override
+    public <T> T getAndTouch(String key, int expire) {
+        return route(key).getAndTouch(key, expire);
+    }
+
+    @Override
+    public <T> Map<String, T> getAndTouchAll(Collection<String> keys, int expire) {
+        return merge(keys, (operater, group) -> operater.getAndTouchAll(group, expire));
+    }
+
+    @Override
+    public <T> Map<String, T> getAll(Collection<String> keys) {
+        return merge(keys, (operater, group) -> operater.getAll(group));
+    }
+
+    @Override
+    public <T> Map<String, Boolean> setnxAll(Map<String, T> values, int expire) {
+        return merge(values.keySet(), (operater, group) -> {
+            Map<String, T> groupValues = new LinkedHashMap<>(group.size() * 2);
+            group.forEach(key -> groupValues.put(key, values.get(key)));
+            return operater.setnxAll(groupValues, expire);
+        });
+    }
+
+    @Override
+    public Long incr(String key) {
+        return route(key).incr(key);
+    }
+
+    @Override
+    public Long incrBy(String key, int increment) {
+        return route(key).incrBy(key, increment);
+    }
+
+    @Override
+    public Long decr(String key) {
+        return route(key).decr(key);
+    }
+
+    @Override
+    public Long decrBy(String key, int decrement) {
+        return route(key).decrBy(key, decrement);
+    }
+
+    @Override
+    public <F> Boolean hexists(String key, F field) {
+        return route(key).hexists(key, field);
+    }
+
+    @Override
+    public <F, T> void hset(String key, F field, T value) {
+        route(key).hset(key, field, value);
+    }
+
+    @Override
+    public <F, T> Boolean hsetnx(String key, F field, T value) {
+        return route(key).hsetnx(key, field, value);
+    }
+
+    @Override
+    public <F, T> void hmset(String key, Map<F, T> fieldValues) {
+        route(key).hmset(key, fieldValues);
+    }
+
+    @Override
+    public <F, T> T hget(String key, F field) {
+        return route(key).hget(key, field);
+    }
+
+    @Override
+    public <T> Map<String, T> hgetAll(String key) {
+        return route(key).hgetAll(key);
+    }
+
+    @Override
+    public <F, T> Stream<Map.Entry<F, T>> hscan(String key, String pattern, int count) {
+        return route(key).hscan(key, pattern, count);
+    }
+
+    @Override
+    public <T> List<T> hmget(String key, Object... field) {
+        return route(key).hmget(key, field);
+    }
+
+    @Override
+    public <T> Map<String, Map<String, T>> hmgetMulti(List<String> keys, Object... field) {
+        return merge(keys, (operater, group) -> operater.hmgetMulti(group, field));
+    }
+
+    @Override
+    public <T> Map<String, Map<String, T>> hgetAllMulti(List<String> keys) {
+        return merge(keys, (operater, group) -> operater.hgetAllMulti(group));
+    }
+
+    @Override
+    public Long hdel(String key, Object... field) {
+        return route(key).hdel(key, field);
+    }
+
+    @Override
+    public <F> Long hincrBy(String key, F field, int increment) {
+        return route(key).hincrBy(key, field, increment);
+    }
+
+    @Override
+    public <T> T lpop(String key) {
+        return route(key).lpop(key);
+    }
+
+    @Override
+    public <T> T rpop(String key) {
+        return route(key).rpop(key);
+    }
+
+    @Override
+    public <T> Long lpush(String key, T... value) {
+        return route(key).lpush(key, value);
+    }
+
+    @Override
+    public <T> Long lpushx(String key, T value) {
+        return route(key).lpushx(key, value);
+    }
+
+    @Override
+    public <T> Long rpush(String key, T... value) {
+        return route(key).rpush(key, value);
+    }
+
+    @Override
+    public <T> Long rpushx(String key, T value) {
+        return route(key).rpushx(key, value);
+    }
+
+    @Override
+    public <T> T lindex(String key, int index) {
+        return route(key).lindex(key, index);
+    }
+
+    @Override
+    public <T> Long linsertAfter(String key, T pivot, T value) {
+        return route(key).linsertAfter(key, pivot, value);
+    }
+
+    @Override
+    public <T> Long linsertBefore(String key, T pivot, T value) {
+        return route(key).linsertBefore(key, pivot, value);
+    }
+
+    @Override
+    public Long llen(String key) {
+        return route(key).llen(key);
+    }
+
+    @Override
+    public <T> List<T> lrange(String key, int start, int stop) {
+        return route(key).lrange(key, start, stop);
+    }
+
+    @Override
+    public long[] lrangeLong(String key, int start, int stop) {
+        return route(key).lrangeLong(key, start, stop);
+    }
+
+    @Override
+    public <T> Long lrem(String key, int count, T value) {
+        return route(key).lrem(key, count, value);
+    }
+
+    @Override
+    public <T> void lset(String key, int index, T value) {
+        route(key).lset(key, index, value);
+    }
+
+    @Override
+    public void ltrim(String key, int start, int stop) {
+        route(key).ltrim(key, start, stop);
+    }
+
+    @Override
+    public <T> Long zdd(String key, double score, T member) {
+        return route(key).zdd(key, score, member);
+    }
+
+    @Override
+    public Long zcount(String key, double min, double max) {
+        return route(key).zcount(key, min, max);
+    }
+
+    @Override
+    public <T> Set<T> zrange(String key, Long start, Long end) {
+        return route(key).zrange(key, start, end);
+    }
+
+    @Override
+    public <T> Set<TypedTuple<T>> zrangeWithScores(String key, Long start, Long end) {
+        return route(key).zrangeWithScores(key, start, end);
+    }
+
+    @Override
+    public <T> Set<T> zrangeByScore(String key, double min, double max) {
+        return route(key).zrangeByScore(key, min, max);
+    }
+
+    @Override
+    public <T> Set<TypedTuple<T>> zrangeByScoreWithScores(String key, double min, double max) {
+        return route(key).zrangeByScoreWithScores(key, min, max);
+    }
+
+    @Override
+    public <T> Stream<TypedTuple<T>> zscan(String key, String pattern, int count) {
+        return route(key).zscan(key, pattern, count);
+    }
+
+    @Override
+    public ScoredLongs zrangeLongWithScores(String key, long start, long end) {
+        return route(key).zrangeLongWithScores(key, start, end);
+    }
+
+    @Override
+    public ScoredLongs zrangeByScoreLongWithScores(String key, double min, double max) {
+        return route(key).zrangeByScoreLongWithScores(key, min, max);
+    }
+
+    @Override
+    public Long zrem(String key, Object... member) {
+        return route(key).zrem(key, member);
+    }
+
+    @Override
+    public Object eval(byte[] script, String key, Object... arg) {
+        return route(key).eval(script, key, arg);
+    }
+
+    @Override
+    public Object evalSha(byte[] sha1, String key, Object... arg) {
+        return route(key).evalSha(sha1, key, arg);
+    }
+
+    @Override
+    public byte[] scriptLoad(byte[] script, String key) {
+        return route(key).scriptLoad(script, key);
+    }
+
+    @Override
+    public Long sadd(String key, Object... member) {
+        return route(key).sadd(key, member);
+    }
+
+    @Override
+    public Long scard(String key) {
+        return route(key).scard(key);
+    }
+
+    @Override
+    public <T> Boolean sisMember(String key, T member) {
+        return route(key).sisMember(key, member);
+    }
+
+    @Override
+    public <T> Set<T> smembers(String key) {
+        return route(key).smembers(key);
+    }
+
+    @Override
+    public <T> Stream<T> sscan(String key, String pattern, int count) {
+        return route(key).sscan(key, pattern, count);
+    }
+
+    @Override
+    public long[] smembersLong(String key) {
+        return route(key).smembersLong(key);
+    }
+
+    @Override
+    public <T> T spop(String key) {
+        return route(key).spop(key);
+    }
+
+    @Override
+    public <T> List<T> srandMember(String key, int count) {
+        return route(key).srandMember(key, count);
+    }
+
+    @Override
+    public <T> T srandMember(String key) {
+        return route(key).srandMember(key);
+    }
+
+    @Override
+    public Long srem(String key, Object... member) {
+        return route(key).srem(key, member);
+    }
+
+    /**
+     * 频道不按名称路由，在 {@link #publisher()} 发布，与订阅所在的实例一致
+     */
+    @Override
+    public Long publish(String channel, Object message) {
+        return publisher().publish(channel, message);
+    }
+
+    @Override
+    public Long publishAll(String channel, Collection<?> messages) {
+        return publisher().publishAll(channel, messages);
+    }
+
+    /**
+     * 在所有实例并行执行 SCAN
+     */
+    @Override
+    public Stream<String> scan(String pattern, int count, DataType type) {
+        return scanOnAll(operaters(), pattern, count, type);
+    }
+
+    /**
+     * 并行遍历多个实例，元素按各实例读取完成的顺序返回
+     */
+    protected Stream<String> scanOnAll(Collection<IRedisOperater> targets, String pattern, int count,
+                                       DataType type) {
+        List<Supplier<Stream<String>>> sources = new ArrayList<>(targets.size());
+        for (IRedisOperater target : targets) {
+            sources.add(() -> target.scan(pattern, count, type));
+        }
+        return scanStreams.parallel(sources, count);
+    }
+
+    @Override
+    public void destroy() {
+        if (ownsScanStreams) {
+            scanStreams.shutdown();
+        }
+    }
+
+    /**
+     * 在所有实例执行 delByPattern，返回删除总数
+     */
+    protected long delByPatternOnAll(String pattern) {
+        return delByPatternOnAll(operaters(), pattern);
+    }
+
+    /**
+     * 在指定实例执行 delByPattern，返回删除总数
+     */
+    protected long delByPatternOnAll(Collection<IRedisOperater> targets, String pattern) {
+        long count = 0;
+        for (IRedisOperater target : targets) {
+            Long deleted = target.delByPattern(pattern);
+            count += null == deleted ? 0 : deleted;
+        }
+        return count;
+    }
+
+    /**
+     * 按实例分组，组内保持原始顺序
+     */
+    protected Map<IRedisOperater, List<String>> groupByOperater(Collection<String> keys) {
+        Map<IRedisOperater, List<String>> groups = new LinkedHashMap<>();
+        for (String key : keys) {
+            groups.computeIfAbsent(route(key), operater -> new ArrayList<>()).add(key);
+        }
+        return groups;
+    }
+
+    /**
+     * 按实例分组执行多key命令，结果按 keys 的原始顺序合并
+     */
+    protected <R> Map<String, R> merge(Collection<String> keys,
+                                       BiFunction<IRedisOperater, List<String>, Map<String, R>> command) {
+        Map<IRedisOperater, List<String>> groups = groupByOperater(keys);
+        if (groups.size() == 1) {
+            Map.Entry<IRedisOperater, List<String>> group = groups.entrySet().iterator().next();
+            return command.apply(group.getKey(), group.getValue());
+        }
+        Map<String, R> results = new HashMap<>(keys.size() * 2);
+        for (Map<String, R> result : forEachGroup(groups, command)) {
+            results.putAll(result);
+        }
+        Map<String, R> ordered = new LinkedHashMap<>(keys.size() * 2);
+        for (String key : keys) {
+            ordered.put(key, results.get(key));
+        }
+        return ordered;
+    }
+
+    /**
+     * 对每组执行命令，有 executor 时除第一组外提交到 executor 并行执行
+     *
+     * @return 各组的结果，顺序与 groups 相同
+     */
+    protected <R> List<R> forEachGroup(Map<IRedisOperater, List<String>> groups,
+                                       BiFunction<IRedisOperater, List<String>, R> command) {
+        List<R> results = new ArrayList<>(groups.size());
+        if (null == executor || groups.size() == 1) {
+            groups.forEach((operater, group) -> results.add(command.apply(operater, group)));
+            return results;
+        }
+        List<CompletableFuture<R>> futures = new ArrayList<>(groups.size());
+        Map.Entry<IRedisOperater, List<String>> first = null;
+        for (Map.Entry<IRedisOperater, List<String>> group : groups.entrySet()) {
+            if (null == first) {
+                first = group;
+                continue;
+            }
+            futures.add(CompletableFuture.supplyAsync(() -> command.apply(group.getKey(), group.getValue()),
+                    executor));
+        }
+        results.add(command.apply(first.getKey(), first.getValue()));
+        try {
+            for (CompletableFuture<R> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+        return results;
+    }
+
+    /**
+     * 按 key 写入所属实例的延迟写入缓冲区
+     */
+    protected final class RoutedWriteBehind implements WriteBehind {
+
+        @Override
+        public <T> void set(String key, T value) {
+            route(key).writeBehind().set(key, value);
+        }
+
+        @Override
+        public <T> void setex(String key, T value, int expire) {
+            route(key).writeBehind().setex(key, value, expire);
+        }
+
+        @Override
+        public <F, T> void hset(String key, F field, T value) {
+            route(key).writeBehind().hset(key, field, value);
+        }
+
+        @Override
+        public <F, T> void hmset(String key, Map<F, T> fieldValues) {
+            route(key).writeBehind().hmset(key, fieldValues);
+        }
+
+        @Override
+        public void flush() {
+            operaters().forEach(operater -> operater.writeBehind().flush());
+        }
+
+        /**
+         * @return 所有实例的统计之和
+         */
+        @Override
+        public Stats getStats() {
+            Stats total = new Stats();
+            for (IRedisOperater operater : operaters()) {
+                Stats stats = operater.writeBehind().getStats();
+                total.setWrites(total.getWrites() + stats.getWrites());
+                total.setCoalesced(total.getCoalesced() + stats.getCoalesced());
+                total.setFlushed(total.getFlushed() + stats.getFlushed());
+                total.setFailed(total.getFailed() + stats.getFailed());
+                total.setBackpressure(total.getBackpressure() + stats.getBackpressure());
+                total.setPending(total.getPending() + stats.getPending());
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,639 @@
+package com.easysoft.redis;
+
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import com.easysoft.redis.connection.LettuceCommands;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 大value分片存储。
+ * <p>
+ * 序列化后超过阈值的value拆分为多个分片key，原key只保存分片清单(manifest)；分片key使用原key作为 hash tag，
+ * 与原key位于同一个 slot。写入时所有分片和清单通过一个 pipeline 发送；读取时按窗口分组并行获取分片，
+ * 直接拷贝到预先分配好的目标数组，不会同时持有所有分片和完整value两份数据。
+ * <p>
+ * 每次写入使用随机的分片代号(generation)，分片key包含代号，清单替换后再删除旧代号的分片，
+ * 读取方只会读到同一次写入的完整分片；读取期间被覆盖时旧分片已删除，重新读取清单后再读取新分片。
+ * 启用后写入前通过 GETRANGE 只读取旧value开头(不超过清单长度)判断是否需要清理旧分片，value仍通过 SET 写入；
+ * 并发覆盖同一个key时，两次写入之间的分片可能残留到过期。只有需要返回旧值时才使用 GETSET。
+ * <p>
+ * 分片与清单的过期时间一致(分片多保留1秒)，设置过期时间、按模式删除时同时处理分片。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-10 16:40
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-10 16:40
+ */
+class ChunkedValues {
+
+    /**
+     * 清单前缀，JSON/JDK等序列化结果不会以 0x00 开头
+     */
+    private static final byte[] MAGIC = {0, 'E', 'Z', 'C', 'H', 'K', ':'};
+
+    /**
+     * 分片key中原key之后的部分：:chunk:代号:序号
+     */
+    private static final String CHUNK_SUFFIX = ":chunk:";
+
+    /**
+     * 清单的最大长度，只需读取value开头即可判断是否为清单
+     */
+    private static final int MANIFEST_MAX_LENGTH = 64;
+
+    private static final byte[] MANIFEST_RANGE_START = "0".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] MANIFEST_RANGE_END = String.valueOf(MANIFEST_MAX_LENGTH - 1)
+            .getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * 读取期间被覆盖时重新读取清单的次数
+     */
+    private static final int READ_ATTEMPTS = 3;
+
+    private final RedisTemplate redisTemplate;
+
+    private final RedisProperties.Chunk config;
+
+    private final KeyBatchExecutor batchExecutor;
+
+    ChunkedValues(RedisTemplate redisTemplate, RedisProperties.Chunk config, KeyBatchExecutor batchExecutor) {
+        this.redisTemplate = redisTemplate;
+        this.config = config;
+        this.batchExecutor = batchExecutor;
+    }
+
+    boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 写入value，超过阈值时分片存储
+     *
+     * @param fullKey       带namespace的key
+     * @param value
+     * @param expireSeconds 大于0时设置过期时间
+     */
+    void set(String fullKey, Object value, long expireSeconds) {
+        getAndSet(fullKey, value, expireSeconds, false);
+    }
+
+    /**
+     * 写入value，超过阈值时分片存储，写入后删除旧值的分片
+     *
+     * @param fullKey       带namespace的key
+     * @param value
+     * @param expireSeconds 大于0时设置过期时间
+     * @param previous      是否返回旧值
+     * @return previous 为 true 时返回旧值，否则返回 null
+     */
+    Object getAndSet(String fullKey, Object value, long expireSeconds, boolean previous) {
+        byte[] rawKey = rawKey(fullKey);
+        byte[] rawValue = redisTemplate.getValueSerializer().serialize(value);
+        Manifest manifest = rawValue.length > config.getThreshold() ? Manifest.create(rawValue.length,
+                config.getChunkSize()) : null;
+        int chunkCount = null == manifest ? 0 : manifest.count;
+        byte[] stored = null == manifest ? rawValue : manifest.encode();
+        // 分片与清单在同一个 pipeline 中发送；不需要旧值时只通过 GETRANGE 读取旧value开头判断是否需要清理分片，
+        // 非字符串类型的key执行 GETRANGE 返回 null，不影响之后的 SET
+        List<byte[]> keys = Collections.singletonList(rawKey);
+        List<Object> results = batchExecutor.executeLenient(keys, chunkCount + 2, (connection, key) -> {
+            if (null != manifest) {
+                writeChunks(connection, fullKey, manifest, rawValue, expireSeconds);
+            }
+            if (previous) {
+                connection.getSet(key, stored);
+                if (expireSeconds > 0) {
+                    connection.expire(key, expireSeconds);
+                }
+            } else {
+                readManifestHeader(connection, key);
+                connection.set(key, stored, expiration(expireSeconds), SetOption.upsert());
+            }
+        });
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) instanceof RuntimeException && (previous || i != chunkCount)) {
+                throw (RuntimeException) results.get(i);
+            }
+        }
+        byte[] previousRaw = asBytes(results.get(chunkCount));
+        Manifest previousManifest = Manifest.parse(previousRaw);
+        Object result = null;
+        if (previous) {
+            result = null == previousManifest ? redisTemplate.getValueSerializer().deserialize(previousRaw)
+                    : deserialize(read(redisTemplate, fullKey, previousManifest));
+        }
+        if (null != previousManifest) {
+            Map<String, Manifest> stale = new LinkedHashMap<>(2);
+            stale.put(fullKey, previousManifest);
+            deleteChunks(stale);
+        }
+        return result;
+    }
+
+    /**
+     * 批量写入，超过阈值的value逐个分片写入，其余通过 pipeline 执行 GETRANGE + SET 后清理旧值的分片
+     *
+     * @param fullKeys 带namespace的key
+     * @param rawKeys  序列化后的key，与 fullKeys 一一对应
+     * @param values   待写入的值
+     * @param expires  每个key的过期时间，单位秒，大于0时设置过期时间
+     */
+    void setAll(List<String> fullKeys, List<byte[]> rawKeys, List<?> values, int[] expires) {
+        RedisSerializer valueSerializer = redisTemplate.getValueSerializer();
+        List<Integer> small = new ArrayList<>(fullKeys.size());
+        Map<byte[], byte[]> rawValues = new IdentityHashMap<>(fullKeys.size() * 2);
+        Map<byte[], Integer> ttls = new IdentityHashMap<>(fullKeys.size() * 2);
+        for (int i = 0; i < fullKeys.size(); i++) {
+            byte[] rawValue = valueSerializer.serialize(values.get(i));
+            if (rawValue.length > config.getThreshold()) {
+                set(fullKeys.get(i), values.get(i), expires[i]);
+                continue;
+            }
+            small.add(i);
+            rawValues.put(rawKeys.get(i), rawValue);
+            ttls.put(rawKeys.get(i), expires[i]);
+        }
+        List<byte[]> smallKeys = new ArrayList<>(small.size());
+        for (Integer index : small) {
+            smallKeys.add(rawKeys.get(index));
+        }
+        // 每个key固定两条命令，非字符串类型的key执行 GETRANGE 返回 null，不影响 SET 的结果
+        List<Object> results = batchExecutor.executeLenient(smallKeys, 2, (connection, rawKey) -> {
+            readManifestHeader(connection, rawKey);
+            connection.set(rawKey, rawValues.get(rawKey), expiration(ttls.get(rawKey)), SetOption.upsert());
+        });
+        Map<String, Manifest> stale = new LinkedHashMap<>();
+        for (int i = 0; i < small.size(); i++) {
+            if (results.get(i * 2 + 1) instanceof RuntimeException) {
+                throw (RuntimeException) results.get(i * 2 + 1);
+            }
+            Manifest manifest = Manifest.parse(asBytes(results.get(i * 2)));
+            if (null != manifest) {
+                stale.put(fullKeys.get(small.get(i)), manifest);
+            }
+        }
+        deleteChunks(stale);
+    }
+
+    /**
+     * 批量写入不存在的key(SET NX)，超过阈值的value先通过一个 pipeline 写入分片，写入清单失败(key已存在)时删除这些分片
+     *
+     * @param fullKeys 带namespace的key
+     * @param rawKeys  序列化后的key，与 fullKeys 一一对应
+     * @param values   待写入的值
+     * @param expires  每个key的过期时间，单位秒，大于0时设置过期时间
+     * @return 每个key是否写入成功
+     */
+    List<Boolean> setAllIfAbsent(List<String> fullKeys, List<byte[]> rawKeys, List<?> values, int[] expires) {
+        RedisSerializer valueSerializer = redisTemplate.getValueSerializer();
+        Map<byte[], byte[]> stored = new IdentityHashMap<>(fullKeys.size() * 2);
+        Map<byte[], Integer> ttlOfKey = ttlOfKey(rawKeys, expires);
+        Map<String, Manifest> manifests = new LinkedHashMap<>();
+        Map<String, byte[]> largeValues = new LinkedHashMap<>();
+        for (int i = 0; i < fullKeys.size(); i++) {
+            byte[] rawValue = valueSerializer.serialize(values.get(i));
+            if (rawValue.length > config.getThreshold()) {
+                Manifest manifest = Manifest.create(rawValue.length, config.getChunkSize());
+                manifests.put(fullKeys.get(i), manifest);
+                largeValues.put(fullKeys.get(i), rawValue);
+                rawValue = manifest.encode();
+            }
+            stored.put(rawKeys.get(i), rawValue);
+        }
+        if (!manifests.isEmpty()) {
+            Map<String, Integer> ttls = new LinkedHashMap<>();
+            for (int i = 0; i < fullKeys.size(); i++) {
+                ttls.put(fullKeys.get(i), expires[i]);
+            }
+            redisTemplate.executePipelined((RedisConnection connection) -> {
+                manifests.forEach((fullKey, manifest) -> writeChunks(connection, fullKey, manifest,
+                        largeValues.get(fullKey), ttls.get(fullKey)));
+                return null;
+            });
+        }
+        List<Object> results = batchExecutor.execute(rawKeys, (connection, rawKey) -> {
+            connection.set(rawKey, stored.get(rawKey), expiration(ttlOfKey.get(rawKey)), SetOption.ifAbsent());
+        });
+        List<Boolean> written = new ArrayList<>(fullKeys.size());
+        Map<String, Manifest> rejected = new LinkedHashMap<>();
+        for (int i = 0; i < fullKeys.size(); i++) {
+            boolean ok = Boolean.TRUE.equals(results.get(i));
+            written.add(ok);
+            Manifest manifest = manifests.get(fullKeys.get(i));
+            if (!ok && null != manifest) {
+                rejected.put(fullKeys.get(i), manifest);
+            }
+        }
+        deleteChunks(rejected);
+        return written;
+    }
+
+    /**
+     * 批量读取value，分片存储的value按窗口并行读取后组装
+     *
+     * @param fullKeys 带namespace的key
+     * @param rawKeys  序列化后的key，与 fullKeys 一一对应
+     * @return 每个key的value，不存在时为 null
+     */
+    List<Object> getAll(List<String> fullKeys, List<byte[]> rawKeys) {
+        List<Object> results = batchExecutor.execute(rawKeys, (connection, rawKey) -> connection.get(rawKey));
+        List<Object> values = new ArrayList<>(fullKeys.size());
+        for (int i = 0; i < fullKeys.size(); i++) {
+            byte[] raw = (byte[]) results.get(i);
+            Manifest manifest = Manifest.parse(raw);
+            if (null == manifest) {
+                values.add(redisTemplate.getValueSerializer().deserialize(raw));
+                continue;
+            }
+            byte[] value = read(redisTemplate, fullKeys.get(i), manifest);
+            values.add(null != value ? deserialize(value) : get(redisTemplate, fullKeys.get(i)));
+        }
+        return values;
+    }
+
+    /**
+     * 读取value，分片存储的value按窗口并行读取后组装
+     *
+     * @param template 读取使用的 RedisTemplate(master 或 replica)，清单与分片从同一个节点读取
+     * @param fullKey
+     * @return 不存在或分片已过期时返回 null
+     */
+    Object get(RedisTemplate template, String fullKey) {
+        byte[] raw = getRaw(template, fullKey);
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            Manifest manifest = Manifest.parse(raw);
+            if (null == manifest) {
+                return redisTemplate.getValueSerializer().deserialize(raw);
+            }
+            byte[] value = read(template, fullKey, manifest);
+            if (null != value) {
+                return deserialize(value);
+            }
+            // 分片缺失：读取期间被覆盖(旧分片已删除)或分片已过期，清单未变化时视为不存在
+            byte[] current = getRaw(template, fullKey);
+            if (attempt >= READ_ATTEMPTS || Arrays.equals(current, raw)) {
+                return null;
+            }
+            raw = current;
+        }
+    }
+
+    /**
+     * 设置一批key的过期时间，分片存储的key同时设置分片的过期时间；每个key通过 GETRANGE 读取value开头判断是否为清单
+     *
+     * @param fullKeys 带namespace的key
+     * @param rawKeys  序列化后的key，与 fullKeys 一一对应
+     * @param ttls     每个key的过期时间，单位秒
+     * @return 每个key EXPIRE 的结果
+     */
+    List<Boolean> expire(List<String> fullKeys, List<byte[]> rawKeys, int[] ttls) {
+        Map<byte[], Integer> ttlOfKey = ttlOfKey(rawKeys, ttls);
+        // 非字符串类型的key执行 GETRANGE 返回 null，不影响 EXPIRE 的结果
+        List<Object> results = batchExecutor.executeLenient(rawKeys, 2, (connection, rawKey) -> {
+            connection.expire(rawKey, ttlOfKey.get(rawKey));
+            readManifestHeader(connection, rawKey);
+        });
+        List<Boolean> expired = new ArrayList<>(fullKeys.size());
+        Map<String, Manifest> manifests = new LinkedHashMap<>();
+        Map<String, Integer> manifestTtls = new LinkedHashMap<>();
+        for (int i = 0; i < fullKeys.size(); i++) {
+            Object result = results.get(i * 2);
+            if (result instanceof RuntimeException) {
+                throw (RuntimeException) result;
+            }
+            expired.add(Boolean.TRUE.equals(result));
+            Manifest manifest = Manifest.parse(asBytes(results.get(i * 2 + 1)));
+            if (null != manifest) {
+                manifests.put(fullKeys.get(i), manifest);
+                manifestTtls.put(fullKeys.get(i), ttls[i]);
+            }
+        }
+        expireChunks(manifests, manifestTtls);
+        return expired;
+    }
+
+    /**
+     * 批量读取value并设置过期时间(GET + EXPIRE)，分片存储的key同时设置分片的过期时间并组装value
+     *
+     * @param fullKeys 带namespace的key
+     * @param rawKeys  序列化后的key，与 fullKeys 一一对应
+     * @param ttls     每个key的过期时间，单位秒
+     * @return 每个key的value，不存在时为 null
+     */
+    List<Object> getAndExpire(List<String> fullKeys, List<byte[]> rawKeys, int[] ttls) {
+        Map<byte[], Integer> ttlOfKey = ttlOfKey(rawKeys, ttls);
+        List<Object> results = batchExecutor.execute(rawKeys, 2, (connection, rawKey) -> {
+            connection.get(rawKey);
+            connection.expire(rawKey, ttlOfKey.get(rawKey));
+        });
+        Map<String, Manifest> manifests = new LinkedHashMap<>();
+        Map<String, Integer> manifestTtls = new LinkedHashMap<>();
+        for (int i = 0; i < fullKeys.size(); i++) {
+            Manifest manifest = Manifest.parse((byte[]) results.get(i * 2));
+            if (null != manifest) {
+                manifests.put(fullKeys.get(i), manifest);
+                manifestTtls.put(fullKeys.get(i), ttls[i]);
+            }
+        }
+        expireChunks(manifests, manifestTtls);
+        List<Object> values = new ArrayList<>(fullKeys.size());
+        for (int i = 0; i < fullKeys.size(); i++) {
+            Manifest manifest = manifests.get(fullKeys.get(i));
+            if (null == manifest) {
+                values.add(redisTemplate.getValueSerializer().deserialize((byte[]) results.get(i * 2)));
+                continue;
+            }
+            byte[] value = read(redisTemplate, fullKeys.get(i), manifest);
+            values.add(null != value ? deserialize(value) : get(redisTemplate, fullKeys.get(i)));
+        }
+        return values;
+    }
+
+    /**
+     * 删除key及其分片
+     *
+     * @param fullKey
+     * @return
+     */
+    Boolean delete(String fullKey) {
+        byte[] rawKey = rawKey(fullKey);
+        // 非字符串类型的key执行 GETRANGE 返回 null，不影响 DEL 的结果
+        List<byte[]> keys = Collections.singletonList(rawKey);
+        List<Object> results = batchExecutor.executeLenient(keys, 2, (connection, key) -> {
+            readManifestHeader(connection, key);
+            connection.del(key);
+        });
+        if (results.get(1) instanceof RuntimeException) {
+            throw (RuntimeException) results.get(1);
+        }
+        Manifest manifest = Manifest.parse(asBytes(results.get(0)));
+        if (null != manifest) {
+            Map<String, Manifest> stale = new LinkedHashMap<>(2);
+            stale.put(fullKey, manifest);
+            deleteChunks(stale);
+        }
+        return Long.valueOf(1L).equals(results.get(1));
+    }
+
+    /**
+     * 匹配分片key的模式，用于按模式删除时同时删除分片；匹配到的key需要再通过 {@link #parseChunkKey(String)} 确认
+     *
+     * @param fullPattern 带namespace的模式
+     * @return 不含 hash tag 的原key的分片模式；原模式不以 * 结尾时还包括已有 hash tag 的原key的分片模式
+     */
+    static List<String> chunkPatterns(String fullPattern) {
+        List<String> patterns = new ArrayList<>(2);
+        patterns.add("{" + fullPattern + "}" + CHUNK_SUFFIX + "*");
+        // 以 * 结尾的模式已经匹配 原key:chunk:代号:序号
+        if (!endsWithWildcard(fullPattern)) {
+            patterns.add(fullPattern + CHUNK_SUFFIX + "*");
+        }
+        return patterns;
+    }
+
+    /**
+     * 解析分片key，支持 {原key}:chunk:代号:序号 及已有 hash tag 的 原key:chunk:代号:序号 两种形式
+     *
+     * @param key 分片key
+     * @return 原key 及分片后缀，不是分片key时返回 null
+     */
+    static String[] parseChunkKey(String key) {
+        int start = key.lastIndexOf(CHUNK_SUFFIX);
+        if (start <= 0 || !isChunkSuffix(key, start + CHUNK_SUFFIX.length())) {
+            return null;
+        }
+        String base = key.substring(0, start);
+        String suffix = key.substring(start);
+        String inner = base.length() > 2 && base.startsWith("{") && base.endsWith("}")
+                ? base.substring(1, base.length() - 1) : null;
+        if (null != inner && !hasHashTag(inner)) {
+            return new String[]{inner, suffix};
+        }
+        return hasHashTag(base) ? new String[]{base, suffix} : null;
+    }
+
+    /**
+     * 分片key与原key位于同一个 slot：原key已有 hash tag 时直接追加后缀，否则以原key作为 hash tag
+     *
+     * @param fullKey 带namespace的原key
+     * @param suffix  {@link #parseChunkKey(String)} 返回的分片后缀
+     * @return 分片key
+     */
+    static String chunkKey(String fullKey, String suffix) {
+        return hasHashTag(fullKey) ? fullKey + suffix : "{" + fullKey + "}" + suffix;
+    }
+
+    private byte[] read(RedisTemplate template, String fullKey, Manifest manifest) {
+        byte[] target = new byte[manifest.length];
+        int window = Math.max(1, config.getReadWindow());
+        AtomicBoolean missing = new AtomicBoolean();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int from = 0; from < manifest.count; from += window) {
+            int start = from;
+            int end = Math.min(from + window, manifest.count);
+            futures.add(CompletableFuture.runAsync(() -> {
+                List<Object> chunks = template.executePipelined((RedisConnection connection) -> {
+                    for (int i = start; i < end; i++) {
+                        connection.get(chunkKey(fullKey, manifest, i));
+                    }
+                    return null;
+                }, RedisSerializer.byteArray());
+                for (int i = start; i < end; i++) {
+                    byte[] chunk = (byte[]) chunks.get(i - start);
+                    if (null == chunk || (long) i * manifest.chunkSize + chunk.length > target.length) {
+                        missing.set(true);
+                        return;
+                    }
+                    System.arraycopy(chunk, 0, target, i * manifest.chunkSize, chunk.length);
+                }
+            }, batchExecutor.getExecutor()));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        return missing.get() ? null : target;
+    }
+
+    /**
+     * 读取value开头不超过清单长度的部分，结果在 closePipeline 时返回，非字符串类型的key为 null
+     */
+    private static void readManifestHeader(RedisConnection connection, byte[] rawKey) {
+        LettuceCommands.executeRawOrNull(connection, "GETRANGE", rawKey, MANIFEST_RANGE_START, MANIFEST_RANGE_END);
+    }
+
+    private void writeChunks(RedisConnection connection, String fullKey, Manifest manifest, byte[] rawValue,
+                             long expireSeconds) {
+        Expiration expiration = expireSeconds > 0 ? Expiration.seconds(expireSeconds + 1) : Expiration.persistent();
+        for (int i = 0; i < manifest.count; i++) {
+            int from = i * manifest.chunkSize;
+            byte[] chunk = Arrays.copyOfRange(rawValue, from, Math.min(from + manifest.chunkSize, rawValue.length));
+            connection.set(chunkKey(fullKey, manifest, i), chunk, expiration, SetOption.upsert());
+        }
+    }
+
+    private void expireChunks(Map<String, Manifest> manifests, Map<String, Integer> ttls) {
+        if (manifests.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined((RedisConnection connection) -> {
+            manifests.forEach((fullKey, manifest) -> {
+                int ttl = ttls.get(fullKey);
+                for (int i = 0; i < manifest.count; i++) {
+                    // 过期时间不大于0时与清单一起删除
+                    connection.expire(chunkKey(fullKey, manifest, i), ttl > 0 ? ttl + 1 : ttl);
+                }
+            });
+            return null;
+        });
+    }
+
+    private void deleteChunks(Map<String, Manifest> manifests) {
+        if (manifests.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined((RedisConnection connection) -> {
+            manifests.forEach((fullKey, manifest) -> {
+                byte[][] keys = new byte[manifest.count][];
+                for (int i = 0; i < manifest.count; i++) {
+                    keys[i] = chunkKey(fullKey, manifest, i);
+                }
+                connection.del(keys);
+            });
+            return null;
+        });
+    }
+
+    private byte[] getRaw(RedisTemplate template, String fullKey) {
+        return (byte[]) template.execute((RedisConnection connection) -> connection.get(rawKey(fullKey)));
+    }
+
+    private Object deserialize(byte[] value) {
+        return null == value ? null : redisTemplate.getValueSerializer().deserialize(value);
+    }
+
+    private byte[] rawKey(String fullKey) {
+        return redisTemplate.getKeySerializer().serialize(fullKey);
+    }
+
+    private static Expiration expiration(long expireSeconds) {
+        return expireSeconds > 0 ? Expiration.seconds(expireSeconds) : Expiration.persistent();
+    }
+
+    private static Map<byte[], Integer> ttlOfKey(List<byte[]> rawKeys, int[] ttls) {
+        Map<byte[], Integer> ttlOfKey = new IdentityHashMap<>(rawKeys.size() * 2);
+        for (int i = 0; i < rawKeys.size(); i++) {
+            ttlOfKey.put(rawKeys.get(i), ttls[i]);
+        }
+        return ttlOfKey;
+    }
+
+    private static byte[] asBytes(Object result) {
+        return result instanceof byte[] ? (byte[]) result : null;
+    }
+
+    private byte[] chunkKey(String fullKey, Manifest manifest, int index) {
+        return rawKey(chunkKey(fullKey, CHUNK_SUFFIX + manifest.generation + ":" + index));
+    }
+
+    private static boolean hasHashTag(String key) {
+        int open = key.indexOf('{');
+        return open >= 0 && key.indexOf('}', open + 1) > open + 1;
+    }
+
+    /**
+     * @return from 开始是否为 代号:序号
+     */
+    private static boolean isChunkSuffix(String key, int from) {
+        int colon = key.indexOf(':', from);
+        if (colon <= from || colon == key.length() - 1) {
+            return false;
+        }
+        for (int i = from; i < key.length(); i++) {
+            char c = key.charAt(i);
+            boolean valid = i < colon ? Character.digit(c, 16) >= 0 : i == colon || (c >= '0' && c <= '9');
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean endsWithWildcard(String pattern) {
+        int backslashes = 0;
+        for (int i = pattern.length() - 2; i >= 0 && pattern.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return pattern.endsWith("*") && backslashes % 2 == 0;
+    }
+
+    /**
+     * 分片清单：分片数、value总长度、分片大小及分片代号
+     */
+    private static final class Manifest {
+
+        private final int count;
+
+        private final int length;
+
+        private final int chunkSize;
+
+        private final String generation;
+
+        private Manifest(int count, int length, int chunkSize, String generation) {
+            this.count = count;
+            this.length = length;
+            this.chunkSize = chunkSize;
+            this.generation = generation;
+        }
+
+        static Manifest create(int length, int chunkSize) {
+            String generation = Long.toHexString(ThreadLocalRandom.current().nextLong());
+            return new Manifest((length + chunkSize - 1) / chunkSize, length, chunkSize, generation);
+        }
+
+        byte[] encode() {
+            byte[] body = (count + ":" + length + ":" + chunkSize + ":" + generation)
+                    .getBytes(StandardCharsets.US_ASCII);
+            byte[] manifest = Arrays.copyOf(MAGIC, MAGIC.length + body.length);
+            System.arraycopy(body, 0, manifest, MAGIC.length, body.length);
+            return manifest;
+        }
+
+        /**
+         * @return 不是清单时返回 null
+         */
+        static Manifest parse(byte[] raw) {
+            if (null == raw || raw.length <= MAGIC.length || raw.length > MANIFEST_MAX_LENGTH) {
+                return null;
+            }
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (raw[i] != MAGIC[i]) {
+                    return null;
+                }
+            }
+            String[] fields = new String(raw, MAGIC.length, raw.length - MAGIC.length, StandardCharsets.US_ASCII)
+                    .split(":");
+            if (fields.length != 4) {
+                return null;
+            }
+            return new Manifest(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]),
+                    Integer.parseInt(fields[2]), fields[3]);
+        }
+    }
+}
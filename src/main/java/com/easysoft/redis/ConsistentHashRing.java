@@ -0,0 +1,154 @@
+package com.easysoft.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 带虚拟节点的一致性哈希环，哈希函数为 MurmurHash3(x86_32)。
+ * <p>
+ * 每个节点在环上放置 virtualNodes 个点(由 "节点名#序号" 计算)，key 归属顺时针方向的第一个点；
+ * 增加或删除一个节点时，只有约 1/N 的 key 改变归属。与 Redis Cluster 相同，key 中包含非空的 {...} 时只对花括号内的
+ * 部分(hash tag)计算哈希，使相关的 key 落在同一节点。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-04 10:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-04 10:00
+ */
+public class ConsistentHashRing {
+
+    private final List<String> nodes;
+
+    private final int virtualNodes;
+
+    /**
+     * 环上的点，按有符号整数升序
+     */
+    private final int[] points;
+
+    /**
+     * 与 points 对应的节点
+     */
+    private final String[] owners;
+
+    /**
+     * @param nodes        节点名，不可重复
+     * @param virtualNodes 每个节点的虚拟节点数
+     */
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        Set<String> distinct = new LinkedHashSet<>(nodes);
+        if (distinct.isEmpty()) {
+            throw new IllegalArgumentException("consistent hash ring requires at least one node");
+        }
+        if (distinct.size() != nodes.size()) {
+            throw new IllegalArgumentException("duplicate node in " + nodes);
+        }
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(distinct));
+        this.virtualNodes = Math.max(1, virtualNodes);
+        int size = this.nodes.size() * this.virtualNodes;
+        long[] entries = new long[size];
+        int index = 0;
+        for (int n = 0; n < this.nodes.size(); n++) {
+            for (int i = 0; i < this.virtualNodes; i++) {
+                // 高 32 位为哈希值，低 32 位为节点序号，排序后哈希冲突的点按节点序号确定归属
+                entries[index++] = (long) hash(this.nodes.get(n) + "#" + i) << 32 | n;
+            }
+        }
+        Arrays.sort(entries);
+        points = new int[size];
+        owners = new String[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = (int) (entries[i] >> 32);
+            owners[i] = this.nodes.get((int) entries[i]);
+        }
+    }
+
+    /**
+     * @param key 不含namespace的key
+     * @return key 所属的节点
+     */
+    public String nodeFor(String key) {
+        int hash = hash(hashTag(key));
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            // 相同哈希值的点可能有多个，取第一个
+            while (index > 0 && points[index - 1] == hash) {
+                index--;
+            }
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    /**
+     * @return key 中第一个 { 与其后第一个 } 之间的内容，不存在或为空时返回 key
+     */
+    static String hashTag(String key) {
+        int start = key.indexOf('{');
+        if (start >= 0) {
+            int end = key.indexOf('}', start + 1);
+            if (end > start + 1) {
+                return key.substring(start + 1, end);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * @return MurmurHash3 x86_32(seed 0)
+     */
+    static int hash(String text) {
+        byte[] data = text.getBytes(StandardCharsets.UTF_8);
+        int h = 0;
+        int length = data.length;
+        int blocks = length & ~3;
+        for (int i = 0; i < blocks; i += 4) {
+            int k = data[i] & 0xff | (data[i + 1] & 0xff) << 8 | (data[i + 2] & 0xff) << 16 | data[i + 3] << 24;
+            h ^= mix(k);
+            h = Integer.rotateLeft(h, 13) * 5 + 0xe6546b64;
+        }
+        int k = 0;
+        switch (length & 3) {
+            case 3:
+                k ^= (data[blocks + 2] & 0xff) << 16;
+                // fall through
+            case 2:
+                k ^= (data[blocks + 1] & 0xff) << 8;
+                // fall through
+            case 1:
+                k ^= data[blocks] & 0xff;
+                h ^= mix(k);
+                break;
+            default:
+                break;
+        }
+        h ^= length;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int mix(int k) {
+        k *= 0xcc9e2d51;
+        k = Integer.rotateLeft(k, 15);
+        return k * 0x1b873593;
+    }
+}
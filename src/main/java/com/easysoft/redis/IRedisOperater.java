@@ -1,11 +1,14 @@
 package com.easysoft.redis;
 
+import org.springframework.data.redis.connection.DataType;
 import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Redis操作接口
@@ -51,6 +54,18 @@ public interface IRedisOperater {
         return getNamespace() + key;
     }
 
+    /**
+     * 返回使用独立 namespace 的视图，key 前缀为 当前namespace + name + "."，如 app.tenant1.user::1，
+     * 用于同一服务内按租户隔离key，调用方不再手工拼接前缀。
+     * <p>
+     * 视图与当前实例共用连接、线程池及拦截器，按 name 缓存，重复调用返回同一实例；每个视图单独统计命令数，
+     * 并可通过 easysoft.redis.tenant 设置 key 数量配额
+     *
+     * @param name 视图名
+     * @return
+     */
+    IRedisOperater withNamespace(String name);
+
     /**
      * 对hash的field进行序列化
      *
@@ -84,6 +99,30 @@ public interface IRedisOperater {
      */
     Long delByPattern(String pattern);
 
+    /**
+     * 基于 SCAN 遍历匹配模式的key，返回不含namespace的key。
+     * <p>
+     * 遍历是惰性的，每次只读取一页，不阻塞 Redis，也不会一次加载所有key；遍历期间一直存在的key至少返回一次，可能重复。
+     * 返回的 Stream 占用连接，使用后需要关闭(try-with-resources)。集群模式下各 master 节点并行遍历。
+     *
+     * @param pattern 不含namespace的模式，null 表示所有key
+     * @param count   每页的建议数量(SCAN 的 COUNT)
+     * @return
+     */
+    default Stream<String> scan(String pattern, int count) {
+        return scan(pattern, count, null);
+    }
+
+    /**
+     * 同 {@link #scan(String, int)}，只返回指定类型的key，类型通过每页一次 pipeline 的 TYPE 命令判断
+     *
+     * @param pattern 不含namespace的模式，null 表示所有key
+     * @param count   每页的建议数量(SCAN 的 COUNT)
+     * @param type    key 的类型，null 表示不过滤
+     * @return
+     */
+    Stream<String> scan(String pattern, int count, DataType type);
+
     /**
      * 往缓存写数据(会覆写旧值)
      *
@@ -93,14 +132,32 @@ public interface IRedisOperater {
      */
     <T> void set(final String key, final T value);
 
+    /**
+     * 延迟合并写入，同一key(或哈希域)在刷新周期内的多次写入只发送最后一次，
+     * 需要启用 easysoft.redis.write-behind.enabled，未启用时直接写入
+     *
+     * @return
+     */
+    WriteBehind writeBehind();
 
     /**
-     * 往缓存写数据(会覆写旧值)
+     * 带选项写数据，EX/PX/NX/XX/KEEPTTL/GET 合并为一条 SET 命令；启用分片存储(easysoft.redis.chunk)时不支持
+     *
+     * @param <T>
+     * @param key   缓存Key
+     * @param value 缓存数据
+     * @return SET 选项构造器，调用 execute() 或 get() 后执行
+     */
+    <T> SetOperation<T> setWith(final String key, final T value);
+
+
+    /**
+     * 往缓存写数据并设置过期时间(SETEX，key 不存在时也会写入，会覆写旧值)
      *
      * @param <T>
      * @param key
      * @param value
-     * @param expire 缓存时长，单位秒
+     * @param expire 缓存时长，单位秒，按 easysoft.redis.ttl-jitter 添加随机抖动
      */
     <T> Boolean setex(final String key, final T value, final int expire);
 
@@ -111,7 +168,7 @@ public interface IRedisOperater {
      * @param <T>
      * @param key
      * @param value
-     * @param expire 缓存时长，单位秒, expire 大于0时设置过期时间
+     * @param expire 缓存时长，单位秒, expire 大于0时设置过期时间，按 easysoft.redis.ttl-jitter 添加随机抖动
      * @return 设置是否成功 。
      */
     <T> Boolean setnx(final String key, final T value, final int expire);
@@ -165,7 +222,7 @@ public interface IRedisOperater {
      * 设置过期时间
      *
      * @param key
-     * @param expire 缓存时长，单位秒
+     * @param expire 缓存时长，单位秒，按 easysoft.redis.ttl-jitter 添加随机抖动
      * @return Boolean
      */
     Boolean expire(final String key, final int expire);
@@ -180,6 +237,63 @@ public interface IRedisOperater {
      */
     Long ttl(final String key);
 
+    /**
+     * 批量设置过期时间，所有命令通过 pipeline 一次往返执行(集群模式按节点分组)。
+     * 同一批key使用相同的过期时间(按第一个key的前缀计算抖动)，用于同时过期的关联key，如会话的多个key
+     *
+     * @param keys
+     * @param expire 缓存时长，单位秒
+     * @return 设置成功(key存在)的个数
+     */
+    Long expireAll(final Collection<String> keys, final int expire);
+
+    /**
+     * 批量获取剩余生存时间，所有命令通过 pipeline 一次往返执行
+     *
+     * @param keys
+     * @return key -> 剩余生存时间(秒)，与 {@link #ttl(String)} 含义相同，顺序与 keys 一致
+     */
+    Map<String, Long> ttlAll(final Collection<String> keys);
+
+    /**
+     * 读取并刷新过期时间(GET + EXPIRE 通过 pipeline 一次往返)，用于滑动过期的会话
+     *
+     * @param <T>
+     * @param key
+     * @param expire 缓存时长，单位秒，按 easysoft.redis.ttl-jitter 添加随机抖动
+     * @return key 不存在时返回 null
+     */
+    <T> T getAndTouch(final String key, final int expire);
+
+    /**
+     * 批量读取并刷新过期时间，所有命令通过 pipeline 一次往返执行，过期时间规则同 {@link #expireAll(Collection, int)}
+     *
+     * @param <T>
+     * @param keys
+     * @param expire 缓存时长，单位秒
+     * @return key -> value，顺序与 keys 一致，不存在的key对应 null
+     */
+    <T> Map<String, T> getAndTouchAll(final Collection<String> keys, final int expire);
+
+    /**
+     * 批量读取，所有 GET 通过 pipeline 一次往返执行(集群模式下按节点分组并行)
+     *
+     * @param <T>
+     * @param keys
+     * @return key -> value，顺序与 keys 一致，不存在的key对应 null
+     */
+    <T> Map<String, T> getAll(final Collection<String> keys);
+
+    /**
+     * 批量 SET if Not eXists，所有命令通过 pipeline 一次往返执行，已存在的 key 不覆盖
+     *
+     * @param <T>
+     * @param values key -> value
+     * @param expire 缓存时长，单位秒, expire 大于0时设置过期时间，按 easysoft.redis.ttl-jitter 添加随机抖动
+     * @return key -> 是否写入，顺序与 values 一致
+     */
+    <T> Map<String, Boolean> setnxAll(final Map<String, T> values, final int expire);
+
     /**
      * 将 key 中储存的数字值增一。 如果 key 不存在，那么 key 的值会先被初始化为 0 ，然后再执行 INCR 操作。
      * 如果值包含错误的类型，或字符串类型的值不能表示为数字，那么返回一个错误。 本操作的值限制在 64 位(bit)有符号数字表示之内。
@@ -286,6 +400,18 @@ public interface IRedisOperater {
      */
     <T> Map<String, T> hgetAll(String key);
 
+    /**
+     * 基于 HSCAN 遍历哈希表的域和值，用于不适合 hgetAll 的大哈希表；返回的 Stream 使用后需要关闭
+     *
+     * @param key
+     * @param pattern 域的匹配模式，null 表示所有域
+     * @param count   每页的建议数量
+     * @param <F>
+     * @param <T>
+     * @return
+     */
+    <F, T> Stream<Map.Entry<F, T>> hscan(String key, String pattern, int count);
+
     /**
      * 返回哈希表 key 中，一个或多个给定域的值。 如果给定的域不存在于哈希表，那么返回一个 nil 值。 因为不存在的 key
      * 被当作一个空哈希表来处理，所以对一个不存在的 key 进行 HMGET 操作将返回一个只带有 nil 值的表。
@@ -297,6 +423,25 @@ public interface IRedisOperater {
      */
     <T> List<T> hmget(String key, Object... field);
 
+    /**
+     * 批量返回多个哈希表中给定域的值，各 key 通过 pipeline 一次往返获取，集群模式下按节点分组并行执行。
+     *
+     * @param <T>
+     * @param keys
+     * @param field
+     * @return key -> (field -> value)，顺序与 keys 一致；不存在的域值为 null
+     */
+    <T> Map<String, Map<String, T>> hmgetMulti(List<String> keys, Object... field);
+
+    /**
+     * 批量返回多个哈希表的所有域和值，各 key 通过 pipeline 一次往返获取，集群模式下按节点分组并行执行。
+     *
+     * @param <T>
+     * @param keys
+     * @return key -> (field -> value)，顺序与 keys 一致；不存在的 key 对应空 Map
+     */
+    <T> Map<String, Map<String, T>> hgetAllMulti(List<String> keys);
+
     /**
      * 删除哈希表 key 中的一个或多个指定域，不存在的域将被忽略。
      *
@@ -484,6 +629,17 @@ public interface IRedisOperater {
      */
     <T> List<T> lrange(String key, int start, int stop);
 
+    /**
+     * 同 {@link #lrange(String, int, int)}，元素为整数时直接解析为 long 数组，不创建装箱对象
+     *
+     * @param key
+     * @param start
+     * @param stop
+     * @return 指定区间内的元素
+     * @throws RedisOperationException 存在不是整数的元素
+     */
+    long[] lrangeLong(String key, int start, int stop);
+
     /**
      * 根据参数 count 的值，移除列表中与参数 value 相等的元素。<br>
      * <p>
@@ -638,6 +794,40 @@ public interface IRedisOperater {
      */
     <T> Set<TypedTuple<T>> zrangeByScoreWithScores(String key, double min, double max);
 
+    /**
+     * 基于 ZSCAN 遍历有序集合的成员及 score，返回顺序不按 score 排序；返回的 Stream 使用后需要关闭
+     *
+     * @param key
+     * @param pattern 成员序列化后的匹配模式，null 表示所有成员
+     * @param count   每页的建议数量
+     * @param <T>
+     * @return
+     */
+    <T> Stream<TypedTuple<T>> zscan(String key, String pattern, int count);
+
+    /**
+     * 同 {@link #zrangeWithScores(String, Long, Long)}，成员为整数(如用户ID)时直接解析为 long 数组，
+     * score 解析为对应的 double 数组，不创建装箱对象
+     *
+     * @param key
+     * @param start
+     * @param end
+     * @return 指定区间内的成员及 score
+     * @throws RedisOperationException 存在不是整数的成员
+     */
+    ScoredLongs zrangeLongWithScores(String key, long start, long end);
+
+    /**
+     * 同 {@link #zrangeByScoreWithScores(String, double, double)}，成员解析为 long 数组，score 解析为 double 数组
+     *
+     * @param key
+     * @param min
+     * @param max
+     * @return 指定 score 区间内的成员及 score
+     * @throws RedisOperationException 存在不是整数的成员
+     */
+    ScoredLongs zrangeByScoreLongWithScores(String key, double min, double max);
+
     /**
      * 移除有序集 key 中的一个或多个成员，不存在的成员将被忽略。 当 key 存在但不是有序集类型时，返回一个错误。
      *
@@ -718,6 +908,27 @@ public interface IRedisOperater {
      */
     <T> Set<T> smembers(String key);
 
+    /**
+     * 基于 SSCAN 遍历集合的成员，用于不适合 smembers 的大集合；返回的 Stream 使用后需要关闭
+     *
+     * @param key
+     * @param pattern 成员序列化后的匹配模式，null 表示所有成员
+     * @param count   每页的建议数量
+     * @param <T>
+     * @return
+     */
+    <T> Stream<T> sscan(String key, String pattern, int count);
+
+    /**
+     * 同 {@link #smembers(String)}，成员为整数(如用户ID、商品ID)时直接解析为 long 数组，不创建装箱对象。
+     * 成员可以是 Redis 原生整数，也可以是通过本类写入的 Long/Integer
+     *
+     * @param key
+     * @return 集合中的所有成员，顺序不确定
+     * @throws RedisOperationException 存在不是整数的成员
+     */
+    long[] smembersLong(String key);
+
     /**
      * 移除并返回集合中的一个随机元素。 如果只想获取一个随机元素，但不想该元素从集合中被移除的话，可以使用 SRANDMEMBER 命令。
      *
@@ -762,4 +973,23 @@ public interface IRedisOperater {
      */
     Long srem(String key, Object... member);
 
+    /**
+     * 向频道发布消息，频道名自动添加 namespace，消息使用 value 序列化器序列化。
+     * 集群模式下开启 easysoft.redis.pub-sub.sharded 时使用 SPUBLISH，消息只在频道所在的分片内传播
+     *
+     * @param channel 频道名
+     * @param message 消息
+     * @return 接收到消息的订阅者数量
+     */
+    Long publish(final String channel, final Object message);
+
+    /**
+     * 向同一频道批量发布消息，所有 PUBLISH 通过 pipeline 一次往返执行，订阅者按顺序收到消息
+     *
+     * @param channel  频道名
+     * @param messages 消息
+     * @return 每条消息接收到的订阅者数量之和
+     */
+    Long publishAll(final String channel, final Collection<?> messages);
+
 }
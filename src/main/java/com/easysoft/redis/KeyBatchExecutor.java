@@ -0,0 +1,194 @@
+package com.easysoft.redis;
+
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 多key批量操作执行器：通过 pipeline 一次往返执行所有命令。
+ * <p>
+ * 集群模式下按 slot 所在的 master 节点分组，各节点的 pipeline 并行执行，结果按原始key顺序合并。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-08 10:25
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-08 10:25
+ */
+public class KeyBatchExecutor {
+
+    private final RedisTemplate redisTemplate;
+
+    private final Executor executor;
+
+    private final boolean clusterAware;
+
+    public KeyBatchExecutor(RedisTemplate redisTemplate, Executor executor) {
+        this.redisTemplate = redisTemplate;
+        this.executor = executor;
+        RedisConnectionFactory connectionFactory = redisTemplate.getConnectionFactory();
+        this.clusterAware = connectionFactory instanceof LettuceConnectionFactory
+                && ((LettuceConnectionFactory) connectionFactory).isClusterAware();
+    }
+
+    public boolean isClusterAware() {
+        return clusterAware;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * 对每个key执行一次 callback，所有命令通过 pipeline 发送
+     *
+     * @param rawKeys  序列化后的key
+     * @param callback 每个key在 pipeline 中执行的命令，每个key只能执行一条有返回值的命令
+     * @return 原始返回值，顺序与 rawKeys 一致
+     */
+    public List<Object> execute(List<byte[]> rawKeys, PipelineCallback callback) {
+        return execute(rawKeys, 1, callback);
+    }
+
+    /**
+     * 对每个key执行一次 callback，所有命令通过 pipeline 发送
+     *
+     * @param rawKeys        序列化后的key
+     * @param commandsPerKey 每个key执行的有返回值的命令数
+     * @param callback       每个key在 pipeline 中执行的命令
+     * @return 原始返回值，第 i 个key的结果位于 [i * commandsPerKey, (i + 1) * commandsPerKey)
+     */
+    public List<Object> execute(List<byte[]> rawKeys, int commandsPerKey, PipelineCallback callback) {
+        return execute(rawKeys, commandsPerKey, callback, false);
+    }
+
+    /**
+     * 同 {@link #execute(List, int, PipelineCallback)}，单条命令失败(如 WRONGTYPE)时不抛出异常，对应位置的结果为异常对象。
+     * Lettuce 连接在任一命令失败时不返回其他命令的结果，仍然抛出异常，需要容忍失败的命令通过
+     * {@link com.easysoft.redis.connection.LettuceCommands#executeRawOrNull} 发送
+     *
+     * @param rawKeys        序列化后的key
+     * @param commandsPerKey 每个key执行的有返回值的命令数
+     * @param callback       每个key在 pipeline 中执行的命令
+     * @return
+     */
+    public List<Object> executeLenient(List<byte[]> rawKeys, int commandsPerKey, PipelineCallback callback) {
+        return execute(rawKeys, commandsPerKey, callback, true);
+    }
+
+    private List<Object> execute(List<byte[]> rawKeys, int commandsPerKey, PipelineCallback callback,
+                                 boolean lenient) {
+        if (rawKeys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (!clusterAware || rawKeys.size() == 1) {
+            return pipelined(rawKeys, callback, lenient);
+        }
+        Map<RedisClusterNode, List<Integer>> groups = groupByNode(rawKeys);
+        if (groups.size() == 1) {
+            return pipelined(rawKeys, callback, lenient);
+        }
+        Object[] results = new Object[rawKeys.size() * commandsPerKey];
+        List<CompletableFuture<Void>> futures = new ArrayList<>(groups.size());
+        for (List<Integer> indexes : groups.values()) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                List<byte[]> groupKeys = new ArrayList<>(indexes.size());
+                for (Integer index : indexes) {
+                    groupKeys.add(rawKeys.get(index));
+                }
+                List<Object> groupResults = pipelined(groupKeys, callback, lenient);
+                for (int i = 0; i < indexes.size(); i++) {
+                    for (int j = 0; j < commandsPerKey; j++) {
+                        results[indexes.get(i) * commandsPerKey + j] = groupResults.get(i * commandsPerKey + j);
+                    }
+                }
+            }, executor));
+        }
+        join(futures);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 按 slot 所在 master 节点分组，拓扑信息来自客户端本地缓存，不会产生额外的网络请求
+     *
+     * @param rawKeys
+     * @return 节点 -> key在 rawKeys 中的下标
+     */
+    private Map<RedisClusterNode, List<Integer>> groupByNode(List<byte[]> rawKeys) {
+        return (Map<RedisClusterNode, List<Integer>>) redisTemplate.execute((RedisConnection connection) -> {
+            RedisClusterConnection clusterConnection = (RedisClusterConnection) connection;
+            Map<Integer, RedisClusterNode> slotNodes = new HashMap<>();
+            Map<RedisClusterNode, List<Integer>> groups = new LinkedHashMap<>();
+            for (int i = 0; i < rawKeys.size(); i++) {
+                int slot = ClusterSlotHashUtil.calculateSlot(rawKeys.get(i));
+                RedisClusterNode node = slotNodes.computeIfAbsent(slot, clusterConnection::clusterGetNodeForSlot);
+                groups.computeIfAbsent(node, n -> new ArrayList<>()).add(i);
+            }
+            return groups;
+        });
+    }
+
+    private List<Object> pipelined(List<byte[]> rawKeys, PipelineCallback callback, boolean lenient) {
+        return (List<Object>) redisTemplate.execute((RedisConnection connection) -> {
+            connection.openPipeline();
+            boolean closed = false;
+            try {
+                for (byte[] rawKey : rawKeys) {
+                    callback.doInPipeline(connection, rawKey);
+                }
+                closed = true;
+                return connection.closePipeline();
+            } catch (RedisPipelineException ex) {
+                // Lettuce 连接在命令失败时不返回其他命令的结果
+                if (lenient && !ex.getPipelineResult().isEmpty()) {
+                    return ex.getPipelineResult();
+                }
+                throw ex;
+            } finally {
+                if (!closed) {
+                    connection.closePipeline();
+                }
+            }
+        }, true);
+    }
+
+    private static void join(List<CompletableFuture<Void>> futures) {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * pipeline 中对单个key执行的命令
+     */
+    @FunctionalInterface
+    public interface PipelineCallback {
+        /**
+         * 在 pipeline 中执行命令，返回值被忽略，结果由 closePipeline 统一返回
+         *
+         * @param connection
+         * @param rawKey
+         */
+        void doInPipeline(RedisConnection connection, byte[] rawKey);
+    }
+}
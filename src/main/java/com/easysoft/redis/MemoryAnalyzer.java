@@ -0,0 +1,401 @@
+package com.easysoft.redis;
+
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import com.easysoft.redis.connection.LettuceCommands;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * namespace 内存分析：通过 SCAN 遍历 namespace 下的 key，每页通过一次 pipeline 执行 MEMORY USAGE、OBJECT ENCODING、PTTL，
+ * 按 key 前缀(namespace 之后、第一个分隔符之前的部分)统计占用的字节数、key 数量、没有过期时间的 key 及非紧凑编码的 key，
+ * 用于定位占用内存的功能。
+ * <p>
+ * 分析在单独的线程中增量执行，每次只检查一页，按 rate 限制每秒检查的 key 数量；命令使用独占连接且不经过调用链，
+ * 不占用业务命令的连接，也不计入慢命令日志等统计。分析期间可以通过 {@link #getProgress()} 查看当前进度。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-07 10:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-07 10:00
+ */
+@Slf4j
+public class MemoryAnalyzer implements DisposableBean {
+
+    private static final String NO_PREFIX = "(none)";
+
+    private static final String OTHER_PREFIX = "(other)";
+
+    /**
+     * 非紧凑编码，元素较少时通常可以通过调整 *-max-ziplist-* 等配置改为紧凑编码
+     */
+    private static final Set<String> NON_COMPACT = new HashSet<>(Arrays.asList("hashtable", "skiplist",
+            "linkedlist"));
+
+    private final RedisOperater redisOperater;
+
+    private final RedisProperties.MemoryAnalysis config;
+
+    private final ScheduledExecutorService scheduler;
+
+    private volatile MemoryReport report;
+
+    /**
+     * 保护 current，不使用 synchronized，避免在虚拟线程中固定载体线程；持有锁期间不执行 Redis 命令
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Pass current;
+
+    public MemoryAnalyzer(RedisOperater redisOperater, RedisProperties.MemoryAnalysis config) {
+        this.redisOperater = redisOperater;
+        this.config = config;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("easysoft-redis-memory-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long interval = config.getInterval().toMillis();
+        if (interval > 0) {
+            scheduler.scheduleWithFixedDelay(this::start, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 开始一次分析
+     *
+     * @return 已有分析在执行时返回 false
+     */
+    public boolean start() {
+        Pass pass = new Pass();
+        lock.lock();
+        try {
+            if (null != current || scheduler.isShutdown()) {
+                return false;
+            }
+            current = pass;
+        } finally {
+            lock.unlock();
+        }
+        // 在锁外打开游标
+        Stream<String> keys;
+        try {
+            keys = redisOperater.scan(null, Math.max(1, config.getBatchSize()));
+        } catch (RuntimeException ex) {
+            finish(pass, null);
+            throw ex;
+        }
+        lock.lock();
+        try {
+            if (current == pass) {
+                pass.open(keys);
+                scheduler.execute(this::step);
+                return true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        // 打开游标期间已取消
+        keys.close();
+        return false;
+    }
+
+    /**
+     * 停止正在执行的分析，已统计的结果丢弃
+     */
+    public void cancel() {
+        Pass pass;
+        lock.lock();
+        try {
+            pass = current;
+            current = null;
+        } finally {
+            lock.unlock();
+        }
+        if (null != pass) {
+            pass.close();
+        }
+    }
+
+    public boolean isRunning() {
+        return null != current();
+    }
+
+    private Pass current() {
+        lock.lock();
+        try {
+            return current;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 最近一次完成的分析报告，尚未完成过分析时返回 null
+     */
+    public MemoryReport getReport() {
+        return report;
+    }
+
+    /**
+     * @return 正在执行的分析的当前结果，没有正在执行的分析时返回 null
+     */
+    public MemoryReport getProgress() {
+        Pass pass = current();
+        return null == pass ? null : pass.report(false);
+    }
+
+    @Override
+    public void destroy() {
+        cancel();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 检查一页 key，按 rate 计算下一页的延迟
+     */
+    private void step() {
+        Pass pass = current();
+        if (null == pass) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int batchSize = Math.max(1, config.getBatchSize());
+        List<String> page = new ArrayList<>(batchSize);
+        try {
+            while (page.size() < batchSize && pass.iterator.hasNext()) {
+                page.add(pass.iterator.next());
+            }
+            if (page.isEmpty()) {
+                finish(pass, pass.report(true));
+                return;
+            }
+            pass.add(page);
+        } catch (RuntimeException ex) {
+            log.warn("memory analysis of namespace {} failed", redisOperater.getNamespace(), ex);
+            finish(pass, null);
+            return;
+        }
+        long delay = config.getRate() > 0 ? page.size() * 1000L / config.getRate() : 0;
+        lock.lock();
+        try {
+            if (current == pass && !scheduler.isShutdown()) {
+                scheduler.schedule(this::step, Math.max(0, delay - (System.currentTimeMillis() - start)),
+                        TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void finish(Pass pass, MemoryReport completed) {
+        pass.close();
+        lock.lock();
+        try {
+            if (current != pass) {
+                return;
+            }
+            current = null;
+        } finally {
+            lock.unlock();
+        }
+        if (null != completed) {
+            report = completed;
+            log.info("memory analysis of namespace {} finished, {} keys, {} bytes", completed.getNamespace(),
+                    completed.getKeys(), completed.getBytes());
+        }
+    }
+
+    /**
+     * 通过独占连接检查一批 key，不经过调用链
+     *
+     * @return 每个key三个结果，见 {@link LettuceCommands#inspect}
+     */
+    private List<Object> inspect(List<String> keys) {
+        RedisTemplate template = redisOperater.getRedisTemplate();
+        RedisSerializer keySerializer = template.getKeySerializer();
+        List<byte[]> rawKeys = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            rawKeys.add(keySerializer.serialize(redisOperater.key(key)));
+        }
+        return (List<Object>) template.execute((RedisConnection connection) -> {
+            return LettuceCommands.inspect(connection, rawKeys, config.getTimeout());
+        }, true);
+    }
+
+    private String prefixOf(String key, Map<String, MemoryReport.Prefix> prefixes) {
+        int index = key.indexOf(config.getKeySeparator());
+        String prefix = index < 0 ? NO_PREFIX : key.substring(0, index);
+        if (!prefixes.containsKey(prefix) && prefixes.size() >= Math.max(1, config.getMaxPrefixes())) {
+            return OTHER_PREFIX;
+        }
+        return prefix;
+    }
+
+    /**
+     * 一次分析的游标及累计结果，前缀统计中的字节数等为抽样检查到的原始值
+     */
+    private final class Pass {
+
+        /**
+         * 保护累计结果
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final long startedAt = System.currentTimeMillis();
+
+        private final Map<String, MemoryReport.Prefix> prefixes = new HashMap<>();
+
+        private Stream<String> keys;
+
+        private Iterator<String> iterator;
+
+        private long failedKeys;
+
+        /**
+         * 在外部锁中设置游标，step 通过同一把锁读取 current 后使用
+         */
+        void open(Stream<String> keys) {
+            this.keys = keys;
+            this.iterator = keys.iterator();
+        }
+
+        void close() {
+            Stream<String> opened;
+            MemoryAnalyzer.this.lock.lock();
+            try {
+                opened = keys;
+            } finally {
+                MemoryAnalyzer.this.lock.unlock();
+            }
+            if (null != opened) {
+                opened.close();
+            }
+        }
+
+        void add(List<String> page) {
+            List<String> sampled = new ArrayList<>(page.size());
+            lock.lock();
+            try {
+                for (String key : page) {
+                    MemoryReport.Prefix prefix = prefixes.computeIfAbsent(prefixOf(key, prefixes), this::newPrefix);
+                    prefix.setKeys(prefix.getKeys() + 1);
+                    if (config.getSampleRatio() >= 1 || ThreadLocalRandom.current().nextDouble()
+                            < config.getSampleRatio()) {
+                        sampled.add(key);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (sampled.isEmpty()) {
+                return;
+            }
+            List<Object> results;
+            try {
+                results = inspect(sampled);
+            } catch (RuntimeException ex) {
+                log.warn("inspect {} keys for memory analysis failed", sampled.size(), ex);
+                lock.lock();
+                try {
+                    failedKeys += sampled.size();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            lock.lock();
+            try {
+                for (int i = 0; i < sampled.size(); i++) {
+                    Long bytes = (Long) results.get(i * 3);
+                    String encoding = (String) results.get(i * 3 + 1);
+                    Long ttl = (Long) results.get(i * 3 + 2);
+                    if (null == bytes || null == encoding) {
+                        // 检查前已删除或过期
+                        continue;
+                    }
+                    String key = sampled.get(i);
+                    MemoryReport.Prefix prefix = prefixes.get(prefixOf(key, prefixes));
+                    prefix.setSampledKeys(prefix.getSampledKeys() + 1);
+                    prefix.setBytes(prefix.getBytes() + bytes);
+                    prefix.getEncodings().merge(encoding, 1L, Long::sum);
+                    if (null != ttl && ttl == -1) {
+                        prefix.setNoTtlKeys(prefix.getNoTtlKeys() + 1);
+                    }
+                    if (NON_COMPACT.contains(encoding)) {
+                        prefix.setNonCompactKeys(prefix.getNonCompactKeys() + 1);
+                    }
+                    if (bytes > prefix.getLargestKeyBytes()) {
+                        prefix.setLargestKey(key);
+                        prefix.setLargestKeyBytes(bytes);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 按抽样比例估算各前缀的结果
+         */
+        MemoryReport report(boolean complete) {
+            lock.lock();
+            try {
+                return snapshot(complete);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private MemoryReport snapshot(boolean complete) {
+            MemoryReport result = new MemoryReport();
+            result.setNamespace(redisOperater.getNamespace());
+            result.setStartedAt(startedAt);
+            result.setFinishedAt(complete ? System.currentTimeMillis() : 0);
+            result.setComplete(complete);
+            result.setFailedKeys(failedKeys);
+            for (MemoryReport.Prefix sampled : prefixes.values()) {
+                double scale = sampled.getSampledKeys() == 0 ? 0
+                        : (double) sampled.getKeys() / sampled.getSampledKeys();
+                MemoryReport.Prefix prefix = newPrefix(sampled.getPrefix());
+                prefix.setKeys(sampled.getKeys());
+                prefix.setSampledKeys(sampled.getSampledKeys());
+                prefix.setBytes(Math.round(sampled.getBytes() * scale));
+                prefix.setNoTtlKeys(Math.round(sampled.getNoTtlKeys() * scale));
+                prefix.setNonCompactKeys(Math.round(sampled.getNonCompactKeys() * scale));
+                prefix.getEncodings().putAll(sampled.getEncodings());
+                prefix.setLargestKey(sampled.getLargestKey());
+                prefix.setLargestKeyBytes(sampled.getLargestKeyBytes());
+                result.getPrefixes().add(prefix);
+                result.setKeys(result.getKeys() + prefix.getKeys());
+                result.setSampledKeys(result.getSampledKeys() + prefix.getSampledKeys());
+                result.setBytes(result.getBytes() + prefix.getBytes());
+            }
+            result.getPrefixes().sort(Comparator.comparingLong(MemoryReport.Prefix::getBytes).reversed());
+            return result;
+        }
+
+        private MemoryReport.Prefix newPrefix(String name) {
+            MemoryReport.Prefix prefix = new MemoryReport.Prefix();
+            prefix.setPrefix(name);
+            return prefix;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.easysoft.redis;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * namespace 内存分析报告，见 {@link MemoryAnalyzer}
+ * <p>
+ * 只对部分 key 抽样检查时，bytes、noTtlKeys、nonCompactKeys 按 keys / sampledKeys 的比例估算。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-07 10:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-07 10:00
+ */
+@Data
+public class MemoryReport {
+
+    /**
+     * 完整的 key 前缀
+     */
+    private String namespace;
+
+    /**
+     * 开始时间，毫秒
+     */
+    private long startedAt;
+
+    /**
+     * 结束时间，毫秒，分析尚未完成时为 0
+     */
+    private long finishedAt;
+
+    /**
+     * 是否已遍历完所有 key
+     */
+    private boolean complete;
+
+    /**
+     * 遍历到的 key 数量
+     */
+    private long keys;
+
+    /**
+     * 检查了内存占用的 key 数量
+     */
+    private long sampledKeys;
+
+    /**
+     * 占用的字节数
+     */
+    private long bytes;
+
+    /**
+     * 检查失败的 key 数量
+     */
+    private long failedKeys;
+
+    /**
+     * 各前缀的统计，按字节数从大到小排列
+     */
+    private List<Prefix> prefixes = new ArrayList<>();
+
+    /**
+     * 一个 key 前缀的统计
+     */
+    @Data
+    public static class Prefix {
+
+        /**
+         * key(不含namespace)中第一个分隔符之前的部分，没有分隔符的 key 为 (none)，超出 maxPrefixes 的前缀为 (other)
+         */
+        private String prefix;
+
+        /**
+         * key 数量
+         */
+        private long keys;
+
+        /**
+         * 检查了内存占用的 key 数量
+         */
+        private long sampledKeys;
+
+        /**
+         * 占用的字节数
+         */
+        private long bytes;
+
+        /**
+         * 没有设置过期时间的 key 数量
+         */
+        private long noTtlKeys;
+
+        /**
+         * 使用非紧凑编码(hashtable、skiplist、linkedlist)的 key 数量
+         */
+        private long nonCompactKeys;
+
+        /**
+         * 编码 -> 检查到的 key 数量
+         */
+        private Map<String, Long> encodings = new LinkedHashMap<>();
+
+        /**
+         * 检查到的占用最大的 key(不含namespace)
+         */
+        private String largestKey;
+
+        /**
+         * largestKey 占用的字节数
+         */
+        private long largestKeyBytes;
+    }
+}
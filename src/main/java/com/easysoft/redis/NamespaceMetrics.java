@@ -0,0 +1,145 @@
+package com.easysoft.redis;
+
+import com.easysoft.redis.interceptor.RedisCommand;
+import com.easysoft.redis.interceptor.RedisCommandChain;
+import com.easysoft.redis.interceptor.RedisCommandInterceptor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * namespace 视图的拦截器，位于调用链最内层：统计命令数，并在 key 数量达到配额时拒绝可能新增 key 的写命令。
+ * <p>
+ * key 数量通过 SCAN 统计，代价与整个库的 key 数量成正比，因此由根实例的后台线程每 keyCountInterval 统计一次，
+ * 写线程只读取上次的结果。配额是近似限制，首次统计完成前及两次统计之间的写入不会被拒绝。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-02 10:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-02 10:00
+ */
+@Slf4j
+class NamespaceMetrics implements RedisCommandInterceptor {
+
+    /**
+     * 可能新增 key 的命令
+     */
+    private static final Set<String> CREATING = new HashSet<>(Arrays.asList("SET", "SETEX", "SETNX", "GETSET",
+            "MSET", "MSETNX", "INCR", "INCRBY", "DECR", "DECRBY", "HSET", "HSETNX", "HMSET", "HINCRBY", "LPUSH", "RPUSH",
+            "SADD", "ZADD"));
+
+    /**
+     * 统计间隔下限，避免配置为 0 时连续 SCAN
+     */
+    private static final long MIN_KEY_COUNT_INTERVAL_MILLIS = 100;
+
+    private final String namespace;
+
+    private final long maxKeys;
+
+    private final long keyCountIntervalMillis;
+
+    private final LongSupplier keyCounter;
+
+    private final LongAdder commands = new LongAdder();
+
+    private final LongAdder reads = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * 串行执行统计，避免先开始的统计覆盖后开始的结果
+     */
+    private final ReentrantLock counting = new ReentrantLock();
+
+    private volatile long keys = -1;
+
+    /**
+     * @param namespace              完整的 key 前缀
+     * @param maxKeys                key 数量配额，0 表示不限制
+     * @param keyCountIntervalMillis 两次统计 key 数量的间隔
+     * @param keyCounter             统计 key 数量，不经过调用链
+     */
+    NamespaceMetrics(String namespace, long maxKeys, long keyCountIntervalMillis, LongSupplier keyCounter) {
+        this.namespace = namespace;
+        this.maxKeys = maxKeys;
+        this.keyCountIntervalMillis = Math.max(MIN_KEY_COUNT_INTERVAL_MILLIS, keyCountIntervalMillis);
+        this.keyCounter = keyCounter;
+    }
+
+    /**
+     * 设置了配额时在后台定期统计 key 数量
+     *
+     * @param scheduler 根实例的统计线程
+     */
+    void start(ScheduledExecutorService scheduler) {
+        if (maxKeys > 0) {
+            scheduler.scheduleWithFixedDelay(this::refresh, 0, keyCountIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void refresh() {
+        try {
+            countKeys();
+        } catch (RuntimeException ex) {
+            log.warn("count keys of namespace {} failed", namespace, ex);
+        }
+    }
+
+    @Override
+    public Object intercept(RedisCommand command, RedisCommandChain chain) throws Exception {
+        commands.increment();
+        if (command.isRead()) {
+            reads.increment();
+        } else if (maxKeys > 0 && CREATING.contains(command.getName())) {
+            long current = keys;
+            if (current >= maxKeys) {
+                rejected.increment();
+                throw new RedisQuotaExceededException(command, namespace, current, maxKeys);
+            }
+        }
+        try {
+            return chain.proceed(command);
+        } catch (Exception ex) {
+            errors.increment();
+            throw ex;
+        }
+    }
+
+    /**
+     * 立即统计 key 数量
+     *
+     * @return
+     */
+    long countKeys() {
+        counting.lock();
+        try {
+            long count = keyCounter.getAsLong();
+            keys = count;
+            return count;
+        } finally {
+            counting.unlock();
+        }
+    }
+
+    NamespaceStats getStats() {
+        NamespaceStats stats = new NamespaceStats();
+        stats.setNamespace(namespace);
+        stats.setCommands(commands.sum());
+        stats.setReads(reads.sum());
+        stats.setErrors(errors.sum());
+        stats.setRejected(rejected.sum());
+        stats.setKeys(keys);
+        stats.setMaxKeys(maxKeys);
+        return stats;
+    }
+}
@@ -0,0 +1,50 @@
+package com.easysoft.redis;
+
+import lombok.Data;
+
+/**
+ * namespace 视图的命令统计及 key 数量配额，见 {@link IRedisOperater#withNamespace(String)}
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-02 10:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-02 10:00
+ */
+@Data
+public class NamespaceStats {
+
+    /**
+     * 完整的 key 前缀，如 app.tenant1.
+     */
+    private String namespace;
+
+    /**
+     * 执行的命令数
+     */
+    private long commands;
+
+    /**
+     * 其中的只读命令数
+     */
+    private long reads;
+
+    /**
+     * 执行失败的命令数，不包括因配额被拒绝的命令
+     */
+    private long errors;
+
+    /**
+     * 因超过 key 数量配额被拒绝的写命令数
+     */
+    private long rejected;
+
+    /**
+     * 最近一次统计的 key 数量，未统计过时为 -1
+     */
+    private long keys;
+
+    /**
+     * key 数量配额，0 表示不限制
+     */
+    private long maxKeys;
+}
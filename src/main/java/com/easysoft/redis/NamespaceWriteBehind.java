@@ -0,0 +1,53 @@
+package com.easysoft.redis;
+
+import java.util.Map;
+
+/**
+ * namespace 视图的延迟写入，key 添加视图相对于根实例的前缀后写入根实例的缓冲区，所有视图共用一个刷新线程
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-02 10:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-02 10:00
+ */
+class NamespaceWriteBehind implements WriteBehind {
+
+    private final WriteBehind delegate;
+
+    private final String prefix;
+
+    NamespaceWriteBehind(WriteBehind delegate, String prefix) {
+        this.delegate = delegate;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public <T> void set(String key, T value) {
+        delegate.set(prefix + key, value);
+    }
+
+    @Override
+    public <T> void setex(String key, T value, int expire) {
+        delegate.setex(prefix + key, value, expire);
+    }
+
+    @Override
+    public <F, T> void hset(String key, F field, T value) {
+        delegate.hset(prefix + key, field, value);
+    }
+
+    @Override
+    public <F, T> void hmset(String key, Map<F, T> fieldValues) {
+        delegate.hmset(prefix + key, fieldValues);
+    }
+
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+
+    @Override
+    public Stats getStats() {
+        return delegate.getStats();
+    }
+}
@@ -0,0 +1,47 @@
+package com.easysoft.redis;
+
+import java.util.function.Supplier;
+
+/**
+ * 读节点偏好。启用只读命令路由后，对读写一致性敏感的调用可以通过 {@link #master(Supplier)} 强制读 master：
+ * <pre>
+ *     redisOperater.set("order::1", order);
+ *     Order saved = ReadPreference.master(() -> redisOperater.get("order::1"));
+ * </pre>
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-16 15:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-16 15:20
+ */
+public final class ReadPreference {
+
+    private static final ThreadLocal<int[]> MASTER_ONLY = ThreadLocal.withInitial(() -> new int[1]);
+
+    private ReadPreference() {
+    }
+
+    /**
+     * 在当前线程中执行 action，期间所有读命令都发往 master，可嵌套
+     *
+     * @param action
+     * @param <T>
+     * @return action 的返回值
+     */
+    public static <T> T master(Supplier<T> action) {
+        int[] depth = MASTER_ONLY.get();
+        depth[0]++;
+        try {
+            return action.get();
+        } finally {
+            depth[0]--;
+        }
+    }
+
+    /**
+     * @return 当前线程是否要求读 master
+     */
+    public static boolean isMasterOnly() {
+        return MASTER_ONLY.get()[0] > 0;
+    }
+}
@@ -0,0 +1,105 @@
+package com.easysoft.redis;
+
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import com.easysoft.redis.connection.LettuceConnectionFactories;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 只读命令路由：按命令名和key前缀决定读命令是否使用从节点连接，写命令不经过本类。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-16 15:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-16 15:20
+ */
+public class ReadRouting implements DisposableBean {
+
+    private final RedisTemplate replicaTemplate;
+
+    private final LettuceConnectionFactory connectionFactory;
+
+    private final String node;
+
+    private final Set<String> commands;
+
+    private final String[] prefixes;
+
+    private final String[] excludePrefixes;
+
+    /**
+     * @param config
+     * @param replicaTemplate   从节点连接的 RedisTemplate，为 null 时所有命令都读 master
+     * @param connectionFactory replicaTemplate 使用的连接工厂，销毁时一并关闭
+     */
+    public ReadRouting(RedisProperties.ReadRouting config, RedisTemplate replicaTemplate,
+                       LettuceConnectionFactory connectionFactory) {
+        this.replicaTemplate = replicaTemplate;
+        this.connectionFactory = connectionFactory;
+        this.node = LettuceConnectionFactories.describe(connectionFactory);
+        this.commands = new HashSet<>();
+        config.getCommands().forEach(command -> commands.add(command.toUpperCase()));
+        this.prefixes = config.getPrefixes().toArray(new String[0]);
+        this.excludePrefixes = config.getExcludePrefixes().toArray(new String[0]);
+    }
+
+    public RedisTemplate getReplicaTemplate() {
+        return replicaTemplate;
+    }
+
+    /**
+     * @return 从节点连接的节点描述
+     */
+    public String getNode() {
+        return node;
+    }
+
+    /**
+     * @param command 命令名，大写
+     * @param key     不含namespace的key
+     * @return 是否读从节点
+     */
+    public boolean routeToReplica(String command, String key) {
+        if (!commands.contains(command) || !replicaAllowed(key)) {
+            return false;
+        }
+        if (prefixes.length == 0) {
+            return true;
+        }
+        for (String prefix : prefixes) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 不考虑命令和 prefixes，判断key是否允许读从节点，用于对冲读
+     *
+     * @param key 不含namespace的key
+     * @return
+     */
+    public boolean replicaAllowed(String key) {
+        if (null == replicaTemplate || ReadPreference.isMasterOnly()) {
+            return false;
+        }
+        for (String prefix : excludePrefixes) {
+            if (key.startsWith(prefix)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void destroy() {
+        if (null != connectionFactory) {
+            connectionFactory.destroy();
+        }
+    }
+}
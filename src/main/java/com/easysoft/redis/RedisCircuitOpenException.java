@@ -0,0 +1,28 @@
+package com.easysoft.redis;
+
+import com.easysoft.redis.interceptor.RedisCommand;
+
+/**
+ * 熔断器处于打开状态，命令未发送到 Redis 即失败
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-23 10:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-23 10:20
+ */
+public class RedisCircuitOpenException extends RedisOperationException {
+
+    private final String circuit;
+
+    public RedisCircuitOpenException(RedisCommand command, String circuit) {
+        super(command, "redis circuit '" + circuit + "' is open, reject command " + command, null);
+        this.circuit = circuit;
+    }
+
+    /**
+     * @return 熔断器名称
+     */
+    public String getCircuit() {
+        return circuit;
+    }
+}
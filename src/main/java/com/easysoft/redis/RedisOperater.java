@@ -1,16 +1,55 @@
 package com.easysoft.redis;
 
 import com.easysoft.redis.autoConfigure.RedisProperties;
+import com.easysoft.redis.connection.AutoPipeliner;
+import com.easysoft.redis.connection.LettuceCommands;
+import com.easysoft.redis.connection.LettuceConnectionFactories;
+import com.easysoft.redis.connection.VirtualThreads;
+import com.easysoft.redis.interceptor.RedisCommand;
+import com.easysoft.redis.interceptor.RedisCommandChain;
+import com.easysoft.redis.interceptor.RedisCommandInterceptor;
+import com.easysoft.redis.interceptor.SlowLogInterceptor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.CollectionUtils;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * @author： zyp[2305658511@qq.com]
@@ -19,65 +58,520 @@ import java.util.concurrent.TimeUnit;
  * @review: zyp[2305658511@qq.com]/2019-12-18 20:32
  */
 @Slf4j
-public class RedisOperater implements IRedisOperater {
+public class RedisOperater implements IRedisOperater, DisposableBean {
+
+    /**
+     * SCAN 每次迭代的建议数量，同时也是批量删除的批次大小
+     */
+    private static final int SCAN_COUNT = 500;
+
+    /**
+     * 遍历类调用，一次调用包含多次 SCAN 往返
+     */
+    private static final Set<String> SCAN_COMMANDS = new HashSet<>(Arrays.asList("SCAN", "HSCAN", "SSCAN", "ZSCAN"));
+
+    /**
+     * 启用分片存储时可能读写多个分片key的调用
+     */
+    private static final Set<String> CHUNKED_COMMANDS = new HashSet<>(Arrays.asList("GET", "SET", "SETEX",
+            "GETSET", "GETEX", "DEL", "EXPIRE"));
+
+    private static final byte[] WITHSCORES = ascii("WITHSCORES");
 
     protected final RedisProperties config;
 
 
     private final RedisTemplate redisTemplate;
 
+    private final KeyBatchExecutor batchExecutor;
+
+    private final ChunkedValues chunkedValues;
+
+    private final TtlJitter ttlJitter;
+
+    private final WriteBehindBuffer writeBehind;
+
+    /**
+     * writeBehind() 返回的延迟写入，视图的 key 添加视图前缀后写入根实例的缓冲区
+     */
+    private final WriteBehind writeBehindView;
+
+    /**
+     * key 前缀，构造时计算
+     */
+    private final String namespace;
+
+    /**
+     * 写命令连接的节点描述，记录在命令中供拦截器使用
+     */
+    private final String node;
+
+    /**
+     * namespace 视图所属的根实例，根实例为 null
+     */
+    private final RedisOperater root;
+
+    /**
+     * 视图的统计及配额拦截器，根实例为 null
+     */
+    private final NamespaceMetrics namespaceMetrics;
+
+    /**
+     * 根实例统计视图 key 数量的后台线程，未设置配额时为 null
+     */
+    private final ScheduledExecutorService keyCountScheduler;
+
+    /**
+     * 根实例创建的视图，视图名 -> 视图，视图为 null
+     */
+    private final ConcurrentHashMap<String, RedisOperater> views;
+
+    /**
+     * 外部设置的拦截器，创建视图时沿用
+     */
+    private List<RedisCommandInterceptor> interceptors = Collections.emptyList();
+
+    /**
+     * 自动 pipeline，未启用时为 null
+     */
+    private final AutoPipeliner autoPipeliner;
+
+    /**
+     * 只读命令路由，未启用时为 null
+     */
+    private ReadRouting readRouting;
+
+    /**
+     * 启动时组装的拦截器调用链，默认只包含慢命令日志
+     */
+    private RedisCommandChain chain;
+
+    /**
+     * 由本实例创建的线程池，销毁时关闭
+     */
+    private final ExecutorService ownedExecutor;
+
+    /**
+     * 并行 scan 的遍历线程池，视图与根实例共用，只由根实例关闭
+     */
+    private final ScanStreams scanStreams;
+
     public RedisOperater(RedisProperties config, RedisTemplate redisTemplate) {
+        this(config, redisTemplate, newBatchExecutor(config));
+    }
+
+    /**
+     * @param config
+     * @param redisTemplate
+     * @param executor      批量操作并行执行及并行反序列化使用的线程池，由调用方负责关闭
+     */
+    public RedisOperater(RedisProperties config, RedisTemplate redisTemplate, Executor executor) {
         this.config = config;
         this.redisTemplate = redisTemplate;
+        this.batchExecutor = new KeyBatchExecutor(redisTemplate, executor);
+        this.chunkedValues = new ChunkedValues(redisTemplate, config.getChunk(), batchExecutor);
+        this.ttlJitter = new TtlJitter(config.getTtlJitter());
+        this.writeBehind = new WriteBehindBuffer(this, ttlJitter, config.getWriteBehind());
+        this.autoPipeliner = newAutoPipeliner(config, redisTemplate);
+        this.ownedExecutor = null;
+        this.writeBehindView = writeBehind;
+        this.namespace = namespaceOf(config);
+        this.node = LettuceConnectionFactories.describe(redisTemplate.getConnectionFactory());
+        this.root = null;
+        this.namespaceMetrics = null;
+        this.keyCountScheduler = newKeyCountScheduler(config);
+        this.scanStreams = new ScanStreams(config.getScan());
+        this.views = new ConcurrentHashMap<>();
+        setInterceptors(Collections.emptyList());
+    }
+
+    private RedisOperater(RedisProperties config, RedisTemplate redisTemplate, ExecutorService executor) {
+        this.config = config;
+        this.redisTemplate = redisTemplate;
+        this.batchExecutor = new KeyBatchExecutor(redisTemplate, executor);
+        this.chunkedValues = new ChunkedValues(redisTemplate, config.getChunk(), batchExecutor);
+        this.ttlJitter = new TtlJitter(config.getTtlJitter());
+        this.writeBehind = new WriteBehindBuffer(this, ttlJitter, config.getWriteBehind());
+        this.autoPipeliner = newAutoPipeliner(config, redisTemplate);
+        this.ownedExecutor = executor;
+        this.writeBehindView = writeBehind;
+        this.namespace = namespaceOf(config);
+        this.node = LettuceConnectionFactories.describe(redisTemplate.getConnectionFactory());
+        this.root = null;
+        this.namespaceMetrics = null;
+        this.keyCountScheduler = newKeyCountScheduler(config);
+        this.scanStreams = new ScanStreams(config.getScan());
+        this.views = new ConcurrentHashMap<>();
+        setInterceptors(Collections.emptyList());
+    }
+
+    /**
+     * 创建 namespace 视图，与根实例共用连接、线程池、分片及自动 pipeline
+     *
+     * @param root
+     * @param name 视图名，不含根实例的 namespace
+     */
+    private RedisOperater(RedisOperater root, String name) {
+        this.config = root.config;
+        this.redisTemplate = root.redisTemplate;
+        this.batchExecutor = root.batchExecutor;
+        this.chunkedValues = root.chunkedValues;
+        this.ttlJitter = root.ttlJitter;
+        this.writeBehind = root.writeBehind;
+        this.writeBehindView = new NamespaceWriteBehind(root.writeBehind, name + ".");
+        this.autoPipeliner = root.autoPipeliner;
+        this.ownedExecutor = null;
+        this.readRouting = root.readRouting;
+        this.namespace = root.namespace + name + ".";
+        this.node = root.node;
+        this.root = root;
+        this.views = null;
+        RedisProperties.Tenant tenant = config.getTenant();
+        long maxKeys = tenant.getQuotas().getOrDefault(name, tenant.getMaxKeys());
+        this.namespaceMetrics = new NamespaceMetrics(namespace, maxKeys, tenant.getKeyCountInterval().toMillis(),
+                this::scanCount);
+        this.keyCountScheduler = null;
+        this.scanStreams = root.scanStreams;
+        setInterceptors(root.interceptors);
+        if (null != root.keyCountScheduler) {
+            namespaceMetrics.start(root.keyCountScheduler);
+        }
+    }
+
+    private static String namespaceOf(RedisProperties config) {
+        String namespace = "";
+        if (config.isNamespaceEnable()) {
+            namespace = config.getNamespace();
+        }
+        if (null != namespace && namespace.trim().length() > 0) {
+            namespace = namespace + ".";
+        } else {
+            namespace = "";
+        }
+        return namespace;
+    }
+
+    private static AutoPipeliner newAutoPipeliner(RedisProperties config, RedisTemplate redisTemplate) {
+        RedisProperties.AutoPipelining autoPipelining = config.getAutoPipelining();
+        if (!autoPipelining.isEnabled()) {
+            return null;
+        }
+        return AutoPipeliner.create(redisTemplate, autoPipelining.getMaxBatchSize(), autoPipelining.getWindow());
+    }
+
+    private static ScheduledExecutorService newKeyCountScheduler(RedisProperties config) {
+        RedisProperties.Tenant tenant = config.getTenant();
+        if (tenant.getMaxKeys() <= 0 && tenant.getQuotas().values().stream().noneMatch(quota -> quota > 0)) {
+            return null;
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("easysoft-redis-key-count-");
+        threadFactory.setDaemon(true);
+        return Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    private static ExecutorService newBatchExecutor(RedisProperties config) {
+        if (config.getConnection().isVirtualThreads()) {
+            if (VirtualThreads.isSupported()) {
+                return VirtualThreads.newExecutor("easysoft-redis-batch-");
+            }
+            log.warn("easysoft.redis.connection.virtual-threads is enabled but virtual threads are not supported "
+                    + "by java {}, using platform threads", System.getProperty("java.version"));
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("easysoft-redis-batch-");
+        threadFactory.setDaemon(true);
+        return Executors.newFixedThreadPool(Math.max(1, config.getBatch().getParallelism()), threadFactory);
+    }
+
+    /**
+     * 设置命令拦截器并重新组装调用链，应在启动阶段调用；慢命令日志拦截器始终位于最外层
+     *
+     * @param interceptors 已排序的拦截器
+     */
+    public void setInterceptors(List<? extends RedisCommandInterceptor> interceptors) {
+        List<RedisCommandInterceptor> all = new ArrayList<>(interceptors.size() + 2);
+        all.add(new SlowLogInterceptor(config.getSlowLogSlowerThan()));
+        all.addAll(interceptors);
+        if (null != namespaceMetrics) {
+            all.add(namespaceMetrics);
+        }
+        this.interceptors = new ArrayList<>(interceptors);
+        this.chain = RedisCommandChain.compose(all);
+        if (null != views) {
+            views.values().forEach(view -> view.setInterceptors(interceptors));
+        }
+    }
+
+    public void setReadRouting(ReadRouting readRouting) {
+        this.readRouting = readRouting;
+        if (null != views) {
+            views.values().forEach(view -> view.setReadRouting(readRouting));
+        }
+    }
+
+    @Override
+    public IRedisOperater withNamespace(String name) {
+        if (null == name || name.trim().length() == 0) {
+            throw new IllegalArgumentException("namespace is empty!");
+        }
+        if (null != root) {
+            return root.withNamespace(namespace.substring(root.namespace.length()) + name);
+        }
+        return views.computeIfAbsent(name, n -> new RedisOperater(this, n));
+    }
+
+    /**
+     * @return 视图名 -> 统计，包含根实例创建的所有 namespace 视图
+     */
+    public Map<String, NamespaceStats> getNamespaceStats() {
+        if (null != root) {
+            return root.getNamespaceStats();
+        }
+        Map<String, NamespaceStats> stats = new TreeMap<>();
+        views.forEach((name, view) -> stats.put(name, view.namespaceMetrics.getStats()));
+        return stats;
+    }
+
+    /**
+     * 通过 SCAN 统计当前 namespace 下的 key 数量，代价与整个库的 key 数量成正比；视图同时更新配额使用的 key 数量
+     *
+     * @return
+     */
+    public long countKeys() {
+        if (null != namespaceMetrics) {
+            return namespaceMetrics.countKeys();
+        }
+        return scanCount();
+    }
+
+    /**
+     * @return 是否启用了大value分片存储
+     */
+    boolean isChunked() {
+        return chunkedValues.isEnabled();
+    }
+
+    /**
+     * @return 写命令使用的 RedisTemplate
+     */
+    RedisTemplate getRedisTemplate() {
+        return redisTemplate;
+    }
+
+    /**
+     * @return 自动 pipeline，未启用或当前连接不支持时为 null
+     */
+    public AutoPipeliner getAutoPipeliner() {
+        return autoPipeliner;
+    }
+
+    @Override
+    public void destroy() {
+        if (null != root) {
+            return;
+        }
+        writeBehind.close();
+        if (null != keyCountScheduler) {
+            keyCountScheduler.shutdownNow();
+        }
+        scanStreams.shutdown();
+        if (null != ownedExecutor) {
+            ownedExecutor.shutdown();
+        }
     }
 
     @Override
     public Boolean exists(String key) {
-        return this.doCommand(key, (k) -> {
-            return redisTemplate.hasKey(k);
+        return this.doRead("EXISTS", key, (template, k) -> {
+            if (isAutoPipelined(template)) {
+                return autoPipeliner.exists(rawKey(template, k));
+            }
+            return template.hasKey(k);
         });
     }
 
     @Override
     public Long delByPattern(String pattern) {
-        return 0L;
+        return this.doCommand("SCAN", pattern, (p) -> {
+            long count = deleteByPattern(p, false);
+            if (chunkedValues.isEnabled()) {
+                // 分片key以 {key} 开头，或者原模式不以 * 结尾，不匹配原模式，单独扫描删除
+                for (String chunkPattern : ChunkedValues.chunkPatterns(p)) {
+                    deleteByPattern(chunkPattern, true);
+                }
+            }
+            return count;
+        });
+    }
+
+    /**
+     * @param chunks 为 true 时只删除分片key
+     * @return 删除的key数量，分片key不计入
+     */
+    private long deleteByPattern(String fullPattern, boolean chunks) {
+        ScanOptions options = ScanOptions.scanOptions().match(fullPattern).count(SCAN_COUNT).build();
+        return (Long) redisTemplate.execute((RedisConnection connection) -> {
+            if (connection instanceof RedisClusterConnection) {
+                RedisClusterConnection clusterConnection = (RedisClusterConnection) connection;
+                long count = 0;
+                for (RedisClusterNode node : clusterConnection.clusterGetNodes()) {
+                    if (node.isMaster()) {
+                        count += deleteScanned(connection, clusterConnection.scan(node, options), chunks);
+                    }
+                }
+                return count;
+            }
+            return deleteScanned(connection, connection.scan(options), chunks);
+        });
+    }
+
+    @Override
+    public Stream<String> scan(String pattern, int count, DataType type) {
+        String match = null == pattern ? "*" : pattern;
+        ScanOptions options = ScanOptions.scanOptions().match(escapeGlob(namespace) + match).count(count).build();
+        Function<List<byte[]>, List<String>> page = rawKeys -> scannedKeys(rawKeys, type);
+        return this.doCommand("SCAN", match, (p) -> {
+            if (!batchExecutor.isClusterAware()) {
+                return ScanStreams.paged(openCursor(connection -> connection.scan(options)), count, page);
+            }
+            // 每个 master 节点使用独立的游标并行遍历
+            List<Supplier<Stream<String>>> sources = new ArrayList<>();
+            for (RedisClusterNode node : masterNodes()) {
+                Function<RedisConnection, Cursor<byte[]>> open = c -> ((RedisClusterConnection) c).scan(node, options);
+                sources.add(() -> ScanStreams.paged(openCursor(open), count, page));
+            }
+            return scanStreams.parallel(sources, count);
+        });
+    }
+
+    /**
+     * 反序列化扫描到的key并去掉namespace，跳过分片key，指定类型时通过 pipeline 执行 TYPE 过滤
+     */
+    private List<String> scannedKeys(List<byte[]> scanned, DataType type) {
+        List<byte[]> rawKeys = scanned;
+        if (chunkedValues.isEnabled()) {
+            rawKeys = new ArrayList<>(scanned.size());
+            for (byte[] rawKey : scanned) {
+                if (!isChunkKey(rawKey)) {
+                    rawKeys.add(rawKey);
+                }
+            }
+        }
+        List<Object> types = null == type ? null
+                : batchExecutor.execute(rawKeys, (connection, rawKey) -> connection.type(rawKey));
+        RedisSerializer keySerializer = redisTemplate.getKeySerializer();
+        List<String> keys = new ArrayList<>(rawKeys.size());
+        for (int i = 0; i < rawKeys.size(); i++) {
+            if (null == types || type == types.get(i)) {
+                keys.add(((String) keySerializer.deserialize(rawKeys.get(i))).substring(namespace.length()));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 在独占连接上打开游标，关闭游标时释放连接
+     */
+    private <T> Cursor<T> openCursor(Function<RedisConnection, Cursor<T>> open) {
+        return (Cursor<T>) redisTemplate.executeWithStickyConnection(open::apply);
+    }
+
+    private List<RedisClusterNode> masterNodes() {
+        return (List<RedisClusterNode>) redisTemplate.execute((RedisConnection connection) -> {
+            List<RedisClusterNode> masters = new ArrayList<>();
+            for (RedisClusterNode node : ((RedisClusterConnection) connection).clusterGetNodes()) {
+                if (node.isMaster()) {
+                    masters.add(node);
+                }
+            }
+            return masters;
+        });
+    }
+
+    private static ScanOptions scanOptions(String pattern, int count) {
+        ScanOptions.ScanOptionsBuilder builder = ScanOptions.scanOptions().count(count);
+        if (null != pattern) {
+            builder.match(pattern);
+        }
+        return builder.build();
     }
 
     @Override
     public <T> void set(String key, T value) {
-        this.doCommand(key, (k) -> {
+        this.doCommand("SET", key, (k) -> {
+            if (chunkedValues.isEnabled()) {
+                chunkedValues.set(k, value, 0);
+                return null;
+            }
+            if (null != autoPipeliner) {
+                autoPipeliner.set(rawKey(redisTemplate, k), redisTemplate.getValueSerializer().serialize(value));
+                return null;
+            }
             redisTemplate.opsForValue().set(k, value);
             return null;
         });
     }
 
 
+    @Override
+    public WriteBehind writeBehind() {
+        return writeBehindView;
+    }
+
+    @Override
+    public <T> SetOperation<T> setWith(String key, T value) {
+        if (chunkedValues.isEnabled()) {
+            // 单条 SET 无法写入分片，也无法清理被覆盖的分片
+            throw new UnsupportedOperationException("setWith is not supported when easysoft.redis.chunk is enabled");
+        }
+        return new SetBuilder<>(key, value);
+    }
+
     @Override
     public <T> Boolean setex(String key, T value, int expire) {
-        return this.doCommand(key, (k) -> {
-            return redisTemplate.opsForValue().setIfPresent(k, value, Duration.ofSeconds(expire));
+        int ttl = ttlJitter.apply(key, expire);
+        return this.doCommand("SETEX", key, (k) -> {
+            if (chunkedValues.isEnabled()) {
+                chunkedValues.set(k, value, ttl);
+                return Boolean.TRUE;
+            }
+            if (null != autoPipeliner) {
+                autoPipeliner.setex(rawKey(redisTemplate, k), ttl, redisTemplate.getValueSerializer().serialize(value));
+                return Boolean.TRUE;
+            }
+            redisTemplate.opsForValue().set(k, value, ttl, TimeUnit.SECONDS);
+            return Boolean.TRUE;
         });
     }
 
 
     @Override
     public <T> Boolean setnx(String key, T value, int expire) {
-        return this.doCommand(key, (k) -> {
-            return redisTemplate.opsForValue().setIfAbsent(k, value, Duration.ofSeconds(expire));
+        int ttl = ttlJitter.apply(key, expire);
+        return this.doCommand("SETNX", key, (k) -> {
+            if (ttl <= 0) {
+                return redisTemplate.opsForValue().setIfAbsent(k, value);
+            }
+            return redisTemplate.opsForValue().setIfAbsent(k, value, Duration.ofSeconds(ttl));
         });
     }
 
 
     @Override
     public <T> T get(String key) {
-        return (T) this.doCommand(key, (k) -> {
-            return redisTemplate.opsForValue().get(k);
+        return (T) this.doRead("GET", key, (template, k) -> {
+            if (chunkedValues.isEnabled()) {
+                return chunkedValues.get(template, k);
+            }
+            if (isAutoPipelined(template)) {
+                return template.getValueSerializer().deserialize(autoPipeliner.get(rawKey(template, k)));
+            }
+            return template.opsForValue().get(k);
         });
     }
 
     @Override
     public Long getLong(String key) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("GET", key, (k) -> {
             Object value = redisTemplate.opsForValue().get(k);
             if (value instanceof Integer) {
                 return ((Integer) value).longValue();
@@ -88,15 +582,19 @@ public class RedisOperater implements IRedisOperater {
 
     @Override
     public <T> T getSet(String key, T value) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("GETSET", key, (k) -> {
+            if (chunkedValues.isEnabled()) {
+                return (T) chunkedValues.getAndSet(k, value, 0, true);
+            }
             return (T) redisTemplate.opsForValue().getAndSet(k, value);
         });
     }
 
     @Override
     public Long getSetLong(String key, Long value) {
-        return this.doCommand(key, (k) -> {
-            Object preValue = redisTemplate.opsForValue().getAndSet(k, value);
+        return this.doCommand("GETSET", key, (k) -> {
+            Object preValue = chunkedValues.isEnabled() ? chunkedValues.getAndSet(k, value, 0, true)
+                    : redisTemplate.opsForValue().getAndSet(k, value);
             if (preValue instanceof Integer) {
                 return ((Integer) preValue).longValue();
             }
@@ -106,63 +604,229 @@ public class RedisOperater implements IRedisOperater {
 
     @Override
     public Boolean delete(String key) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("DEL", key, (k) -> {
+            if (chunkedValues.isEnabled()) {
+                return chunkedValues.delete(k);
+            }
+            if (null != autoPipeliner) {
+                return autoPipeliner.del(rawKey(redisTemplate, k));
+            }
             return redisTemplate.delete(k);
         });
     }
 
     @Override
     public Boolean expire(String key, int expire) {
-        return this.doCommand(key, (k) -> {
-            return redisTemplate.expire(k, expire, TimeUnit.SECONDS);
+        int ttl = ttlJitter.apply(key, expire);
+        return this.doCommand("EXPIRE", key, (k) -> {
+            if (chunkedValues.isEnabled()) {
+                List<byte[]> rawKeys = Collections.singletonList(rawKey(redisTemplate, k));
+                return chunkedValues.expire(Collections.singletonList(k), rawKeys, new int[]{ttl}).get(0);
+            }
+            if (null != autoPipeliner) {
+                return autoPipeliner.expire(rawKey(redisTemplate, k), ttl);
+            }
+            return redisTemplate.expire(k, ttl, TimeUnit.SECONDS);
         });
     }
 
     @Override
     public Long ttl(String key) {
-        return this.doCommand(key, (k) -> {
-            return redisTemplate.getExpire(k, TimeUnit.SECONDS);
+        return this.doRead("TTL", key, (template, k) -> {
+            return template.getExpire(k, TimeUnit.SECONDS);
+        });
+    }
+
+    @Override
+    public Long expireAll(Collection<String> keys, int expire) {
+        List<String> keyList = new ArrayList<>(keys);
+        if (keyList.isEmpty()) {
+            return 0L;
+        }
+        int[] ttls = ttls(keyList, expire);
+        return this.doMultiCommand("EXPIRE", keyList, (rawKeys) -> {
+            List<?> results;
+            if (chunkedValues.isEnabled()) {
+                results = chunkedValues.expire(fullKeys(keyList), rawKeys, ttls);
+            } else {
+                Map<byte[], Integer> rawTtls = rawTtls(rawKeys, ttls);
+                results = batchExecutor.execute(rawKeys, (connection, rawKey) -> {
+                    connection.expire(rawKey, rawTtls.get(rawKey));
+                });
+            }
+            long count = 0;
+            for (Object result : results) {
+                if (Boolean.TRUE.equals(result)) {
+                    count++;
+                }
+            }
+            return count;
+        });
+    }
+
+    @Override
+    public Map<String, Long> ttlAll(Collection<String> keys) {
+        List<String> keyList = new ArrayList<>(keys);
+        return this.doMultiCommand("TTL", keyList, (rawKeys) -> {
+            List<Object> results = batchExecutor.execute(rawKeys, (connection, rawKey) -> {
+                connection.ttl(rawKey);
+            });
+            Map<String, Long> map = new LinkedHashMap<>(keyList.size() * 2);
+            for (int i = 0; i < results.size(); i++) {
+                map.put(keyList.get(i), (Long) results.get(i));
+            }
+            return map;
+        });
+    }
+
+    @Override
+    public <T> T getAndTouch(String key, int expire) {
+        int ttl = ttlJitter.apply(key, expire);
+        return this.doCommand("GETEX", key, (k) -> {
+            List<byte[]> rawKeys = Collections.singletonList(redisTemplate.getKeySerializer().serialize(k));
+            if (chunkedValues.isEnabled()) {
+                return (T) chunkedValues.getAndExpire(Collections.singletonList(k), rawKeys, new int[]{ttl}).get(0);
+            }
+            List<Object> results = batchExecutor.execute(rawKeys, 2, (connection, rawKey) -> {
+                connection.get(rawKey);
+                connection.expire(rawKey, ttl);
+            });
+            return (T) redisTemplate.getValueSerializer().deserialize((byte[]) results.get(0));
+        });
+    }
+
+    @Override
+    public <T> Map<String, T> getAndTouchAll(Collection<String> keys, int expire) {
+        List<String> keyList = new ArrayList<>(keys);
+        if (keyList.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        int[] ttls = ttls(keyList, expire);
+        return this.doMultiCommand("GETEX", keyList, (rawKeys) -> {
+            Map<String, T> map = new LinkedHashMap<>(keyList.size() * 2);
+            if (chunkedValues.isEnabled()) {
+                List<Object> values = chunkedValues.getAndExpire(fullKeys(keyList), rawKeys, ttls);
+                for (int i = 0; i < keyList.size(); i++) {
+                    map.put(keyList.get(i), (T) values.get(i));
+                }
+                return map;
+            }
+            Map<byte[], Integer> rawTtls = rawTtls(rawKeys, ttls);
+            List<Object> results = batchExecutor.execute(rawKeys, 2, (connection, rawKey) -> {
+                connection.get(rawKey);
+                connection.expire(rawKey, rawTtls.get(rawKey));
+            });
+            RedisSerializer valueSerializer = redisTemplate.getValueSerializer();
+            for (int i = 0; i < keyList.size(); i++) {
+                map.put(keyList.get(i), (T) valueSerializer.deserialize((byte[]) results.get(i * 2)));
+            }
+            return map;
+        });
+    }
+
+    @Override
+    public <T> Map<String, T> getAll(Collection<String> keys) {
+        List<String> keyList = new ArrayList<>(keys);
+        return this.doMultiCommand("MGET", keyList, (rawKeys) -> {
+            Map<String, T> map = new LinkedHashMap<>(keyList.size() * 2);
+            if (chunkedValues.isEnabled()) {
+                List<Object> values = chunkedValues.getAll(fullKeys(keyList), rawKeys);
+                for (int i = 0; i < keyList.size(); i++) {
+                    map.put(keyList.get(i), (T) values.get(i));
+                }
+                return map;
+            }
+            List<Object> results = batchExecutor.execute(rawKeys, (connection, rawKey) -> {
+                connection.get(rawKey);
+            });
+            RedisSerializer valueSerializer = redisTemplate.getValueSerializer();
+            for (int i = 0; i < results.size(); i++) {
+                map.put(keyList.get(i), (T) valueSerializer.deserialize((byte[]) results.get(i)));
+            }
+            return map;
+        });
+    }
+
+    @Override
+    public <T> Map<String, Boolean> setnxAll(Map<String, T> values, int expire) {
+        List<String> keyList = new ArrayList<>(values.keySet());
+        return this.doMultiCommand("MSETNX", keyList, (rawKeys) -> {
+            Map<String, Boolean> map = new LinkedHashMap<>(keyList.size() * 2);
+            if (chunkedValues.isEnabled()) {
+                List<Object> valueList = new ArrayList<>(keyList.size());
+                for (String key : keyList) {
+                    valueList.add(values.get(key));
+                }
+                List<Boolean> written = chunkedValues.setAllIfAbsent(fullKeys(keyList), rawKeys, valueList,
+                        ttls(keyList, expire));
+                for (int i = 0; i < keyList.size(); i++) {
+                    map.put(keyList.get(i), written.get(i));
+                }
+                return map;
+            }
+            RedisSerializer valueSerializer = redisTemplate.getValueSerializer();
+            Map<byte[], byte[]> rawValues = new IdentityHashMap<>(keyList.size() * 2);
+            Map<byte[], Expiration> expirations = new IdentityHashMap<>(keyList.size() * 2);
+            for (int i = 0; i < keyList.size(); i++) {
+                String key = keyList.get(i);
+                int ttl = ttlJitter.apply(key, expire);
+                rawValues.put(rawKeys.get(i), valueSerializer.serialize(values.get(key)));
+                expirations.put(rawKeys.get(i), ttl > 0 ? Expiration.seconds(ttl) : Expiration.persistent());
+            }
+            List<Object> results = batchExecutor.execute(rawKeys, (connection, rawKey) -> {
+                connection.set(rawKey, rawValues.get(rawKey), expirations.get(rawKey),
+                        RedisStringCommands.SetOption.ifAbsent());
+            });
+            for (int i = 0; i < results.size(); i++) {
+                map.put(keyList.get(i), Boolean.TRUE.equals(results.get(i)));
+            }
+            return map;
         });
     }
 
     @Override
     public Long incr(String key) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("INCR", key, (k) -> {
             return redisTemplate.opsForValue().increment(k);
         });
     }
 
     @Override
     public Long incrBy(String key, int increment) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("INCRBY", key, (k) -> {
             return redisTemplate.opsForValue().increment(k, increment);
         });
     }
 
     @Override
     public Long decr(String key) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("DECR", key, (k) -> {
             return redisTemplate.opsForValue().decrement(k);
         });
     }
 
     @Override
     public Long decrBy(String key, int decrement) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("DECRBY", key, (k) -> {
             return redisTemplate.opsForValue().decrement(k, decrement);
         });
     }
 
     @Override
     public <F> Boolean hexists(String key, F field) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("HEXISTS", key, (k) -> {
             return redisTemplate.opsForHash().hasKey(k, field);
         });
     }
 
     @Override
     public <F, T> void hset(String key, F field, T value) {
-        this.doCommand(key, (k) -> {
+        this.doCommand("HSET", key, (k) -> {
+            if (null != autoPipeliner) {
+                autoPipeliner.hset(rawKey(redisTemplate, k), redisTemplate.getHashKeySerializer().serialize(field),
+                        redisTemplate.getHashValueSerializer().serialize(value));
+                return null;
+            }
             redisTemplate.opsForHash().put(k, field, value);
             return null;
         });
@@ -170,14 +834,14 @@ public class RedisOperater implements IRedisOperater {
 
     @Override
     public <F, T> Boolean hsetnx(String key, F field, T value) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("HSETNX", key, (k) -> {
             return redisTemplate.opsForHash().putIfAbsent(k, field, value);
         });
     }
 
     @Override
     public <F, T> void hmset(String key, Map<F, T> fieldValues) {
-        this.doCommand(key, (k) -> {
+        this.doCommand("HMSET", key, (k) -> {
             redisTemplate.opsForHash().putAll(k, fieldValues);
             return null;
         });
@@ -185,126 +849,199 @@ public class RedisOperater implements IRedisOperater {
 
     @Override
     public <F, T> T hget(String key, F field) {
-        return this.doCommand(key, (k) -> {
-            return (T) redisTemplate.opsForHash().get(k, field);
+        return this.doRead("HGET", key, (template, k) -> {
+            if (isAutoPipelined(template)) {
+                byte[] rawValue = autoPipeliner.hget(rawKey(template, k), template.getHashKeySerializer().serialize(field));
+                return (T) template.getHashValueSerializer().deserialize(rawValue);
+            }
+            return (T) template.opsForHash().get(k, field);
         });
     }
 
     @Override
     public <T> Map<String, T> hgetAll(String key) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("HGETALL", key, (k) -> {
             return redisTemplate.opsForHash().entries(k);
         });
     }
 
+    @Override
+    public <F, T> Stream<Map.Entry<F, T>> hscan(String key, String pattern, int count) {
+        ScanOptions options = scanOptions(pattern, count);
+        return this.doCommand("HSCAN", key, (k) -> {
+            return ScanStreams.of(redisTemplate.opsForHash().scan(k, options));
+        });
+    }
+
     @Override
     public <T> List<T> hmget(String key, Object... field) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("HMGET", key, (k) -> {
             return redisTemplate.opsForHash().multiGet(k, CollectionUtils.arrayToList(field));
         });
     }
 
+    @Override
+    public <T> Map<String, Map<String, T>> hmgetMulti(List<String> keys, Object... field) {
+        if (null == field || field.length == 0) {
+            throw new IllegalArgumentException("field is empty!");
+        }
+        byte[][] rawFields = new byte[field.length][];
+        for (int i = 0; i < field.length; i++) {
+            rawFields[i] = field(field[i]);
+        }
+        return this.doMultiCommand("HMGET", keys, (rawKeys) -> {
+            List<Object> results = batchExecutor.execute(rawKeys, (connection, rawKey) -> {
+                connection.hMGet(rawKey, rawFields);
+            });
+            RedisSerializer valueSerializer = redisTemplate.getHashValueSerializer();
+            return toKeyedResult(keys, results, keys.size() * field.length, (raw) -> {
+                List<byte[]> values = (List<byte[]>) raw;
+                Map<String, T> map = new LinkedHashMap<>(field.length * 2);
+                for (int i = 0; i < field.length; i++) {
+                    byte[] value = null == values ? null : values.get(i);
+                    map.put(String.valueOf(field[i]), null == value ? null : (T) valueSerializer.deserialize(value));
+                }
+                return map;
+            });
+        });
+    }
+
+    @Override
+    public <T> Map<String, Map<String, T>> hgetAllMulti(List<String> keys) {
+        return this.doMultiCommand("HGETALL", keys, (rawKeys) -> {
+            List<Object> results = batchExecutor.execute(rawKeys, (connection, rawKey) -> {
+                connection.hGetAll(rawKey);
+            });
+            int total = 0;
+            for (Object result : results) {
+                total += null == result ? 0 : ((Map) result).size();
+            }
+            RedisSerializer keySerializer = redisTemplate.getHashKeySerializer();
+            RedisSerializer valueSerializer = redisTemplate.getHashValueSerializer();
+            return toKeyedResult(keys, results, total, (raw) -> {
+                Map<byte[], byte[]> entries = (Map<byte[], byte[]>) raw;
+                if (null == entries || entries.isEmpty()) {
+                    return Collections.<String, T>emptyMap();
+                }
+                Map<String, T> map = new LinkedHashMap<>(entries.size() * 2);
+                entries.forEach((k, v) -> map.put((String) keySerializer.deserialize(k),
+                        (T) valueSerializer.deserialize(v)));
+                return map;
+            });
+        });
+    }
+
     @Override
     public Long hdel(String key, Object... field) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("HDEL", key, (k) -> {
             return redisTemplate.opsForHash().delete(k, field);
         });
     }
 
     @Override
     public <F> Long hincrBy(String key, F field, int increment) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("HINCRBY", key, (k) -> {
             return redisTemplate.opsForHash().increment(k, field, increment);
         });
     }
 
     @Override
     public <T> T lpop(String key) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("LPOP", key, (k) -> {
             return (T) redisTemplate.opsForList().leftPop(k);
         });
     }
 
     @Override
     public <T> T rpop(String key) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("RPOP", key, (k) -> {
             return (T) redisTemplate.opsForList().rightPop(k);
         });
     }
 
     @Override
     public <T> Long lpush(String key, T... value) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("LPUSH", key, (k) -> {
             return redisTemplate.opsForList().leftPushAll(k, value);
         });
     }
 
     @Override
     public <T> Long lpushx(String key, T value) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("LPUSHX", key, (k) -> {
             return redisTemplate.opsForList().leftPushIfPresent(k, value);
         });
     }
 
     @Override
     public <T> Long rpush(String key, T... value) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("RPUSH", key, (k) -> {
             return redisTemplate.opsForList().rightPushAll(k, value);
         });
     }
 
     @Override
     public <T> Long rpushx(String key, T value) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("RPUSHX", key, (k) -> {
             return redisTemplate.opsForList().rightPushIfPresent(k, value);
         });
     }
 
     @Override
     public <T> T lindex(String key, int index) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("LINDEX", key, (k) -> {
             return (T) redisTemplate.opsForList().index(k, index);
         });
     }
 
     @Override
     public <T> Long linsertAfter(String key, T pivot, T value) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("LINSERT", key, (k) -> {
             return redisTemplate.opsForList().rightPush(k, pivot, value);
         });
     }
 
     @Override
     public <T> Long linsertBefore(String key, T pivot, T value) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("LINSERT", key, (k) -> {
             return redisTemplate.opsForList().leftPush(k, pivot, value);
         });
     }
 
     @Override
     public Long llen(String key) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("LLEN", key, (k) -> {
             return redisTemplate.opsForList().size(k);
         });
     }
 
     @Override
     public <T> List<T> lrange(String key, int start, int stop) {
-        return this.doCommand(key, (k) -> {
-            return redisTemplate.opsForList().range(k, start, stop);
+        return this.doRead("LRANGE", key, (template, k) -> {
+            return template.opsForList().range(k, start, stop);
+        });
+    }
+
+    @Override
+    public long[] lrangeLong(String key, int start, int stop) {
+        return this.doRead("LRANGE", key, (template, k) -> {
+            return (long[]) template.execute((RedisConnection connection) -> {
+                return LettuceCommands.executeLongs(connection, "LRANGE", rawKey(template, k), ascii(start),
+                        ascii(stop));
+            }, true);
         });
     }
 
     @Override
     public <T> Long lrem(String key, int count, T value) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("LREM", key, (k) -> {
             return redisTemplate.opsForList().remove(k, count, value);
         });
     }
 
     @Override
     public <T> void lset(String key, int index, T value) {
-        this.doCommand(key, (k) -> {
+        this.doCommand("LSET", key, (k) -> {
             redisTemplate.opsForList().set(k, index, value);
             return null;
         });
@@ -312,7 +1049,7 @@ public class RedisOperater implements IRedisOperater {
 
     @Override
     public void ltrim(String key, int start, int stop) {
-        this.doCommand(key, (k) -> {
+        this.doCommand("LTRIM", key, (k) -> {
             redisTemplate.opsForList().trim(k, start, stop);
             return null;
         });
@@ -320,37 +1057,79 @@ public class RedisOperater implements IRedisOperater {
 
     @Override
     public <T> Long zdd(String key, double score, T member) {
-        return 0L;
+        return this.doCommand("ZADD", key, (k) -> {
+            return Boolean.TRUE.equals(redisTemplate.opsForZSet().add(k, member, score)) ? 1L : 0L;
+        });
     }
 
     @Override
     public Long zcount(String key, double min, double max) {
-        return 0L;
+        return this.doRead("ZCOUNT", key, (template, k) -> {
+            return template.opsForZSet().count(k, min, max);
+        });
     }
 
     @Override
     public <T> Set<T> zrange(String key, Long start, Long end) {
-        return null;
+        return this.doRead("ZRANGE", key, (template, k) -> {
+            return template.opsForZSet().range(k, start, end);
+        });
     }
 
     @Override
     public <T> Set<ZSetOperations.TypedTuple<T>> zrangeWithScores(String key, Long start, Long end) {
-        return null;
+        return this.doRead("ZRANGE", key, (template, k) -> {
+            return template.opsForZSet().rangeWithScores(k, start, end);
+        });
     }
 
     @Override
     public <T> Set<T> zrangeByScore(String key, double min, double max) {
-        return null;
+        return this.doRead("ZRANGEBYSCORE", key, (template, k) -> {
+            return template.opsForZSet().rangeByScore(k, min, max);
+        });
     }
 
     @Override
     public <T> Set<ZSetOperations.TypedTuple<T>> zrangeByScoreWithScores(String key, double min, double max) {
-        return null;
+        return this.doRead("ZRANGEBYSCORE", key, (template, k) -> {
+            return template.opsForZSet().rangeByScoreWithScores(k, min, max);
+        });
+    }
+
+    @Override
+    public <T> Stream<ZSetOperations.TypedTuple<T>> zscan(String key, String pattern, int count) {
+        ScanOptions options = scanOptions(pattern, count);
+        return this.doCommand("ZSCAN", key, (k) -> {
+            return ScanStreams.of(redisTemplate.opsForZSet().scan(k, options));
+        });
+    }
+
+    @Override
+    public ScoredLongs zrangeLongWithScores(String key, long start, long end) {
+        return this.doRead("ZRANGE", key, (template, k) -> {
+            return (ScoredLongs) template.execute((RedisConnection connection) -> {
+                return LettuceCommands.executeScoredLongs(connection, "ZRANGE", rawKey(template, k), ascii(start),
+                        ascii(end), WITHSCORES);
+            }, true);
+        });
+    }
+
+    @Override
+    public ScoredLongs zrangeByScoreLongWithScores(String key, double min, double max) {
+        return this.doRead("ZRANGEBYSCORE", key, (template, k) -> {
+            return (ScoredLongs) template.execute((RedisConnection connection) -> {
+                return LettuceCommands.executeScoredLongs(connection, "ZRANGEBYSCORE", rawKey(template, k),
+                        scoreBound(min), scoreBound(max), WITHSCORES);
+            }, true);
+        });
     }
 
     @Override
     public Long zrem(String key, Object... member) {
-        return 0L;
+        return this.doCommand("ZREM", key, (k) -> {
+            return redisTemplate.opsForZSet().remove(k, member);
+        });
     }
 
     @Override
@@ -370,100 +1149,633 @@ public class RedisOperater implements IRedisOperater {
 
     @Override
     public Long sadd(String key, Object... member) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("SADD", key, (k) -> {
             return redisTemplate.opsForSet().add(k, member);
         });
     }
 
     @Override
     public Long scard(String key) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("SCARD", key, (k) -> {
             return redisTemplate.opsForSet().size(k);
         });
     }
 
     @Override
     public <T> Boolean sisMember(String key, T member) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("SISMEMBER", key, (k) -> {
             return redisTemplate.opsForSet().isMember(k, member);
         });
     }
 
     @Override
     public <T> Set<T> smembers(String key) {
-        return this.doCommand(key, (k) -> {
-            return redisTemplate.opsForSet().members(k);
+        return this.doRead("SMEMBERS", key, (template, k) -> {
+            return template.opsForSet().members(k);
+        });
+    }
+
+    @Override
+    public <T> Stream<T> sscan(String key, String pattern, int count) {
+        ScanOptions options = scanOptions(pattern, count);
+        return this.doCommand("SSCAN", key, (k) -> {
+            return ScanStreams.of(redisTemplate.opsForSet().scan(k, options));
+        });
+    }
+
+    @Override
+    public long[] smembersLong(String key) {
+        return this.doRead("SMEMBERS", key, (template, k) -> {
+            return (long[]) template.execute((RedisConnection connection) -> {
+                return LettuceCommands.executeLongs(connection, "SMEMBERS", rawKey(template, k));
+            }, true);
         });
     }
 
     @Override
     public <T> T spop(String key) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("SPOP", key, (k) -> {
             return (T) redisTemplate.opsForSet().pop(k);
         });
     }
 
     @Override
     public <T> List<T> srandMember(String key, int count) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("SRANDMEMBER", key, (k) -> {
             return redisTemplate.opsForSet().randomMembers(k, count);
         });
     }
 
     @Override
     public <T> T srandMember(String key) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("SRANDMEMBER", key, (k) -> {
             return (T) redisTemplate.opsForSet().randomMember(k);
         });
     }
 
     @Override
     public Long srem(String key, Object... member) {
-        return this.doCommand(key, (k) -> {
+        return this.doCommand("SREM", key, (k) -> {
             return redisTemplate.opsForSet().remove(k, member);
         });
     }
 
 
+    @Override
+    public Long publish(String channel, Object message) {
+        return this.doCommand("PUBLISH", channel, (c) -> {
+            byte[] rawChannel = rawKey(redisTemplate, c);
+            byte[] rawMessage = redisTemplate.getValueSerializer().serialize(message);
+            return (Long) redisTemplate.execute((RedisConnection connection) -> {
+                if (isShardedPublish()) {
+                    return LettuceCommands.executeInteger(connection, "SPUBLISH", rawChannel, rawMessage);
+                }
+                return connection.publish(rawChannel, rawMessage);
+            }, true);
+        });
+    }
+
+    @Override
+    public Long publishAll(String channel, Collection<?> messages) {
+        if (CollectionUtils.isEmpty(messages)) {
+            return 0L;
+        }
+        return this.doCommand("PUBLISH", channel, (c) -> {
+            byte[] rawChannel = rawKey(redisTemplate, c);
+            RedisSerializer valueSerializer = redisTemplate.getValueSerializer();
+            boolean sharded = isShardedPublish();
+            List<Object> results = (List<Object>) redisTemplate.execute((RedisConnection connection) -> {
+                connection.openPipeline();
+                boolean closed = false;
+                try {
+                    for (Object message : messages) {
+                        byte[] rawMessage = valueSerializer.serialize(message);
+                        if (sharded) {
+                            LettuceCommands.executeInteger(connection, "SPUBLISH", rawChannel, rawMessage);
+                        } else {
+                            connection.publish(rawChannel, rawMessage);
+                        }
+                    }
+                    closed = true;
+                    return connection.closePipeline();
+                } finally {
+                    if (!closed) {
+                        connection.closePipeline();
+                    }
+                }
+            }, true);
+            long receivers = 0;
+            for (Object result : results) {
+                if (result instanceof Long) {
+                    receivers += (Long) result;
+                }
+            }
+            return receivers;
+        });
+    }
+
+    /**
+     * @return 是否使用分片发布，只在集群模式下生效
+     */
+    private boolean isShardedPublish() {
+        return config.getPubSub().isSharded() && batchExecutor.isClusterAware();
+    }
+
     /**
      * @return
      */
     @Override
     public String getNamespace() {
-        String namespace = "";
-        if (config.isNamespaceEnable()) {
-            namespace = config.getNamespace();
+        return namespace;
+    }
+
+    /**
+     * 读命令使用的 RedisTemplate，按路由配置选择 master 或从节点连接
+     *
+     * @param command 命令名
+     * @param key     不含namespace的key
+     * @return
+     */
+    private RedisTemplate readTemplate(String command, String key) {
+        if (null != readRouting && readRouting.routeToReplica(command, key)) {
+            return readRouting.getReplicaTemplate();
         }
-        if (null != namespace && namespace.trim().length() > 0) {
-            namespace = namespace + ".";
+        return redisTemplate;
+    }
+
+    /**
+     * 执行只读命令
+     *
+     * @param command  命令名
+     * @param key
+     * @param callback
+     * @param <T>
+     * @return
+     */
+    private <T> T doRead(String command, String key, ReadCallback<T> callback) {
+        RedisTemplate template = readTemplate(command, key);
+        String fullKey = key(key);
+        boolean replica = template != redisTemplate;
+        Callable<Object> target = () -> callback.callback(template, fullKey);
+        RedisCommand redisCommand = new RedisCommand(command, key, fullKey, true, replica, target);
+        if (isCompound(command)) {
+            redisCommand.compound();
+        }
+        if (null != readRouting && readRouting.replicaAllowed(key)) {
+            RedisTemplate other = replica ? redisTemplate : readRouting.getReplicaTemplate();
+            redisCommand.hedgeWith(() -> callback.callback(other, fullKey));
+        }
+        return execute(redisCommand);
+    }
+
+    /**
+     * 删除游标扫描到的key，按 SCAN_COUNT 分批执行 DEL
+     *
+     * @param connection
+     * @param cursor
+     * @return 删除key的个数
+     */
+    private long deleteScanned(RedisConnection connection, Cursor<byte[]> cursor, boolean chunks) {
+        long count = 0;
+        List<byte[]> batch = new ArrayList<>(SCAN_COUNT);
+        List<byte[]> chunkBatch = new ArrayList<>();
+        try (Cursor<byte[]> c = cursor) {
+            while (c.hasNext()) {
+                byte[] rawKey = c.next();
+                if (isChunkKey(rawKey)) {
+                    chunkBatch.add(rawKey);
+                } else if (!chunks) {
+                    batch.add(rawKey);
+                }
+                if (batch.size() >= SCAN_COUNT) {
+                    count += deleteBatch(connection, batch);
+                }
+                if (chunkBatch.size() >= SCAN_COUNT) {
+                    deleteBatch(connection, chunkBatch);
+                }
+            }
+        } catch (IOException ex) {
+            log.warn("close redis scan cursor failed", ex);
+        }
+        deleteBatch(connection, chunkBatch);
+        return count + deleteBatch(connection, batch);
+    }
+
+    /**
+     * @return 启用分片存储时是否为分片key
+     */
+    private boolean isChunkKey(byte[] rawKey) {
+        return chunkedValues.isEnabled()
+                && null != ChunkedValues.parseChunkKey((String) redisTemplate.getKeySerializer().deserialize(rawKey));
+    }
+
+    /**
+     * 统计当前 namespace 下的 key 数量，集群模式扫描所有 master 节点
+     *
+     * @return
+     */
+    private long scanCount() {
+        ScanOptions options = ScanOptions.scanOptions().match(escapeGlob(namespace) + "*").count(SCAN_COUNT).build();
+        return (Long) redisTemplate.execute((RedisConnection connection) -> {
+            if (connection instanceof RedisClusterConnection) {
+                RedisClusterConnection clusterConnection = (RedisClusterConnection) connection;
+                long count = 0;
+                for (RedisClusterNode node : clusterConnection.clusterGetNodes()) {
+                    if (node.isMaster()) {
+                        count += countScanned(clusterConnection.scan(node, options));
+                    }
+                }
+                return count;
+            }
+            return countScanned(connection.scan(options));
+        });
+    }
+
+    private long countScanned(Cursor<byte[]> cursor) {
+        long count = 0;
+        try (Cursor<byte[]> c = cursor) {
+            while (c.hasNext()) {
+                if (!isChunkKey(c.next())) {
+                    count++;
+                }
+            }
+        } catch (IOException ex) {
+            log.warn("close redis scan cursor failed", ex);
+        }
+        return count;
+    }
+
+    private long deleteBatch(RedisConnection connection, List<byte[]> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Long deleted = connection.del(batch.toArray(new byte[0][]));
+        batch.clear();
+        return null == deleted ? 0 : deleted;
+    }
+
+    /**
+     * 将批量操作的原始结果反序列化并按原始key组装，元素总数超过阈值时分段并行反序列化
+     *
+     * @param keys         原始key(不带namespace)
+     * @param results      与keys顺序一致的原始结果
+     * @param elementCount 结果中的元素总数
+     * @param deserializer 单个key结果的反序列化
+     * @param <R>
+     * @return
+     */
+    private <R> Map<String, R> toKeyedResult(List<String> keys, List<Object> results, int elementCount,
+                                             Function<Object, R> deserializer) {
+        Object[] values = new Object[results.size()];
+        int parallelism = config.getBatch().getParallelism();
+        if (elementCount < config.getBatch().getParallelDeserializeThreshold() || parallelism <= 1
+                || results.size() < 2) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = deserializer.apply(results.get(i));
+            }
         } else {
-            namespace = "";
+            int step = (values.length + parallelism - 1) / parallelism;
+            List<CompletableFuture<Void>> futures = new ArrayList<>(parallelism);
+            for (int from = 0; from < values.length; from += step) {
+                int start = from;
+                int end = Math.min(from + step, values.length);
+                futures.add(CompletableFuture.runAsync(() -> {
+                    for (int i = start; i < end; i++) {
+                        values[i] = deserializer.apply(results.get(i));
+                    }
+                }, batchExecutor.getExecutor()));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
         }
-        return namespace;
+        Map<String, R> map = new LinkedHashMap<>(keys.size() * 2);
+        for (int i = 0; i < values.length; i++) {
+            map.put(keys.get(i), (R) values[i]);
+        }
+        return map;
+    }
+
+    /**
+     * 多key命令，所有key添加namespace并序列化后统一执行
+     *
+     * @param command  命令名
+     * @param keys
+     * @param callback
+     * @param <T>
+     * @return
+     */
+    private <T> T doMultiCommand(String command, List<String> keys, MultiKeyCallback<T> callback) {
+        if (null == keys || keys.isEmpty()) {
+            return callback.callback(Collections.emptyList());
+        }
+        RedisSerializer keySerializer = redisTemplate.getKeySerializer();
+        List<byte[]> rawKeys = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            rawKeys.add(keySerializer.serialize(key(key)));
+        }
+        return execute(RedisCommand.multiKey(command, keys, false, () -> callback.callback(rawKeys)));
     }
 
     /**
+     * 按 key 分别计算加入随机偏移后的过期时间
+     *
+     * @param keys   不含namespace的key
+     * @param expire 过期时间(秒)
+     * @return
+     */
+    private int[] ttls(List<String> keys, int expire) {
+        int[] ttls = new int[keys.size()];
+        for (int i = 0; i < ttls.length; i++) {
+            ttls[i] = ttlJitter.apply(keys.get(i), expire);
+        }
+        return ttls;
+    }
+
+    private static Map<byte[], Integer> rawTtls(List<byte[]> rawKeys, int[] ttls) {
+        Map<byte[], Integer> rawTtls = new IdentityHashMap<>(rawKeys.size() * 2);
+        for (int i = 0; i < ttls.length; i++) {
+            rawTtls.put(rawKeys.get(i), ttls[i]);
+        }
+        return rawTtls;
+    }
+
+    private List<String> fullKeys(List<String> keys) {
+        List<String> fullKeys = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            fullKeys.add(key(key));
+        }
+        return fullKeys;
+    }
+
+    /**
+     * @param command  命令名
      * @param key
      * @param callback
      * @param <T>
      * @return
      */
-    private <T> T doCommand(String key, RedisCallback<T> callback) {
-        Long begin = System.currentTimeMillis();
+    private <T> T doCommand(String command, String key, RedisCallback<T> callback) {
         String fullKey = key(key);
+        RedisCommand redisCommand = new RedisCommand(command, key, fullKey, false, () -> callback.callback(fullKey));
+        if (isCompound(command)) {
+            redisCommand.compound();
+        }
+        return execute(redisCommand);
+    }
+
+    /**
+     * @param command 命令名
+     * @return 是否由多次往返组成：SCAN 遍历及启用分片存储时的字符串读写
+     */
+    private boolean isCompound(String command) {
+        return SCAN_COMMANDS.contains(command) || chunkedValues.isEnabled() && CHUNKED_COMMANDS.contains(command);
+    }
+
+    /**
+     * 经拦截器调用链执行命令，失败时抛出 {@link RedisOperationException}
+     *
+     * @param command
+     * @param <T>
+     * @return
+     */
+    private <T> T execute(RedisCommand command) {
+        command.source(namespace, command.isReplica() ? readRouting.getNode() : node);
         try {
-            return callback.callback(fullKey);
+            return (T) chain.proceed(command);
+        } catch (RedisOperationException ex) {
+            throw ex;
         } catch (Throwable ex) {
-            throw new RuntimeException(ex);
-        } finally {
-            if (config.getSlowLogSlowerThan() > 0
-                    && (System.currentTimeMillis() - begin) > config.getSlowLogSlowerThan()) {
-                Long useTime = System.currentTimeMillis() - begin;
-                log.warn("execute redis command for key '{}' use time {}ms", fullKey, useTime);
+            throw new RedisOperationException(command, ex);
+        }
+    }
+
+
+    /**
+     * SET 选项构造器，只使用 EX/PX/NX/XX 时通过 Spring Data Redis 的 set 执行，
+     * 包含 KEEPTTL 或 GET 时直接发送 SET 命令
+     *
+     * @param <T>
+     */
+    private final class SetBuilder<T> implements SetOperation<T> {
+
+        private final String key;
+
+        private final T value;
+
+        private Expiration expiration = Expiration.persistent();
+
+        private RedisStringCommands.SetOption option = RedisStringCommands.SetOption.upsert();
+
+        private boolean keepTtl;
+
+        private SetBuilder(String key, T value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public SetOperation<T> ex(long seconds) {
+            if (seconds <= 0) {
+                throw new IllegalArgumentException("ex must be positive: " + seconds);
+            }
+            checkNotKeepTtl();
+            expiration = Expiration.seconds(ttlJitter.apply(key, (int) Math.min(Integer.MAX_VALUE, seconds)));
+            return this;
+        }
+
+        @Override
+        public SetOperation<T> px(long millis) {
+            if (millis <= 0) {
+                throw new IllegalArgumentException("px must be positive: " + millis);
+            }
+            checkNotKeepTtl();
+            expiration = Expiration.milliseconds(ttlJitter.applyMillis(key, millis));
+            return this;
+        }
+
+        @Override
+        public SetOperation<T> nx() {
+            if (option == RedisStringCommands.SetOption.SET_IF_PRESENT) {
+                throw new IllegalStateException("nx and xx are mutually exclusive");
+            }
+            option = RedisStringCommands.SetOption.ifAbsent();
+            return this;
+        }
+
+        @Override
+        public SetOperation<T> xx() {
+            if (option == RedisStringCommands.SetOption.SET_IF_ABSENT) {
+                throw new IllegalStateException("nx and xx are mutually exclusive");
+            }
+            option = RedisStringCommands.SetOption.ifPresent();
+            return this;
+        }
+
+        @Override
+        public SetOperation<T> keepTtl() {
+            if (!expiration.isPersistent()) {
+                throw new IllegalStateException("keepTtl and ex/px are mutually exclusive");
+            }
+            keepTtl = true;
+            return this;
+        }
+
+        private void checkNotKeepTtl() {
+            if (keepTtl) {
+                throw new IllegalStateException("keepTtl and ex/px are mutually exclusive");
+            }
+        }
+
+        @Override
+        public Boolean execute() {
+            return doCommand("SET", key, (k) -> {
+                byte[] rawKey = redisTemplate.getKeySerializer().serialize(k);
+                byte[] rawValue = redisTemplate.getValueSerializer().serialize(value);
+                if (!keepTtl) {
+                    return (Boolean) redisTemplate.execute((RedisConnection c) -> c.set(rawKey, rawValue, expiration,
+                            option));
+                }
+                return null != redisTemplate.execute((RedisConnection c) -> rawSet(c, rawKey, rawValue, false),
+                        true);
+            });
+        }
+
+        @Override
+        public T get() {
+            return doCommand("SET", key, (k) -> {
+                byte[] rawKey = redisTemplate.getKeySerializer().serialize(k);
+                byte[] rawValue = redisTemplate.getValueSerializer().serialize(value);
+                Object previous = redisTemplate.execute((RedisConnection c) -> rawSet(c, rawKey, rawValue, true),
+                        true);
+                return (T) redisTemplate.getValueSerializer().deserialize((byte[]) previous);
+            });
+        }
+
+        private Object rawSet(RedisConnection connection, byte[] rawKey, byte[] rawValue, boolean get) {
+            List<byte[]> args = new ArrayList<>(6);
+            args.add(rawValue);
+            if (!expiration.isPersistent()) {
+                args.add(bytes(expiration.getTimeUnit() == TimeUnit.MILLISECONDS ? "PX" : "EX"));
+                args.add(bytes(String.valueOf(expiration.getExpirationTime())));
+            }
+            if (option == RedisStringCommands.SetOption.SET_IF_ABSENT) {
+                args.add(bytes("NX"));
+            } else if (option == RedisStringCommands.SetOption.SET_IF_PRESENT) {
+                args.add(bytes("XX"));
             }
+            if (keepTtl) {
+                args.add(bytes("KEEPTTL"));
+            }
+            if (get) {
+                args.add(bytes("GET"));
+            }
+            args.add(0, rawKey);
+            return LettuceCommands.executeRaw(connection, "SET", args.toArray(new byte[0][]));
+        }
+
+        private byte[] bytes(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 通过 pipeline 批量写入字符串值，供 {@link WriteBehindBuffer} 刷新使用
+     *
+     * @param writes key -> 待写入的值
+     */
+    void writeStrings(Map<String, WriteBehindBuffer.Pending> writes) {
+        List<String> keys = new ArrayList<>(writes.keySet());
+        this.doMultiCommand("MSET", keys, (rawKeys) -> {
+            if (chunkedValues.isEnabled()) {
+                List<Object> chunkValues = new ArrayList<>(keys.size());
+                int[] expires = new int[keys.size()];
+                for (int i = 0; i < keys.size(); i++) {
+                    chunkValues.add(writes.get(keys.get(i)).value);
+                    expires[i] = writes.get(keys.get(i)).expire;
+                }
+                chunkedValues.setAll(fullKeys(keys), rawKeys, chunkValues, expires);
+                return null;
+            }
+            RedisSerializer valueSerializer = redisTemplate.getValueSerializer();
+            Map<byte[], WriteBehindBuffer.Pending> values = new IdentityHashMap<>(keys.size() * 2);
+            for (int i = 0; i < keys.size(); i++) {
+                values.put(rawKeys.get(i), writes.get(keys.get(i)));
+            }
+            return batchExecutor.execute(rawKeys, (connection, rawKey) -> {
+                WriteBehindBuffer.Pending write = values.get(rawKey);
+                byte[] rawValue = valueSerializer.serialize(write.value);
+                if (write.expire > 0) {
+                    connection.setEx(rawKey, write.expire, rawValue);
+                } else {
+                    connection.set(rawKey, rawValue);
+                }
+            });
+        });
+    }
+
+    /**
+     * 通过 pipeline 批量写入哈希表，每个key一条 HMSET，供 {@link WriteBehindBuffer} 刷新使用
+     *
+     * @param writes key -> (field -> value)
+     */
+    void writeHashes(Map<String, Map<Object, Object>> writes) {
+        List<String> keys = new ArrayList<>(writes.keySet());
+        this.doMultiCommand("HMSET", keys, (rawKeys) -> {
+            RedisSerializer hashKeySerializer = redisTemplate.getHashKeySerializer();
+            RedisSerializer hashValueSerializer = redisTemplate.getHashValueSerializer();
+            Map<byte[], Map<byte[], byte[]>> values = new IdentityHashMap<>(keys.size() * 2);
+            for (int i = 0; i < keys.size(); i++) {
+                Map<byte[], byte[]> rawFieldValues = new LinkedHashMap<>();
+                writes.get(keys.get(i)).forEach((field, value) -> rawFieldValues.put(
+                        hashKeySerializer.serialize(field), hashValueSerializer.serialize(value)));
+                values.put(rawKeys.get(i), rawFieldValues);
+            }
+            return batchExecutor.execute(rawKeys, (connection, rawKey) -> {
+                connection.hMSet(rawKey, values.get(rawKey));
+            });
+        });
+    }
+
+    /**
+     * @param template 读路由选择的 RedisTemplate
+     * @return 是否通过自动 pipeline 执行，只有 master 上的命令合并
+     */
+    private boolean isAutoPipelined(RedisTemplate template) {
+        return null != autoPipeliner && template == redisTemplate;
+    }
+
+    private static byte[] rawKey(RedisTemplate template, String fullKey) {
+        return template.getKeySerializer().serialize(fullKey);
+    }
+
+    /**
+     * 转义 SCAN MATCH 模式中的通配符
+     */
+    public static String escapeGlob(String text) {
+        StringBuilder builder = new StringBuilder(text.length() + 4);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+                builder.append('\\');
+            }
+            builder.append(c);
         }
+        return builder.toString();
     }
 
+    private static byte[] ascii(Object value) {
+        return String.valueOf(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @param score
+     * @return Redis 格式的 score 区间端点，无穷大为 +inf/-inf
+     */
+    private static byte[] scoreBound(double score) {
+        if (Double.isInfinite(score)) {
+            return ascii(score > 0 ? "+inf" : "-inf");
+        }
+        return ascii(score);
+    }
 
     /**
      * @param <T>
@@ -480,4 +1792,34 @@ public class RedisOperater implements IRedisOperater {
         T callback(String key) throws Exception;
     }
 
+    /**
+     * @param <T>
+     */
+    @FunctionalInterface
+    interface ReadCallback<T> {
+        /**
+         * 处理回调
+         *
+         * @param template 按读路由选择的 RedisTemplate
+         * @param key
+         * @return
+         * @throws Exception
+         */
+        T callback(RedisTemplate template, String key) throws Exception;
+    }
+
+    /**
+     * @param <T>
+     */
+    @FunctionalInterface
+    interface MultiKeyCallback<T> {
+        /**
+         * 处理回调
+         *
+         * @param rawKeys 添加namespace并序列化后的key
+         * @return
+         */
+        T callback(List<byte[]> rawKeys);
+    }
+
 }
@@ -0,0 +1,42 @@
+package com.easysoft.redis;
+
+import com.easysoft.redis.interceptor.RedisCommand;
+
+/**
+ * IRedisOperater 命令执行失败，cause 为底层 Lettuce/Spring Data Redis 异常
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-23 10:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-23 10:20
+ */
+public class RedisOperationException extends RuntimeException {
+
+    private final String command;
+
+    private final String key;
+
+    public RedisOperationException(RedisCommand command, Throwable cause) {
+        this(command, "execute redis command " + command + " failed", cause);
+    }
+
+    protected RedisOperationException(RedisCommand command, String message, Throwable cause) {
+        super(message, cause);
+        this.command = command.getName();
+        this.key = command.getFullKey();
+    }
+
+    /**
+     * @return 命令名
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * @return 添加namespace后的key，多key命令返回 null
+     */
+    public String getKey() {
+        return key;
+    }
+}
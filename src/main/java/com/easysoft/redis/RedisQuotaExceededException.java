@@ -0,0 +1,39 @@
+package com.easysoft.redis;
+
+import com.easysoft.redis.interceptor.RedisCommand;
+
+/**
+ * namespace 视图的 key 数量达到配额，可能新增 key 的写命令未发送到 Redis 即失败
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-02 10:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-02 10:00
+ */
+public class RedisQuotaExceededException extends RedisOperationException {
+
+    private final String namespace;
+
+    private final long maxKeys;
+
+    public RedisQuotaExceededException(RedisCommand command, String namespace, long keys, long maxKeys) {
+        super(command, "namespace '" + namespace + "' has " + keys + " keys, quota " + maxKeys
+                + " exceeded, reject command " + command, null);
+        this.namespace = namespace;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * @return 完整的 key 前缀
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * @return key 数量配额
+     */
+    public long getMaxKeys() {
+        return maxKeys;
+    }
+}
@@ -0,0 +1,187 @@
+package com.easysoft.redis;
+
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import org.springframework.data.redis.connection.DataType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * 按 key 前缀把命令路由到不同 Redis 实例的 IRedisOperater，用于把缓存、会话、队列等负载拆分到不同的部署。
+ * <p>
+ * key 按最长匹配的前缀选择实例，没有匹配的前缀时使用默认实例；多key命令按实例分组后分别执行，结果按原始顺序合并。
+ * 消息在默认实例发布，不按频道名路由；delByPattern、scan 在模式前缀所属的实例及以该前缀开头的更长路由前缀的实例执行，
+ * 模式不能确定前缀时在所有实例执行；延迟写入按 key 写入所属实例的缓冲区。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-03 10:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-03 10:00
+ */
+public class RoutingRedisOperater extends AbstractRoutingRedisOperater {
+
+    private final IRedisOperater defaultOperater;
+
+    /**
+     * 前缀 -> 实例，按前缀长度从长到短排列
+     */
+    private final Map.Entry<String, IRedisOperater>[] routes;
+
+    private final ConcurrentHashMap<String, RoutingRedisOperater> views = new ConcurrentHashMap<>();
+
+    private final WriteBehind writeBehind = new RoutedWriteBehind();
+
+    /**
+     * @param defaultOperater 没有匹配的前缀时使用的实例
+     * @param routes          key 前缀(不含namespace) -> 实例
+     */
+    public RoutingRedisOperater(IRedisOperater defaultOperater, Map<String, IRedisOperater> routes) {
+        this(defaultOperater, routes, new RedisProperties.Scan());
+    }
+
+    /**
+     * @param defaultOperater 没有匹配的前缀时使用的实例
+     * @param routes          key 前缀(不含namespace) -> 实例
+     * @param scan            在多个实例并行 scan 的遍历线程配置
+     */
+    public RoutingRedisOperater(IRedisOperater defaultOperater, Map<String, IRedisOperater> routes,
+                                RedisProperties.Scan scan) {
+        super(null, scan);
+        this.defaultOperater = defaultOperater;
+        this.routes = sortRoutes(routes);
+    }
+
+    private RoutingRedisOperater(RoutingRedisOperater root, IRedisOperater defaultOperater,
+                                 Map<String, IRedisOperater> routes) {
+        super(null, root);
+        this.defaultOperater = defaultOperater;
+        this.routes = sortRoutes(routes);
+    }
+
+    private static Map.Entry<String, IRedisOperater>[] sortRoutes(Map<String, IRedisOperater> routes) {
+        List<Map.Entry<String, IRedisOperater>> entries = new ArrayList<>(routes.entrySet());
+        entries.sort(Comparator.comparingInt((Map.Entry<String, IRedisOperater> e) -> e.getKey().length()).reversed());
+        return entries.toArray(new Map.Entry[0]);
+    }
+
+    @Override
+    public IRedisOperater route(String key) {
+        if (null != key) {
+            for (Map.Entry<String, IRedisOperater> route : routes) {
+                if (key.startsWith(route.getKey())) {
+                    return route.getValue();
+                }
+            }
+        }
+        return defaultOperater;
+    }
+
+    @Override
+    protected IRedisOperater publisher() {
+        return defaultOperater;
+    }
+
+    /**
+     * @return 默认实例的 namespace，各实例的 namespace 可能不同，key 的完整名称见 {@link #key(String)}
+     */
+    @Override
+    public String getNamespace() {
+        return defaultOperater.getNamespace();
+    }
+
+    /**
+     * 每个实例分别创建 namespace 视图，路由规则不变
+     */
+    @Override
+    public IRedisOperater withNamespace(String name) {
+        return views.computeIfAbsent(name, n -> {
+            Map<String, IRedisOperater> viewRoutes = new LinkedHashMap<>();
+            for (Map.Entry<String, IRedisOperater> route : routes) {
+                viewRoutes.put(route.getKey(), route.getValue().withNamespace(n));
+            }
+            return new RoutingRedisOperater(this, defaultOperater.withNamespace(n), viewRoutes);
+        });
+    }
+
+    /**
+     * 在模式前缀所属的实例及以该前缀开头的更长路由前缀的实例执行
+     */
+    @Override
+    public Long delByPattern(String pattern) {
+        Set<IRedisOperater> targets = targets(literalPrefix(pattern));
+        if (targets.size() == 1) {
+            return targets.iterator().next().delByPattern(pattern);
+        }
+        return delByPatternOnAll(targets, pattern);
+    }
+
+    /**
+     * 与 delByPattern 相同，只在可能包含匹配 key 的实例执行 SCAN
+     */
+    @Override
+    public Stream<String> scan(String pattern, int count, DataType type) {
+        Set<IRedisOperater> targets = targets(literalPrefix(null == pattern ? "*" : pattern));
+        if (targets.size() == 1) {
+            return targets.iterator().next().scan(pattern, count, type);
+        }
+        return scanOnAll(targets, pattern, count, type);
+    }
+
+    /**
+     * @return 按 key 写入所属实例的延迟写入缓冲区
+     */
+    @Override
+    public WriteBehind writeBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * @return 默认实例及所有路由实例，去重
+     */
+    @Override
+    protected Set<IRedisOperater> operaters() {
+        Set<IRedisOperater> operaters = new LinkedHashSet<>();
+        operaters.add(defaultOperater);
+        for (Map.Entry<String, IRedisOperater> route : routes) {
+            operaters.add(route.getValue());
+        }
+        return operaters;
+    }
+
+    /**
+     * 模式中第一个通配符之前的部分
+     */
+    private static String literalPrefix(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '\\') {
+                return pattern.substring(0, i);
+            }
+        }
+        return pattern;
+    }
+
+    /**
+     * 以 prefix 开头的 key 可能位于的实例：prefix 所属的实例，及路由前缀以 prefix 开头(更长)的实例
+     *
+     * @param prefix 模式中第一个通配符之前的部分
+     * @return 去重
+     */
+    private Set<IRedisOperater> targets(String prefix) {
+        Set<IRedisOperater> targets = new LinkedHashSet<>();
+        targets.add(route(prefix));
+        for (Map.Entry<String, IRedisOperater> route : routes) {
+            if (route.getKey().startsWith(prefix)) {
+                targets.add(route.getValue());
+            }
+        }
+        return targets;
+    }
+}
@@ -0,0 +1,286 @@
+package com.easysoft.redis;
+
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 把 SCAN 系列游标转换为惰性 Stream，关闭 Stream 时关闭游标并释放连接。
+ * <p>
+ * 多个来源(集群的 master 节点、分片)并行遍历：每个来源在单独的线程中按页读取，最多缓存与来源数相同的页数，
+ * 消费慢时遍历暂停。遍历线程不使用批量操作的线程池，消费时执行其他批量命令不会互相等待。
+ * <p>
+ * 遍历线程池由创建它的 IRedisOperater 持有并在销毁时关闭，线程数有上限，超出时来源排队等待空闲线程；
+ * 遍历线程等待消费超过 maxIdle 时(如 Stream 未关闭即被丢弃)放弃遍历并释放连接，之后读取该 Stream 抛出异常。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-05 10:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-05 10:00
+ */
+@Slf4j
+final class ScanStreams {
+
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final ThreadPoolExecutor scanners;
+
+    private final long maxIdleMillis;
+
+    /**
+     * @param config 遍历线程数上限及最长等待消费时间
+     */
+    ScanStreams(RedisProperties.Scan config) {
+        int maxThreads = Math.max(1, config.getMaxThreads());
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("easysoft-redis-scan-");
+        threadFactory.setDaemon(true);
+        this.scanners = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        this.scanners.allowCoreThreadTimeOut(true);
+        this.maxIdleMillis = Math.max(OFFER_TIMEOUT_MILLIS, config.getMaxIdle().toMillis());
+    }
+
+    /**
+     * 中断遍历线程，未结束的并行 Stream 读取时抛出异常
+     */
+    void shutdown() {
+        scanners.shutdownNow();
+    }
+
+    /**
+     * @param cursor 使用独占连接的游标
+     * @return 逐个返回游标元素的 Stream
+     */
+    static <T> Stream<T> of(Cursor<T> cursor) {
+        return toStream(cursor).onClose(() -> close(cursor));
+    }
+
+    /**
+     * 按页读取游标，每页经 mapper 转换(可过滤)后返回，mapper 可以对整页执行 pipeline
+     *
+     * @param cursor   使用独占连接的游标
+     * @param pageSize 每页的元素数量
+     * @param mapper   页转换
+     * @return
+     */
+    static <T, R> Stream<R> paged(Cursor<T> cursor, int pageSize, Function<List<T>, List<R>> mapper) {
+        Iterator<R> iterator = new Iterator<R>() {
+
+            private Iterator<R> page = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!page.hasNext() && cursor.hasNext()) {
+                    page = mapper.apply(nextPage(cursor, pageSize)).iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public R next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+        return toStream(iterator).onClose(() -> close(cursor));
+    }
+
+    /**
+     * 并行遍历多个来源，元素按各来源读取完成的顺序返回
+     *
+     * @param sources  各来源的 Stream，在遍历线程中创建
+     * @param pageSize 每次从来源读取并提交的元素数量
+     * @return
+     */
+    <R> Stream<R> parallel(List<Supplier<Stream<R>>> sources, int pageSize) {
+        if (sources.size() == 1) {
+            return sources.get(0).get();
+        }
+        ParallelIterator<R> iterator = new ParallelIterator<>(sources.size(), maxIdleMillis);
+        try {
+            for (Supplier<Stream<R>> source : sources) {
+                scanners.execute(() -> iterator.produce(source, Math.max(1, pageSize)));
+            }
+        } catch (RejectedExecutionException ex) {
+            iterator.close();
+            throw new IllegalStateException("redis operater is destroyed", ex);
+        }
+        return toStream(iterator).onClose(iterator::close);
+    }
+
+    private static <T> List<T> nextPage(Iterator<T> iterator, int pageSize) {
+        List<T> page = new ArrayList<>(pageSize);
+        while (page.size() < pageSize && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+        return page;
+    }
+
+    private static <T> Stream<T> toStream(Iterator<T> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+
+    private static void close(Cursor<?> cursor) {
+        try {
+            cursor.close();
+        } catch (IOException ex) {
+            log.warn("close redis scan cursor failed", ex);
+        }
+    }
+
+    /**
+     * 合并多个来源的迭代器，来源线程通过有界队列提交页
+     */
+    private static final class ParallelIterator<R> implements Iterator<R> {
+
+        private final BlockingQueue<Page<R>> pages;
+
+        private final long maxIdleMillis;
+
+        private int running;
+
+        private volatile boolean closed;
+
+        /**
+         * 遍历线程放弃遍历的原因，设置后所有来源停止
+         */
+        private volatile RuntimeException abandoned;
+
+        private Iterator<R> current = Collections.emptyIterator();
+
+        ParallelIterator(int sources, long maxIdleMillis) {
+            this.pages = new ArrayBlockingQueue<>(sources);
+            this.maxIdleMillis = maxIdleMillis;
+            this.running = sources;
+        }
+
+        void produce(Supplier<Stream<R>> source, int pageSize) {
+            Page<R> end = new Page<>(null, null);
+            try (Stream<R> stream = source.get()) {
+                Iterator<R> iterator = stream.iterator();
+                while (!closed && iterator.hasNext()) {
+                    offer(new Page<>(nextPage(iterator, pageSize), null));
+                }
+            } catch (RuntimeException ex) {
+                end = new Page<>(null, ex);
+            }
+            offer(end);
+        }
+
+        /**
+         * 队列已满时等待消费，Stream 关闭、等待超过 maxIdle 或线程池关闭后放弃
+         */
+        private void offer(Page<R> page) {
+            long deadline = System.currentTimeMillis() + maxIdleMillis;
+            try {
+                boolean offered = false;
+                while (!closed && !offered) {
+                    if (System.currentTimeMillis() >= deadline) {
+                        abandon(new IllegalStateException("redis scan stream was not consumed for "
+                                + maxIdleMillis + "ms and has been abandoned"));
+                        return;
+                    }
+                    offered = pages.offer(page, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                abandon(new IllegalStateException("redis scan was interrupted", ex));
+            }
+        }
+
+        private void abandon(RuntimeException reason) {
+            if (null == abandoned) {
+                abandoned = reason;
+            }
+            closed = true;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && running > 0) {
+                Page<R> page = take();
+                if (null != page.items) {
+                    current = page.items.iterator();
+                    continue;
+                }
+                running--;
+                if (null != page.error) {
+                    close();
+                    throw page.error;
+                }
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public R next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        private Page<R> take() {
+            try {
+                while (true) {
+                    Page<R> page = pages.poll(OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (null != page) {
+                        return page;
+                    }
+                    RuntimeException reason = abandoned;
+                    if (null != reason) {
+                        close();
+                        throw reason;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IllegalStateException("interrupted while waiting for redis scan", ex);
+            }
+        }
+
+        void close() {
+            closed = true;
+            running = 0;
+            pages.clear();
+        }
+    }
+
+    /**
+     * 来源提交的一页元素，items 为 null 时表示该来源结束，error 为遍历失败的原因
+     */
+    private static final class Page<R> {
+
+        private final List<R> items;
+
+        private final RuntimeException error;
+
+        Page(List<R> items, RuntimeException error) {
+            this.items = items;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.easysoft.redis;
+
+/**
+ * 成员为整数的有序集合区间，成员和 score 分别保存在两个等长的基本类型数组中，不创建装箱对象
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-28 10:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-28 10:20
+ */
+public final class ScoredLongs {
+
+    private static final ScoredLongs EMPTY = new ScoredLongs(new long[0], new double[0]);
+
+    private final long[] members;
+
+    private final double[] scores;
+
+    public ScoredLongs(long[] members, double[] scores) {
+        if (members.length != scores.length) {
+            throw new IllegalArgumentException("members and scores must have the same length");
+        }
+        this.members = members;
+        this.scores = scores;
+    }
+
+    public static ScoredLongs empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return members.length;
+    }
+
+    public long member(int index) {
+        return members[index];
+    }
+
+    public double score(int index) {
+        return scores[index];
+    }
+
+    /**
+     * @return 成员数组，按 score 排序，调用方不应修改
+     */
+    public long[] getMembers() {
+        return members;
+    }
+
+    /**
+     * @return score 数组，与 {@link #getMembers()} 一一对应，调用方不应修改
+     */
+    public double[] getScores() {
+        return scores;
+    }
+}
@@ -0,0 +1,69 @@
+package com.easysoft.redis;
+
+/**
+ * SET 命令的选项构造器，所有选项合并为一条 SET 命令执行：
+ * <pre>
+ *     redisOperater.setWith("lock::order", token).ex(30).nx().execute();
+ *     User previous = redisOperater.setWith("user::10086", user).keepTtl().get();
+ * </pre>
+ * NX 与 XX、过期时间与 KEEPTTL 不能同时使用，同时指定或过期时间小于等于0时在发送命令前抛出异常，GET 选项需要 Redis 6.2 及以上版本(与 NX 同时使用需要 7.0)。
+ *
+ * @param <T> value 类型
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-27 11:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-27 11:00
+ */
+public interface SetOperation<T> {
+
+    /**
+     * EX：过期时间，单位秒，按 easysoft.redis.ttl-jitter 添加随机抖动
+     *
+     * @param seconds 大于0
+     * @return this
+     */
+    SetOperation<T> ex(long seconds);
+
+    /**
+     * PX：过期时间，单位毫秒，按 easysoft.redis.ttl-jitter 添加随机抖动(max-seconds 换算为毫秒)
+     *
+     * @param millis 大于0
+     * @return this
+     */
+    SetOperation<T> px(long millis);
+
+    /**
+     * NX：key 不存在时才写入
+     *
+     * @return this
+     */
+    SetOperation<T> nx();
+
+    /**
+     * XX：key 存在时才写入
+     *
+     * @return this
+     */
+    SetOperation<T> xx();
+
+    /**
+     * KEEPTTL：保留 key 原有的过期时间，需要 Redis 6.0 及以上版本
+     *
+     * @return this
+     */
+    SetOperation<T> keepTtl();
+
+    /**
+     * 执行 SET
+     *
+     * @return 是否写入，NX/XX 条件不满足时返回 false
+     */
+    Boolean execute();
+
+    /**
+     * 带 GET 选项执行 SET
+     *
+     * @return 写入前的旧值，key 不存在时返回 null
+     */
+    T get();
+}
@@ -0,0 +1,302 @@
+package com.easysoft.redis;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分片调整后的在线 key 迁移：通过 SCAN 遍历每个实例当前 namespace 下的 key，把按新的哈希环不再属于该实例的 key
+ * 通过 DUMP/RESTORE 复制到所属分片后从原实例删除。
+ * <p>
+ * 使用步骤：先让所有应用实例切换到新的分片配置(新的写入直接进入新分片)，再执行 {@link #migrate()}。
+ * 迁移期间尚未迁移的 key 读取不到，按缓存未命中处理；RESTORE 不覆盖已存在的 key，目标分片上已有的 key 视为更新的数据，
+ * 原实例上的旧值直接删除。迁移可以重复执行，每批之间不持有锁，不阻塞其他命令。
+ * <p>
+ * key 按去掉实例 namespace 后的部分选择分片，namespace 视图的 key 包含视图名，与 {@link ShardedRedisOperater} 视图的
+ * 路由规则一致。启用大value分片存储时，以 {完整key} 开头的分片key单独扫描，按原key选择分片，迁移后改写为目标实例
+ * namespace 下的分片key；清单与分片分批迁移，期间读取到不完整的value按未命中处理。
+ * <p>
+ * DUMP 的结果只能 RESTORE 到相同或更高版本的 Redis。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-04 10:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-04 10:00
+ */
+@Slf4j
+public class ShardMigrator {
+
+    private final Map<String, RedisOperater> nodes;
+
+    private final ConsistentHashRing ring;
+
+    private final int batchSize;
+
+    /**
+     * @param nodes     实例名 -> 实例，包含哈希环上的所有分片及正在下线的实例
+     * @param ring      新的哈希环
+     * @param batchSize 每批迁移的 key 数量，同时作为 SCAN 的 COUNT
+     */
+    public ShardMigrator(Map<String, RedisOperater> nodes, ConsistentHashRing ring, int batchSize) {
+        for (String node : ring.getNodes()) {
+            if (!nodes.containsKey(node)) {
+                throw new IllegalArgumentException("redis instance of shard '" + node + "' is missing");
+            }
+        }
+        this.nodes = new LinkedHashMap<>(nodes);
+        this.ring = ring;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * 依次迁移每个实例上归属已改变的 key
+     *
+     * @return
+     */
+    public Result migrate() {
+        Result result = new Result();
+        nodes.forEach((name, source) -> {
+            long moved = result.getMoved();
+            migrate(name, source, result);
+            log.info("migrated {} keys from redis instance '{}'", result.getMoved() - moved, name);
+        });
+        return result;
+    }
+
+    private void migrate(String name, RedisOperater source, Result result) {
+        String namespace = source.getNamespace();
+        String pattern = RedisOperater.escapeGlob(namespace) + "*";
+        migrate(name, source, pattern, result);
+        if (source.isChunked() && !namespace.isEmpty()) {
+            // 不含 hash tag 的原key的分片key以 {key} 开头，不匹配原模式
+            for (String chunkPattern : ChunkedValues.chunkPatterns(pattern)) {
+                migrate(name, source, chunkPattern, result);
+            }
+        }
+    }
+
+    private void migrate(String name, RedisOperater source, String pattern, Result result) {
+        RedisTemplate template = source.getRedisTemplate();
+        RedisSerializer keySerializer = template.getKeySerializer();
+        String namespace = source.getNamespace();
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(batchSize).build();
+        template.execute((RedisConnection connection) -> {
+            List<byte[]> batch = new ArrayList<>(batchSize);
+            try (Cursor<byte[]> cursor = connection.scan(options)) {
+                while (cursor.hasNext()) {
+                    batch.add(cursor.next());
+                    result.scanned++;
+                    if (batch.size() >= batchSize) {
+                        moveBatch(name, namespace, connection, keySerializer, batch, result);
+                    }
+                }
+            } catch (IOException ex) {
+                log.warn("close redis scan cursor failed", ex);
+            }
+            moveBatch(name, namespace, connection, keySerializer, batch, result);
+            return null;
+        }, true);
+    }
+
+    /**
+     * 迁移一批 key：在原实例通过 pipeline 执行 DUMP、PTTL，在目标分片通过 pipeline 执行 RESTORE，最后删除已迁移的 key
+     */
+    private void moveBatch(String name, String namespace, RedisConnection connection, RedisSerializer keySerializer,
+                           List<byte[]> batch, Result result) {
+        Map<String, List<Move>> targets = new LinkedHashMap<>();
+        for (byte[] rawKey : batch) {
+            Move move = move(rawKey, (String) keySerializer.deserialize(rawKey), namespace);
+            String target = ring.nodeFor(move.relativeKey);
+            if (!target.equals(name)) {
+                targets.computeIfAbsent(target, t -> new ArrayList<>()).add(move);
+            }
+        }
+        batch.clear();
+        if (targets.isEmpty()) {
+            return;
+        }
+        connection.openPipeline();
+        targets.values().forEach(moves -> moves.forEach(move -> {
+            connection.dump(move.rawKey);
+            connection.pTtl(move.rawKey);
+        }));
+        List<Object> replies = connection.closePipeline();
+        int index = 0;
+        List<byte[]> done = new ArrayList<>();
+        for (Map.Entry<String, List<Move>> target : targets.entrySet()) {
+            List<Move> moves = new ArrayList<>(target.getValue().size());
+            for (Move move : target.getValue()) {
+                move.payload = (byte[]) replies.get(index++);
+                Long ttl = (Long) replies.get(index++);
+                // 读取期间已删除或过期
+                if (null != move.payload && null != ttl && ttl != -2) {
+                    move.ttl = ttl < 0 ? 0 : Math.max(1, ttl);
+                    moves.add(move);
+                }
+            }
+            if (!moves.isEmpty()) {
+                restore(nodes.get(target.getKey()), moves, result);
+                moves.stream().filter(move -> move.restored).forEach(move -> done.add(move.rawKey));
+            }
+        }
+        if (!done.isEmpty()) {
+            connection.del(done.toArray(new byte[0][]));
+        }
+    }
+
+    /**
+     * @param key       SCAN 得到的完整key
+     * @param namespace 原实例的 namespace
+     * @return 分片key按原key(不含namespace)选择分片
+     */
+    private static Move move(byte[] rawKey, String key, String namespace) {
+        String[] chunk = ChunkedValues.parseChunkKey(key);
+        if (null != chunk && chunk[0].startsWith(namespace)) {
+            return new Move(rawKey, chunk[0].substring(namespace.length()), chunk[1]);
+        }
+        return new Move(rawKey, key.substring(namespace.length()), null);
+    }
+
+    /**
+     * 通过 pipeline 执行 EXISTS 找出目标分片上已存在的 key，其余 key 通过 pipeline 执行 RESTORE；
+     * pipeline 中有错误时(如期间有新的写入)逐个重试以确定失败的 key
+     */
+    private void restore(RedisOperater target, List<Move> moves, Result result) {
+        RedisTemplate template = target.getRedisTemplate();
+        RedisSerializer keySerializer = template.getKeySerializer();
+        for (Move move : moves) {
+            String targetKey = target.key(move.relativeKey);
+            move.targetKey = keySerializer.serialize(null == move.chunkSuffix ? targetKey
+                    : ChunkedValues.chunkKey(targetKey, move.chunkSuffix));
+        }
+        template.execute((RedisConnection connection) -> {
+            connection.openPipeline();
+            moves.forEach(move -> connection.exists(move.targetKey));
+            List<Object> exists = connection.closePipeline();
+            List<Move> missing = new ArrayList<>(moves.size());
+            for (int i = 0; i < moves.size(); i++) {
+                if (Boolean.TRUE.equals(exists.get(i))) {
+                    moves.get(i).restored = true;
+                    result.skipped++;
+                } else {
+                    missing.add(moves.get(i));
+                }
+            }
+            if (missing.isEmpty()) {
+                return null;
+            }
+            connection.openPipeline();
+            missing.forEach(move -> connection.restore(move.targetKey, move.ttl, move.payload, false));
+            try {
+                connection.closePipeline();
+            } catch (RedisPipelineException ex) {
+                restoreEach(connection, missing, result);
+                return null;
+            }
+            missing.forEach(move -> move.restored = true);
+            result.moved += missing.size();
+            return null;
+        }, true);
+    }
+
+    /**
+     * 逐个执行 RESTORE，返回 BUSYKEY 的 key 计入 skipped(包括已由 pipeline 恢复的 key)
+     */
+    private void restoreEach(RedisConnection connection, List<Move> moves, Result result) {
+        for (Move move : moves) {
+            try {
+                connection.restore(move.targetKey, move.ttl, move.payload, false);
+                result.moved++;
+                move.restored = true;
+            } catch (DataAccessException ex) {
+                if (isBusyKey(ex)) {
+                    result.skipped++;
+                    move.restored = true;
+                } else {
+                    result.failed++;
+                    log.warn("restore key {} failed", move.relativeKey, ex);
+                }
+            }
+        }
+    }
+
+    private static boolean isBusyKey(Throwable ex) {
+        for (Throwable cause = ex; null != cause; cause = cause.getCause()) {
+            if (null != cause.getMessage() && cause.getMessage().contains("BUSYKEY")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 待迁移的 key
+     */
+    private static final class Move {
+
+        private final byte[] rawKey;
+
+        /**
+         * 选择分片的key，分片key为原key
+         */
+        private final String relativeKey;
+
+        /**
+         * 不含 hash tag 的原key的分片key后缀，其他key为 null
+         */
+        private final String chunkSuffix;
+
+        private byte[] targetKey;
+
+        private byte[] payload;
+
+        private long ttl;
+
+        private boolean restored;
+
+        Move(byte[] rawKey, String relativeKey, String chunkSuffix) {
+            this.rawKey = rawKey;
+            this.relativeKey = relativeKey;
+            this.chunkSuffix = chunkSuffix;
+        }
+    }
+
+    /**
+     * 迁移结果
+     */
+    @Data
+    public static class Result {
+
+        /**
+         * 扫描的 key 数量
+         */
+        private long scanned;
+
+        /**
+         * 迁移到新分片的 key 数量
+         */
+        private long moved;
+
+        /**
+         * 新分片上已存在(迁移开始后写入)、直接从原实例删除的 key 数量
+         */
+        private long skipped;
+
+        /**
+         * 迁移失败、仍保留在原实例的 key 数量
+         */
+        private long failed;
+    }
+}
@@ -0,0 +1,191 @@
+package com.easysoft.redis;
+
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 客户端分片：按一致性哈希把 key 分散到多个独立(非集群)的 Redis 实例，用于在不能部署 Redis Cluster 的环境中水平扩展
+ * 内存和吞吐。
+ * <p>
+ * key(不含namespace)按 {@link ConsistentHashRing} 选择分片，支持 hash tag；namespace 视图按 "视图名.key" 选择分片，
+ * 与 {@link ShardMigrator} 从完整key中去掉实例 namespace 后得到的key一致。多key命令按分片分组后并行执行，
+ * 结果按原始顺序合并。消息在 {@link #setPublisher(IRedisOperater)} 指定的实例(默认为第一个分片)发布，不按频道名选择分片；
+ * delByPattern、scan 在所有分片(并行)执行；延迟写入按 key 写入所属分片的缓冲区。
+ * <p>
+ * 增减分片后约 1/N 的 key 改变归属，迁移完成前这些 key 读取不到，见 {@link ShardMigrator}。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-04 10:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-04 10:00
+ */
+public class ShardedRedisOperater extends AbstractRoutingRedisOperater {
+
+    private final Map<String, IRedisOperater> shards;
+
+    private final ConsistentHashRing ring;
+
+    /**
+     * 视图选择分片时添加在key之前的视图名(以 . 结尾)，根实例为空字符串
+     */
+    private final String routePrefix;
+
+    /**
+     * 并行执行多key命令的线程池，视图与根实例共用，只由根实例关闭
+     */
+    private final ExecutorService executor;
+
+    private final boolean ownsExecutor;
+
+    private final ConcurrentHashMap<String, ShardedRedisOperater> views = new ConcurrentHashMap<>();
+
+    /**
+     * 创建视图的实例及视图名，根实例为 null
+     */
+    private final ShardedRedisOperater parent;
+
+    private final String viewName;
+
+    private volatile IRedisOperater publisher;
+
+    private final WriteBehind writeBehind = new RoutedWriteBehind();
+
+    /**
+     * @param shards       分片名 -> 实例，分片名参与哈希计算，调整顺序不影响 key 的归属
+     * @param virtualNodes 每个分片的虚拟节点数
+     */
+    public ShardedRedisOperater(Map<String, ? extends IRedisOperater> shards, int virtualNodes) {
+        this(shards, virtualNodes, new RedisProperties.Scan());
+    }
+
+    /**
+     * @param shards       分片名 -> 实例，分片名参与哈希计算，调整顺序不影响 key 的归属
+     * @param virtualNodes 每个分片的虚拟节点数
+     * @param scan         在所有分片并行 scan 的遍历线程配置
+     */
+    public ShardedRedisOperater(Map<String, ? extends IRedisOperater> shards, int virtualNodes,
+                                RedisProperties.Scan scan) {
+        this(shards, virtualNodes, scan, newExecutor(shards.size()));
+    }
+
+    private ShardedRedisOperater(Map<String, ? extends IRedisOperater> shards, int virtualNodes,
+                                 RedisProperties.Scan scan, ExecutorService executor) {
+        super(executor, scan);
+        this.shards = new LinkedHashMap<>(shards);
+        this.ring = new ConsistentHashRing(shards.keySet(), virtualNodes);
+        this.routePrefix = "";
+        this.executor = executor;
+        this.ownsExecutor = true;
+        this.parent = null;
+        this.viewName = null;
+    }
+
+    private ShardedRedisOperater(ShardedRedisOperater parent, Map<String, ? extends IRedisOperater> shards,
+                                 String viewName) {
+        super(parent.executor, parent);
+        this.shards = new LinkedHashMap<>(shards);
+        this.ring = parent.ring;
+        this.routePrefix = parent.routePrefix + viewName + ".";
+        this.executor = parent.executor;
+        this.ownsExecutor = false;
+        this.parent = parent;
+        this.viewName = viewName;
+    }
+
+    private static ExecutorService newExecutor(int shards) {
+        if (shards <= 1) {
+            return null;
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("easysoft-redis-shard-");
+        threadFactory.setDaemon(true);
+        return Executors.newFixedThreadPool(shards, threadFactory);
+    }
+
+    @Override
+    public IRedisOperater route(String key) {
+        return shards.get(shardOf(null == key ? "" : key));
+    }
+
+    /**
+     * @param key 不含namespace的key
+     * @return key 所属的分片名
+     */
+    public String shardOf(String key) {
+        return ring.nodeFor(routePrefix + key);
+    }
+
+    public ConsistentHashRing getRing() {
+        return ring;
+    }
+
+    @Override
+    protected Collection<IRedisOperater> operaters() {
+        return shards.values();
+    }
+
+    /**
+     * 视图在发布实例的同名 namespace 视图上发布
+     */
+    @Override
+    protected IRedisOperater publisher() {
+        if (null != parent) {
+            return parent.publisher().withNamespace(viewName);
+        }
+        IRedisOperater operater = publisher;
+        return null == operater ? shards.values().iterator().next() : operater;
+    }
+
+    /**
+     * 设置发布消息的实例，RedisSubscriber 订阅默认实例，自动配置时设置为默认实例；只对根实例生效
+     *
+     * @param publisher 发布消息的实例，null 表示第一个分片
+     */
+    public void setPublisher(IRedisOperater publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * @return 第一个分片的 namespace，各分片的 namespace 可能不同，key 的完整名称见 {@link #key(String)}
+     */
+    @Override
+    public String getNamespace() {
+        return shards.values().iterator().next().getNamespace();
+    }
+
+    /**
+     * 每个分片分别创建 namespace 视图，视图按 "视图名.key" 选择分片
+     */
+    @Override
+    public IRedisOperater withNamespace(String name) {
+        return views.computeIfAbsent(name, n -> {
+            Map<String, IRedisOperater> viewShards = new LinkedHashMap<>();
+            shards.forEach((shard, operater) -> viewShards.put(shard, operater.withNamespace(n)));
+            return new ShardedRedisOperater(this, viewShards, n);
+        });
+    }
+
+    @Override
+    public Long delByPattern(String pattern) {
+        return delByPatternOnAll(pattern);
+    }
+
+    @Override
+    public WriteBehind writeBehind() {
+        return writeBehind;
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        if (ownsExecutor && null != executor) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.easysoft.redis;
+
+import com.easysoft.redis.autoConfigure.RedisProperties;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * 过期时间随机抖动，避免批量写入的key在同一秒过期。
+ * <p>
+ * 抖动只会延长过期时间：实际过期时间在 [expire, expire + range] 之间均匀分布，range 为 expire × percent%，
+ * percent 为0时使用 maxSeconds。规则按key前缀(不含namespace，最长匹配)配置，也可以通过
+ * {@link #with(int, Supplier)}/{@link #none(Supplier)} 对当前线程中的调用单独指定：
+ * <pre>
+ *     TtlJitter.with(20, () -> redisOperater.setex("user::10086", user, 3600));
+ * </pre>
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-26 10:15
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-26 10:15
+ */
+public class TtlJitter {
+
+    private static final ThreadLocal<Rule> OVERRIDE = new ThreadLocal<>();
+
+    private static final Rule NONE = new Rule(0, 0);
+
+    private final Rule defaultRule;
+
+    /**
+     * 按前缀长度倒序，优先匹配最长的前缀
+     */
+    private final String[] prefixes;
+
+    private final Rule[] rules;
+
+    public TtlJitter(RedisProperties.TtlJitter config) {
+        this.defaultRule = new Rule(config.getPercent(), config.getMaxSeconds());
+        Map<String, RedisProperties.Jitter> sorted = new TreeMap<>((a, b) -> a.length() != b.length()
+                ? b.length() - a.length() : a.compareTo(b));
+        sorted.putAll(config.getPrefixes());
+        this.prefixes = new String[sorted.size()];
+        this.rules = new Rule[sorted.size()];
+        int i = 0;
+        for (Map.Entry<String, RedisProperties.Jitter> entry : sorted.entrySet()) {
+            prefixes[i] = entry.getKey();
+            rules[i] = new Rule(entry.getValue().getPercent(), entry.getValue().getMaxSeconds());
+            i++;
+        }
+    }
+
+    /**
+     * 在当前线程中执行 action，期间写入的过期时间使用 percent 百分比抖动，可嵌套
+     *
+     * @param percent 抖动范围占过期时间的百分比
+     * @param action
+     * @param <T>
+     * @return action 的返回值
+     */
+    public static <T> T with(int percent, Supplier<T> action) {
+        return apply(new Rule(percent, 0), action);
+    }
+
+    /**
+     * 在当前线程中执行 action，期间写入的过期时间使用 [0, maxSeconds] 秒的抖动
+     *
+     * @param maxSeconds 最大抖动秒数
+     * @param action
+     * @param <T>
+     * @return action 的返回值
+     */
+    public static <T> T withSeconds(int maxSeconds, Supplier<T> action) {
+        return apply(new Rule(0, maxSeconds), action);
+    }
+
+    /**
+     * 在当前线程中执行 action，期间写入的过期时间不抖动
+     *
+     * @param action
+     * @param <T>
+     * @return action 的返回值
+     */
+    public static <T> T none(Supplier<T> action) {
+        return apply(NONE, action);
+    }
+
+    private static <T> T apply(Rule rule, Supplier<T> action) {
+        Rule previous = OVERRIDE.get();
+        OVERRIDE.set(rule);
+        try {
+            return action.get();
+        } finally {
+            if (null == previous) {
+                OVERRIDE.remove();
+            } else {
+                OVERRIDE.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 计算添加抖动后的过期时间
+     *
+     * @param key     不含namespace的key
+     * @param seconds 过期时间，小于等于0时原样返回
+     * @return
+     */
+    public int apply(String key, int seconds) {
+        if (seconds <= 0) {
+            return seconds;
+        }
+        int range = rule(key).range(seconds);
+        if (range <= 0) {
+            return seconds;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (long) seconds + ThreadLocalRandom.current().nextInt(range + 1));
+    }
+
+    /**
+     * 计算添加抖动后的过期时间，单位毫秒，maxSeconds 换算为毫秒
+     *
+     * @param key    不含namespace的key
+     * @param millis 过期时间，小于等于0时原样返回
+     * @return
+     */
+    public long applyMillis(String key, long millis) {
+        if (millis <= 0) {
+            return millis;
+        }
+        long range = rule(key).rangeMillis(millis);
+        if (range <= 0) {
+            return millis;
+        }
+        long jitter = ThreadLocalRandom.current().nextLong(range + 1);
+        return millis > Long.MAX_VALUE - jitter ? Long.MAX_VALUE : millis + jitter;
+    }
+
+    private Rule rule(String key) {
+        Rule rule = OVERRIDE.get();
+        return null == rule ? match(key) : rule;
+    }
+
+    private Rule match(String key) {
+        for (int i = 0; i < prefixes.length; i++) {
+            if (key.startsWith(prefixes[i])) {
+                return rules[i];
+            }
+        }
+        return defaultRule;
+    }
+
+    private static final class Rule {
+
+        private final int percent;
+
+        private final int maxSeconds;
+
+        private Rule(int percent, int maxSeconds) {
+            this.percent = percent;
+            this.maxSeconds = maxSeconds;
+        }
+
+        private int range(int seconds) {
+            if (percent > 0) {
+                return (int) Math.min(Integer.MAX_VALUE - 1, (long) seconds * percent / 100);
+            }
+            return maxSeconds;
+        }
+
+        private long rangeMillis(long millis) {
+            if (percent > 0) {
+                return millis / 100 * percent + millis % 100 * percent / 100;
+            }
+            return maxSeconds * 1000L;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.easysoft.redis;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 延迟合并写入。
+ * <p>
+ * 写入先保存在内存中，同一个key(或哈希表的同一个域)在刷新周期内的多次写入只保留最后一次，
+ * 由后台线程定期通过 pipeline 批量写入 Redis。适用于高频更新且只关心最新值的状态数据；
+ * 写入后立即读取可能读到旧值，进程异常退出时未刷新的写入会丢失。
+ * <p>
+ * 未启用(easysoft.redis.write-behind.enabled=false)时所有写入直接执行。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-29 09:40
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-29 09:40
+ */
+public interface WriteBehind {
+
+    /**
+     * 延迟写入字符串值，覆盖同一key尚未刷新的写入
+     *
+     * @param key
+     * @param value
+     * @param <T>
+     */
+    <T> void set(String key, T value);
+
+    /**
+     * 延迟写入字符串值并设置过期时间，过期时间按 easysoft.redis.ttl-jitter 添加抖动
+     *
+     * @param key
+     * @param value
+     * @param expire 缓存时长，单位秒
+     * @param <T>
+     */
+    <T> void setex(String key, T value, int expire);
+
+    /**
+     * 延迟写入哈希表的域，覆盖同一域尚未刷新的写入，同一key的多个域合并为一条 HMSET
+     *
+     * @param key
+     * @param field
+     * @param value
+     * @param <F>
+     * @param <T>
+     */
+    <F, T> void hset(String key, F field, T value);
+
+    /**
+     * 延迟写入哈希表的多个域
+     *
+     * @param key
+     * @param fieldValues
+     * @param <F>
+     * @param <T>
+     */
+    <F, T> void hmset(String key, Map<F, T> fieldValues);
+
+    /**
+     * 立即刷新所有尚未写入的数据
+     */
+    void flush();
+
+    /**
+     * @return 统计信息
+     */
+    Stats getStats();
+
+    /**
+     * 统计信息
+     */
+    @Data
+    class Stats {
+
+        /**
+         * 写入次数(哈希表按域计数)
+         */
+        private long writes;
+
+        /**
+         * 被后续写入覆盖、未发送到 Redis 的写入次数
+         */
+        private long coalesced;
+
+        /**
+         * 已写入 Redis 的次数
+         */
+        private long flushed;
+
+        /**
+         * 写入失败次数
+         */
+        private long failed;
+
+        /**
+         * 缓冲区已满、由写入线程直接刷新的次数
+         */
+        private long backpressure;
+
+        /**
+         * 当前尚未刷新的写入数
+         */
+        private int pending;
+    }
+}
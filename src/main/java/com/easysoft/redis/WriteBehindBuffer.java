@@ -0,0 +1,273 @@
+package com.easysoft.redis;
+
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link WriteBehind} 的实现。
+ * <p>
+ * 待写入数据保存在 ConcurrentHashMap 中，key 为 (key, 哈希域)，后写入的值直接覆盖前值；
+ * 刷新时逐个取出，字符串值和哈希表分别按 batchSize 分组，经 {@link KeyBatchExecutor} 通过 pipeline 写入。
+ * 缓冲区达到 maxPending 时由写入线程直接刷新，使写入速度不超过 Redis 的处理能力。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-29 09:40
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-29 09:40
+ */
+@Slf4j
+class WriteBehindBuffer implements WriteBehind {
+
+    private final RedisOperater operater;
+
+    private final TtlJitter ttlJitter;
+
+    private final RedisProperties.WriteBehind config;
+
+    private final ConcurrentHashMap<Slot, Pending> pending = new ConcurrentHashMap<>();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final LongAdder writes = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LongAdder flushed = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder backpressure = new LongAdder();
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile boolean closed;
+
+    WriteBehindBuffer(RedisOperater operater, TtlJitter ttlJitter, RedisProperties.WriteBehind config) {
+        this.operater = operater;
+        this.ttlJitter = ttlJitter;
+        this.config = config;
+        if (config.isEnabled()) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("easysoft-redis-write-behind-");
+            threadFactory.setDaemon(true);
+            scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            long millis = Math.max(1, config.getFlushInterval().toMillis());
+            scheduler.scheduleWithFixedDelay(this::flush, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private boolean isBuffering() {
+        return config.isEnabled() && !closed;
+    }
+
+    @Override
+    public <T> void set(String key, T value) {
+        if (!isBuffering()) {
+            operater.set(key, value);
+            return;
+        }
+        offer(new Slot(key, null), new Pending(value, 0));
+    }
+
+    @Override
+    public <T> void setex(String key, T value, int expire) {
+        if (!isBuffering()) {
+            operater.setex(key, value, expire);
+            return;
+        }
+        offer(new Slot(key, null), new Pending(value, ttlJitter.apply(key, expire)));
+    }
+
+    @Override
+    public <F, T> void hset(String key, F field, T value) {
+        if (!isBuffering()) {
+            operater.hset(key, field, value);
+            return;
+        }
+        offer(new Slot(key, field), new Pending(value, 0));
+    }
+
+    @Override
+    public <F, T> void hmset(String key, Map<F, T> fieldValues) {
+        if (!isBuffering()) {
+            operater.hmset(key, fieldValues);
+            return;
+        }
+        fieldValues.forEach((field, value) -> offer(new Slot(key, field), new Pending(value, 0)));
+    }
+
+    private void offer(Slot slot, Pending value) {
+        writes.increment();
+        if (pending.size() >= config.getMaxPending() && !pending.containsKey(slot)) {
+            backpressure.increment();
+            flush();
+        }
+        if (null != pending.put(slot, value)) {
+            coalesced.increment();
+        }
+    }
+
+    @Override
+    public void flush() {
+        flushLock.lock();
+        try {
+            int batchSize = Math.max(1, config.getBatchSize());
+            Map<String, Pending> strings = new LinkedHashMap<>();
+            Map<String, Map<Object, Object>> hashes = new LinkedHashMap<>();
+            for (Slot slot : pending.keySet()) {
+                Pending value = pending.remove(slot);
+                if (null == value) {
+                    continue;
+                }
+                if (null == slot.field) {
+                    strings.put(slot.key, value);
+                    if (strings.size() >= batchSize) {
+                        writeStrings(strings);
+                    }
+                } else {
+                    hashes.computeIfAbsent(slot.key, k -> new LinkedHashMap<>()).put(slot.field, value.value);
+                    if (hashes.size() >= batchSize) {
+                        writeHashes(hashes);
+                    }
+                }
+            }
+            writeStrings(strings);
+            writeHashes(hashes);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void writeStrings(Map<String, Pending> strings) {
+        if (strings.isEmpty()) {
+            return;
+        }
+        try {
+            operater.writeStrings(strings);
+            flushed.add(strings.size());
+        } catch (Exception ex) {
+            failed.add(strings.size());
+            log.warn("write-behind flush of {} keys failed", strings.size(), ex);
+            strings.forEach((key, value) -> requeue(new Slot(key, null), value));
+        }
+        strings.clear();
+    }
+
+    private void writeHashes(Map<String, Map<Object, Object>> hashes) {
+        if (hashes.isEmpty()) {
+            return;
+        }
+        int fields = hashes.values().stream().mapToInt(Map::size).sum();
+        try {
+            operater.writeHashes(hashes);
+            flushed.add(fields);
+        } catch (Exception ex) {
+            failed.add(fields);
+            log.warn("write-behind flush of {} hashes failed", hashes.size(), ex);
+            hashes.forEach((key, fieldValues) -> fieldValues.forEach((field, value) -> {
+                requeue(new Slot(key, field), new Pending(value, 0));
+            }));
+        }
+        hashes.clear();
+    }
+
+    /**
+     * 写入失败的数据放回缓冲区，等待下次刷新；期间有新的写入或缓冲区已满时丢弃
+     */
+    private void requeue(Slot slot, Pending value) {
+        if (!closed && pending.size() < config.getMaxPending()) {
+            pending.putIfAbsent(slot, value);
+        }
+    }
+
+    @Override
+    public Stats getStats() {
+        Stats stats = new Stats();
+        stats.setWrites(writes.sum());
+        stats.setCoalesced(coalesced.sum());
+        stats.setFlushed(flushed.sum());
+        stats.setFailed(failed.sum());
+        stats.setBackpressure(backpressure.sum());
+        stats.setPending(pending.size());
+        return stats;
+    }
+
+    /**
+     * 停止后台刷新并写入剩余数据，之后的写入直接执行
+     */
+    void close() {
+        closed = true;
+        if (null != scheduler) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(config.getFlushInterval().toMillis() + 1000, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        if (!pending.isEmpty()) {
+            log.warn("write-behind buffer closed with {} unflushed writes", pending.size());
+        }
+    }
+
+    /**
+     * 缓冲区中的写入位置，field 为 null 时表示字符串值
+     */
+    private static final class Slot {
+
+        private final String key;
+
+        private final Object field;
+
+        Slot(String key, Object field) {
+            this.key = key;
+            this.field = field;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Slot)) {
+                return false;
+            }
+            Slot slot = (Slot) o;
+            return key.equals(slot.key) && Objects.equals(field, slot.field);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode() + Objects.hashCode(field);
+        }
+    }
+
+    /**
+     * 待写入的值
+     */
+    static final class Pending {
+
+        final Object value;
+
+        /**
+         * 过期时间，单位秒，0 表示不过期
+         */
+        final int expire;
+
+        Pending(Object value, int expire) {
+            this.value = value;
+            this.expire = expire;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.easysoft.redis.actuate;
+
+import com.easysoft.redis.MemoryAnalyzer;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * namespace 内存分析的 actuator 端点：GET /actuator/redismemory 查看最近一次分析报告及当前进度，
+ * POST /actuator/redismemory 开始一次分析
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-07 10:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-07 10:00
+ */
+@Endpoint(id = "redismemory")
+public class RedisMemoryEndpoint {
+
+    private final MemoryAnalyzer memoryAnalyzer;
+
+    public RedisMemoryEndpoint(MemoryAnalyzer memoryAnalyzer) {
+        this.memoryAnalyzer = memoryAnalyzer;
+    }
+
+    @ReadOperation
+    public Map<String, Object> memory() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("running", memoryAnalyzer.isRunning());
+        result.put("report", memoryAnalyzer.getReport());
+        result.put("progress", memoryAnalyzer.getProgress());
+        return result;
+    }
+
+    /**
+     * 开始一次分析，已有分析在执行时不重复开始
+     *
+     * @return
+     */
+    @WriteOperation
+    public Map<String, Object> analyze() {
+        return Collections.singletonMap("started", memoryAnalyzer.start());
+    }
+}
@@ -1,18 +1,31 @@
 package com.easysoft.redis.autoConfigure;
 
 import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.ReadRouting;
 import com.easysoft.redis.RedisOperater;
+import com.easysoft.redis.connection.LettuceConnectionFactories;
+import com.easysoft.redis.interceptor.CircuitBreakerInterceptor;
+import com.easysoft.redis.interceptor.CommandLatencyTracker;
+import com.easysoft.redis.interceptor.HedgedReadInterceptor;
+import com.easysoft.redis.interceptor.RedisCommandInterceptor;
+import io.lettuce.core.ReadFrom;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.io.Serializable;
+import java.util.stream.Collectors;
 
 /**
  * TODO
@@ -22,6 +35,7 @@ import java.io.Serializable;
  * @version： V1.0
  * @review: zyp[2305658511@qq.com]/2019-11-06 10:46
  */
+@Slf4j
 @Configuration
 @EnableConfigurationProperties(RedisProperties.class)
 public class RedisAutoConfigure {
@@ -35,7 +49,41 @@ public class RedisAutoConfigure {
      * @return
      */
     @Bean
+    @Primary
     public RedisTemplate<String, Serializable> redisTemplate(RedisConnectionFactory redisConnectionFactory,RedisSerializer valueSerializer) {
+        return createRedisTemplate(redisConnectionFactory, valueSerializer);
+    }
+
+    /**
+     * 只读命令路由到从节点，从节点连接复用主连接工厂的节点及客户端配置
+     *
+     * @param redisProperties
+     * @param redisConnectionFactory
+     * @param valueSerializer
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "easysoft.redis.read-routing", name = "enabled", havingValue = "true")
+    public ReadRouting redisReadRouting(RedisProperties redisProperties, RedisConnectionFactory redisConnectionFactory,
+                                        RedisSerializer valueSerializer) {
+        RedisProperties.ReadRouting config = redisProperties.getReadRouting();
+        LettuceConnectionFactory replicaConnectionFactory = null;
+        if (redisConnectionFactory instanceof LettuceConnectionFactory) {
+            replicaConnectionFactory = LettuceConnectionFactories.withReadFrom(
+                    (LettuceConnectionFactory) redisConnectionFactory, ReadFrom.valueOf(config.getReadFrom()));
+        }
+        if (null == replicaConnectionFactory) {
+            log.warn("redis read routing requires lettuce in cluster or sentinel mode, all reads go to master");
+            return new ReadRouting(config, null, null);
+        }
+        RedisTemplate<String, Serializable> replicaTemplate = createRedisTemplate(replicaConnectionFactory,
+                valueSerializer);
+        replicaTemplate.afterPropertiesSet();
+        return new ReadRouting(config, replicaTemplate, replicaConnectionFactory);
+    }
+
+    static RedisTemplate<String, Serializable> createRedisTemplate(RedisConnectionFactory redisConnectionFactory,
+                                                                   RedisSerializer valueSerializer) {
         RedisTemplate<String, Serializable> template = new RedisTemplate<>();
         template.setConnectionFactory(redisConnectionFactory);
         StringRedisSerializer keySerializer = new StringRedisSerializer();
@@ -53,10 +101,48 @@ public class RedisAutoConfigure {
         return template;
     }
 
+    /**
+     * 熔断拦截器，Redis 出错或变慢时快速失败
+     *
+     * @param redisProperties
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean(CircuitBreakerInterceptor.class)
+    @ConditionalOnProperty(prefix = "easysoft.redis.circuit-breaker", name = "enabled", havingValue = "true")
+    public CircuitBreakerInterceptor redisCircuitBreakerInterceptor(RedisProperties redisProperties) {
+        return new CircuitBreakerInterceptor(redisProperties.getCircuitBreaker());
+    }
+
+    /**
+     * 对冲读拦截器，只读命令在延迟阈值内未返回时向另一个连接再发送一次
+     *
+     * @param redisProperties
+     * @param commandLatencyTracker
+     * @return
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(HedgedReadInterceptor.class)
+    @ConditionalOnProperty(prefix = "easysoft.redis.hedged-read", name = "enabled", havingValue = "true")
+    public HedgedReadInterceptor redisHedgedReadInterceptor(RedisProperties redisProperties,
+                                                            ObjectProvider<CommandLatencyTracker> commandLatencyTracker) {
+        RedisProperties.HedgedRead config = redisProperties.getHedgedRead();
+        return new HedgedReadInterceptor(config.getCommands(), config.getDelay().toMillis(), config.getPercentile(),
+                config.getMaxConcurrency(), commandLatencyTracker.getIfAvailable());
+    }
+
+    /**
+     * 默认实例，配置了 easysoft.redis.instances 时按类型注入的 IRedisOperater 为该实例
+     */
     @Bean
+    @Primary
     @ConditionalOnMissingBean(IRedisOperater.class)
-    public IRedisOperater redisOperater(RedisProperties redisProperties, RedisTemplate redisTemplate) {
+    public IRedisOperater redisOperater(RedisProperties redisProperties, RedisTemplate redisTemplate,
+                                        ObjectProvider<ReadRouting> readRouting,
+                                        ObjectProvider<RedisCommandInterceptor> interceptors) {
         RedisOperater redisOperater = new RedisOperater(redisProperties, redisTemplate);
+        redisOperater.setReadRouting(readRouting.getIfAvailable());
+        redisOperater.setInterceptors(interceptors.orderedStream().collect(Collectors.toList()));
         return redisOperater;
     }
 }
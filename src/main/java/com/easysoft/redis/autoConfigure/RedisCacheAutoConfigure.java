@@ -0,0 +1,53 @@
+package com.easysoft.redis.autoConfigure;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.cache.CacheWarmer;
+import com.easysoft.redis.cache.CacheWarmupLoader;
+import com.easysoft.redis.cache.RedisOperaterCacheManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.stream.Collectors;
+
+/**
+ * 基于 IRedisOperater 的 CacheManager 及启动预热自动配置，需配置 easysoft.redis.cache.enabled=true
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-06 14:12
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-06 14:12
+ */
+@Configuration
+@ConditionalOnClass(CacheManager.class)
+@ConditionalOnProperty(prefix = "easysoft.redis.cache", name = "enabled", havingValue = "true")
+@AutoConfigureAfter(RedisAutoConfigure.class)
+@AutoConfigureBefore(CacheAutoConfiguration.class)
+public class RedisCacheAutoConfigure {
+
+    @Bean
+    @ConditionalOnBean(IRedisOperater.class)
+    @ConditionalOnMissingBean(CacheManager.class)
+    public CacheManager cacheManager(IRedisOperater redisOperater, RedisProperties redisProperties) {
+        return new RedisOperaterCacheManager(redisOperater, redisProperties.getCache());
+    }
+
+    /**
+     * 启动预热，需配置 easysoft.redis.cache.warmup.enabled=true
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "easysoft.redis.cache.warmup", name = "enabled", havingValue = "true")
+    public CacheWarmer cacheWarmer(CacheManager cacheManager, RedisProperties redisProperties,
+                                   ObjectProvider<CacheWarmupLoader> loaders) {
+        return new CacheWarmer(cacheManager, redisProperties.getCache().getWarmup(),
+                loaders.orderedStream().collect(Collectors.toList()));
+    }
+}
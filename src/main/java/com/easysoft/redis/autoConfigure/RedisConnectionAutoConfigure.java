@@ -0,0 +1,165 @@
+package com.easysoft.redis.autoConfigure;
+
+import com.easysoft.redis.connection.AdaptiveTimeoutSource;
+import com.easysoft.redis.connection.RedisPoolMonitor;
+import com.easysoft.redis.interceptor.CommandLatencyTracker;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.DefaultClientResources;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.connection.lettuce.LettuceConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+
+/**
+ * Lettuce 连接配置：线程数、共享连接、pipeline 刷新策略、自适应超时、虚拟线程模式及连接池监控，
+ * 配置项见 easysoft.redis.connection。读从节点只通过 easysoft.redis.read-routing 的独立连接工厂实现，
+ * 主连接工厂始终读 master
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-14 11:05
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-14 11:05
+ */
+@Slf4j
+@Configuration
+@ConditionalOnClass({LettuceConnectionFactory.class, ClientResources.class})
+@EnableConfigurationProperties(RedisProperties.class)
+@AutoConfigureBefore(RedisAutoConfiguration.class)
+public class RedisConnectionAutoConfigure {
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(ClientResources.class)
+    public DefaultClientResources lettuceClientResources(RedisProperties redisProperties) {
+        RedisProperties.Connection connection = redisProperties.getConnection();
+        DefaultClientResources.Builder builder = DefaultClientResources.builder();
+        if (connection.getIoThreadPoolSize() > 0) {
+            builder.ioThreadPoolSize(connection.getIoThreadPoolSize());
+        }
+        if (connection.getComputationThreadPoolSize() > 0) {
+            builder.computationThreadPoolSize(connection.getComputationThreadPoolSize());
+        }
+        return builder.build();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(CommandLatencyTracker.class)
+    @ConditionalOnProperty(prefix = "easysoft.redis.adaptive-timeout", name = "enabled", havingValue = "true")
+    public CommandLatencyTracker commandLatencyTracker(RedisProperties redisProperties) {
+        RedisProperties.AdaptiveTimeout config = redisProperties.getAdaptiveTimeout();
+        return new CommandLatencyTracker(config.getPercentile(), config.getFactor(),
+                config.getMinTimeout().toMillis(), config.getMaxTimeout().toMillis(), config.getMinSamples(),
+                config.getRefreshInterval().toMillis());
+    }
+
+    /**
+     * 按命令类型设置 Lettuce 超时，保留其他客户端配置
+     *
+     * @param commandLatencyTracker
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "easysoft.redis.adaptive-timeout", name = "enabled", havingValue = "true")
+    public LettuceClientConfigurationBuilderCustomizer adaptiveTimeoutCustomizer(
+            CommandLatencyTracker commandLatencyTracker) {
+        TimeoutOptions timeoutOptions = TimeoutOptions.builder()
+                .timeoutSource(new AdaptiveTimeoutSource(commandLatencyTracker)).build();
+        return builder -> {
+            ClientOptions clientOptions = builder.build().getClientOptions().orElseGet(ClientOptions::create);
+            builder.clientOptions(clientOptions.mutate().timeoutOptions(timeoutOptions).build());
+        };
+    }
+
+    /**
+     * 连接池使用 {@link RedisPoolMonitor#JMX_NAME_PREFIX} 注册 JMX MBean，与其他组件的 commons-pool2 连接池区分
+     *
+     * @return
+     */
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer poolJmxNameCustomizer() {
+        return builder -> {
+            if (builder instanceof LettucePoolingClientConfiguration.LettucePoolingClientConfigurationBuilder) {
+                LettucePoolingClientConfiguration.LettucePoolingClientConfigurationBuilder poolingBuilder =
+                        (LettucePoolingClientConfiguration.LettucePoolingClientConfigurationBuilder) builder;
+                GenericObjectPoolConfig poolConfig = poolingBuilder.build().getPoolConfig();
+                poolConfig.setJmxNamePrefix(RedisPoolMonitor.JMX_NAME_PREFIX);
+                poolingBuilder.poolConfig(poolConfig);
+            }
+        };
+    }
+
+    /**
+     * 虚拟线程模式：限制连接池大小。共享连接模式下 Spring Data Redis 只在阻塞命令、事务和 pipeline 时从连接池借用连接，
+     * 连接池耗尽时借用线程在 LinkedBlockingDeque 上等待(基于 ReentrantLock)，不会占用虚拟线程的载体线程
+     *
+     * @param redisProperties
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "easysoft.redis.connection", name = "virtual-threads", havingValue = "true")
+    public LettuceClientConfigurationBuilderCustomizer virtualThreadsCustomizer(RedisProperties redisProperties) {
+        int poolSize = Math.max(1, redisProperties.getConnection().getBlockingPoolSize());
+        return builder -> {
+            if (!(builder instanceof LettucePoolingClientConfiguration.LettucePoolingClientConfigurationBuilder)) {
+                log.warn("easysoft.redis.connection.virtual-threads is enabled without spring.redis.lettuce.pool, "
+                        + "blocking commands and pipelines will open a new connection each time");
+                return;
+            }
+            LettucePoolingClientConfiguration.LettucePoolingClientConfigurationBuilder poolingBuilder =
+                    (LettucePoolingClientConfiguration.LettucePoolingClientConfigurationBuilder) builder;
+            GenericObjectPoolConfig poolConfig = poolingBuilder.build().getPoolConfig();
+            poolConfig.setMaxTotal(poolSize);
+            poolConfig.setMaxIdle(poolSize);
+            poolConfig.setMinIdle(Math.min(poolConfig.getMinIdle(), poolSize));
+            poolingBuilder.poolConfig(poolConfig);
+        };
+    }
+
+    /**
+     * 调整 Spring Boot 创建的 LettuceConnectionFactory
+     *
+     * @param redisProperties
+     * @return
+     */
+    @Bean
+    public static BeanPostProcessor lettuceConnectionFactoryPostProcessor(@Lazy RedisProperties redisProperties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof LettuceConnectionFactory) {
+                    RedisProperties.Connection connection = redisProperties.getConnection();
+                    LettuceConnectionFactory connectionFactory = (LettuceConnectionFactory) bean;
+                    if (connection.isVirtualThreads()) {
+                        connectionFactory.setShareNativeConnection(true);
+                    } else if (null != connection.getShareNativeConnection()) {
+                        connectionFactory.setShareNativeConnection(connection.getShareNativeConnection());
+                    }
+                    if (connection.getPipeliningFlushSize() > 0) {
+                        connectionFactory.setPipeliningFlushPolicy(
+                                LettuceConnection.PipeliningFlushPolicy.buffered(connection.getPipeliningFlushSize()));
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(RedisPoolMonitor.class)
+    public RedisPoolMonitor redisPoolMonitor(RedisProperties redisProperties) {
+        return new RedisPoolMonitor(redisProperties.getConnection().getPoolMonitorInterval());
+    }
+}
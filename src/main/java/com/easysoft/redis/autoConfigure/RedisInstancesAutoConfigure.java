@@ -0,0 +1,288 @@
+package com.easysoft.redis.autoConfigure;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.RedisOperater;
+import com.easysoft.redis.RoutingRedisOperater;
+import com.easysoft.redis.ShardMigrator;
+import com.easysoft.redis.ShardedRedisOperater;
+import com.easysoft.redis.interceptor.CircuitBreakerInterceptor;
+import com.easysoft.redis.interceptor.RedisCommandInterceptor;
+import io.lettuce.core.resource.ClientResources;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.AutowireCandidateQualifier;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 多 Redis 部署：为 easysoft.redis.instances 中的每个实例注册独立的连接工厂(及连接池)、RedisTemplate 和 IRedisOperater，
+ * 配置了 easysoft.redis.routes 时注册按 key 前缀路由的 routingRedisOperater，配置了 easysoft.redis.sharding.shards 时
+ * 注册按一致性哈希分片的 shardedRedisOperater 及迁移工具 shardMigrator。
+ * <p>
+ * 实例 bean 名为 {实例名}RedisConnectionFactory、{实例名}RedisTemplate、{实例名}RedisOperater，后两者带有值为实例名的
+ * {@link Qualifier}；连接工厂不参与自动注入，避免按类型注入 RedisConnectionFactory 的组件出现多个候选；
+ * 默认实例的 redisTemplate、redisOperater 为 Primary，按类型注入时不受影响。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-03 10:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-03 10:00
+ */
+@Configuration
+@ConditionalOnClass(LettuceConnectionFactory.class)
+@AutoConfigureAfter({RedisAutoConfiguration.class, RedisAutoConfigure.class})
+@Import(RedisInstancesAutoConfigure.InstancesRegistrar.class)
+public class RedisInstancesAutoConfigure {
+
+    /**
+     * 路由规则中表示默认实例的名称
+     */
+    public static final String DEFAULT_INSTANCE = "default";
+
+    /**
+     * routingRedisOperater 的 Qualifier
+     */
+    public static final String ROUTING = "routing";
+
+    /**
+     * shardedRedisOperater 的 Qualifier
+     */
+    public static final String SHARDED = "sharded";
+
+    private static final String PREFIX = "easysoft.redis";
+
+    static class InstancesRegistrar implements ImportBeanDefinitionRegistrar, EnvironmentAware, BeanFactoryAware {
+
+        private Environment environment;
+
+        private ListableBeanFactory beanFactory;
+
+        @Override
+        public void setEnvironment(Environment environment) {
+            this.environment = environment;
+        }
+
+        @Override
+        public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+            this.beanFactory = (ListableBeanFactory) beanFactory;
+        }
+
+        @Override
+        public void registerBeanDefinitions(AnnotationMetadata metadata, BeanDefinitionRegistry registry) {
+            Binder binder = Binder.get(environment);
+            Map<String, RedisProperties.Instance> instances = binder.bind(PREFIX + ".instances",
+                    Bindable.mapOf(String.class, RedisProperties.Instance.class)).orElse(Collections.emptyMap());
+            instances.forEach((name, instance) -> {
+                String connectionFactoryName = name + "RedisConnectionFactory";
+                String templateName = name + "RedisTemplate";
+                Supplier<LettuceConnectionFactory> connectionFactory = () -> createConnectionFactory(instance);
+                Supplier<RedisTemplate> template = () -> createRedisTemplate(connectionFactoryName, instance);
+                Supplier<RedisOperater> operater = () -> createRedisOperater(instance, templateName);
+                AbstractBeanDefinition connectionFactoryDefinition = BeanDefinitionBuilder
+                        .genericBeanDefinition(LettuceConnectionFactory.class, connectionFactory).getBeanDefinition();
+                connectionFactoryDefinition.setAutowireCandidate(false);
+                registry.registerBeanDefinition(connectionFactoryName, connectionFactoryDefinition);
+                register(registry, templateName, name, RedisTemplate.class, template);
+                register(registry, name + "RedisOperater", name, RedisOperater.class, operater);
+            });
+            List<RedisProperties.Route> routes = binder.bind(PREFIX + ".routes",
+                    Bindable.listOf(RedisProperties.Route.class)).orElse(Collections.emptyList());
+            if (!routes.isEmpty()) {
+                Supplier<RoutingRedisOperater> routing = () -> createRoutingRedisOperater(routes, instances.keySet());
+                register(registry, "routingRedisOperater", ROUTING, RoutingRedisOperater.class, routing);
+            }
+            RedisProperties.Sharding sharding = binder.bind(PREFIX + ".sharding",
+                    Bindable.of(RedisProperties.Sharding.class)).orElseGet(RedisProperties.Sharding::new);
+            if (!sharding.getShards().isEmpty()) {
+                Supplier<ShardedRedisOperater> sharded = () -> createShardedRedisOperater(sharding, instances.keySet());
+                register(registry, "shardedRedisOperater", SHARDED, ShardedRedisOperater.class, sharded);
+                Supplier<ShardMigrator> migrator = () -> createShardMigrator(sharding, instances.keySet());
+                registry.registerBeanDefinition("shardMigrator", BeanDefinitionBuilder
+                        .genericBeanDefinition(ShardMigrator.class, migrator).getBeanDefinition());
+            }
+        }
+
+        private static <T> void register(BeanDefinitionRegistry registry, String beanName, String qualifier,
+                                         Class<T> type, Supplier<T> supplier) {
+            AbstractBeanDefinition definition = BeanDefinitionBuilder.genericBeanDefinition(type, supplier)
+                    .getBeanDefinition();
+            definition.addQualifier(new AutowireCandidateQualifier(Qualifier.class, qualifier));
+            registry.registerBeanDefinition(beanName, definition);
+        }
+
+        private LettuceConnectionFactory createConnectionFactory(RedisProperties.Instance instance) {
+            LettuceClientConfiguration.LettuceClientConfigurationBuilder builder;
+            RedisProperties.Pool pool = instance.getPool();
+            if (pool.isEnabled()) {
+                GenericObjectPoolConfig poolConfig = new GenericObjectPoolConfig();
+                poolConfig.setMaxTotal(pool.getMaxActive());
+                poolConfig.setMaxIdle(pool.getMaxIdle());
+                poolConfig.setMinIdle(pool.getMinIdle());
+                poolConfig.setMaxWaitMillis(pool.getMaxWait().toMillis());
+                builder = LettucePoolingClientConfiguration.builder().poolConfig(poolConfig);
+            } else {
+                builder = LettuceClientConfiguration.builder();
+            }
+            builder.commandTimeout(instance.getTimeout());
+            beanFactory.getBeanProvider(ClientResources.class).ifAvailable(builder::clientResources);
+            beanFactory.getBeanProvider(LettuceClientConfigurationBuilderCustomizer.class).orderedStream()
+                    .forEach(customizer -> customizer.customize(builder));
+            RedisPassword password = RedisPassword.of(instance.getPassword());
+            if (!instance.getClusterNodes().isEmpty()) {
+                RedisClusterConfiguration configuration = new RedisClusterConfiguration(instance.getClusterNodes());
+                configuration.setPassword(password);
+                return new LettuceConnectionFactory(configuration, builder.build());
+            }
+            RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(instance.getHost(),
+                    instance.getPort());
+            configuration.setDatabase(instance.getDatabase());
+            configuration.setPassword(password);
+            return new LettuceConnectionFactory(configuration, builder.build());
+        }
+
+        private RedisTemplate createRedisTemplate(String connectionFactoryName, RedisProperties.Instance instance) {
+            return RedisAutoConfigure.createRedisTemplate(
+                    beanFactory.getBean(connectionFactoryName, RedisConnectionFactory.class),
+                    valueSerializer(instance.getSerializer()));
+        }
+
+        /**
+         * @param serializer json、jdk、string 或 RedisSerializer bean 名称
+         * @return 未配置时返回默认实例 RedisTemplate 的 value 序列化器
+         */
+        private RedisSerializer valueSerializer(String serializer) {
+            if (null == serializer || serializer.trim().length() == 0) {
+                return beanFactory.getBean(RedisTemplate.class).getValueSerializer();
+            }
+            switch (serializer) {
+                case "json":
+                    return new GenericJackson2JsonRedisSerializer();
+                case "jdk":
+                    return new JdkSerializationRedisSerializer();
+                case "string":
+                    return new StringRedisSerializer();
+                default:
+                    return beanFactory.getBean(serializer, RedisSerializer.class);
+            }
+        }
+
+        /**
+         * 实例沿用默认实例的配置及拦截器，只替换 namespace；熔断器按实例单独创建
+         */
+        private RedisOperater createRedisOperater(RedisProperties.Instance instance, String templateName) {
+            RedisTemplate redisTemplate = beanFactory.getBean(templateName, RedisTemplate.class);
+            RedisProperties defaults = beanFactory.getBean(RedisProperties.class);
+            RedisProperties config = new RedisProperties();
+            BeanUtils.copyProperties(defaults, config);
+            if (null != instance.getNamespace()) {
+                config.setNamespace(instance.getNamespace());
+            }
+            List<RedisCommandInterceptor> interceptors = beanFactory.getBeanProvider(RedisCommandInterceptor.class)
+                    .orderedStream()
+                    .map(interceptor -> interceptor instanceof CircuitBreakerInterceptor
+                            ? new CircuitBreakerInterceptor(config.getCircuitBreaker()) : interceptor)
+                    .collect(Collectors.toList());
+            RedisOperater redisOperater = new RedisOperater(config, redisTemplate);
+            redisOperater.setInterceptors(interceptors);
+            return redisOperater;
+        }
+
+        /**
+         * 消息在默认实例发布，与 RedisSubscriber 订阅的实例一致
+         */
+        private ShardedRedisOperater createShardedRedisOperater(RedisProperties.Sharding sharding,
+                                                                Set<String> instanceNames) {
+            ShardedRedisOperater sharded = new ShardedRedisOperater(
+                    instanceOperaters(sharding.getShards(), instanceNames), sharding.getVirtualNodes(),
+                    beanFactory.getBean(RedisProperties.class).getScan());
+            sharded.setPublisher(beanFactory.getBean(IRedisOperater.class));
+            return sharded;
+        }
+
+        private RoutingRedisOperater createRoutingRedisOperater(List<RedisProperties.Route> routes,
+                                                                Set<String> instanceNames) {
+            IRedisOperater defaultOperater = beanFactory.getBean(IRedisOperater.class);
+            Map<String, IRedisOperater> targets = new LinkedHashMap<>();
+            for (RedisProperties.Route route : routes) {
+                String instance = route.getInstance();
+                if (DEFAULT_INSTANCE.equals(instance)) {
+                    targets.put(route.getPrefix(), defaultOperater);
+                    continue;
+                }
+                if (!instanceNames.contains(instance)) {
+                    throw new IllegalStateException("easysoft.redis.routes refers to unknown redis instance '"
+                            + instance + "'");
+                }
+                targets.put(route.getPrefix(), beanFactory.getBean(instance + "RedisOperater", IRedisOperater.class));
+            }
+            return new RoutingRedisOperater(defaultOperater, targets,
+                    beanFactory.getBean(RedisProperties.class).getScan());
+        }
+
+        private ShardMigrator createShardMigrator(RedisProperties.Sharding sharding, Set<String> instanceNames) {
+            List<String> names = new ArrayList<>(sharding.getShards());
+            names.addAll(sharding.getDraining());
+            ShardedRedisOperater sharded = beanFactory.getBean("shardedRedisOperater", ShardedRedisOperater.class);
+            return new ShardMigrator(instanceOperaters(names, instanceNames), sharded.getRing(),
+                    sharding.getMigrateBatchSize());
+        }
+
+        /**
+         * @return 实例名 -> 实例，default 表示默认实例
+         */
+        private Map<String, RedisOperater> instanceOperaters(List<String> names, Set<String> instanceNames) {
+            Map<String, RedisOperater> operaters = new LinkedHashMap<>();
+            for (String name : names) {
+                if (DEFAULT_INSTANCE.equals(name)) {
+                    operaters.put(name, beanFactory.getBean(RedisOperater.class));
+                    continue;
+                }
+                if (!instanceNames.contains(name)) {
+                    throw new IllegalStateException("easysoft.redis.sharding refers to unknown redis instance '"
+                            + name + "'");
+                }
+                operaters.put(name, beanFactory.getBean(name + "RedisOperater", RedisOperater.class));
+            }
+            return operaters;
+        }
+    }
+}
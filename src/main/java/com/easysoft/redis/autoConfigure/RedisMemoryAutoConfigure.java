@@ -0,0 +1,52 @@
+package com.easysoft.redis.autoConfigure;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.MemoryAnalyzer;
+import com.easysoft.redis.RedisOperater;
+import com.easysoft.redis.actuate.RedisMemoryEndpoint;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * namespace 内存分析自动配置，需配置 easysoft.redis.memory-analysis.enabled=true；
+ * classpath 中存在 spring-boot-actuator 时注册 redismemory 端点
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-07 10:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-07 10:00
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "easysoft.redis.memory-analysis", name = "enabled", havingValue = "true")
+@AutoConfigureAfter(RedisAutoConfigure.class)
+public class RedisMemoryAutoConfigure {
+
+    @Bean
+    @ConditionalOnMissingBean(MemoryAnalyzer.class)
+    public MemoryAnalyzer redisMemoryAnalyzer(IRedisOperater redisOperater, RedisProperties redisProperties) {
+        if (!(redisOperater instanceof RedisOperater)) {
+            throw new IllegalStateException("redis memory analysis requires RedisOperater, but got "
+                    + redisOperater.getClass().getName());
+        }
+        return new MemoryAnalyzer((RedisOperater) redisOperater, redisProperties.getMemoryAnalysis());
+    }
+
+    /**
+     * 组件扫描时嵌套类会被单独注册，需要重复开关条件
+     */
+    @Configuration
+    @ConditionalOnProperty(prefix = "easysoft.redis.memory-analysis", name = "enabled", havingValue = "true")
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+    static class EndpointConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(RedisMemoryEndpoint.class)
+        public RedisMemoryEndpoint redisMemoryEndpoint(MemoryAnalyzer memoryAnalyzer) {
+            return new RedisMemoryEndpoint(memoryAnalyzer);
+        }
+    }
+}
@@ -6,6 +6,14 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.core.env.Environment;
 
 import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -32,6 +40,102 @@ public class RedisProperties {
      */
     private int slowLogSlowerThan = 10;
 
+    /**
+     * Spring Cache 配置
+     */
+    private Cache cache = new Cache();
+
+    /**
+     * 批量操作配置
+     */
+    private Batch batch = new Batch();
+
+    /**
+     * 大value分片存储配置
+     */
+    private Chunk chunk = new Chunk();
+
+    /**
+     * 连接及连接池配置
+     */
+    private Connection connection = new Connection();
+
+    /**
+     * 只读命令路由到从节点的配置
+     */
+    private ReadRouting readRouting = new ReadRouting();
+
+    /**
+     * 熔断配置
+     */
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    /**
+     * 按命令耗时分布计算的超时配置
+     */
+    private AdaptiveTimeout adaptiveTimeout = new AdaptiveTimeout();
+
+    /**
+     * 对冲读配置
+     */
+    private HedgedRead hedgedRead = new HedgedRead();
+
+    /**
+     * 链路追踪配置
+     */
+    private Tracing tracing = new Tracing();
+
+    /**
+     * 过期时间抖动配置
+     */
+    private TtlJitter ttlJitter = new TtlJitter();
+
+    /**
+     * 延迟合并写入配置
+     */
+    private WriteBehind writeBehind = new WriteBehind();
+
+    /**
+     * 自动 pipeline 配置
+     */
+    private AutoPipelining autoPipelining = new AutoPipelining();
+
+    /**
+     * 发布订阅配置
+     */
+    private PubSub pubSub = new PubSub();
+
+    /**
+     * namespace 视图(租户)配置
+     */
+    private Tenant tenant = new Tenant();
+
+    /**
+     * 其他 Redis 部署，实例名 -> 连接配置，每个实例注册 {实例名}RedisConnectionFactory、{实例名}RedisTemplate、
+     * {实例名}RedisOperater 三个 bean，RedisTemplate 和 IRedisOperater 可通过 @Qualifier("实例名") 注入
+     */
+    private Map<String, Instance> instances = new LinkedHashMap<>();
+
+    /**
+     * 按 key 前缀路由到 instances 的规则，配置后注册 routingRedisOperater
+     */
+    private List<Route> routes = new ArrayList<>();
+
+    /**
+     * 客户端一致性哈希分片配置
+     */
+    private Sharding sharding = new Sharding();
+
+    /**
+     * namespace 内存分析配置
+     */
+    private MemoryAnalysis memoryAnalysis = new MemoryAnalysis();
+
+    /**
+     * scan 并行遍历配置
+     */
+    private Scan scan = new Scan();
+
     /**
      *
      */
@@ -46,4 +150,695 @@ public class RedisProperties {
             }
         }
     }
+
+    /**
+     * 批量(pipeline)操作配置
+     */
+    @Data
+    public static class Batch {
+
+        /**
+         * 并行执行批量操作的线程数
+         */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * 返回的元素总数超过该值时并行反序列化
+         */
+        private int parallelDeserializeThreshold = 2000;
+    }
+
+    /**
+     * 大value分片存储配置，作用于字符串的读写、删除及过期时间，启用后不支持 setWith
+     */
+    @Data
+    public static class Chunk {
+
+        /**
+         * 是否启用分片存储
+         */
+        private boolean enabled = false;
+
+        /**
+         * 序列化后超过该字节数的value分片存储
+         */
+        private int threshold = 512 * 1024;
+
+        /**
+         * 每个分片的字节数
+         */
+        private int chunkSize = 256 * 1024;
+
+        /**
+         * 读取时每个 pipeline 获取的分片数，多个 pipeline 并行执行
+         */
+        private int readWindow = 4;
+    }
+
+    /**
+     * Lettuce 连接及连接池配置，未配置的项保持 Spring Boot 的默认行为
+     */
+    @Data
+    public static class Connection {
+
+        /**
+         * Lettuce I/O 线程数，0 表示使用 Lettuce 默认值(CPU核数)
+         */
+        private int ioThreadPoolSize = 0;
+
+        /**
+         * Lettuce 计算线程数，0 表示使用 Lettuce 默认值(CPU核数)
+         */
+        private int computationThreadPoolSize = 0;
+
+        /**
+         * 是否共享一个原生连接执行非阻塞命令；为 false 时每个操作都从连接池借用连接。
+         * 阻塞命令(BLPOP等)和事务始终使用连接池中的独占连接
+         */
+        private Boolean shareNativeConnection;
+
+        /**
+         * pipeline 中累积多少条命令后刷新到网络，0 表示每条命令都刷新
+         */
+        private int pipeliningFlushSize = 0;
+
+        /**
+         * 连接池使用率采样周期，为0时不采样
+         */
+        private Duration poolMonitorInterval = Duration.ofSeconds(30);
+
+        /**
+         * 虚拟线程模式(JDK 21)：非阻塞命令强制使用共享连接，连接池只用于阻塞命令、事务和 pipeline，
+         * 并限制为 blocking-pool-size 个连接；批量操作的并行任务使用虚拟线程执行
+         */
+        private boolean virtualThreads = false;
+
+        /**
+         * 虚拟线程模式下连接池的最大连接数
+         */
+        private int blockingPoolSize = 8;
+    }
+
+    /**
+     * 只读命令路由配置，仅集群和哨兵模式有效；写命令始终发往 master
+     */
+    @Data
+    public static class ReadRouting {
+
+        /**
+         * 是否启用
+         */
+        private boolean enabled = false;
+
+        /**
+         * 从节点连接的读节点选择策略
+         */
+        private String readFrom = "replicaPreferred";
+
+        /**
+         * 路由到从节点的命令
+         */
+        private Set<String> commands = new LinkedHashSet<>(Arrays.asList("GET", "HGET", "LRANGE", "SMEMBERS",
+                "ZRANGE", "ZRANGEBYSCORE", "EXISTS", "TTL"));
+
+        /**
+         * 路由到从节点的key前缀(不含namespace)，为空表示所有key
+         */
+        private List<String> prefixes = new ArrayList<>();
+
+        /**
+         * 始终读 master 的key前缀(不含namespace)，优先于 prefixes，用于读写一致性敏感的数据
+         */
+        private List<String> excludePrefixes = new ArrayList<>();
+    }
+
+    /**
+     * 熔断配置，master 连接和从节点连接分别统计
+     */
+    @Data
+    public static class CircuitBreaker {
+
+        /**
+         * 是否启用
+         */
+        private boolean enabled = false;
+
+        /**
+         * 滑动窗口大小(调用次数)
+         */
+        private int windowSize = 100;
+
+        /**
+         * 窗口内调用数达到该值后才计算失败率
+         */
+        private int minimumCalls = 20;
+
+        /**
+         * 失败率阈值(百分比)，达到后打开熔断器
+         */
+        private int failureRateThreshold = 50;
+
+        /**
+         * 超过该耗时的调用记为慢调用
+         */
+        private Duration slowCallDurationThreshold = Duration.ofMillis(500);
+
+        /**
+         * 慢调用率阈值(百分比)，达到后打开熔断器
+         */
+        private int slowCallRateThreshold = 100;
+
+        /**
+         * 打开状态持续时间，之后进入半开状态
+         */
+        private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+
+        /**
+         * 半开状态放行的探测调用数
+         */
+        private int permittedCallsInHalfOpenState = 5;
+    }
+
+    /**
+     * 按命令类型的自适应超时配置：超时 = 近期耗时的 percentile 百分位 × factor，限制在 [min-timeout, max-timeout]，
+     * 样本不足的命令使用 spring.redis.timeout
+     */
+    @Data
+    public static class AdaptiveTimeout {
+
+        /**
+         * 是否启用
+         */
+        private boolean enabled = false;
+
+        /**
+         * 耗时百分位
+         */
+        private double percentile = 99;
+
+        /**
+         * 超时与百分位耗时的倍数
+         */
+        private double factor = 3;
+
+        /**
+         * 超时下限
+         */
+        private Duration minTimeout = Duration.ofMillis(20);
+
+        /**
+         * 超时上限，应不大于 spring.redis.timeout
+         */
+        private Duration maxTimeout = Duration.ofSeconds(1);
+
+        /**
+         * 样本数达到该值后才使用自适应超时
+         */
+        private long minSamples = 200;
+
+        /**
+         * 重新计算超时的周期，每个周期历史样本的权重减半
+         */
+        private Duration refreshInterval = Duration.ofSeconds(1);
+    }
+
+    /**
+     * 对冲读配置，需要启用只读命令路由(read-routing)且存在从节点连接
+     */
+    @Data
+    public static class HedgedRead {
+
+        /**
+         * 是否启用
+         */
+        private boolean enabled = false;
+
+        /**
+         * 启用对冲的只读命令
+         */
+        private Set<String> commands = new LinkedHashSet<>(Arrays.asList("GET", "HGET", "EXISTS"));
+
+        /**
+         * 发出对冲请求前的等待时间，启用 adaptive-timeout 且样本充足时改为使用 percentile 百分位耗时
+         */
+        private Duration delay = Duration.ofMillis(20);
+
+        /**
+         * 计算等待时间使用的耗时百分位
+         */
+        private double percentile = 95;
+
+        /**
+         * 同时执行的最大请求数，超过时不对冲直接执行
+         */
+        private int maxConcurrency = 64;
+    }
+
+    /**
+     * OpenTelemetry 链路追踪配置，classpath 中存在 opentelemetry-api 时生效
+     */
+    @Data
+    public static class Tracing {
+
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 是否只在存在已采样的父 span 时创建 span；为 false 时每个命令都创建根 span，由 Sampler 决定是否采样
+         */
+        private boolean requireParent = true;
+
+        /**
+         * span 中只记录key在该分隔符之前的部分
+         */
+        private String keySeparator = ":";
+    }
+
+    /**
+     * 过期时间抖动配置，作用于 setex、setnx、expire 及 Spring Cache 的写入；抖动只会延长过期时间
+     */
+    @Data
+    public static class TtlJitter {
+
+        /**
+         * 默认抖动范围占过期时间的百分比，为0时使用 max-seconds
+         */
+        private int percent = 0;
+
+        /**
+         * 默认最大抖动秒数
+         */
+        private int maxSeconds = 0;
+
+        /**
+         * 按key前缀(不含namespace)配置的抖动，优先于默认配置，最长前缀优先
+         */
+        private Map<String, Jitter> prefixes = new LinkedHashMap<>();
+    }
+
+    /**
+     * 单个前缀的抖动配置
+     */
+    @Data
+    public static class Jitter {
+
+        /**
+         * 抖动范围占过期时间的百分比，为0时使用 max-seconds
+         */
+        private int percent = 0;
+
+        /**
+         * 最大抖动秒数
+         */
+        private int maxSeconds = 0;
+    }
+
+    /**
+     * 延迟合并写入配置，见 IRedisOperater#writeBehind
+     */
+    @Data
+    public static class WriteBehind {
+
+        /**
+         * 是否启用，未启用时写入直接执行
+         */
+        private boolean enabled = false;
+
+        /**
+         * 刷新周期，同一key在周期内的多次写入只保留最后一次
+         */
+        private Duration flushInterval = Duration.ofMillis(100);
+
+        /**
+         * 缓冲区最多保存的写入数(哈希表按域计数)，达到上限时由写入线程直接刷新
+         */
+        private int maxPending = 10000;
+
+        /**
+         * 每个 pipeline 最多包含的key数
+         */
+        private int batchSize = 500;
+    }
+
+    /**
+     * 自动 pipeline 配置：多个线程同时发出的 GET、SET、SETEX、EXISTS、DEL、EXPIRE、HGET、HSET 合并为一次网络写入，
+     * 只在单机/哨兵模式且共享原生连接时生效
+     */
+    @Data
+    public static class AutoPipelining {
+
+        /**
+         * 是否启用
+         */
+        private boolean enabled = false;
+
+        /**
+         * 每批最多合并的命令数
+         */
+        private int maxBatchSize = 128;
+
+        /**
+         * 刷新前等待其他命令加入的时间，建议为微秒级；为0时只合并刷新期间到达的命令
+         */
+        private Duration window = Duration.ZERO;
+    }
+
+    /**
+     * 一个 Redis 部署的连接配置，未配置的其他选项(批量、分片、拦截器等)与默认实例相同
+     */
+    @Data
+    public static class Instance {
+
+        private String host = "localhost";
+
+        private int port = 6379;
+
+        private int database = 0;
+
+        private String password;
+
+        /**
+         * 集群节点 host:port，配置后使用集群模式，忽略 host/port/database
+         */
+        private List<String> clusterNodes = new ArrayList<>();
+
+        /**
+         * 命令超时时间
+         */
+        private Duration timeout = Duration.ofSeconds(60);
+
+        /**
+         * key 前缀，未配置时与默认实例相同，配置为空字符串时不添加前缀
+         */
+        private String namespace;
+
+        /**
+         * value 序列化器：json、jdk、string 或 RedisSerializer bean 的名称，未配置时使用默认实例的序列化器
+         */
+        private String serializer;
+
+        /**
+         * 连接池配置
+         */
+        private Pool pool = new Pool();
+    }
+
+    /**
+     * 实例连接池配置
+     */
+    @Data
+    public static class Pool {
+
+        /**
+         * 是否使用连接池，不使用时所有命令共享一个连接
+         */
+        private boolean enabled = false;
+
+        private int maxActive = 8;
+
+        private int maxIdle = 8;
+
+        private int minIdle = 0;
+
+        /**
+         * 连接池耗尽时的最长等待时间，负数表示一直等待
+         */
+        private Duration maxWait = Duration.ofMillis(-1);
+    }
+
+    /**
+     * key 前缀路由规则
+     */
+    @Data
+    public static class Route {
+
+        /**
+         * key 前缀，不含 namespace，如 session::
+         */
+        private String prefix;
+
+        /**
+         * instances 中的实例名，default 表示默认实例
+         */
+        private String instance;
+    }
+
+    /**
+     * 客户端分片配置，分片为 instances 中的独立实例，配置 shards 后注册 shardedRedisOperater 和 shardMigrator
+     */
+    @Data
+    public static class Sharding {
+
+        /**
+         * 参与分片的实例名，default 表示默认实例；实例名参与哈希计算，改名等同于增删分片
+         */
+        private List<String> shards = new ArrayList<>();
+
+        /**
+         * 每个分片在哈希环上的虚拟节点数，越大 key 分布越均匀
+         */
+        private int virtualNodes = 160;
+
+        /**
+         * 正在下线的实例名，不再分配 key，shardMigrator 把其中的 key 迁移到分片
+         */
+        private List<String> draining = new ArrayList<>();
+
+        /**
+         * shardMigrator 每批迁移的 key 数量
+         */
+        private int migrateBatchSize = 100;
+    }
+
+    /**
+     * scan 并行遍历(集群的 master 节点、分片、路由的实例)配置，遍历线程池由每个根实例单独持有
+     */
+    @Data
+    public static class Scan {
+
+        /**
+         * 并行遍历的最大线程数，超出时来源排队等待空闲线程
+         */
+        private int maxThreads = 8;
+
+        /**
+         * 遍历线程等待消费的最长时间，超过后放弃遍历并释放连接，用于回收未关闭即被丢弃的 Stream
+         */
+        private Duration maxIdle = Duration.ofSeconds(60);
+    }
+
+    /**
+     * namespace 内存分析配置，见 MemoryAnalyzer
+     */
+    @Data
+    public static class MemoryAnalysis {
+
+        /**
+         * 是否启用内存分析
+         */
+        private boolean enabled = false;
+
+        /**
+         * key(不含namespace)中前缀与其余部分的分隔符，按第一个分隔符之前的部分分组统计
+         */
+        private String keySeparator = ":";
+
+        /**
+         * 每页 SCAN 及每次 pipeline 检查的 key 数量
+         */
+        private int batchSize = 100;
+
+        /**
+         * 每秒最多检查的 key 数量，用于限制对 Redis 的影响
+         */
+        private int rate = 1000;
+
+        /**
+         * 执行 MEMORY USAGE 等命令的 key 比例，(0, 1]，其余 key 只计数，字节数等按比例估算
+         */
+        private double sampleRatio = 1;
+
+        /**
+         * 最多统计的前缀数量，超出的前缀合并到 (other)
+         */
+        private int maxPrefixes = 1000;
+
+        /**
+         * 自动分析的间隔，为0时只在通过 actuator 端点或 MemoryAnalyzer#start 触发时分析
+         */
+        private Duration interval = Duration.ZERO;
+
+        /**
+         * 等待一批命令回复的最长时间
+         */
+        private Duration timeout = Duration.ofSeconds(10);
+    }
+
+    /**
+     * namespace 视图(租户)配置，见 IRedisOperater#withNamespace
+     */
+    @Data
+    public static class Tenant {
+
+        /**
+         * 每个视图允许的最大 key 数量，达到后拒绝可能新增 key 的写命令，0 表示不限制
+         */
+        private long maxKeys = 0;
+
+        /**
+         * 按视图名单独设置的最大 key 数量，优先于 max-keys
+         */
+        private Map<String, Long> quotas = new LinkedHashMap<>();
+
+        /**
+         * 设置了配额时，后台线程通过 SCAN 统计 key 数量的间隔，最小 100ms
+         */
+        private Duration keyCountInterval = Duration.ofSeconds(30);
+    }
+
+    /**
+     * 发布订阅配置，频道名自动添加 namespace
+     */
+    @Data
+    public static class PubSub {
+
+        /**
+         * 是否创建 RedisSubscriber
+         */
+        private boolean enabled = true;
+
+        /**
+         * 消息分发线程数，未定义 redisListenerExecutor 时生效
+         */
+        private int listenerThreads = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * 集群模式下使用分片发布(SPUBLISH，需要 Redis 7.0)，消息只在频道所在的分片内传播；
+         * 订阅方需要使用 SSUBSCRIBE，RedisSubscriber 只支持 SUBSCRIBE/PSUBSCRIBE，集群模式下与 RedisSubscriber 同时启用时启动失败
+         */
+        private boolean sharded = false;
+    }
+
+    /**
+     * 基于 IRedisOperater 的 CacheManager 配置
+     */
+    @Data
+    public static class Cache {
+
+        /**
+         * 是否启用 CacheManager
+         */
+        private boolean enabled = false;
+
+        /**
+         * 缓存名与缓存key之间的分隔符
+         */
+        private String keySeparator = "::";
+
+        /**
+         * 默认过期时间，为0时不过期；不足1秒的部分向上取整
+         */
+        private Duration defaultTtl = Duration.ZERO;
+
+        /**
+         * 按缓存名配置的过期时间，不足1秒的部分向上取整
+         */
+        private Map<String, Duration> ttl = new LinkedHashMap<>();
+
+        /**
+         * 是否缓存 null 值
+         */
+        private boolean cacheNullValues = true;
+
+        /**
+         * 是否允许使用未在 ttl 中声明的缓存名
+         */
+        private boolean dynamic = true;
+
+        /**
+         * 熔断器打开时是否使用本地一级缓存中的数据(包括已过期但尚未淘汰的数据)，为 false 时直接抛出异常
+         */
+        private boolean localFallback = true;
+
+        /**
+         * 本地一级缓存
+         */
+        private Local local = new Local();
+
+        /**
+         * 启动预热
+         */
+        private Warmup warmup = new Warmup();
+    }
+
+    /**
+     * 本地一级缓存(L1)配置
+     */
+    @Data
+    public static class Local {
+
+        /**
+         * 是否启用本地一级缓存
+         */
+        private boolean enabled = false;
+
+        /**
+         * 每个缓存最多保留的条目数
+         */
+        private int maxSize = 10000;
+
+        /**
+         * 本地缓存过期时间，应小于 Redis 中的过期时间
+         */
+        private Duration ttl = Duration.ofSeconds(30);
+    }
+
+    /**
+     * 缓存启动预热配置，预热在应用就绪(readiness)之前执行
+     */
+    @Data
+    public static class Warmup {
+
+        /**
+         * 是否启用启动预热
+         */
+        private boolean enabled = false;
+
+        /**
+         * 缓存名 -> 需要加载到本地一级缓存的缓存key
+         */
+        private Map<String, List<String>> keys = new LinkedHashMap<>();
+
+        /**
+         * 缓存名 -> 缓存key前缀，通过 SCAN 遍历匹配的key加载到本地一级缓存
+         */
+        private Map<String, List<String>> prefixes = new LinkedHashMap<>();
+
+        /**
+         * 并行读取的线程数
+         */
+        private int parallelism = 4;
+
+        /**
+         * 每批(一次 pipeline)读取或写入的 key 数量，同时作为 SCAN 的 COUNT
+         */
+        private int batchSize = 200;
+
+        /**
+         * 每秒最多读取或写入的 key 数量，0 表示不限制
+         */
+        private int rate = 0;
+
+        /**
+         * 预热的最长时间，超时后停止预热，应用继续启动
+         */
+        private Duration timeout = Duration.ofMinutes(1);
+
+        /**
+         * 预热失败(包括超时)时是否中止启动
+         */
+        private boolean failOnError = false;
+    }
 }
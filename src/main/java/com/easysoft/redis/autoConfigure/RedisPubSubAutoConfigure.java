@@ -0,0 +1,42 @@
+package com.easysoft.redis.autoConfigure;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.pubsub.RedisSubscriber;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 频道订阅自动配置，可通过 easysoft.redis.pub-sub.enabled=false 关闭；
+ * 定义名为 redisListenerExecutor 的 Executor bean 可替换消息分发线程池
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-01 10:10
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-01 10:10
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "easysoft.redis.pub-sub", name = "enabled", matchIfMissing = true)
+@AutoConfigureAfter(RedisAutoConfigure.class)
+public class RedisPubSubAutoConfigure {
+
+    @Bean
+    @ConditionalOnBean(IRedisOperater.class)
+    @ConditionalOnMissingBean(RedisSubscriber.class)
+    public RedisSubscriber redisSubscriber(RedisConnectionFactory redisConnectionFactory,
+                                           IRedisOperater redisOperater, RedisTemplate redisTemplate,
+                                           RedisProperties redisProperties,
+                                           @Qualifier("redisListenerExecutor") ObjectProvider<Executor> executor) {
+        return new RedisSubscriber(redisConnectionFactory, redisOperater.getNamespace(),
+                redisTemplate.getValueSerializer(), redisProperties.getPubSub(), executor.getIfAvailable());
+    }
+}
@@ -0,0 +1,41 @@
+package com.easysoft.redis.autoConfigure;
+
+import com.easysoft.redis.tracing.OpenTelemetryTracingInterceptor;
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Redis 命令的 OpenTelemetry 链路追踪，classpath 中存在 opentelemetry-api 时生效；
+ * 容器中没有 OpenTelemetry Bean 时使用 GlobalOpenTelemetry。拦截器被所有实例及 namespace 视图共用，
+ * namespace 和节点在每次调用时从命令中读取
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-25 15:30
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-25 15:30
+ */
+@Configuration
+@ConditionalOnClass(name = "io.opentelemetry.api.OpenTelemetry")
+@ConditionalOnProperty(prefix = "easysoft.redis.tracing", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(RedisProperties.class)
+public class RedisTracingAutoConfigure {
+
+    private static final String INSTRUMENTATION_NAME = "com.easysoft.redis";
+
+    @Bean
+    @ConditionalOnMissingBean(OpenTelemetryTracingInterceptor.class)
+    public OpenTelemetryTracingInterceptor redisTracingInterceptor(RedisProperties redisProperties,
+                                                                   ObjectProvider<OpenTelemetry> openTelemetry) {
+        RedisProperties.Tracing config = redisProperties.getTracing();
+        OpenTelemetry telemetry = openTelemetry.getIfAvailable(GlobalOpenTelemetry::get);
+        return new OpenTelemetryTracingInterceptor(telemetry.getTracer(INSTRUMENTATION_NAME),
+                config.getKeySeparator(), config.isRequireParent());
+    }
+}
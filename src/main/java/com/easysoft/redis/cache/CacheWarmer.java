@@ -0,0 +1,322 @@
+package com.easysoft.redis.cache;
+
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 缓存启动预热：应用就绪(readiness)之前，先通过 {@link CacheWarmupLoader} 把数据源中的数据写入 Redis，
+ * 再把配置的缓存key及按前缀 SCAN 到的缓存key从 Redis 加载到本地一级缓存，避免发布后大量请求同时穿透到 Redis 和数据源。
+ * <p>
+ * 每批 batchSize 个 key 通过一次 pipeline 读取或写入，最多 parallelism 批并行执行，按 rate 限制每秒处理的 key 数量；
+ * 超过 timeout 后停止预热，应用继续启动(failOnError 为 true 时中止启动)。
+ * <p>
+ * 预热写入本地缓存的 key 为字符串，只有缓存key为字符串(如 SpEL 生成的字符串)时才能命中。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-06 10:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-06 10:00
+ */
+@Slf4j
+public class CacheWarmer implements ApplicationRunner, Ordered {
+
+    private final CacheManager cacheManager;
+
+    private final RedisProperties.Warmup config;
+
+    private final List<CacheWarmupLoader> loaders;
+
+    public CacheWarmer(CacheManager cacheManager, RedisProperties.Warmup config, List<CacheWarmupLoader> loaders) {
+        this.cacheManager = cacheManager;
+        this.config = config;
+        this.loaders = new ArrayList<>(loaders);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Result result = warmUp();
+        if (config.isFailOnError() && (result.getFailed() > 0 || result.isTimedOut())) {
+            throw new IllegalStateException("cache warm-up failed: " + result);
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    /**
+     * 执行一次预热，可在运行期间重复调用(如 Redis 故障恢复后)
+     *
+     * @return
+     */
+    public Result warmUp() {
+        long start = System.currentTimeMillis();
+        int parallelism = Math.max(1, config.getParallelism());
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("easysoft-redis-warmup-");
+        threadFactory.setDaemon(true);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, threadFactory);
+        Batches batches = new Batches(executor, parallelism);
+        try {
+            for (CacheWarmupLoader loader : loaders) {
+                populate(loader, batches);
+            }
+            for (Map.Entry<String, List<String>> keys : config.getKeys().entrySet()) {
+                RedisOperaterCache cache = localCache(keys.getKey());
+                if (null != cache) {
+                    preload(cache, keys.getValue().iterator(), batches);
+                }
+            }
+            for (Map.Entry<String, List<String>> prefixes : config.getPrefixes().entrySet()) {
+                RedisOperaterCache cache = localCache(prefixes.getKey());
+                if (null == cache) {
+                    continue;
+                }
+                for (String prefix : prefixes.getValue()) {
+                    try (Stream<String> keys = cache.scanKeys(prefix, batchSize())) {
+                        preload(cache, keys.iterator(), batches);
+                    }
+                }
+            }
+            batches.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            batches.timedOut = true;
+        } catch (RuntimeException ex) {
+            // 加载数据源或 SCAN 失败，等待已提交的批次完成
+            log.warn("cache warm-up failed", ex);
+            batches.failed();
+        } finally {
+            executor.shutdownNow();
+        }
+        Result result = batches.result(System.currentTimeMillis() - start);
+        if (result.isTimedOut()) {
+            log.warn("cache warm-up timed out after {}, {}", config.getTimeout(), result);
+        } else {
+            log.info("cache warm-up finished, {}", result);
+        }
+        return result;
+    }
+
+    private void populate(CacheWarmupLoader loader, Batches batches) throws InterruptedException {
+        RedisOperaterCache cache = cache(loader.getCacheName());
+        if (null == cache) {
+            return;
+        }
+        Iterator<? extends Map.Entry<?, ?>> entries = loader.load().entrySet().iterator();
+        while (entries.hasNext()) {
+            Map<Object, Object> page = new LinkedHashMap<>(batchSize() * 2);
+            while (page.size() < batchSize() && entries.hasNext()) {
+                Map.Entry<?, ?> entry = entries.next();
+                page.put(entry.getKey(), entry.getValue());
+            }
+            if (!batches.submit(page.size(), () -> cache.populate(page), false)) {
+                return;
+            }
+        }
+    }
+
+    private void preload(RedisOperaterCache cache, Iterator<String> keys, Batches batches)
+            throws InterruptedException {
+        while (keys.hasNext()) {
+            List<String> page = new ArrayList<>(batchSize());
+            while (page.size() < batchSize() && keys.hasNext()) {
+                page.add(keys.next());
+            }
+            if (!batches.submit(page.size(), () -> cache.preload(page), true)) {
+                return;
+            }
+        }
+    }
+
+    private RedisOperaterCache cache(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache instanceof RedisOperaterCache) {
+            return (RedisOperaterCache) cache;
+        }
+        log.warn("cache {} is not a RedisOperaterCache, skip warm-up", name);
+        return null;
+    }
+
+    /**
+     * @return 启用了本地一级缓存的缓存，否则返回 null
+     */
+    private RedisOperaterCache localCache(String name) {
+        RedisOperaterCache cache = cache(name);
+        if (null != cache && !cache.hasLocalCache()) {
+            log.warn("local cache of {} is disabled, skip warm-up", name);
+            return null;
+        }
+        return cache;
+    }
+
+    private int batchSize() {
+        return Math.max(1, config.getBatchSize());
+    }
+
+    /**
+     * 提交批次：限制并行的批次数及每秒处理的 key 数量，超过截止时间后拒绝提交；
+     * 各批次的结果累加到 LongAdder，预热结束后生成 {@link Result}
+     */
+    private final class Batches {
+
+        private final ExecutorService executor;
+
+        private final int parallelism;
+
+        private final Semaphore running;
+
+        private final LongAdder keys = new LongAdder();
+
+        private final LongAdder loaded = new LongAdder();
+
+        private final LongAdder populated = new LongAdder();
+
+        private final LongAdder failed = new LongAdder();
+
+        private volatile boolean timedOut;
+
+        private final long deadline;
+
+        private final long nanosPerKey;
+
+        private long nextFree = System.nanoTime();
+
+        Batches(ExecutorService executor, int parallelism) {
+            this.executor = executor;
+            this.parallelism = parallelism;
+            this.running = new Semaphore(parallelism);
+            this.deadline = System.nanoTime() + config.getTimeout().toNanos();
+            this.nanosPerKey = config.getRate() > 0 ? TimeUnit.SECONDS.toNanos(1) / config.getRate() : 0;
+        }
+
+        /**
+         * @param keys    批次中的 key 数量
+         * @param batch   返回成功处理的 key 数量
+         * @param preload 是否为读取到本地缓存的批次，否则为写入 Redis 的批次
+         * @return 是否已提交，超时返回 false
+         */
+        boolean submit(int keys, BatchTask batch, boolean preload) throws InterruptedException {
+            long wait = nextFree - System.nanoTime();
+            nextFree = Math.max(nextFree, System.nanoTime()) + keys * nanosPerKey;
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(Math.min(wait, Math.max(0, deadline - System.nanoTime())));
+            }
+            if (!running.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                timedOut = true;
+                return false;
+            }
+            executor.execute(() -> {
+                try {
+                    int done = batch.run();
+                    this.keys.add(keys);
+                    (preload ? loaded : populated).add(done);
+                } catch (RuntimeException ex) {
+                    log.warn("cache warm-up batch of {} keys failed", keys, ex);
+                    failed.add(keys);
+                } finally {
+                    running.release();
+                }
+            });
+            return true;
+        }
+
+        /**
+         * 预热中断，等待已提交的批次执行完成
+         */
+        void failed() {
+            try {
+                await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            failed.increment();
+        }
+
+        /**
+         * 等待已提交的批次执行完成
+         */
+        void await() throws InterruptedException {
+            if (running.tryAcquire(parallelism, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                running.release(parallelism);
+            } else {
+                timedOut = true;
+            }
+        }
+
+        Result result(long elapsedMillis) {
+            Result result = new Result();
+            result.setKeys(keys.sum());
+            result.setLoaded(loaded.sum());
+            result.setPopulated(populated.sum());
+            result.setFailed(failed.sum());
+            result.setTimedOut(timedOut);
+            result.setElapsedMillis(elapsedMillis);
+            return result;
+        }
+    }
+
+    /**
+     * 一批 key 的读取或写入
+     */
+    private interface BatchTask {
+
+        /**
+         * @return 成功处理的 key 数量
+         */
+        int run();
+    }
+
+    /**
+     * 预热结果
+     */
+    @Data
+    public static class Result {
+
+        /**
+         * 已处理的 key 数量(包括写入 Redis 和读取到本地缓存)
+         */
+        private long keys;
+
+        /**
+         * 从 Redis 读取到本地一级缓存的数量
+         */
+        private long loaded;
+
+        /**
+         * 由 CacheWarmupLoader 写入 Redis 的数量
+         */
+        private long populated;
+
+        /**
+         * 失败的 key 数量，加载数据源或 SCAN 失败时另加 1
+         */
+        private long failed;
+
+        /**
+         * 是否超时
+         */
+        private boolean timedOut;
+
+        private long elapsedMillis;
+    }
+}
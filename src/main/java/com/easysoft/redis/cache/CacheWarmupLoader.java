@@ -0,0 +1,28 @@
+package com.easysoft.redis.cache;
+
+import java.util.Map;
+
+/**
+ * 启动预热时从数据源加载缓存数据，注册为 Spring Bean 后由 {@link CacheWarmer} 写入 Redis 及本地一级缓存。
+ * <p>
+ * 只写入 Redis 中不存在的 key，多个应用实例同时启动时重复加载不会覆盖其他实例写入的数据。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-06 10:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-06 10:00
+ */
+public interface CacheWarmupLoader {
+
+    /**
+     * @return 写入的缓存名
+     */
+    String getCacheName();
+
+    /**
+     * 加载预热数据
+     *
+     * @return 缓存key -> 值
+     */
+    Map<?, ?> load();
+}
@@ -0,0 +1,106 @@
+package com.easysoft.redis.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内一级缓存(L1)，带过期时间和近似容量限制。
+ * <p>
+ * 读写均无锁；超过容量时先清理过期条目，仍超出则按迭代顺序淘汰，淘汰策略是近似的。
+ * 过期条目在被覆盖或淘汰前仍然保留，Redis 不可用时可以通过 {@link #getStale(Object)} 降级读取。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-06 14:12
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-06 14:12
+ */
+public class LocalCache {
+
+    private final ConcurrentHashMap<Object, Entry> store = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+
+    private final long ttlMillis;
+
+    public LocalCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * 读取本地缓存
+     *
+     * @param key
+     * @return 已缓存的值(可能是 NullValue)，不存在或已过期时返回 null
+     */
+    public Object get(Object key) {
+        Entry entry = store.get(key);
+        if (null == entry) {
+            return null;
+        }
+        return entry.isExpired(System.currentTimeMillis()) ? null : entry.value;
+    }
+
+    /**
+     * 读取本地缓存，忽略过期时间，用于 Redis 不可用时的降级
+     *
+     * @param key
+     * @return 已缓存的值(可能是 NullValue)，不存在或已被淘汰时返回 null
+     */
+    public Object getStale(Object key) {
+        Entry entry = store.get(key);
+        return null == entry ? null : entry.value;
+    }
+
+    /**
+     * 写入本地缓存
+     *
+     * @param key
+     * @param value 存储值，null 值应由调用方转换为 NullValue
+     */
+    public void put(Object key, Object value) {
+        store.put(key, new Entry(value, System.currentTimeMillis() + ttlMillis));
+        if (store.size() > maxSize) {
+            evict();
+        }
+    }
+
+    public void remove(Object key) {
+        store.remove(key);
+    }
+
+    public void clear() {
+        store.clear();
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        store.entrySet().removeIf(e -> e.getValue().isExpired(now));
+        Iterator<Map.Entry<Object, Entry>> iterator = store.entrySet().iterator();
+        while (store.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+
+        private final long expireAt;
+
+        private Entry(Object value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expireAt;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.easysoft.redis.cache;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.RedisCircuitOpenException;
+import com.easysoft.redis.RedisOperater;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * 基于 IRedisOperater 的 Spring Cache 实现，key 会带上 IRedisOperater 的 namespace。
+ * <p>
+ * sync 模式下同一 key 的并发未命中只会有一个线程执行加载，其余线程等待同一个结果；
+ * 合并粒度是单个 key，不使用全局锁。
+ * <p>
+ * 熔断器打开时，读操作降级为读取本地一级缓存，本地没有数据时抛出 {@link RedisCircuitOpenException}。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-06 14:12
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-06 14:12
+ */
+public class RedisOperaterCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+
+    private final String keyPrefix;
+
+    private final IRedisOperater redisOperater;
+
+    private final int ttlSeconds;
+
+    /**
+     * 本地一级缓存，未启用时为 null
+     */
+    private final LocalCache localCache;
+
+    /**
+     * 熔断器打开时是否读取本地一级缓存
+     */
+    private final boolean localFallback;
+
+    private final ConcurrentHashMap<Object, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    public RedisOperaterCache(String name, String keySeparator, IRedisOperater redisOperater, Duration ttl,
+                              boolean allowNullValues, LocalCache localCache) {
+        this(name, keySeparator, redisOperater, ttl, allowNullValues, localCache, true);
+    }
+
+    public RedisOperaterCache(String name, String keySeparator, IRedisOperater redisOperater, Duration ttl,
+                              boolean allowNullValues, LocalCache localCache, boolean localFallback) {
+        super(allowNullValues);
+        this.name = name;
+        this.keyPrefix = name + keySeparator;
+        this.redisOperater = redisOperater;
+        this.ttlSeconds = ttlSeconds(ttl);
+        this.localCache = localCache;
+        this.localFallback = localFallback;
+    }
+
+    /**
+     * 不足1秒的部分向上取整，避免小于1秒的过期时间变为0(永不过期)
+     *
+     * @param ttl null 或小于等于0表示不过期
+     * @return
+     */
+    static int ttlSeconds(Duration ttl) {
+        if (null == ttl || ttl.isZero() || ttl.isNegative()) {
+            return 0;
+        }
+        long seconds = ttl.getSeconds() + (ttl.getNano() > 0 ? 1 : 0);
+        return (int) Math.min(Integer.MAX_VALUE, seconds);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return redisOperater;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        if (null != localCache) {
+            Object value = localCache.get(key);
+            if (null != value) {
+                return value;
+            }
+        }
+        Object value;
+        try {
+            value = redisOperater.get(cacheKey(key));
+        } catch (RedisCircuitOpenException ex) {
+            Object stale = localFallback && null != localCache ? localCache.getStale(key) : null;
+            if (null == stale) {
+                throw ex;
+            }
+            return stale;
+        }
+        if (null != value && null != localCache) {
+            localCache.put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (null != wrapper) {
+            return (T) wrapper.get();
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> running = loading.putIfAbsent(key, future);
+        if (null != running) {
+            try {
+                return (T) fromStoreValue(running.join());
+            } catch (CompletionException ex) {
+                throw new ValueRetrievalException(key, valueLoader, ex.getCause());
+            }
+        }
+        try {
+            T value = valueLoader.call();
+            put(key, value);
+            future.complete(toStoreValue(value));
+            return value;
+        } catch (Throwable ex) {
+            future.completeExceptionally(ex);
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Object storeValue = toStoreValue(value);
+        String cacheKey = cacheKey(key);
+        if (ttlSeconds > 0) {
+            redisOperater.setex(cacheKey, storeValue, ttlSeconds);
+        } else {
+            redisOperater.set(cacheKey, storeValue);
+        }
+        if (null != localCache) {
+            localCache.put(key, storeValue);
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        Object storeValue = toStoreValue(value);
+        if (Boolean.TRUE.equals(redisOperater.setnx(cacheKey(key), storeValue, ttlSeconds))) {
+            if (null != localCache) {
+                localCache.put(key, storeValue);
+            }
+            return null;
+        }
+        return toValueWrapper(redisOperater.get(cacheKey(key)));
+    }
+
+    @Override
+    public void evict(Object key) {
+        redisOperater.delete(cacheKey(key));
+        if (null != localCache) {
+            localCache.remove(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        redisOperater.delByPattern(RedisOperater.escapeGlob(keyPrefix) + "*");
+        if (null != localCache) {
+            localCache.clear();
+        }
+    }
+
+    /**
+     * @return 是否启用了本地一级缓存
+     */
+    public boolean hasLocalCache() {
+        return null != localCache;
+    }
+
+    /**
+     * 通过 pipeline 从 Redis 批量读取并写入本地一级缓存，用于启动预热；未启用本地缓存时不读取
+     *
+     * @param keys 缓存key
+     * @return 写入本地缓存的数量
+     */
+    public int preload(Collection<?> keys) {
+        if (null == localCache || keys.isEmpty()) {
+            return 0;
+        }
+        List<Object> keyList = new ArrayList<>(keys);
+        List<String> cacheKeys = new ArrayList<>(keyList.size());
+        keyList.forEach(key -> cacheKeys.add(cacheKey(key)));
+        Map<String, Object> values = redisOperater.getAll(cacheKeys);
+        int loaded = 0;
+        for (int i = 0; i < keyList.size(); i++) {
+            Object value = values.get(cacheKeys.get(i));
+            if (null != value) {
+                localCache.put(keyList.get(i), value);
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 通过 pipeline 把数据写入 Redis，过期时间同 put；Redis 中已存在的 key 视为更新的数据，不覆盖。
+     * 写入成功的数据同时写入本地一级缓存
+     *
+     * @param values key -> value
+     * @return 写入 Redis 的数量
+     */
+    public int populate(Map<?, ?> values) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+        Map<String, Object> storeValues = new LinkedHashMap<>(values.size() * 2);
+        Map<String, Object> keys = new HashMap<>(values.size() * 2);
+        values.forEach((key, value) -> {
+            String cacheKey = cacheKey(key);
+            storeValues.put(cacheKey, toStoreValue(value));
+            keys.put(cacheKey, key);
+        });
+        int populated = 0;
+        for (Map.Entry<String, Boolean> written : redisOperater.setnxAll(storeValues, ttlSeconds).entrySet()) {
+            if (written.getValue()) {
+                populated++;
+                if (null != localCache) {
+                    localCache.put(keys.get(written.getKey()), storeValues.get(written.getKey()));
+                }
+            }
+        }
+        return populated;
+    }
+
+    /**
+     * 通过 SCAN 遍历以 prefix 开头的缓存key
+     *
+     * @param prefix 缓存key前缀
+     * @param count  每页的建议数量
+     * @return 不含缓存名的缓存key，Stream 使用后需要关闭
+     */
+    public Stream<String> scanKeys(String prefix, int count) {
+        String pattern = RedisOperater.escapeGlob(keyPrefix + prefix) + "*";
+        return redisOperater.scan(pattern, count).map(key -> key.substring(keyPrefix.length()));
+    }
+
+    /**
+     * 缓存名 + 分隔符 + key，namespace 由 IRedisOperater 添加
+     *
+     * @param key
+     * @return
+     */
+    protected String cacheKey(Object key) {
+        return keyPrefix + String.valueOf(key);
+    }
+}
@@ -0,0 +1,61 @@
+package com.easysoft.redis.cache;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 IRedisOperater 的 CacheManager，每个缓存可单独配置过期时间
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-06 14:12
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-06 14:12
+ */
+public class RedisOperaterCacheManager implements CacheManager {
+
+    private final IRedisOperater redisOperater;
+
+    private final RedisProperties.Cache config;
+
+    private final ConcurrentHashMap<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public RedisOperaterCacheManager(IRedisOperater redisOperater, RedisProperties.Cache config) {
+        this.redisOperater = redisOperater;
+        this.config = config;
+        config.getTtl().keySet().forEach(this::getCache);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = caches.get(name);
+        if (null != cache) {
+            return cache;
+        }
+        if (!config.isDynamic() && !config.getTtl().containsKey(name)) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    protected Cache createCache(String name) {
+        Duration ttl = config.getTtl().getOrDefault(name, config.getDefaultTtl());
+        LocalCache localCache = null;
+        if (config.getLocal().isEnabled()) {
+            localCache = new LocalCache(config.getLocal().getMaxSize(), config.getLocal().getTtl().toMillis());
+        }
+        return new RedisOperaterCache(name, config.getKeySeparator(), redisOperater, ttl,
+                config.isCacheNullValues(), localCache, config.isLocalFallback());
+    }
+}
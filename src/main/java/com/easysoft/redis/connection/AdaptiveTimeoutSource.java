@@ -0,0 +1,35 @@
+package com.easysoft.redis.connection;
+
+import com.easysoft.redis.interceptor.CommandLatencyTracker;
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.protocol.RedisCommand;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lettuce 命令超时来源，只对 RedisOperater 单条命令发出的同名命令使用 {@link CommandLatencyTracker} 计算的超时；
+ * pipeline、批量调用、分片值读写、延迟写入的刷新及样本不足的命令返回 -1，由 Lettuce 使用连接的默认超时
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-24 09:40
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-24 09:40
+ */
+public class AdaptiveTimeoutSource extends TimeoutOptions.TimeoutSource {
+
+    private final CommandLatencyTracker latencyTracker;
+
+    public AdaptiveTimeoutSource(CommandLatencyTracker latencyTracker) {
+        this.latencyTracker = latencyTracker;
+    }
+
+    @Override
+    public long getTimeout(RedisCommand<?, ?, ?> command) {
+        return latencyTracker.currentTimeoutNanos(command.getType().name());
+    }
+
+    @Override
+    public TimeUnit getTimeUnit() {
+        return TimeUnit.NANOSECONDS;
+    }
+}
@@ -0,0 +1,228 @@
+package com.easysoft.redis.connection;
+
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.output.BooleanOutput;
+import io.lettuce.core.output.ByteArrayOutput;
+import io.lettuce.core.output.CommandOutput;
+import io.lettuce.core.output.IntegerOutput;
+import io.lettuce.core.output.StatusOutput;
+import io.lettuce.core.protocol.AsyncCommand;
+import io.lettuce.core.protocol.Command;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.protocol.RedisCommand;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 自动 pipeline：合并多个线程同时发出的单key命令。
+ * <p>
+ * 命令先放入队列，第一个发现没有刷新在进行的线程成为刷新者：等待 window(期间队列达到 maxBatchSize 时提前结束)，
+ * 取出最多 maxBatchSize 条命令，通过共享连接的 {@link StatefulConnection#dispatch(java.util.Collection)} 一次写入并刷新到网络；
+ * 其他线程只负责入队并等待自己命令的结果。window 为 0 时不额外等待，刷新者写网络期间到达的命令自然合并到下一批。
+ * <p>
+ * 只在单机/哨兵模式、共享原生连接时可用，见 {@link #create}。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-31 10:30
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-31 10:30
+ */
+@Slf4j
+public class AutoPipeliner {
+
+    private static final ByteArrayCodec CODEC = ByteArrayCodec.INSTANCE;
+
+    private static final long MAX_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+    private final RedisTemplate redisTemplate;
+
+    private final int maxBatchSize;
+
+    private final long windowNanos;
+
+    private final long timeoutNanos;
+
+    private final ConcurrentLinkedQueue<RedisCommand<byte[], byte[], ?>> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    private final LongAdder commands = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    private volatile StatefulConnection<byte[], byte[]> connection;
+
+    /**
+     * @param redisTemplate 使用共享原生连接的 RedisTemplate
+     * @param maxBatchSize  每批最多命令数
+     * @param window        刷新前等待其他命令加入的时间
+     * @param timeout       命令超时时间
+     */
+    public AutoPipeliner(RedisTemplate redisTemplate, int maxBatchSize, Duration window, Duration timeout) {
+        this.redisTemplate = redisTemplate;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.windowNanos = window.toNanos();
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    /**
+     * @param redisTemplate
+     * @param maxBatchSize
+     * @param window
+     * @return 连接工厂不是 Lettuce、集群模式或未共享原生连接时返回 null
+     */
+    public static AutoPipeliner create(RedisTemplate redisTemplate, int maxBatchSize, Duration window) {
+        RedisConnectionFactory connectionFactory = redisTemplate.getConnectionFactory();
+        if (!(connectionFactory instanceof LettuceConnectionFactory)) {
+            log.warn("auto pipelining requires LettuceConnectionFactory, disabled");
+            return null;
+        }
+        LettuceConnectionFactory lettuceConnectionFactory = (LettuceConnectionFactory) connectionFactory;
+        if (lettuceConnectionFactory.isClusterAware() || !lettuceConnectionFactory.getShareNativeConnection()) {
+            log.warn("auto pipelining requires a shared native connection in standalone or sentinel mode, disabled");
+            return null;
+        }
+        Duration timeout = lettuceConnectionFactory.getClientConfiguration().getCommandTimeout();
+        return new AutoPipeliner(redisTemplate, maxBatchSize, window, timeout);
+    }
+
+    public byte[] get(byte[] key) {
+        return execute(CommandType.GET, new ByteArrayOutput<>(CODEC), new CommandArgs<>(CODEC).addKey(key));
+    }
+
+    public byte[] hget(byte[] key, byte[] field) {
+        return execute(CommandType.HGET, new ByteArrayOutput<>(CODEC),
+                new CommandArgs<>(CODEC).addKey(key).add(field));
+    }
+
+    public Boolean exists(byte[] key) {
+        Long count = execute(CommandType.EXISTS, new IntegerOutput<>(CODEC), new CommandArgs<>(CODEC).addKey(key));
+        return null != count && count > 0;
+    }
+
+    public void set(byte[] key, byte[] value) {
+        execute(CommandType.SET, new StatusOutput<>(CODEC), new CommandArgs<>(CODEC).addKey(key).addValue(value));
+    }
+
+    public void setex(byte[] key, long seconds, byte[] value) {
+        execute(CommandType.SETEX, new StatusOutput<>(CODEC),
+                new CommandArgs<>(CODEC).addKey(key).add(seconds).addValue(value));
+    }
+
+    public void hset(byte[] key, byte[] field, byte[] value) {
+        execute(CommandType.HSET, new IntegerOutput<>(CODEC),
+                new CommandArgs<>(CODEC).addKey(key).add(field).addValue(value));
+    }
+
+    public Boolean del(byte[] key) {
+        Long count = execute(CommandType.DEL, new IntegerOutput<>(CODEC), new CommandArgs<>(CODEC).addKey(key));
+        return null != count && count > 0;
+    }
+
+    public Boolean expire(byte[] key, long seconds) {
+        return execute(CommandType.EXPIRE, new BooleanOutput<>(CODEC),
+                new CommandArgs<>(CODEC).addKey(key).add(seconds));
+    }
+
+    /**
+     * 命令入队并等待结果
+     */
+    private <T> T execute(CommandType type, CommandOutput<byte[], byte[], T> output,
+                          CommandArgs<byte[], byte[]> args) {
+        AsyncCommand<byte[], byte[], T> command = new AsyncCommand<>(new Command<>(type, output, args));
+        queue.add(command);
+        queued.incrementAndGet();
+        commands.increment();
+        flush();
+        return LettuceFutures.awaitOrCancel(command, timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void flush() {
+        while (!queue.isEmpty() && flushing.compareAndSet(false, true)) {
+            try {
+                awaitWindow();
+                List<RedisCommand<byte[], byte[], ?>> batch = new ArrayList<>(Math.min(queued.get(), maxBatchSize));
+                RedisCommand<byte[], byte[], ?> command;
+                while (batch.size() < maxBatchSize && null != (command = queue.poll())) {
+                    batch.add(command);
+                }
+                queued.addAndGet(-batch.size());
+                if (!batch.isEmpty()) {
+                    dispatch(batch);
+                }
+            } finally {
+                flushing.set(false);
+            }
+        }
+    }
+
+    private void awaitWindow() {
+        if (windowNanos <= 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + windowNanos;
+        long remaining;
+        while (queued.get() < maxBatchSize && (remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(Math.min(remaining, MAX_PARK_NANOS));
+        }
+    }
+
+    private void dispatch(List<RedisCommand<byte[], byte[], ?>> batch) {
+        batches.increment();
+        try {
+            sharedConnection().dispatch(batch);
+        } catch (RuntimeException ex) {
+            for (RedisCommand<byte[], byte[], ?> command : batch) {
+                command.completeExceptionally(ex);
+            }
+        }
+    }
+
+    /**
+     * Spring Data Redis 在共享模式下，非 pipeline 的 RedisConnection 返回共享连接的异步命令接口；
+     * 连接关闭(如 Spring 重置共享连接)后重新获取
+     */
+    private StatefulConnection<byte[], byte[]> sharedConnection() {
+        StatefulConnection<byte[], byte[]> current = connection;
+        if (null == current || !current.isOpen()) {
+            current = (StatefulConnection<byte[], byte[]>) redisTemplate.execute((RedisConnection c) -> {
+                return ((RedisAsyncCommands<byte[], byte[]>) c.getNativeConnection()).getStatefulConnection();
+            });
+            connection = current;
+        }
+        return current;
+    }
+
+    /**
+     * @return 经过自动 pipeline 的命令数
+     */
+    public long getCommandCount() {
+        return commands.sum();
+    }
+
+    /**
+     * @return 写入网络的批次数，命令数 / 批次数 为平均每批合并的命令数
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+}
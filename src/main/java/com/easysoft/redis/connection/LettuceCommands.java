@@ -0,0 +1,214 @@
+package com.easysoft.redis.connection;
+
+import com.easysoft.redis.ScoredLongs;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.output.ByteArrayOutput;
+import io.lettuce.core.output.CommandOutput;
+import io.lettuce.core.output.IntegerOutput;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandKeyword;
+import io.lettuce.core.protocol.CommandType;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ValueEncoding;
+import org.springframework.data.redis.connection.ValueEncoding.RedisValueEncoding;
+import org.springframework.data.redis.connection.lettuce.LettuceConnection;
+import org.springframework.util.ClassUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过 Lettuce 连接直接发送命令。Spring Data Redis 按命令名决定回复的解析方式(如 SET 按状态回复解析为 String)，
+ * 这里统一按字节数组解析，用于 SET ... GET 等返回 value 的命令；或者直接解析为基本类型数组
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-27 11:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-27 11:00
+ */
+public final class LettuceCommands {
+
+    private static final boolean LETTUCE_PRESENT = ClassUtils.isPresent("io.lettuce.core.RedisClient",
+            LettuceCommands.class.getClassLoader());
+
+    private LettuceCommands() {
+    }
+
+    /**
+     * @param connection 未经代理的连接
+     * @param command    命令名
+     * @param args       第一个参数为key
+     * @return 回复的原始字节，非 Lettuce 连接时返回 {@link RedisConnection#execute(String, byte[]...)} 的结果
+     */
+    public static Object executeRaw(RedisConnection connection, String command, byte[]... args) {
+        if (LETTUCE_PRESENT && connection instanceof LettuceConnection) {
+            return ((LettuceConnection) connection).execute(command, new ByteArrayOutput<>(ByteArrayCodec.INSTANCE),
+                    args);
+        }
+        return connection.execute(command, args);
+    }
+
+    /**
+     * 执行返回 value 的命令，错误回复(如非字符串类型的key执行 GETRANGE 返回的 WRONGTYPE)视为 null。
+     * <p>
+     * Lettuce 连接的 pipeline 中任一命令返回错误时 closePipeline 只抛出异常、不返回其他命令的结果，
+     * 这里在解析回复时忽略错误，不影响同一个 pipeline 中的其他命令；其他连接的错误仍然抛出(pipeline 中由 closePipeline 抛出)
+     *
+     * @param connection 未经代理的连接
+     * @param command    命令名
+     * @param args       第一个参数为key
+     * @return 回复的原始字节，错误回复时为 null；pipeline 中返回 null，结果在 closePipeline 时返回
+     */
+    public static byte[] executeRawOrNull(RedisConnection connection, String command, byte[]... args) {
+        if (LETTUCE_PRESENT && connection instanceof LettuceConnection) {
+            return (byte[]) ((LettuceConnection) connection).execute(command, new ErrorAsNullOutput(), args);
+        }
+        return (byte[]) connection.execute(command, args);
+    }
+
+    /**
+     * 执行返回整数的命令，用于 Spring Data Redis 不认识的命令(如 SPUBLISH)，pipeline 中返回 null，结果在 closePipeline 时返回
+     *
+     * @param connection 未经代理的连接
+     * @param command    命令名
+     * @param args       第一个参数为key
+     * @return
+     */
+    public static Long executeInteger(RedisConnection connection, String command, byte[]... args) {
+        if (LETTUCE_PRESENT && connection instanceof LettuceConnection) {
+            return (Long) ((LettuceConnection) connection).execute(command,
+                    new IntegerOutput<>(ByteArrayCodec.INSTANCE), args);
+        }
+        return (Long) connection.execute(command, args);
+    }
+
+    /**
+     * 执行返回多条回复的命令，每个元素解析为整数
+     *
+     * @param connection 未经代理的连接
+     * @param command    命令名
+     * @param args       第一个参数为key
+     * @return
+     */
+    public static long[] executeLongs(RedisConnection connection, String command, byte[]... args) {
+        if (LETTUCE_PRESENT && connection instanceof LettuceConnection) {
+            LongArrayOutput output = new LongArrayOutput(false);
+            ((LettuceConnection) connection).execute(command, output, args);
+            output.checkValid();
+            return output.get();
+        }
+        List<byte[]> replies = replies(connection, command, args);
+        long[] members = new long[replies.size()];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = NumericReplies.parseLong(replies.get(i));
+        }
+        return members;
+    }
+
+    /**
+     * 执行带 WITHSCORES 的有序集合命令，member 解析为整数
+     *
+     * @param connection 未经代理的连接
+     * @param command    命令名
+     * @param args       第一个参数为key，需包含 WITHSCORES
+     * @return
+     */
+    public static ScoredLongs executeScoredLongs(RedisConnection connection, String command, byte[]... args) {
+        if (LETTUCE_PRESENT && connection instanceof LettuceConnection) {
+            LongArrayOutput output = new LongArrayOutput(true);
+            ((LettuceConnection) connection).execute(command, output, args);
+            output.checkValid();
+            return new ScoredLongs(output.get(), output.getScores());
+        }
+        List<byte[]> replies = replies(connection, command, args);
+        long[] members = new long[replies.size() / 2];
+        double[] scores = new double[members.length];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = NumericReplies.parseLong(replies.get(i * 2));
+            scores[i] = NumericReplies.parseDouble(replies.get(i * 2 + 1));
+        }
+        return new ScoredLongs(members, scores);
+    }
+
+    /**
+     * 对每个 key 执行 MEMORY USAGE、OBJECT ENCODING、PTTL，用于内存分析。
+     * <p>
+     * Lettuce 连接通过独占连接的异步命令一次性发送(不与业务命令共用连接)，集群模式下按 key 路由到所在节点；
+     * 其他连接逐个执行。
+     *
+     * @param connection 未经代理的连接
+     * @param rawKeys    序列化后的key
+     * @param timeout    等待回复的最长时间
+     * @return 第 i 个key的结果位于 [i * 3, i * 3 + 3)：占用字节数(Long)、编码(String)、剩余毫秒数(Long)，key 不存在时前两项为 null
+     */
+    public static List<Object> inspect(RedisConnection connection, List<byte[]> rawKeys, Duration timeout) {
+        List<Object> results = new ArrayList<>(rawKeys.size() * 3);
+        if (LETTUCE_PRESENT && connection instanceof LettuceConnection) {
+            // pipeline 模式下 native 连接为独占连接，命令不经过 Spring Data Redis 的 pipeline
+            connection.openPipeline();
+            try {
+                RedisClusterAsyncCommands<byte[], byte[]> commands =
+                        (RedisClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+                List<RedisFuture<?>> futures = new ArrayList<>(rawKeys.size() * 3);
+                for (byte[] rawKey : rawKeys) {
+                    // RedisAsyncCommands#memoryUsage 把 key 转为字符串发送，字节数组 key 需要直接构造参数
+                    CommandArgs<byte[], byte[]> args = new CommandArgs<>(ByteArrayCodec.INSTANCE)
+                            .add(CommandKeyword.USAGE).addKey(rawKey);
+                    futures.add(commands.dispatch(CommandType.MEMORY, new IntegerOutput<>(ByteArrayCodec.INSTANCE), args));
+                    futures.add(commands.objectEncoding(rawKey));
+                    futures.add(commands.pttl(rawKey));
+                }
+                for (RedisFuture<?> future : futures) {
+                    results.add(LettuceFutures.awaitOrCancel(future, timeout.toMillis(), TimeUnit.MILLISECONDS));
+                }
+            } finally {
+                connection.closePipeline();
+            }
+            return results;
+        }
+        byte[] usage = "USAGE".getBytes(StandardCharsets.US_ASCII);
+        for (byte[] rawKey : rawKeys) {
+            results.add(connection.execute("MEMORY", usage, rawKey));
+            ValueEncoding encoding = connection.encodingOf(rawKey);
+            results.add(null == encoding || RedisValueEncoding.VACANT == encoding ? null : encoding.raw());
+            results.add(connection.pTtl(rawKey));
+        }
+        return results;
+    }
+
+    /**
+     * 错误回复不记录为错误，命令正常完成并返回 null
+     */
+    private static final class ErrorAsNullOutput extends CommandOutput<byte[], byte[], byte[]> {
+
+        ErrorAsNullOutput() {
+            super(ByteArrayCodec.INSTANCE, null);
+        }
+
+        @Override
+        public void set(ByteBuffer bytes) {
+            output = null == bytes ? null : codec.decodeValue(bytes);
+        }
+
+        @Override
+        public void setError(ByteBuffer error) {
+            output = null;
+        }
+
+        @Override
+        public void setError(String error) {
+            output = null;
+        }
+    }
+
+    private static List<byte[]> replies(RedisConnection connection, String command, byte[]... args) {
+        return (List<byte[]>) connection.execute(command, args);
+    }
+}
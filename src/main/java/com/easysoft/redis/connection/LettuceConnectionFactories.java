@@ -0,0 +1,86 @@
+package com.easysoft.redis.connection;
+
+import io.lettuce.core.ReadFrom;
+import org.springframework.data.redis.connection.RedisConfiguration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+
+/**
+ * LettuceConnectionFactory 工具类
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-16 15:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-16 15:20
+ */
+public final class LettuceConnectionFactories {
+
+    private LettuceConnectionFactories() {
+    }
+
+    /**
+     * @param connectionFactory
+     * @return 单机模式为 host:port，集群和哨兵模式为 cluster、sentinel:master名称，非 Lettuce 连接工厂返回 null
+     */
+    public static String describe(RedisConnectionFactory connectionFactory) {
+        if (!(connectionFactory instanceof LettuceConnectionFactory)) {
+            return null;
+        }
+        LettuceConnectionFactory lettuceConnectionFactory = (LettuceConnectionFactory) connectionFactory;
+        if (null != lettuceConnectionFactory.getClusterConfiguration()) {
+            return "cluster";
+        }
+        if (null != lettuceConnectionFactory.getSentinelConfiguration()) {
+            return "sentinel:" + lettuceConnectionFactory.getSentinelConfiguration().getMaster().getName();
+        }
+        return lettuceConnectionFactory.getHostName() + ":" + lettuceConnectionFactory.getPort();
+    }
+
+    /**
+     * 基于已有连接工厂的节点及客户端配置创建一个使用指定读节点策略的新连接工厂，共享 ClientResources。
+     *
+     * @param source
+     * @param readFrom
+     * @return 单机模式下不支持读写分离，返回 null；返回的连接工厂已初始化，由调用方负责销毁
+     */
+    public static LettuceConnectionFactory withReadFrom(LettuceConnectionFactory source, ReadFrom readFrom) {
+        RedisConfiguration configuration;
+        if (source.isClusterAware()) {
+            configuration = source.getClusterConfiguration();
+        } else if (source.isRedisSentinelAware()) {
+            configuration = source.getSentinelConfiguration();
+        } else {
+            return null;
+        }
+        LettuceClientConfiguration sourceClient = source.getClientConfiguration();
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder builder;
+        if (sourceClient instanceof LettucePoolingClientConfiguration) {
+            builder = LettucePoolingClientConfiguration.builder()
+                    .poolConfig(((LettucePoolingClientConfiguration) sourceClient).getPoolConfig());
+        } else {
+            builder = LettuceClientConfiguration.builder();
+        }
+        if (sourceClient.isUseSsl()) {
+            LettuceClientConfiguration.LettuceSslClientConfigurationBuilder sslBuilder = builder.useSsl();
+            if (!sourceClient.isVerifyPeer()) {
+                sslBuilder.disablePeerVerification();
+            }
+            if (sourceClient.isStartTls()) {
+                sslBuilder.startTls();
+            }
+        }
+        sourceClient.getClientResources().ifPresent(builder::clientResources);
+        sourceClient.getClientOptions().ifPresent(builder::clientOptions);
+        sourceClient.getClientName().ifPresent(builder::clientName);
+        builder.readFrom(readFrom)
+                .commandTimeout(sourceClient.getCommandTimeout())
+                .shutdownTimeout(sourceClient.getShutdownTimeout())
+                .shutdownQuietPeriod(sourceClient.getShutdownQuietPeriod());
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(configuration, builder.build());
+        connectionFactory.setShareNativeConnection(source.getShareNativeConnection());
+        connectionFactory.afterPropertiesSet();
+        return connectionFactory;
+    }
+}
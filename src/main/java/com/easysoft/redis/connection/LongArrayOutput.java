@@ -0,0 +1,112 @@
+package com.easysoft.redis.connection;
+
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.output.CommandOutput;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 将多条回复(SMEMBERS、LRANGE、ZRANGE [WITHSCORES] 等)直接解析到基本类型数组。
+ * <p>
+ * Lettuce 每读到一个 bulk string 回调一次 {@link #set(ByteBuffer)}，这里在网络缓冲区上直接解析数字，
+ * 不会创建 byte[]、String 或装箱对象；数组容量按回复的元素个数一次分配。成员通过 {@link #get()} 获取，
+ * score 通过 {@link #getScores()} 获取。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-28 10:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-28 10:20
+ */
+public class LongArrayOutput extends CommandOutput<byte[], byte[], long[]> {
+
+    private static final long[] NO_MEMBERS = new long[0];
+
+    private static final double[] NO_SCORES = new double[0];
+
+    private final boolean withScores;
+
+    private long[] members = NO_MEMBERS;
+
+    private double[] scores = NO_SCORES;
+
+    private int size;
+
+    private boolean expectScore;
+
+    private NumberFormatException invalid;
+
+    /**
+     * @param withScores 回复是否为 member、score 交替排列
+     */
+    public LongArrayOutput(boolean withScores) {
+        super(ByteArrayCodec.INSTANCE, null);
+        this.withScores = withScores;
+    }
+
+    @Override
+    public void multi(int count) {
+        if (size == 0 && members.length == 0 && count > 0) {
+            int capacity = withScores ? count / 2 : count;
+            members = new long[capacity];
+            scores = withScores ? new double[capacity] : NO_SCORES;
+        }
+    }
+
+    @Override
+    public void set(ByteBuffer bytes) {
+        if (null == bytes) {
+            return;
+        }
+        try {
+            add(bytes);
+        } catch (NumberFormatException ex) {
+            // 回复需要完整读取，否则连接上的后续回复会错位，解析失败在读取完成后通过 checkValid 抛出
+            if (null == invalid) {
+                invalid = ex;
+            }
+            if (!expectScore) {
+                size++;
+            }
+            expectScore = withScores && !expectScore;
+        }
+    }
+
+    private void add(ByteBuffer bytes) {
+        if (expectScore) {
+            scores[size - 1] = NumericReplies.parseDouble(bytes);
+            expectScore = false;
+            return;
+        }
+        if (size == members.length) {
+            members = Arrays.copyOf(members, Math.max(8, size * 2));
+            if (withScores) {
+                scores = Arrays.copyOf(scores, members.length);
+            }
+        }
+        members[size] = NumericReplies.parseLong(bytes);
+        size++;
+        expectScore = withScores;
+    }
+
+    /**
+     * @throws NumberFormatException 回复中存在不能解析的元素
+     */
+    public void checkValid() {
+        if (null != invalid) {
+            throw invalid;
+        }
+    }
+
+    @Override
+    public long[] get() {
+        return size == members.length ? members : Arrays.copyOf(members, size);
+    }
+
+    /**
+     * @return 与 {@link #get()} 一一对应的 score，构造时 withScores 为 false 时返回空数组
+     */
+    public double[] getScores() {
+        return !withScores || size == scores.length ? scores : Arrays.copyOf(scores, size);
+    }
+}
@@ -0,0 +1,133 @@
+package com.easysoft.redis.connection;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 直接从回复的字节解析整数和浮点数，不创建中间 String。
+ * <p>
+ * 整数支持 Redis 原生格式和 JSON 序列化格式(可带双引号)；浮点数在有效数字不超过 15 位且没有指数时直接计算，
+ * 结果与 {@link Double#parseDouble(String)} 一致，其他情况(指数、inf 等)回退到 {@link Double#parseDouble(String)}。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-28 10:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-28 10:20
+ */
+public final class NumericReplies {
+
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private NumericReplies() {
+    }
+
+    public static long parseLong(byte[] bytes) {
+        return parseLong(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * 解析整数，不改变 buffer 的 position
+     *
+     * @param buffer
+     * @return
+     * @throws NumberFormatException 不是合法的 64 位整数
+     */
+    public static long parseLong(ByteBuffer buffer) {
+        int start = buffer.position();
+        int end = buffer.limit();
+        if (end - start >= 2 && buffer.get(start) == '"' && buffer.get(end - 1) == '"') {
+            start++;
+            end--;
+        }
+        if (start >= end) {
+            throw invalid(buffer, "long");
+        }
+        boolean negative = buffer.get(start) == '-';
+        int i = negative ? start + 1 : start;
+        if (i >= end) {
+            throw invalid(buffer, "long");
+        }
+        // 按负数累加，可以表示 Long.MIN_VALUE
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || result < (limit + digit) / 10) {
+                throw invalid(buffer, "long");
+            }
+            result = result * 10 - digit;
+        }
+        return negative ? result : -result;
+    }
+
+    public static double parseDouble(byte[] bytes) {
+        return parseDouble(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * 解析浮点数，不改变 buffer 的 position
+     *
+     * @param buffer
+     * @return
+     * @throws NumberFormatException 不是合法的浮点数
+     */
+    public static double parseDouble(ByteBuffer buffer) {
+        int start = buffer.position();
+        int end = buffer.limit();
+        boolean negative = start < end && buffer.get(start) == '-';
+        int i = negative ? start + 1 : start;
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9) {
+                return slowParseDouble(buffer);
+            }
+            mantissa = mantissa * 10 + digit;
+            if (mantissa > 0 && ++digits > 15 || mantissa >= MAX_EXACT_MANTISSA) {
+                return slowParseDouble(buffer);
+            }
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            }
+        }
+        if (i == (negative ? start + 1 : start) || fractionDigits >= POWERS_OF_TEN.length) {
+            return slowParseDouble(buffer);
+        }
+        // 尾数和 10 的幂都能精确表示为 double，一次除法的结果是正确舍入的
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private static double slowParseDouble(ByteBuffer buffer) {
+        String text = ascii(buffer);
+        switch (text) {
+            case "inf":
+            case "+inf":
+                return Double.POSITIVE_INFINITY;
+            case "-inf":
+                return Double.NEGATIVE_INFINITY;
+            default:
+                return Double.parseDouble(text);
+        }
+    }
+
+    private static NumberFormatException invalid(ByteBuffer buffer, String type) {
+        return new NumberFormatException("value is not a valid " + type + ": " + ascii(buffer));
+    }
+
+    private static String ascii(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
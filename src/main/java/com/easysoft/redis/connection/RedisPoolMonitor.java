@@ -0,0 +1,168 @@
+package com.easysoft.redis.connection;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 连接池使用率监控。
+ * <p>
+ * Lettuce 的连接池基于 commons-pool2，默认注册了 JMX MBean；starter 创建的连接池使用 {@link #JMX_NAME_PREFIX} 作为
+ * MBean 名称前缀，本类只定期读取这些 MBean(不包括同一 JVM 中其他组件的 commons-pool2 连接池)，
+ * 记录活跃连接数、等待线程数和借用等待时间，连接池耗尽(活跃数达到 maxActive 或有线程在等待)时打印告警，
+ * 并保留每个池的活跃连接峰值，作为调整 maxActive 的依据。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-14 11:05
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-14 11:05
+ */
+@Slf4j
+public class RedisPoolMonitor implements InitializingBean, DisposableBean {
+
+    /**
+     * starter 创建的 Redis 连接池的 JMX 名称前缀，见 GenericObjectPoolConfig#setJmxNamePrefix
+     */
+    public static final String JMX_NAME_PREFIX = "easysoft-redis-pool";
+
+    private static final String POOL_QUERY = "org.apache.commons.pool2:type=GenericObjectPool,name="
+            + JMX_NAME_PREFIX + "*";
+
+    private final Duration interval;
+
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+    private final Map<String, PoolStats> stats = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    public RedisPoolMonitor(Duration interval) {
+        this.interval = interval;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (null == interval || interval.isZero() || interval.isNegative()) {
+            return;
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("easysoft-redis-pool-monitor-");
+        threadFactory.setDaemon(true);
+        scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::sample, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (null != scheduler) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * @return 最近一次采样的各连接池状态
+     */
+    public List<PoolStats> getPoolStats() {
+        return Collections.unmodifiableList(new ArrayList<>(stats.values()));
+    }
+
+    /**
+     * 采样 starter 创建的所有连接池
+     */
+    public void sample() {
+        try {
+            Set<ObjectName> names = mBeanServer.queryNames(new ObjectName(POOL_QUERY), null);
+            stats.keySet().retainAll(names.stream().map(ObjectName::toString).collect(Collectors.toSet()));
+            for (ObjectName name : names) {
+                PoolStats current = read(name);
+                PoolStats previous = stats.get(current.getName());
+                current.setPeakActive(Math.max(current.getNumActive(),
+                        null == previous ? 0 : previous.getPeakActive()));
+                stats.put(current.getName(), current);
+                if (current.isSaturated()) {
+                    log.warn("redis connection pool {} is saturated: active={}, maxActive={}, waiters={}, "
+                                    + "maxBorrowWait={}ms, consider increasing spring.redis.lettuce.pool.max-active",
+                            current.getName(), current.getNumActive(), current.getMaxTotal(),
+                            current.getNumWaiters(), current.getMaxBorrowWaitTimeMillis());
+                }
+            }
+        } catch (Exception ex) {
+            log.warn("sample redis connection pool failed", ex);
+        }
+    }
+
+    private PoolStats read(ObjectName name) throws Exception {
+        PoolStats poolStats = new PoolStats();
+        poolStats.setName(name.toString());
+        poolStats.setNumActive(intAttribute(name, "NumActive"));
+        poolStats.setNumIdle(intAttribute(name, "NumIdle"));
+        poolStats.setNumWaiters(intAttribute(name, "NumWaiters"));
+        poolStats.setMaxTotal(intAttribute(name, "MaxTotal"));
+        poolStats.setBorrowedCount(((Number) mBeanServer.getAttribute(name, "BorrowedCount")).longValue());
+        poolStats.setMeanBorrowWaitTimeMillis(
+                ((Number) mBeanServer.getAttribute(name, "MeanBorrowWaitTimeMillis")).longValue());
+        poolStats.setMaxBorrowWaitTimeMillis(
+                ((Number) mBeanServer.getAttribute(name, "MaxBorrowWaitTimeMillis")).longValue());
+        return poolStats;
+    }
+
+    private int intAttribute(ObjectName name, String attribute) throws Exception {
+        return ((Number) mBeanServer.getAttribute(name, attribute)).intValue();
+    }
+
+    /**
+     * 单个连接池的状态
+     */
+    @Data
+    public static class PoolStats {
+
+        private String name;
+
+        private int numActive;
+
+        private int numIdle;
+
+        private int numWaiters;
+
+        private int maxTotal;
+
+        /**
+         * 监控开始以来的活跃连接峰值
+         */
+        private int peakActive;
+
+        private long borrowedCount;
+
+        private long meanBorrowWaitTimeMillis;
+
+        private long maxBorrowWaitTimeMillis;
+
+        /**
+         * @return 使用率，maxTotal 不限制时返回 0
+         */
+        public double getUtilization() {
+            return maxTotal > 0 ? (double) numActive / maxTotal : 0;
+        }
+
+        public boolean isSaturated() {
+            return numWaiters > 0 || maxTotal > 0 && numActive >= maxTotal;
+        }
+    }
+}
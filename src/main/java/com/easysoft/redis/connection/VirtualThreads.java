@@ -0,0 +1,91 @@
+package com.easysoft.redis.connection;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程(JDK 21)支持。starter 以 Java 8 编译，通过反射调用 Thread.ofVirtual()，低版本 JDK 上不可用
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-30 10:15
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-30 10:15
+ */
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL;
+
+    private static final Method NAME;
+
+    private static final Method FACTORY;
+
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (ReflectiveOperationException ex) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return 当前 JDK 是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return null != OF_VIRTUAL;
+    }
+
+    /**
+     * 创建虚拟线程工厂
+     *
+     * @param namePrefix 线程名前缀，后接自增序号
+     * @return
+     * @throws IllegalStateException 当前 JDK 不支持虚拟线程
+     */
+    public static ThreadFactory newThreadFactory(String namePrefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException("virtual threads require JDK 21 or later, current java.version="
+                    + System.getProperty("java.version"));
+        }
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix, 0L);
+            return (ThreadFactory) FACTORY.invoke(builder);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("create virtual thread factory failed", ex);
+        }
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的线程池
+     *
+     * @param namePrefix 线程名前缀
+     * @return
+     * @throws IllegalStateException 当前 JDK 不支持虚拟线程
+     */
+    public static ExecutorService newExecutor(String namePrefix) {
+        ThreadFactory threadFactory = newThreadFactory(namePrefix);
+        try {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("create virtual thread executor failed", ex);
+        }
+    }
+}
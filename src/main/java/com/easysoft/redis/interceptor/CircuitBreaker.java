@@ -0,0 +1,270 @@
+package com.easysoft.redis.interceptor;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于调用次数滑动窗口的熔断器。
+ * <p>
+ * 关闭状态下记录最近 windowSize 次调用的结果，调用数达到 minimumCalls 后失败率或慢调用率超过阈值即打开；
+ * 打开状态下直接拒绝调用，等待 waitDurationInOpenState 后进入半开状态，放行 permittedCallsInHalfOpenState 次探测，
+ * 探测结果未超过阈值则关闭，否则重新打开。
+ * <p>
+ * 关闭状态下调用结果无锁写入滑动窗口，只有状态转换和半开状态的探测计数加锁；
+ * 使用 ReentrantLock 而不是 synchronized，虚拟线程在竞争锁时不会占用载体线程。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-23 10:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-23 10:20
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    private static final int FAILED = 1;
+
+    private static final int SLOW = 2;
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+
+    private final int windowSize;
+
+    private final int minimumCalls;
+
+    private final int failureRateThreshold;
+
+    private final long slowCallNanos;
+
+    private final int slowCallRateThreshold;
+
+    private final long waitNanos;
+
+    private final int permittedHalfOpenCalls;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * 关闭状态的滑动窗口，每次进入关闭状态时替换，仍在执行的旧调用只会写入被替换的窗口
+     */
+    private volatile Window window;
+
+    /**
+     * 半开状态的计数，由 lock 保护
+     */
+    private int halfOpenCalls;
+
+    private int halfOpenFailures;
+
+    private int halfOpenSlowCalls;
+
+    private int halfOpenPermits;
+
+    private volatile State state = State.CLOSED;
+
+    private volatile long openedAt;
+
+    /**
+     * @param name                   名称，用于日志和异常
+     * @param windowSize             滑动窗口大小
+     * @param minimumCalls           计算失败率所需的最少调用数
+     * @param failureRateThreshold   失败率阈值(百分比)
+     * @param slowCallMillis         超过该耗时的调用记为慢调用
+     * @param slowCallRateThreshold  慢调用率阈值(百分比)
+     * @param waitMillis             打开状态持续时间
+     * @param permittedHalfOpenCalls 半开状态的探测次数
+     */
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRateThreshold,
+                          long slowCallMillis, int slowCallRateThreshold, long waitMillis,
+                          int permittedHalfOpenCalls) {
+        this.name = name;
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.waitNanos = TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        this.permittedHalfOpenCalls = Math.max(1, permittedHalfOpenCalls);
+        this.window = new Window(this.windowSize);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * 申请执行一次调用
+     *
+     * @return false 表示熔断器打开，调用应直接失败
+     */
+    public boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAt < waitNanos) {
+                    return false;
+                }
+                transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (halfOpenPermits <= 0) {
+                    return false;
+                }
+                halfOpenPermits--;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 记录一次已放行调用的结果，关闭状态下不加锁
+     *
+     * @param elapsedNanos 耗时
+     * @param failed       是否失败
+     */
+    public void onResult(long elapsedNanos, boolean failed) {
+        int outcome = (failed ? FAILED : 0) | (elapsedNanos >= slowCallNanos ? SLOW : 0);
+        State current = state;
+        if (current == State.OPEN) {
+            return;
+        }
+        if (current == State.CLOSED) {
+            Window closedWindow = window;
+            int calls = closedWindow.record(outcome);
+            if (calls >= minimumCalls
+                    && exceedsThreshold(closedWindow.failures.get(), closedWindow.slowCalls.get(), calls)) {
+                lock.lock();
+                try {
+                    if (state == State.CLOSED && window == closedWindow) {
+                        transitionTo(State.OPEN, calls, closedWindow.failures.get(), closedWindow.slowCalls.get());
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return;
+        }
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                recordHalfOpen(outcome);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordHalfOpen(int outcome) {
+        halfOpenCalls++;
+        if ((outcome & FAILED) != 0) {
+            halfOpenFailures++;
+        }
+        if ((outcome & SLOW) != 0) {
+            halfOpenSlowCalls++;
+        }
+        if (halfOpenCalls >= permittedHalfOpenCalls) {
+            boolean exceeds = exceedsThreshold(halfOpenFailures, halfOpenSlowCalls, halfOpenCalls);
+            transitionTo(exceeds ? State.OPEN : State.CLOSED, halfOpenCalls, halfOpenFailures, halfOpenSlowCalls);
+        }
+    }
+
+    /**
+     * 强制关闭并清空统计
+     */
+    public void reset() {
+        lock.lock();
+        try {
+            transitionTo(State.CLOSED);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean exceedsThreshold(int failures, int slowCalls, int calls) {
+        return failures * 100L >= (long) failureRateThreshold * calls
+                || slowCalls * 100L >= (long) slowCallRateThreshold * calls;
+    }
+
+    private void transitionTo(State next) {
+        transitionTo(next, 0, 0, 0);
+    }
+
+    private void transitionTo(State next, int calls, int failures, int slowCalls) {
+        if (state != next) {
+            if (next == State.OPEN) {
+                log.warn("redis circuit '{}' {} -> OPEN, calls={}, failures={}, slowCalls={}",
+                        name, state, calls, failures, slowCalls);
+            } else {
+                log.info("redis circuit '{}' {} -> {}", name, state, next);
+            }
+        }
+        if (next == State.CLOSED) {
+            window = new Window(windowSize);
+        }
+        halfOpenCalls = 0;
+        halfOpenFailures = 0;
+        halfOpenSlowCalls = 0;
+        halfOpenPermits = next == State.HALF_OPEN ? permittedHalfOpenCalls : 0;
+        if (next == State.OPEN) {
+            openedAt = System.nanoTime();
+        }
+        state = next;
+    }
+
+    /**
+     * 关闭状态的滑动窗口：环形数组保存最近 windowSize 次调用的结果，写入时用被覆盖的旧结果修正计数，
+     * 并发写入同一位置时 getAndSet 保证每个结果只被计入和扣除一次
+     */
+    private static final class Window {
+
+        private final AtomicIntegerArray outcomes;
+
+        private final AtomicLong sequence = new AtomicLong();
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private final AtomicInteger slowCalls = new AtomicInteger();
+
+        Window(int size) {
+            this.outcomes = new AtomicIntegerArray(size);
+        }
+
+        /**
+         * @param outcome
+         * @return 窗口内的调用数
+         */
+        int record(int outcome) {
+            long seq = sequence.getAndIncrement();
+            int previous = outcomes.getAndSet((int) (seq % outcomes.length()), outcome);
+            int failed = (outcome & FAILED) - (previous & FAILED);
+            if (failed != 0) {
+                failures.addAndGet(failed);
+            }
+            int slow = ((outcome & SLOW) - (previous & SLOW)) / SLOW;
+            if (slow != 0) {
+                slowCalls.addAndGet(slow);
+            }
+            return (int) Math.min(seq + 1, outcomes.length());
+        }
+    }
+}
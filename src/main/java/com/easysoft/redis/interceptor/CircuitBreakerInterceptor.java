@@ -0,0 +1,106 @@
+package com.easysoft.redis.interceptor;
+
+import com.easysoft.redis.RedisCircuitOpenException;
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisConnectionException;
+import org.springframework.core.Ordered;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 熔断拦截器，master 连接和从节点连接各使用一个熔断器；熔断器打开时命令直接抛出
+ * {@link RedisCircuitOpenException}，不再等待 Lettuce 超时。
+ * <p>
+ * 只有连接失败、超时及 Redis 暂不可用(LOADING、BUSY、MASTERDOWN、CLUSTERDOWN)记为失败，
+ * 配额、序列化、WRONGTYPE 等调用方错误与节点健康无关，按成功调用统计
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-23 10:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-23 10:20
+ */
+public class CircuitBreakerInterceptor implements RedisCommandInterceptor, Ordered {
+
+    /**
+     * 位于慢命令日志之内、其他拦截器之外
+     */
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 100;
+
+    private static final String[] UNAVAILABLE_ERRORS = {"LOADING", "BUSY", "MASTERDOWN", "CLUSTERDOWN"};
+
+    private final CircuitBreaker master;
+
+    private final CircuitBreaker replica;
+
+    public CircuitBreakerInterceptor(RedisProperties.CircuitBreaker config) {
+        this.master = create("master", config);
+        this.replica = create("replica", config);
+    }
+
+    private static CircuitBreaker create(String name, RedisProperties.CircuitBreaker config) {
+        return new CircuitBreaker(name, config.getWindowSize(), config.getMinimumCalls(),
+                config.getFailureRateThreshold(), config.getSlowCallDurationThreshold().toMillis(),
+                config.getSlowCallRateThreshold(), config.getWaitDurationInOpenState().toMillis(),
+                config.getPermittedCallsInHalfOpenState());
+    }
+
+    @Override
+    public Object intercept(RedisCommand command, RedisCommandChain chain) throws Exception {
+        CircuitBreaker breaker = command.isReplica() ? replica : master;
+        if (!breaker.tryAcquire()) {
+            throw new RedisCircuitOpenException(command, breaker.getName());
+        }
+        long begin = System.nanoTime();
+        boolean failed = false;
+        try {
+            return chain.proceed(command);
+        } catch (Exception ex) {
+            failed = isUnavailable(ex);
+            throw ex;
+        } finally {
+            breaker.onResult(System.nanoTime() - begin, failed);
+        }
+    }
+
+    /**
+     * 判断异常是否说明节点不可用：沿 cause 链查找连接失败、超时及 Redis 暂不可用的错误应答
+     *
+     * @param ex
+     * @return
+     */
+    public static boolean isUnavailable(Throwable ex) {
+        for (Throwable cause = ex; null != cause; cause = cause.getCause()) {
+            if (cause instanceof RedisConnectionFailureException || cause instanceof QueryTimeoutException
+                    || cause instanceof RedisConnectionException || cause instanceof RedisCommandTimeoutException
+                    || cause instanceof TimeoutException || cause instanceof IOException) {
+                return true;
+            }
+            if (cause instanceof RedisCommandExecutionException && null != cause.getMessage()) {
+                for (String error : UNAVAILABLE_ERRORS) {
+                    if (cause.getMessage().startsWith(error)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    public CircuitBreaker getMaster() {
+        return master;
+    }
+
+    public CircuitBreaker getReplica() {
+        return replica;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
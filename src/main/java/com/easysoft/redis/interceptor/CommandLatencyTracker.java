@@ -0,0 +1,226 @@
+package com.easysoft.redis.interceptor;
+
+import org.springframework.core.Ordered;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 按命令名统计耗时分布，并据此计算每类命令的超时时间：timeout = clamp(pXX × factor, min, max)。
+ * <p>
+ * 耗时记录在对数分桶的直方图中(每个2的幂次分8个桶，误差约12%)，记录过程无锁；
+ * 每个刷新周期由第一个记录耗时的线程重新计算超时时间并将计数减半，使统计结果跟随近期的延迟变化。
+ * 多key批量调用及多次往返组成的调用(SCAN 遍历、分片值读写)不代表单条命令的耗时，不记录。
+ * <p>
+ * 执行单条命令期间在当前线程记录命令名，{@link #currentTimeoutNanos(String)} 只对该命令发出的第一条同名 Lettuce 命令
+ * 返回超时；pipeline、批量调用、写入缓冲区刷新等其他命令使用连接的默认超时。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-24 09:40
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-24 09:40
+ */
+public class CommandLatencyTracker implements RedisCommandInterceptor, Ordered {
+
+    /**
+     * 位于熔断拦截器之内，记录每次实际发送命令的耗时
+     */
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 150;
+
+    private static final int SUB_BUCKETS = 8;
+
+    private static final int BUCKETS = 200;
+
+    private final double percentile;
+
+    private final double factor;
+
+    private final long minTimeoutNanos;
+
+    private final long maxTimeoutNanos;
+
+    private final long minSamples;
+
+    private final long refreshNanos;
+
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * 当前线程正在执行的单条命令，发出第一条同名 Lettuce 命令后清除
+     */
+    private final ThreadLocal<String> current = new ThreadLocal<>();
+
+    /**
+     * @param percentile    计算超时使用的百分位，如 99
+     * @param factor        超时 = 百分位耗时 × factor
+     * @param minTimeout    超时下限(毫秒)
+     * @param maxTimeout    超时上限(毫秒)
+     * @param minSamples    样本数达到该值后才计算超时
+     * @param refreshMillis 重新计算及衰减的周期
+     */
+    public CommandLatencyTracker(double percentile, double factor, long minTimeout, long maxTimeout,
+                                 long minSamples, long refreshMillis) {
+        this.percentile = percentile;
+        this.factor = factor;
+        this.minTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(minTimeout);
+        this.maxTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(maxTimeout);
+        this.minSamples = minSamples;
+        this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMillis);
+    }
+
+    @Override
+    public Object intercept(RedisCommand command, RedisCommandChain chain) throws Exception {
+        if (command.isMultiKey() || command.isCompound()) {
+            return chain.proceed(command);
+        }
+        String previous = current.get();
+        current.set(command.getName());
+        long begin = System.nanoTime();
+        try {
+            return chain.proceed(command);
+        } finally {
+            long end = System.nanoTime();
+            if (null == previous) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+            histogram(command.getName()).record(end - begin, end);
+        }
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param command      命令名
+     * @param elapsedNanos 耗时
+     */
+    public void record(String command, long elapsedNanos) {
+        histogram(command).record(elapsedNanos, System.nanoTime());
+    }
+
+    /**
+     * @param command 命令名(大写)
+     * @return 该命令当前的超时时间(纳秒)，样本不足时返回 -1
+     */
+    public long getTimeoutNanos(String command) {
+        Histogram histogram = histograms.get(command);
+        return null == histogram ? -1 : histogram.timeoutNanos;
+    }
+
+    /**
+     * 当前线程正在执行单条命令、且该命令尚未发出同名 Lettuce 命令时，返回该命令的超时时间
+     *
+     * @param commandType Lettuce 命令类型(大写)
+     * @return 超时时间(纳秒)，不是单条命令发出的命令或样本不足时返回 -1
+     */
+    public long currentTimeoutNanos(String commandType) {
+        if (!commandType.equals(current.get())) {
+            return -1;
+        }
+        current.set(null);
+        return getTimeoutNanos(commandType);
+    }
+
+    /**
+     * @param command    命令名(大写)
+     * @param percentile 百分位，如 95
+     * @return 该命令耗时的百分位值(纳秒)，样本不足时返回 -1
+     */
+    public long getLatencyNanos(String command, double percentile) {
+        Histogram histogram = histograms.get(command);
+        if (null == histogram || histogram.total.get() < minSamples) {
+            return -1;
+        }
+        return histogram.percentile(percentile);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private Histogram histogram(String command) {
+        Histogram histogram = histograms.get(command);
+        if (null == histogram) {
+            histogram = histograms.computeIfAbsent(command, c -> new Histogram(System.nanoTime() + refreshNanos));
+        }
+        return histogram;
+    }
+
+    static int bucket(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >> (exp - 3)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, (exp - 2) * SUB_BUCKETS + sub);
+    }
+
+    /**
+     * @param bucket
+     * @return 桶的上界(纳秒)
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return (bucket + 1) * 1000L;
+        }
+        int exp = bucket / SUB_BUCKETS + 2;
+        int sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + 1 + sub) << (exp - 3)) * 1000L;
+    }
+
+    private final class Histogram {
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+        private final AtomicLong total = new AtomicLong();
+
+        private final AtomicLong nextRefresh;
+
+        private volatile long timeoutNanos = -1;
+
+        private Histogram(long nextRefresh) {
+            this.nextRefresh = new AtomicLong(nextRefresh);
+        }
+
+        private void record(long elapsedNanos, long now) {
+            counts.incrementAndGet(bucket(elapsedNanos));
+            total.incrementAndGet();
+            long next = nextRefresh.get();
+            if (now - next >= 0 && nextRefresh.compareAndSet(next, now + refreshNanos)) {
+                refresh();
+            }
+        }
+
+        private void refresh() {
+            if (total.get() >= minSamples) {
+                long timeout = (long) (percentile(percentile) * factor);
+                timeoutNanos = Math.max(minTimeoutNanos, Math.min(maxTimeoutNanos, timeout));
+            }
+            long remaining = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                long halved = counts.get(i) >> 1;
+                counts.set(i, halved);
+                remaining += halved;
+            }
+            total.set(remaining);
+        }
+
+        private long percentile(double p) {
+            long threshold = (long) Math.ceil(total.get() * p / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= threshold) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(BUCKETS - 1);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.easysoft.redis.interceptor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对冲读：只读命令在延迟阈值内未返回时，向另一个连接(master/从节点)再发送一次，取先返回的结果。
+ * <p>
+ * 命令需要在线程池中执行才能在等待时发出第二个请求，因此只对配置的命令生效；线程池满时退化为直接执行。
+ * 延迟阈值优先使用 {@link CommandLatencyTracker} 统计的百分位耗时，样本不足时使用固定值。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-24 09:40
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-24 09:40
+ */
+@Slf4j
+public class HedgedReadInterceptor implements RedisCommandInterceptor, Ordered {
+
+    /**
+     * 位于熔断拦截器之外，两个请求分别经过各自连接的熔断器
+     */
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 50;
+
+    private final Set<String> commands;
+
+    private final long delayNanos;
+
+    private final double percentile;
+
+    private final CommandLatencyTracker latencyTracker;
+
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder hedged = new LongAdder();
+
+    private final LongAdder hedgeWins = new LongAdder();
+
+    /**
+     * @param commands       启用对冲的命令
+     * @param delayMillis    固定延迟阈值(毫秒)
+     * @param percentile     延迟阈值使用的耗时百分位
+     * @param maxConcurrency 同时执行的最大请求数
+     * @param latencyTracker 耗时统计，可以为 null
+     */
+    public HedgedReadInterceptor(Set<String> commands, long delayMillis, double percentile, int maxConcurrency,
+                                 CommandLatencyTracker latencyTracker) {
+        this.commands = new HashSet<>();
+        commands.forEach(command -> this.commands.add(command.toUpperCase()));
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        this.percentile = percentile;
+        this.latencyTracker = latencyTracker;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("easysoft-redis-hedge-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(0, Math.max(2, maxConcurrency), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory);
+    }
+
+    @Override
+    public Object intercept(RedisCommand command, RedisCommandChain chain) throws Exception {
+        if (!command.isHedgeable() || !commands.contains(command.getName())) {
+            return chain.proceed(command);
+        }
+        Race race = new Race(chain);
+        try {
+            executor.execute(() -> race.run(command));
+        } catch (RejectedExecutionException ex) {
+            return chain.proceed(command);
+        }
+        try {
+            return race.result.get(hedgeDelay(command), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            hedge(race, command.hedgeCommand());
+        } catch (ExecutionException ex) {
+            throw unwrap(ex);
+        }
+        try {
+            return race.result.get();
+        } catch (ExecutionException ex) {
+            throw unwrap(ex);
+        }
+    }
+
+    private void hedge(Race race, RedisCommand hedgeCommand) {
+        if (!race.addAttempt()) {
+            return;
+        }
+        hedged.increment();
+        try {
+            executor.execute(() -> {
+                if (race.run(hedgeCommand)) {
+                    hedgeWins.increment();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            race.fail(ex);
+        }
+    }
+
+    private long hedgeDelay(RedisCommand command) {
+        if (null != latencyTracker) {
+            long latency = latencyTracker.getLatencyNanos(command.getName(), percentile);
+            if (latency > 0) {
+                return latency;
+            }
+        }
+        return delayNanos;
+    }
+
+    private static Exception unwrap(ExecutionException ex) {
+        Throwable cause = ex.getCause();
+        if (cause instanceof Exception) {
+            return (Exception) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return ex;
+    }
+
+    /**
+     * @return 发出的对冲请求数
+     */
+    public long getHedgedCount() {
+        return hedged.sum();
+    }
+
+    /**
+     * @return 对冲请求先于原请求返回的次数，在命令返回后才累加
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.sum();
+    }
+
+    /**
+     * 关闭线程池
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    /**
+     * 同一命令的多个请求，第一个成功的结果作为命令结果，全部失败时返回最后一个异常
+     */
+    private static final class Race {
+
+        private final RedisCommandChain chain;
+
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private final AtomicInteger pending = new AtomicInteger(1);
+
+        private Race(RedisCommandChain chain) {
+            this.chain = chain;
+        }
+
+        /**
+         * @return 是否先于其他请求返回
+         */
+        private boolean run(RedisCommand command) {
+            try {
+                return result.complete(chain.proceed(command));
+            } catch (Throwable ex) {
+                fail(ex);
+                return false;
+            }
+        }
+
+        private void fail(Throwable ex) {
+            if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(ex);
+            }
+        }
+
+        /**
+         * @return false 表示所有请求都已失败
+         */
+        private boolean addAttempt() {
+            int current;
+            do {
+                current = pending.get();
+                if (current == 0 || result.isDone()) {
+                    return false;
+                }
+            } while (!pending.compareAndSet(current, current + 1));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.easysoft.redis.interceptor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * 一次 IRedisOperater 命令调用，拦截器通过它获取命令名及key
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-22 14:10
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-22 14:10
+ */
+public final class RedisCommand {
+
+    private final String name;
+
+    private final String key;
+
+    private final String fullKey;
+
+    private final List<String> keys;
+
+    private final boolean read;
+
+    private final boolean replica;
+
+    private final Callable<Object> target;
+
+    /**
+     * 在另一个连接上执行同一命令的回调，用于对冲读
+     */
+    private Callable<Object> hedge;
+
+    /**
+     * 是否由多次往返组成
+     */
+    private boolean compound;
+
+    /**
+     * 发出命令的 IRedisOperater 的 namespace
+     */
+    private String namespace = "";
+
+    /**
+     * 命令发往的 Redis 节点描述
+     */
+    private String node;
+
+    /**
+     * @param name    Redis 命令名(大写)，如 GET、HGETALL
+     * @param key     不含namespace的key
+     * @param fullKey 添加namespace后的key
+     * @param read    是否只读命令
+     * @param target  实际执行命令的回调
+     */
+    public RedisCommand(String name, String key, String fullKey, boolean read, Callable<Object> target) {
+        this(name, key, fullKey, null, read, false, target);
+    }
+
+    /**
+     * @param name    Redis 命令名(大写)
+     * @param key     不含namespace的key
+     * @param fullKey 添加namespace后的key
+     * @param read    是否只读命令
+     * @param replica 是否发往从节点连接
+     * @param target  实际执行命令的回调
+     */
+    public RedisCommand(String name, String key, String fullKey, boolean read, boolean replica,
+                        Callable<Object> target) {
+        this(name, key, fullKey, null, read, replica, target);
+    }
+
+    private RedisCommand(String name, String key, String fullKey, List<String> keys, boolean read,
+                         boolean replica, Callable<Object> target) {
+        this.name = name;
+        this.key = key;
+        this.fullKey = fullKey;
+        this.keys = keys;
+        this.read = read;
+        this.replica = replica;
+        this.target = target;
+    }
+
+    /**
+     * 多key命令
+     *
+     * @param name   Redis 命令名(大写)
+     * @param keys   不含namespace的key
+     * @param read   是否只读命令
+     * @param target 实际执行命令的回调
+     * @return
+     */
+    public static RedisCommand multiKey(String name, List<String> keys, boolean read, Callable<Object> target) {
+        return new RedisCommand(name, null, null, keys, read, false, target);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 不含namespace的key，多key命令返回 null
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return 添加namespace后的key，多key命令返回 null
+     */
+    public String getFullKey() {
+        return fullKey;
+    }
+
+    /**
+     * @return 不含namespace的所有key
+     */
+    public List<String> getKeys() {
+        if (null != keys) {
+            return keys;
+        }
+        return null == key ? Collections.emptyList() : Collections.singletonList(key);
+    }
+
+    public boolean isMultiKey() {
+        return null != keys;
+    }
+
+    public boolean isRead() {
+        return read;
+    }
+
+    /**
+     * @return 是否按读路由发往从节点连接
+     */
+    public boolean isReplica() {
+        return replica;
+    }
+
+    /**
+     * 标记为多次往返组成的调用(SCAN 遍历、分片值读写等)，其耗时不代表单条命令的耗时
+     *
+     * @return this
+     */
+    public RedisCommand compound() {
+        this.compound = true;
+        return this;
+    }
+
+    /**
+     * @return 是否由多次往返组成
+     */
+    public boolean isCompound() {
+        return compound;
+    }
+
+    /**
+     * 设置发出命令的实例信息，由 IRedisOperater 在进入调用链前设置；同一个拦截器可能被多个实例及 namespace 视图共用，
+     * 应从命令而不是拦截器的配置中读取这些信息
+     *
+     * @param namespace 发出命令的 IRedisOperater 的 namespace，如 redis.tenant1.
+     * @param node      Redis 节点描述，如 host:port，未知时为 null
+     * @return this
+     */
+    public RedisCommand source(String namespace, String node) {
+        this.namespace = null == namespace ? "" : namespace;
+        this.node = node;
+        return this;
+    }
+
+    /**
+     * @return 发出命令的 IRedisOperater 的 namespace，未启用时为空字符串
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * @return Redis 节点描述，如 host:port、cluster，未知时为 null
+     */
+    public String getNode() {
+        return node;
+    }
+
+    /**
+     * 设置在另一个连接(master/从节点)上执行同一命令的回调，只应用于只读命令
+     *
+     * @param hedge
+     * @return this
+     */
+    public RedisCommand hedgeWith(Callable<Object> hedge) {
+        this.hedge = hedge;
+        return this;
+    }
+
+    /**
+     * @return 是否可以对冲读
+     */
+    public boolean isHedgeable() {
+        return null != hedge;
+    }
+
+    /**
+     * @return 在另一个连接上执行的同一命令，不可对冲时返回 null
+     */
+    public RedisCommand hedgeCommand() {
+        if (null == hedge) {
+            return null;
+        }
+        RedisCommand command = new RedisCommand(name, key, fullKey, null, read, !replica, hedge);
+        command.compound = compound;
+        command.namespace = namespace;
+        command.node = node;
+        return command;
+    }
+
+    /**
+     * 执行命令本身，只由调用链末端调用；拦截器应调用 {@link RedisCommandChain#proceed(RedisCommand)}
+     *
+     * @return 命令结果
+     * @throws Exception
+     */
+    public Object execute() throws Exception {
+        return target.call();
+    }
+
+    @Override
+    public String toString() {
+        return null != keys ? name + " " + keys.size() + " keys" : name + " " + fullKey;
+    }
+}
@@ -0,0 +1,50 @@
+package com.easysoft.redis.interceptor;
+
+import java.util.List;
+
+/**
+ * 拦截器调用链，启动时一次性组装，命令执行时不再遍历拦截器列表
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-22 14:10
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-22 14:10
+ */
+@FunctionalInterface
+public interface RedisCommandChain {
+
+    /**
+     * 只执行命令本身的调用链
+     */
+    RedisCommandChain TERMINAL = RedisCommand::execute;
+
+    /**
+     * 调用后续拦截器及命令本身
+     *
+     * @param command
+     * @return 命令结果
+     * @throws Exception
+     */
+    Object proceed(RedisCommand command) throws Exception;
+
+    /**
+     * 按顺序组装拦截器，第一个拦截器在最外层；未启用的拦截器不进入调用链
+     *
+     * @param interceptors
+     * @return 没有启用的拦截器时直接返回 {@link #TERMINAL}
+     */
+    static RedisCommandChain compose(List<? extends RedisCommandInterceptor> interceptors) {
+        RedisCommandChain chain = TERMINAL;
+        if (null == interceptors) {
+            return chain;
+        }
+        for (int i = interceptors.size() - 1; i >= 0; i--) {
+            RedisCommandInterceptor interceptor = interceptors.get(i);
+            if (interceptor.isEnabled()) {
+                RedisCommandChain next = chain;
+                chain = command -> interceptor.intercept(command, next);
+            }
+        }
+        return chain;
+    }
+}
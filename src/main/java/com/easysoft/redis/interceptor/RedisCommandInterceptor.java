@@ -0,0 +1,35 @@
+package com.easysoft.redis.interceptor;
+
+/**
+ * IRedisOperater 命令拦截器，用于耗时统计、链路追踪、熔断等横切逻辑。
+ * <p>
+ * 容器中的拦截器按 {@link org.springframework.core.annotation.Order}/{@link org.springframework.core.Ordered}
+ * 排序后组装为调用链，顺序靠前的在外层。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-22 14:10
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-22 14:10
+ */
+@FunctionalInterface
+public interface RedisCommandInterceptor {
+
+    /**
+     * 拦截命令，调用 chain.proceed 继续执行，返回值为命令结果
+     *
+     * @param command 命令信息
+     * @param chain   后续调用链
+     * @return 命令结果
+     * @throws Exception
+     */
+    Object intercept(RedisCommand command, RedisCommandChain chain) throws Exception;
+
+    /**
+     * 组装调用链时调用一次，返回 false 的拦截器不进入调用链
+     *
+     * @return
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+}
@@ -0,0 +1,60 @@
+package com.easysoft.redis.interceptor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 慢命令日志，耗时超过 easysoft.redis.slow-log-slower-than 毫秒的命令打印告警
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-22 14:10
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-22 14:10
+ */
+@Slf4j
+public class SlowLogInterceptor implements RedisCommandInterceptor, Ordered {
+
+    private final long slowerThanNanos;
+
+    /**
+     * @param slowerThanMillis 小于等于0时不启用
+     */
+    public SlowLogInterceptor(long slowerThanMillis) {
+        this.slowerThanNanos = TimeUnit.MILLISECONDS.toNanos(slowerThanMillis);
+    }
+
+    @Override
+    public Object intercept(RedisCommand command, RedisCommandChain chain) throws Exception {
+        long begin = System.nanoTime();
+        try {
+            return chain.proceed(command);
+        } finally {
+            long elapsed = System.nanoTime() - begin;
+            if (elapsed > slowerThanNanos) {
+                long useTime = TimeUnit.NANOSECONDS.toMillis(elapsed);
+                if (command.isMultiKey()) {
+                    log.warn("execute redis batch command {} for {} keys use time {}ms", command.getName(),
+                            command.getKeys().size(), useTime);
+                } else {
+                    log.warn("execute redis command {} for key '{}' use time {}ms", command.getName(),
+                            command.getFullKey(), useTime);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return slowerThanNanos > 0;
+    }
+
+    /**
+     * 位于调用链最外层，统计包含其他拦截器在内的完整耗时
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
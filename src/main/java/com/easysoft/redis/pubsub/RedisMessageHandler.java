@@ -0,0 +1,22 @@
+package com.easysoft.redis.pubsub;
+
+/**
+ * 订阅消息处理器，在订阅线程池中执行
+ *
+ * @param <T> 消息类型，与发布时的对象类型一致
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-01 10:10
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-01 10:10
+ */
+@FunctionalInterface
+public interface RedisMessageHandler<T> {
+
+    /**
+     * 处理消息
+     *
+     * @param channel 不含namespace的频道名
+     * @param message 反序列化后的消息
+     */
+    void onMessage(String channel, T message);
+}
@@ -0,0 +1,154 @@
+package com.easysoft.redis.pubsub;
+
+import com.easysoft.redis.RedisOperater;
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+
+/**
+ * 频道订阅。
+ * <p>
+ * 频道名和模式自动添加 namespace，与 {@link com.easysoft.redis.IRedisOperater#publish(String, Object)} 一致；
+ * 消息使用 RedisTemplate 的 value 序列化器反序列化。所有订阅共用一个 {@link RedisMessageListenerContainer}
+ * (一个订阅连接)，消息在 executor 中分发，未指定 executor 时使用 listener-threads 个线程的线程池。
+ * <p>
+ * 只支持 SUBSCRIBE/PSUBSCRIBE，集群模式下同时开启分片发布(pub-sub.sharded)时启动失败。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-01 10:10
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-01 10:10
+ */
+@Slf4j
+public class RedisSubscriber implements InitializingBean, DisposableBean {
+
+    private final RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+
+    private final RedisConnectionFactory connectionFactory;
+
+    private final String namespace;
+
+    private final RedisSerializer valueSerializer;
+
+    private final RedisProperties.PubSub config;
+
+    private final Executor executor;
+
+    /**
+     * 未指定 executor 时创建的线程池，销毁时关闭
+     */
+    private ThreadPoolTaskExecutor ownedExecutor;
+
+    /**
+     * @param connectionFactory
+     * @param namespace         频道名前缀，如 "app."
+     * @param valueSerializer
+     * @param config
+     * @param executor          消息分发线程池，为 null 时创建 listener-threads 个线程的线程池
+     */
+    public RedisSubscriber(RedisConnectionFactory connectionFactory, String namespace,
+                           RedisSerializer valueSerializer, RedisProperties.PubSub config, Executor executor) {
+        this.connectionFactory = connectionFactory;
+        this.namespace = null == namespace ? "" : namespace;
+        this.valueSerializer = valueSerializer;
+        this.config = config;
+        this.executor = executor;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (config.isSharded() && connectionFactory instanceof LettuceConnectionFactory
+                && ((LettuceConnectionFactory) connectionFactory).isClusterAware()) {
+            // 集群模式下发布使用 SPUBLISH，SUBSCRIBE/PSUBSCRIBE 收不到分片消息
+            throw new IllegalStateException("RedisSubscriber does not support SSUBSCRIBE, disable "
+                    + "easysoft.redis.pub-sub.sharded or easysoft.redis.pub-sub.enabled in cluster mode");
+        }
+        Executor taskExecutor = executor;
+        if (null == taskExecutor) {
+            ownedExecutor = new ThreadPoolTaskExecutor();
+            ownedExecutor.setCorePoolSize(Math.max(1, config.getListenerThreads()));
+            ownedExecutor.setMaxPoolSize(Math.max(1, config.getListenerThreads()));
+            ownedExecutor.setThreadNamePrefix("easysoft-redis-listener-");
+            ownedExecutor.setDaemon(true);
+            ownedExecutor.initialize();
+            taskExecutor = ownedExecutor;
+        }
+        container.setConnectionFactory(connectionFactory);
+        container.setTaskExecutor(taskExecutor);
+        container.afterPropertiesSet();
+        container.start();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        container.destroy();
+        if (null != ownedExecutor) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    /**
+     * 订阅频道
+     *
+     * @param channel 不含namespace的频道名
+     * @param handler
+     * @param <T>
+     * @return 用于取消订阅
+     */
+    public <T> Subscription subscribe(String channel, RedisMessageHandler<T> handler) {
+        return add(new ChannelTopic(namespace + channel), handler);
+    }
+
+    /**
+     * 按模式订阅频道，namespace 中的通配符会被转义
+     *
+     * @param pattern 不含namespace的频道模式，如 order.*
+     * @param handler
+     * @param <T>
+     * @return 用于取消订阅
+     */
+    public <T> Subscription psubscribe(String pattern, RedisMessageHandler<T> handler) {
+        return add(new PatternTopic(RedisOperater.escapeGlob(namespace) + pattern), handler);
+    }
+
+    private <T> Subscription add(Topic topic, RedisMessageHandler<T> handler) {
+        MessageListener listener = (message, pattern) -> {
+            String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+            if (channel.startsWith(namespace)) {
+                channel = channel.substring(namespace.length());
+            }
+            try {
+                handler.onMessage(channel, (T) valueSerializer.deserialize(message.getBody()));
+            } catch (Exception ex) {
+                log.error("handle redis message on channel {} failed", channel, ex);
+            }
+        };
+        container.addMessageListener(listener, topic);
+        return () -> container.removeMessageListener(listener, topic);
+    }
+
+    /**
+     * 一个订阅
+     */
+    @FunctionalInterface
+    public interface Subscription {
+
+        /**
+         * 取消订阅
+         */
+        void unsubscribe();
+    }
+}
@@ -0,0 +1,152 @@
+package com.easysoft.redis.tracing;
+
+import com.easysoft.redis.interceptor.RedisCommand;
+import com.easysoft.redis.interceptor.RedisCommandChain;
+import com.easysoft.redis.interceptor.RedisCommandInterceptor;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import org.springframework.core.Ordered;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 为每个 IRedisOperater 命令创建 OpenTelemetry span，多key命令(pipeline)只创建一个 span 并记录命令数。
+ * namespace 及节点从命令中读取，同一个拦截器可以被多个实例及 namespace 视图共用。
+ * <p>
+ * 为控制基数，span 只记录key前缀(第一个分隔符之前的部分，没有分隔符时记为 {@value #NO_PREFIX})而不记录完整key；
+ * 默认只在当前存在已采样的 span 时创建子 span，未采样的请求不产生任何对象。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-25 15:30
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-25 15:30
+ */
+public class OpenTelemetryTracingInterceptor implements RedisCommandInterceptor, Ordered {
+
+    /**
+     * 位于慢命令日志之内，span 包含对冲、熔断等拦截器的耗时
+     */
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 10;
+
+    static final AttributeKey<String> DB_SYSTEM = AttributeKey.stringKey("db.system");
+
+    static final AttributeKey<String> DB_OPERATION = AttributeKey.stringKey("db.operation");
+
+    static final AttributeKey<String> NET_PEER_NAME = AttributeKey.stringKey("net.peer.name");
+
+    static final AttributeKey<String> NAMESPACE = AttributeKey.stringKey("db.redis.namespace");
+
+    static final AttributeKey<String> KEY_PREFIX = AttributeKey.stringKey("db.redis.key_prefix");
+
+    static final AttributeKey<String> ROLE = AttributeKey.stringKey("db.redis.role");
+
+    static final AttributeKey<Long> COMMAND_COUNT = AttributeKey.longKey("db.redis.command_count");
+
+    static final AttributeKey<Long> RESULT_SIZE = AttributeKey.longKey("db.redis.result_size");
+
+    /**
+     * key 中没有分隔符时记录的前缀，避免把完整key写入 span
+     */
+    static final String NO_PREFIX = "(none)";
+
+    private final Tracer tracer;
+
+    private final String keySeparator;
+
+    private final boolean requireParent;
+
+    /**
+     * @param tracer
+     * @param keySeparator  key前缀分隔符
+     * @param requireParent 是否只在存在已采样的父 span 时创建 span
+     */
+    public OpenTelemetryTracingInterceptor(Tracer tracer, String keySeparator, boolean requireParent) {
+        this.tracer = tracer;
+        this.keySeparator = keySeparator;
+        this.requireParent = requireParent;
+    }
+
+    @Override
+    public Object intercept(RedisCommand command, RedisCommandChain chain) throws Exception {
+        if (requireParent && !Span.current().getSpanContext().isSampled()) {
+            return chain.proceed(command);
+        }
+        SpanBuilder builder = tracer.spanBuilder(command.getName())
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute(DB_SYSTEM, "redis")
+                .setAttribute(DB_OPERATION, command.getName())
+                .setAttribute(NAMESPACE, namespaceOf(command))
+                .setAttribute(ROLE, command.isReplica() ? "replica" : "master");
+        if (null != command.getNode()) {
+            builder.setAttribute(NET_PEER_NAME, command.getNode());
+        }
+        if (command.isMultiKey()) {
+            builder.setAttribute(COMMAND_COUNT, (long) command.getKeys().size());
+        } else if (null != command.getKey()) {
+            builder.setAttribute(KEY_PREFIX, keyPrefix(command.getKey()));
+        }
+        Span span = builder.startSpan();
+        try {
+            Object result = chain.proceed(command);
+            long size = sizeOf(result);
+            if (size >= 0) {
+                span.setAttribute(RESULT_SIZE, size);
+            }
+            return result;
+        } catch (Exception ex) {
+            span.recordException(ex);
+            span.setStatus(StatusCode.ERROR);
+            throw ex;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * @param command
+     * @return 发出命令的实例的 namespace，不含末尾的分隔点
+     */
+    static String namespaceOf(RedisCommand command) {
+        String namespace = command.getNamespace();
+        return namespace.endsWith(".") ? namespace.substring(0, namespace.length() - 1) : namespace;
+    }
+
+    /**
+     * @param key 不含namespace的key
+     * @return 第一个分隔符之前的部分，没有分隔符时返回 {@link #NO_PREFIX}
+     */
+    String keyPrefix(String key) {
+        int index = key.indexOf(keySeparator);
+        return index < 0 ? NO_PREFIX : key.substring(0, index);
+    }
+
+    /**
+     * @param result 命令结果
+     * @return 字符串长度、字节数组长度或集合元素数，其他类型返回 -1
+     */
+    static long sizeOf(Object result) {
+        if (result instanceof String) {
+            return ((String) result).length();
+        }
+        if (result instanceof byte[]) {
+            return ((byte[]) result).length;
+        }
+        if (result instanceof Collection) {
+            return ((Collection) result).size();
+        }
+        if (result instanceof Map) {
+            return ((Map) result).size();
+        }
+        return -1;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
@@ -0,0 +1,156 @@
+package com.easysoft;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.RedisOperationException;
+import com.easysoft.redis.embedded.EmbeddedRedisServer;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Slf4j
+public class EmbeddedRedisServerTest {
+
+    @Autowired
+    private EmbeddedRedisServer embeddedRedisServer;
+
+    @Autowired
+    private IRedisOperater redisOperater;
+
+    @Autowired
+    private RedisTemplate<String, Serializable> redisTemplate;
+
+    @After
+    public void clearFaults() {
+        embeddedRedisServer.clearFaults();
+    }
+
+    @Test
+    public void latency() {
+        embeddedRedisServer.setLatency("GET", Duration.ofMillis(100));
+        long start = System.nanoTime();
+        redisOperater.get("embedded::latency");
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void failNext() {
+        redisOperater.set("embedded::fault", "zyp");
+        embeddedRedisServer.failNext("GET", 1);
+        try {
+            redisOperater.get("embedded::fault");
+            Assert.fail();
+        } catch (RedisOperationException ex) {
+            Assert.assertEquals("GET", ex.getCommand());
+            log.info("injected fault: {}", ex.getMessage());
+        }
+        Assert.assertEquals("zyp", redisOperater.get("embedded::fault"));
+    }
+
+    @Test
+    public void dropNext() {
+        embeddedRedisServer.dropNext("EXISTS", 1);
+        try {
+            redisOperater.exists("embedded::drop");
+        } catch (RuntimeException ex) {
+            log.info("connection dropped: {}", ex.getMessage());
+        }
+        Assert.assertFalse(redisOperater.exists("embedded::drop"));
+    }
+
+    @Test
+    public void commandCount() {
+        embeddedRedisServer.resetStats();
+        redisOperater.hgetAllMulti(Arrays.asList("embedded::user1", "embedded::user2"));
+        Assert.assertEquals(2, embeddedRedisServer.getCommandCount("HGETALL"));
+    }
+
+    @Test
+    public void pubSub() throws Exception {
+        RedisClient client = RedisClient.create(RedisURI.create(embeddedRedisServer.getHost(),
+                embeddedRedisServer.getPort()));
+        try {
+            StatefulRedisPubSubConnection<String, String> connection = client.connectPubSub();
+            BlockingQueue<String> messages = new ArrayBlockingQueue<>(10);
+            connection.addListener(new RedisPubSubAdapter<String, String>() {
+                @Override
+                public void message(String pattern, String channel, String message) {
+                    messages.add(channel + ":" + message);
+                }
+            });
+            connection.sync().psubscribe("news.*");
+            redisTemplate.getConnectionFactory().getConnection().publish(
+                    "news.sport".getBytes(StandardCharsets.UTF_8), "goal".getBytes(StandardCharsets.UTF_8));
+            Assert.assertEquals("news.sport:goal", messages.poll(5, TimeUnit.SECONDS));
+            connection.close();
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void resp3() throws Exception {
+        embeddedRedisServer.call("HSET", "embedded::resp3", "name", "zyp");
+        try (Socket socket = new Socket(embeddedRedisServer.getHost(), embeddedRedisServer.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write("HELLO 3\r\nHGETALL embedded::resp3\r\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            String reply = read(in, "$3\r\nzyp\r\n");
+            Assert.assertTrue(reply.startsWith("%7\r\n"));
+            Assert.assertTrue(reply.endsWith("%1\r\n$4\r\nname\r\n$3\r\nzyp\r\n"));
+        }
+    }
+
+    @Test
+    public void scriptStub() {
+        String script = "return redis.call('INCRBY', KEYS[1], ARGV[1])";
+        embeddedRedisServer.registerScript(script, (keys, args) -> embeddedRedisServer.call("INCRBY",
+                new String(keys.get(0), StandardCharsets.UTF_8), new String(args.get(0), StandardCharsets.UTF_8)));
+        Object result = embeddedRedisServer.call("EVAL", script, "1", "embedded::counter", "5");
+        Assert.assertEquals(5L, result);
+    }
+
+    @Test
+    public void scan() {
+        embeddedRedisServer.call("MSET", "embedded::scan1", "1", "embedded::scan2", "2", "other", "3");
+        List<Object> reply = (List<Object>) embeddedRedisServer.call("SCAN", "0", "MATCH", "embedded::scan*",
+                "COUNT", "1000");
+        Assert.assertEquals(2, ((List<Object>) reply.get(1)).size());
+    }
+
+    private static String read(InputStream in, String suffix) throws Exception {
+        StringBuilder reply = new StringBuilder();
+        while (!reply.toString().endsWith(suffix)) {
+            int b = in.read();
+            if (b < 0) {
+                break;
+            }
+            reply.append((char) b);
+        }
+        return reply.toString();
+    }
+}
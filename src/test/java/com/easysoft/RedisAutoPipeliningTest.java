@@ -0,0 +1,85 @@
+package com.easysoft;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.RedisOperater;
+import com.easysoft.redis.connection.AutoPipeliner;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "easysoft.redis.auto-pipelining.enabled=true",
+        "easysoft.redis.auto-pipelining.max-batch-size=16",
+        "easysoft.redis.auto-pipelining.window=2ms"})
+@Slf4j
+public class RedisAutoPipeliningTest {
+
+    @Autowired
+    private IRedisOperater redisOperater;
+
+    @Test
+    public void commands() {
+        Assert.assertNotNull(((RedisOperater) redisOperater).getAutoPipeliner());
+        redisOperater.set("auto::user", "zyp");
+        Assert.assertEquals("zyp", redisOperater.get("auto::user"));
+        Assert.assertTrue(redisOperater.exists("auto::user"));
+        Assert.assertTrue(redisOperater.expire("auto::user", 600));
+        Assert.assertTrue(redisOperater.ttl("auto::user") > 0);
+        Assert.assertTrue(redisOperater.delete("auto::user"));
+        Assert.assertFalse(redisOperater.exists("auto::user"));
+        Assert.assertNull(redisOperater.get("auto::user"));
+
+        redisOperater.setex("auto::session", 1L, 600);
+        Assert.assertEquals(Integer.valueOf(1), redisOperater.get("auto::session"));
+        redisOperater.hset("auto::hash", "name", "zyp");
+        Assert.assertEquals("zyp", redisOperater.hget("auto::hash", "name"));
+        Assert.assertNull(redisOperater.hget("auto::hash", "missing"));
+    }
+
+    @Test
+    public void concurrentCallsShareBatches() throws Exception {
+        AutoPipeliner autoPipeliner = ((RedisOperater) redisOperater).getAutoPipeliner();
+        for (int i = 0; i < 64; i++) {
+            redisOperater.set("auto::item::" + i, i);
+        }
+        long commands = autoPipeliner.getCommandCount();
+        long batches = autoPipeliner.getBatchCount();
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Object>> futures = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            String key = "auto::item::" + i;
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                awaitQuietly(start);
+                return redisOperater.get(key);
+            }, executor));
+        }
+        start.countDown();
+        for (int i = 0; i < 64; i++) {
+            Assert.assertEquals(i, futures.get(i).get());
+        }
+        executor.shutdown();
+        Assert.assertEquals(64, autoPipeliner.getCommandCount() - commands);
+        Assert.assertTrue(autoPipeliner.getBatchCount() - batches < 32);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
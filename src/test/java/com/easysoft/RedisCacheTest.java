@@ -0,0 +1,93 @@
+package com.easysoft;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.cache.RedisOperaterCache;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Slf4j
+public class RedisCacheTest {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private IRedisOperater redisOperater;
+
+    @Test
+    public void putAndGet() {
+        Cache cache = cacheManager.getCache("user");
+        cache.put(27, "zyp");
+        Assert.assertEquals("zyp", cache.get(27, String.class));
+        cache.evict(27);
+        Assert.assertNull(cache.get(27));
+    }
+
+    @Test
+    public void nullValue() {
+        Cache cache = cacheManager.getCache("user");
+        cache.put(28, null);
+        Assert.assertNotNull(cache.get(28));
+        Assert.assertNull(cache.get(28).get());
+        cache.evict(28);
+    }
+
+    @Test
+    public void syncLoad() {
+        Cache cache = cacheManager.getCache("user");
+        cache.evict(29);
+        AtomicInteger loads = new AtomicInteger();
+        Assert.assertEquals("zyp", cache.get(29, () -> {
+            loads.incrementAndGet();
+            return "zyp";
+        }));
+        Assert.assertEquals("zyp", cache.get(29, () -> {
+            loads.incrementAndGet();
+            return "other";
+        }));
+        Assert.assertEquals(1, loads.get());
+        cache.evict(29);
+    }
+
+    @Test
+    public void subSecondTtl() {
+        Cache cache = new RedisOperaterCache("subsecond", "::", redisOperater, Duration.ofMillis(500), true, null);
+        cache.put(1, "a");
+        long ttl = redisOperater.ttl("subsecond::1");
+        // 未取整时写入不带过期时间，TTL 为 -1
+        Assert.assertTrue(ttl >= 0 && ttl <= 1);
+        cache.evict(1);
+    }
+
+    @Test
+    public void clear() {
+        Cache cache = cacheManager.getCache("order");
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.clear();
+        Assert.assertNull(cache.get(1));
+        Assert.assertNull(cache.get(2));
+    }
+
+    @Test
+    public void clearEscapesCacheName() {
+        Cache order = cacheManager.getCache("order");
+        order.put(3, "c");
+        // 未转义时 ord*::* 会匹配 order::3
+        cacheManager.getCache("ord*").clear();
+        Assert.assertEquals("c", redisOperater.get("order::3"));
+        order.clear();
+    }
+}
@@ -0,0 +1,95 @@
+package com.easysoft;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.cache.CacheWarmer;
+import com.easysoft.redis.cache.CacheWarmupLoader;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "easysoft.redis.cache.warmup.enabled=true",
+        "easysoft.redis.cache.warmup.keys.product=p1,p2,missing",
+        "easysoft.redis.cache.warmup.prefixes.product=hot-",
+        "easysoft.redis.cache.warmup.parallelism=2",
+        "easysoft.redis.cache.warmup.batch-size=8",
+        "easysoft.redis.cache.warmup.rate=2000"})
+@Slf4j
+public class RedisCacheWarmupTest {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CacheWarmer cacheWarmer;
+
+    @Autowired
+    private IRedisOperater redisOperater;
+
+    @Test
+    public void populateOnStartup() {
+        Assert.assertEquals("C2", redisOperater.get("catalog::c2"));
+        Assert.assertEquals("C1", cacheManager.getCache("catalog").get("c1", String.class));
+    }
+
+    @Test
+    public void preloadLocalCache() {
+        Cache cache = cacheManager.getCache("product");
+        cache.clear();
+        redisOperater.set("product::p1", "P1");
+        redisOperater.set("product::p2", "P2");
+        for (int i = 0; i < 25; i++) {
+            redisOperater.set("product::hot-" + i, "r" + i);
+        }
+        redisOperater.set("product::cold-1", "c");
+
+        CacheWarmer.Result result = cacheWarmer.warmUp();
+        log.info("warm-up result {}", result);
+        Assert.assertEquals(27, result.getLoaded());
+        Assert.assertEquals(0, result.getPopulated());
+        Assert.assertEquals(0, result.getFailed());
+        Assert.assertFalse(result.isTimedOut());
+
+        // 已加载到本地一级缓存的数据在 Redis 删除后仍然可以读取
+        redisOperater.delByPattern("product::*");
+        Assert.assertEquals("r7", cache.get("hot-7", String.class));
+        Assert.assertEquals("P2", cache.get("p2", String.class));
+        Assert.assertNull(cache.get("cold-1"));
+        cache.clear();
+    }
+
+    @TestConfiguration
+    static class WarmupConfig {
+
+        @Bean
+        public CacheWarmupLoader catalogLoader() {
+            return new CacheWarmupLoader() {
+                @Override
+                public String getCacheName() {
+                    return "catalog";
+                }
+
+                @Override
+                public Map<?, ?> load() {
+                    Map<String, String> values = new LinkedHashMap<>();
+                    for (int i = 1; i <= 3; i++) {
+                        values.put("c" + i, "C" + i);
+                    }
+                    return values;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.easysoft;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.RedisCircuitOpenException;
+import com.easysoft.redis.RedisOperationException;
+import com.easysoft.redis.RedisQuotaExceededException;
+import com.easysoft.redis.embedded.EmbeddedRedisServer;
+import com.easysoft.redis.interceptor.CircuitBreaker;
+import com.easysoft.redis.interceptor.CircuitBreakerInterceptor;
+import com.easysoft.redis.interceptor.RedisCommand;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "easysoft.redis.circuit-breaker.enabled=true",
+        "easysoft.redis.circuit-breaker.window-size=4",
+        "easysoft.redis.circuit-breaker.minimum-calls=4",
+        "easysoft.redis.circuit-breaker.failure-rate-threshold=100",
+        "easysoft.redis.circuit-breaker.wait-duration-in-open-state=200ms",
+        "easysoft.redis.circuit-breaker.permitted-calls-in-half-open-state=1",
+        "easysoft.redis.cache.local.ttl=1ms"})
+@Slf4j
+public class RedisCircuitBreakerTest {
+
+    @Autowired
+    private IRedisOperater redisOperater;
+
+    @Autowired
+    private EmbeddedRedisServer embeddedRedisServer;
+
+    @Autowired
+    private CircuitBreakerInterceptor circuitBreakerInterceptor;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @After
+    public void reset() {
+        embeddedRedisServer.clearFaults();
+        circuitBreakerInterceptor.getMaster().reset();
+    }
+
+    @Test
+    public void openAndRecover() throws Exception {
+        redisOperater.set("circuit::user", "zyp");
+        tripCircuit();
+        embeddedRedisServer.resetStats();
+        try {
+            redisOperater.get("circuit::user");
+            Assert.fail();
+        } catch (RedisCircuitOpenException ex) {
+            Assert.assertEquals("GET", ex.getCommand());
+        }
+        Assert.assertEquals(0, embeddedRedisServer.getCommandCount("GET"));
+        Thread.sleep(250);
+        Assert.assertEquals("zyp", redisOperater.get("circuit::user"));
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreakerInterceptor.getMaster().getState());
+    }
+
+    @Test
+    public void cacheFallback() throws Exception {
+        Cache cache = cacheManager.getCache("user");
+        cache.put(34, "zyp");
+        Thread.sleep(5);
+        tripCircuit();
+        Assert.assertEquals("zyp", cache.get(34, String.class));
+        try {
+            cache.get(35);
+            Assert.fail();
+        } catch (RedisCircuitOpenException ex) {
+            log.info("no local value: {}", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void callerErrorsAreNotFailures() {
+        redisOperater.set("circuit::string", "zyp");
+        embeddedRedisServer.failNext("GET", 4);
+        for (int i = 0; i < 4; i++) {
+            try {
+                redisOperater.get("circuit::trip");
+                Assert.fail();
+            } catch (RedisOperationException ex) {
+                log.info("command error: {}", ex.getMessage());
+            }
+            try {
+                redisOperater.hget("circuit::string", "name");
+                Assert.fail();
+            } catch (RedisOperationException ex) {
+                String error = NestedExceptionUtils.getMostSpecificCause(ex).getMessage();
+                Assert.assertTrue(error, error.startsWith("WRONGTYPE"));
+            }
+        }
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreakerInterceptor.getMaster().getState());
+        RedisCommand command = new RedisCommand("SET", "circuit::quota", "redis.circuit::quota", false, false, null);
+        Assert.assertFalse(CircuitBreakerInterceptor.isUnavailable(
+                new RedisQuotaExceededException(command, "redis", 10, 10)));
+        Assert.assertTrue(CircuitBreakerInterceptor.isUnavailable(
+                new RedisOperationException(command, new RedisConnectionFailureException("refused"))));
+    }
+
+    @Test
+    public void concurrentOutcomes() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("concurrent", 100, 10, 50, 1000, 100, 60000, 1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int thread = i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 10000; j++) {
+                        breaker.onResult(0, thread == 0 && j % 4 == 0);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            futures.clear();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 100; j++) {
+                        breaker.onResult(0, true);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+            Assert.assertFalse(breaker.tryAcquire());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void tripCircuit() {
+        embeddedRedisServer.failNext("GET", 4, "LOADING Redis is loading the dataset in memory");
+        for (int i = 0; i < 4; i++) {
+            try {
+                redisOperater.get("circuit::trip");
+                Assert.fail();
+            } catch (RedisOperationException ex) {
+                Assert.assertFalse(ex instanceof RedisCircuitOpenException);
+            }
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreakerInterceptor.getMaster().getState());
+    }
+}
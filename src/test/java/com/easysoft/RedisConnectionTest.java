@@ -0,0 +1,127 @@
+package com.easysoft;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.easysoft.redis.connection.RedisPoolMonitor;
+import io.lettuce.core.resource.ClientResources;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.connection.lettuce.LettuceConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.Serializable;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "easysoft.redis.connection.io-thread-pool-size=3",
+        "easysoft.redis.connection.computation-thread-pool-size=2",
+        "easysoft.redis.connection.share-native-connection=false",
+        "easysoft.redis.connection.pipelining-flush-size=16",
+        "easysoft.redis.connection.pool-monitor-interval=0s"})
+@Slf4j
+public class RedisConnectionTest {
+
+    @Autowired
+    private ClientResources clientResources;
+
+    @Autowired
+    private LettuceConnectionFactory connectionFactory;
+
+    @Autowired
+    private RedisTemplate<String, Serializable> redisTemplate;
+
+    @Autowired
+    private RedisPoolMonitor redisPoolMonitor;
+
+    @Test
+    public void clientResources() {
+        Assert.assertEquals(3, clientResources.ioThreadPoolSize());
+        Assert.assertEquals(2, clientResources.computationThreadPoolSize());
+        Assert.assertSame(clientResources, connectionFactory.getClientResources());
+    }
+
+    @Test
+    public void connectionFactoryPostProcessor() {
+        Assert.assertFalse(connectionFactory.getShareNativeConnection());
+        Assert.assertNotSame(LettuceConnection.PipeliningFlushPolicy.flushEachCommand(),
+                ReflectionTestUtils.getField(connectionFactory, "pipeliningFlushPolicy"));
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < 40; i++) {
+                connection.set(("connection::" + i).getBytes(), String.valueOf(i).getBytes());
+            }
+            return null;
+        });
+        Assert.assertEquals(40, results.size());
+        Assert.assertEquals(40L, (long) redisTemplate.delete(redisTemplate.keys("connection::*")));
+    }
+
+    @Test
+    public void poolSaturation() throws Exception {
+        GenericObjectPool<Object> pool = newPool(RedisPoolMonitor.JMX_NAME_PREFIX + "-test");
+        GenericObjectPool<Object> otherPool = newPool("other-library");
+        otherPool.borrowObject();
+        Logger logger = (Logger) LoggerFactory.getLogger(RedisPoolMonitor.class);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        try {
+            Object borrowed = pool.borrowObject();
+            redisPoolMonitor.sample();
+            RedisPoolMonitor.PoolStats stats = redisPoolMonitor.getPoolStats().stream()
+                    .filter(poolStats -> poolStats.getName().equals(pool.getJmxName().toString()))
+                    .findFirst().orElseThrow(AssertionError::new);
+            Assert.assertTrue(stats.isSaturated());
+            Assert.assertEquals(1, stats.getPeakActive());
+            Assert.assertEquals(1.0, stats.getUtilization(), 0);
+            // 其他组件的连接池不在监控范围内
+            Assert.assertTrue(redisPoolMonitor.getPoolStats().stream()
+                    .noneMatch(poolStats -> poolStats.getName().equals(otherPool.getJmxName().toString())));
+            Assert.assertTrue(appender.list.stream().anyMatch(event -> event.getLevel() == Level.WARN
+                    && event.getFormattedMessage().contains(stats.getName())));
+
+            pool.returnObject(borrowed);
+            appender.list.clear();
+            redisPoolMonitor.sample();
+            Assert.assertTrue(appender.list.stream().noneMatch(event -> event.getLevel() == Level.WARN
+                    && event.getFormattedMessage().contains(stats.getName())));
+        } finally {
+            logger.detachAppender(appender);
+            pool.close();
+            otherPool.close();
+        }
+    }
+
+    private static GenericObjectPool<Object> newPool(String jmxNamePrefix) {
+        GenericObjectPoolConfig<Object> config = new GenericObjectPoolConfig<>();
+        config.setMaxTotal(1);
+        config.setJmxNamePrefix(jmxNamePrefix);
+        return new GenericObjectPool<>(new BasePooledObjectFactory<Object>() {
+            @Override
+            public Object create() {
+                return new Object();
+            }
+
+            @Override
+            public PooledObject<Object> wrap(Object obj) {
+                return new DefaultPooledObject<>(obj);
+            }
+        }, config);
+    }
+}
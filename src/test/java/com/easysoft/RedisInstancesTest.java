@@ -0,0 +1,141 @@
+package com.easysoft;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.RoutingRedisOperater;
+import com.easysoft.redis.embedded.EmbeddedRedisServer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "easysoft.redis.instances.session.namespace=sess",
+        "easysoft.redis.instances.session.serializer=jdk",
+        "easysoft.redis.instances.session.pool.enabled=true",
+        "easysoft.redis.routes[0].prefix=session::",
+        "easysoft.redis.routes[0].instance=session"})
+@Slf4j
+public class RedisInstancesTest {
+
+    private static final EmbeddedRedisServer SESSION_SERVER = startServer();
+
+    @Autowired
+    private IRedisOperater redisOperater;
+
+    @Autowired
+    @Qualifier("session")
+    private IRedisOperater sessionOperater;
+
+    @Autowired
+    @Qualifier("session")
+    private RedisTemplate sessionTemplate;
+
+    @Autowired
+    @Qualifier("routing")
+    private IRedisOperater routingOperater;
+
+    @Autowired
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @DynamicPropertySource
+    static void sessionServer(DynamicPropertyRegistry registry) {
+        registry.add("easysoft.redis.instances.session.port", SESSION_SERVER::getPort);
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        SESSION_SERVER.close();
+    }
+
+    private static EmbeddedRedisServer startServer() {
+        try {
+            return new EmbeddedRedisServer(0).start();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Test
+    public void qualifiedInstance() {
+        Assert.assertNotSame(redisOperater, sessionOperater);
+        Assert.assertEquals("sess.", sessionOperater.getNamespace());
+        Assert.assertTrue(sessionTemplate.getValueSerializer() instanceof JdkSerializationRedisSerializer);
+        Assert.assertNotSame(redisConnectionFactory, sessionTemplate.getConnectionFactory());
+
+        sessionOperater.set("token::1", "zyp");
+        Assert.assertEquals("zyp", sessionOperater.get("token::1"));
+        Assert.assertNull(redisOperater.get("token::1"));
+        Assert.assertTrue(sessionOperater.delete("token::1"));
+    }
+
+    @Test
+    public void routeByPrefix() {
+        Assert.assertTrue(routingOperater instanceof RoutingRedisOperater);
+        routingOperater.setex("session::1", "s1", 600);
+        routingOperater.set("user::1", "u1");
+        Assert.assertEquals("s1", sessionOperater.get("session::1"));
+        Assert.assertNull(redisOperater.get("session::1"));
+        Assert.assertEquals("u1", redisOperater.get("user::1"));
+        Assert.assertEquals("sess.session::1", routingOperater.key("session::1"));
+
+        Map<String, Long> ttls = routingOperater.ttlAll(Arrays.asList("user::1", "session::1", "session::2"));
+        Assert.assertEquals(Arrays.asList("user::1", "session::1", "session::2"), Arrays.asList(ttls.keySet().toArray()));
+        Assert.assertEquals(Long.valueOf(-1), ttls.get("user::1"));
+        Assert.assertTrue(ttls.get("session::1") > 0);
+        Assert.assertEquals(Long.valueOf(-2), ttls.get("session::2"));
+        Assert.assertEquals(Long.valueOf(2), routingOperater.expireAll(Arrays.asList("user::1", "session::1"), 60));
+
+        Assert.assertEquals(Long.valueOf(1), routingOperater.delByPattern("session::*"));
+        Assert.assertNull(sessionOperater.get("session::1"));
+        Assert.assertTrue(routingOperater.delete("user::1"));
+    }
+
+    @Test
+    public void nestedRoutes() {
+        Map<String, IRedisOperater> routes = new LinkedHashMap<>();
+        routes.put("session::", sessionOperater);
+        routes.put("session::admin::", redisOperater);
+        RoutingRedisOperater nested = new RoutingRedisOperater(redisOperater, routes);
+        try {
+            nested.set("session::admin::1", "a1");
+            nested.set("session::2", "s2");
+            Assert.assertEquals("a1", redisOperater.get("session::admin::1"));
+            Assert.assertEquals("s2", sessionOperater.get("session::2"));
+            try (Stream<String> scanned = nested.scan("session::*", 10)) {
+                Assert.assertEquals(new HashSet<>(Arrays.asList("session::admin::1", "session::2")),
+                        scanned.collect(Collectors.toSet()));
+            }
+            Assert.assertEquals(Long.valueOf(2), nested.delByPattern("session::*"));
+            Assert.assertNull(redisOperater.get("session::admin::1"));
+
+            nested.writeBehind().set("session::3", "s3");
+            nested.writeBehind().set("session::admin::3", "a3");
+            nested.writeBehind().flush();
+            Assert.assertEquals("s3", sessionOperater.get("session::3"));
+            Assert.assertEquals("a3", redisOperater.get("session::admin::3"));
+            Assert.assertEquals(Long.valueOf(2), nested.delByPattern("session::*"));
+        } finally {
+            nested.destroy();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.easysoft;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.interceptor.RedisCommand;
+import com.easysoft.redis.interceptor.RedisCommandChain;
+import com.easysoft.redis.interceptor.RedisCommandInterceptor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.annotation.Order;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Slf4j
+public class RedisInterceptorTest {
+
+    private static final List<String> TRACE = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    private IRedisOperater redisOperater;
+
+    @Test
+    public void intercept() {
+        redisOperater.set("interceptor::user", "zyp");
+        TRACE.clear();
+        Assert.assertEquals("zyp", redisOperater.get("interceptor::user"));
+        Assert.assertEquals(Arrays.asList("outer:GET", "inner:GET " + redisOperater.key("interceptor::user")), TRACE);
+    }
+
+    @Test
+    public void multiKey() {
+        TRACE.clear();
+        redisOperater.hgetAllMulti(Arrays.asList("interceptor::h1", "interceptor::h2"));
+        Assert.assertEquals(Arrays.asList("outer:HGETALL", "inner:HGETALL 2 keys"), TRACE);
+    }
+
+    @TestConfiguration
+    static class InterceptorConfig {
+
+        @Bean
+        @Order(2)
+        public RedisCommandInterceptor innerInterceptor() {
+            return (command, chain) -> {
+                TRACE.add("inner:" + command);
+                return chain.proceed(command);
+            };
+        }
+
+        @Bean
+        @Order(1)
+        public RedisCommandInterceptor outerInterceptor() {
+            return (command, chain) -> {
+                TRACE.add("outer:" + command.getName());
+                return chain.proceed(command);
+            };
+        }
+
+        @Bean
+        public RedisCommandInterceptor disabledInterceptor() {
+            return new RedisCommandInterceptor() {
+                @Override
+                public Object intercept(RedisCommand command, RedisCommandChain chain) {
+                    throw new IllegalStateException("disabled interceptor must not be in chain");
+                }
+
+                @Override
+                public boolean isEnabled() {
+                    return false;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.easysoft;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.ReadRouting;
+import com.easysoft.redis.RedisOperater;
+import com.easysoft.redis.RedisOperationException;
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import com.easysoft.redis.embedded.EmbeddedRedisServer;
+import com.easysoft.redis.interceptor.CommandLatencyTracker;
+import com.easysoft.redis.interceptor.HedgedReadInterceptor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "easysoft.redis.adaptive-timeout.enabled=true",
+        "easysoft.redis.adaptive-timeout.min-samples=50",
+        "easysoft.redis.adaptive-timeout.min-timeout=50ms",
+        "easysoft.redis.adaptive-timeout.refresh-interval=100ms"})
+@Slf4j
+public class RedisLatencyTest {
+
+    @Autowired
+    private IRedisOperater redisOperater;
+
+    @Autowired
+    private RedisTemplate<String, Serializable> redisTemplate;
+
+    @Autowired
+    private RedisProperties redisProperties;
+
+    @Autowired
+    private EmbeddedRedisServer embeddedRedisServer;
+
+    @Autowired
+    private CommandLatencyTracker commandLatencyTracker;
+
+    @After
+    public void clearFaults() throws Exception {
+        embeddedRedisServer.clearFaults();
+        Thread.sleep(600);
+    }
+
+    @Test
+    public void adaptiveTimeout() throws Exception {
+        redisOperater.set("latency::user", "zyp");
+        long deadline = System.currentTimeMillis() + 2000;
+        while (commandLatencyTracker.getTimeoutNanos("GET") < 0 && System.currentTimeMillis() < deadline) {
+            redisOperater.get("latency::user");
+            Thread.sleep(1);
+        }
+        long timeout = commandLatencyTracker.getTimeoutNanos("GET");
+        log.info("adaptive GET timeout {}us", TimeUnit.NANOSECONDS.toMicros(timeout));
+        Assert.assertTrue(timeout > 0 && timeout < TimeUnit.MILLISECONDS.toNanos(500));
+        embeddedRedisServer.setLatency("GET", Duration.ofMillis(500));
+        long start = System.nanoTime();
+        try {
+            redisOperater.get("latency::user");
+            Assert.fail();
+        } catch (RedisOperationException ex) {
+            log.info("timed out: {}", ex.getCause().getMessage());
+        }
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(400));
+
+        // 批量调用通过 pipeline 发送的 GET 使用连接的默认超时
+        Map<String, String> values = redisOperater.getAll(Collections.singletonList("latency::user"));
+        Assert.assertEquals("zyp", values.get("latency::user"));
+    }
+
+    @Test
+    public void batchAndScanNotTracked() {
+        CommandLatencyTracker tracker = new CommandLatencyTracker(99, 2, 1, 1000, 1, 3600000);
+        RedisOperater operater = new RedisOperater(redisProperties, redisTemplate);
+        operater.setInterceptors(Collections.singletonList(tracker));
+        try {
+            operater.hgetAllMulti(Arrays.asList("latency::batch1", "latency::batch2"));
+            operater.delByPattern("latency::none*");
+            operater.ttl("latency::batch1");
+            Assert.assertEquals(-1, tracker.getLatencyNanos("HGETALL", 50));
+            Assert.assertEquals(-1, tracker.getLatencyNanos("SCAN", 50));
+            Assert.assertTrue(tracker.getLatencyNanos("TTL", 50) > 0);
+        } finally {
+            operater.destroy();
+        }
+    }
+
+    @Test
+    public void hedgedRead() throws Exception {
+        EmbeddedRedisServer replica = new EmbeddedRedisServer().start();
+        LettuceConnectionFactory replicaFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(replica.getHost(), replica.getPort()));
+        replicaFactory.afterPropertiesSet();
+        RedisTemplate<String, Serializable> replicaTemplate = new RedisTemplate<>();
+        replicaTemplate.setConnectionFactory(replicaFactory);
+        replicaTemplate.setKeySerializer(redisTemplate.getKeySerializer());
+        replicaTemplate.setValueSerializer(redisTemplate.getValueSerializer());
+        replicaTemplate.afterPropertiesSet();
+        RedisProperties.ReadRouting routing = new RedisProperties.ReadRouting();
+        routing.setCommands(Collections.emptySet());
+        HedgedReadInterceptor hedgedRead = new HedgedReadInterceptor(Collections.singleton("GET"), 20, 95, 4, null);
+        RedisOperater operater = new RedisOperater(redisProperties, redisTemplate);
+        operater.setReadRouting(new ReadRouting(routing, replicaTemplate, replicaFactory));
+        operater.setInterceptors(Collections.singletonList(hedgedRead));
+        try {
+            operater.set("latency::hedge", "zyp");
+            replicaTemplate.opsForValue().set(operater.key("latency::hedge"), "zyp");
+            embeddedRedisServer.setLatency("GET", Duration.ofMillis(500));
+            long start = System.nanoTime();
+            Assert.assertEquals("zyp", operater.get("latency::hedge"));
+            Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(400));
+            Assert.assertEquals(1, hedgedRead.getHedgedCount());
+            Thread.sleep(50);
+            Assert.assertEquals(1, hedgedRead.getHedgeWinCount());
+        } finally {
+            hedgedRead.shutdown();
+            operater.destroy();
+            replicaFactory.destroy();
+            replica.close();
+        }
+    }
+}
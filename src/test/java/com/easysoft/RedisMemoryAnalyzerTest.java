@@ -0,0 +1,84 @@
+package com.easysoft;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.MemoryAnalyzer;
+import com.easysoft.redis.MemoryReport;
+import com.easysoft.redis.actuate.RedisMemoryEndpoint;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "easysoft.redis.memory-analysis.enabled=true",
+        "easysoft.redis.memory-analysis.batch-size=20",
+        "easysoft.redis.memory-analysis.rate=200"})
+@Slf4j
+public class RedisMemoryAnalyzerTest {
+
+    @Autowired
+    private IRedisOperater redisOperater;
+
+    @Autowired
+    private MemoryAnalyzer memoryAnalyzer;
+
+    @Autowired
+    private RedisMemoryEndpoint redisMemoryEndpoint;
+
+    @Test
+    public void analyzeByPrefix() throws InterruptedException {
+        for (int i = 0; i < 30; i++) {
+            redisOperater.setex("memstr:" + i, "value" + i, 600);
+        }
+        for (int i = 0; i < 10; i++) {
+            Map<String, Object> hash = new HashMap<>();
+            for (int j = 0; j < (i == 0 ? 600 : 5); j++) {
+                hash.put("field" + j, j);
+            }
+            redisOperater.hmset("memhash:" + i, hash);
+            redisOperater.expire("memhash:" + i, 600);
+        }
+        for (int i = 0; i < 5; i++) {
+            redisOperater.set("memnottl:" + i, i);
+        }
+
+        Assert.assertEquals(Boolean.TRUE, redisMemoryEndpoint.analyze().get("started"));
+        Assert.assertFalse(memoryAnalyzer.start());
+        Assert.assertNotNull(redisMemoryEndpoint.memory().get("progress"));
+        for (int i = 0; i < 100 && memoryAnalyzer.isRunning(); i++) {
+            Thread.sleep(100);
+        }
+        MemoryReport report = memoryAnalyzer.getReport();
+        log.info("memory report {}", report);
+        Assert.assertTrue(report.isComplete());
+        Assert.assertEquals(report, redisMemoryEndpoint.memory().get("report"));
+        Map<String, MemoryReport.Prefix> prefixes = report.getPrefixes().stream()
+                .collect(Collectors.toMap(MemoryReport.Prefix::getPrefix, Function.identity()));
+
+        MemoryReport.Prefix strings = prefixes.get("memstr");
+        Assert.assertEquals(30, strings.getKeys());
+        Assert.assertEquals(30, strings.getSampledKeys());
+        Assert.assertEquals(0, strings.getNoTtlKeys());
+        Assert.assertEquals(0, strings.getNonCompactKeys());
+
+        MemoryReport.Prefix hashes = prefixes.get("memhash");
+        Assert.assertEquals(10, hashes.getKeys());
+        Assert.assertEquals(1, hashes.getNonCompactKeys());
+        Assert.assertEquals(Long.valueOf(1), hashes.getEncodings().get("hashtable"));
+        Assert.assertEquals("memhash:0", hashes.getLargestKey());
+        Assert.assertEquals("memhash", report.getPrefixes().get(0).getPrefix());
+
+        Assert.assertEquals(5, prefixes.get("memnottl").getNoTtlKeys());
+        Assert.assertTrue(report.getBytes() > hashes.getLargestKeyBytes());
+        redisOperater.delByPattern("mem*");
+    }
+}
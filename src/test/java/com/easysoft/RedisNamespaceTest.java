@@ -0,0 +1,86 @@
+package com.easysoft;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.NamespaceStats;
+import com.easysoft.redis.RedisOperater;
+import com.easysoft.redis.RedisQuotaExceededException;
+import com.easysoft.redis.embedded.EmbeddedRedisServer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "easysoft.redis.tenant.quotas.small=3",
+        "easysoft.redis.tenant.key-count-interval=1h"})
+@Slf4j
+public class RedisNamespaceTest {
+
+    @Autowired
+    private IRedisOperater redisOperater;
+
+    @Autowired
+    private EmbeddedRedisServer embeddedRedisServer;
+
+    @Test
+    public void views() {
+        IRedisOperater tenant1 = redisOperater.withNamespace("tenant1");
+        IRedisOperater tenant2 = redisOperater.withNamespace("tenant2");
+        Assert.assertSame(tenant1, redisOperater.withNamespace("tenant1"));
+        Assert.assertEquals("redis.tenant1.", tenant1.getNamespace());
+        Assert.assertEquals("redis.tenant1.user::1", tenant1.key("user::1"));
+        Assert.assertEquals("redis.tenant1.order.", tenant1.withNamespace("order").getNamespace());
+        Assert.assertSame(tenant1.withNamespace("order"), redisOperater.withNamespace("tenant1.order"));
+
+        tenant1.set("user::1", "zyp");
+        tenant2.set("user::1", "zyp2");
+        Assert.assertEquals("zyp", tenant1.get("user::1"));
+        Assert.assertEquals("zyp2", tenant2.get("user::1"));
+        Assert.assertEquals("zyp", redisOperater.get("tenant1.user::1"));
+        Assert.assertNull(redisOperater.get("user::1"));
+
+        tenant1.writeBehind().set("user::2", "wb");
+        tenant1.writeBehind().flush();
+        Assert.assertEquals("wb", tenant1.get("user::2"));
+        Assert.assertEquals(2, ((RedisOperater) tenant1).countKeys());
+        Assert.assertEquals(Long.valueOf(2), tenant1.delByPattern("user::*"));
+        Assert.assertEquals("zyp2", tenant2.get("user::1"));
+
+        NamespaceStats stats = ((RedisOperater) redisOperater).getNamespaceStats().get("tenant1");
+        Assert.assertEquals("redis.tenant1.", stats.getNamespace());
+        Assert.assertEquals(4, stats.getCommands());
+        Assert.assertEquals(2, stats.getReads());
+        Assert.assertEquals(0, stats.getMaxKeys());
+    }
+
+    @Test
+    public void keyQuota() {
+        IRedisOperater small = redisOperater.withNamespace("small");
+        small.delByPattern("*");
+        for (int i = 0; i < 3; i++) {
+            small.set("item::" + i, i);
+        }
+        Assert.assertEquals(3, ((RedisOperater) small).countKeys());
+        embeddedRedisServer.resetStats();
+        try {
+            small.set("item::3", 3);
+            Assert.fail("quota not applied");
+        } catch (RedisQuotaExceededException ex) {
+            Assert.assertEquals("redis.small.", ex.getNamespace());
+            Assert.assertEquals(3, ex.getMaxKeys());
+        }
+        Assert.assertEquals(Integer.valueOf(0), small.get("item::0"));
+        Assert.assertEquals(0, embeddedRedisServer.getCommandCount("SCAN"));
+        Assert.assertTrue(small.delete("item::0"));
+        ((RedisOperater) small).countKeys();
+        small.set("item::3", 3);
+        NamespaceStats stats = ((RedisOperater) redisOperater).getNamespaceStats().get("small");
+        Assert.assertEquals(1, stats.getRejected());
+        Assert.assertEquals(3, stats.getMaxKeys());
+        Assert.assertEquals(2, stats.getKeys());
+    }
+}
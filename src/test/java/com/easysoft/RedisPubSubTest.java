@@ -0,0 +1,128 @@
+package com.easysoft;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import com.easysoft.redis.pubsub.RedisSubscriber;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"easysoft.redis.pub-sub.listener-threads=2"})
+@Slf4j
+public class RedisPubSubTest {
+
+    @Autowired
+    private IRedisOperater redisOperater;
+
+    @Autowired
+    private RedisSubscriber redisSubscriber;
+
+    @Autowired
+    private RedisTemplate redisTemplate;
+
+    @Test
+    public void subscribe() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        List<String> received = new CopyOnWriteArrayList<>();
+        RedisSubscriber.Subscription subscription = redisSubscriber.subscribe("user.login", (channel, message) -> {
+            received.add(channel + ":" + message);
+            latch.countDown();
+        });
+        try {
+            Assert.assertTrue(awaitSubscribers("NUMSUB", "user.login", 1));
+            Assert.assertEquals(Long.valueOf(1), redisOperater.publish("user.login", "zyp"));
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(Arrays.asList("user.login:zyp"), received);
+        } finally {
+            subscription.unsubscribe();
+        }
+        Assert.assertTrue(awaitSubscribers("NUMSUB", "user.login", 0));
+        Assert.assertEquals(Long.valueOf(0), redisOperater.publish("user.login", "zyp"));
+    }
+
+    @Test
+    public void psubscribeAndPublishAll() throws Exception {
+        CountDownLatch latch = new CountDownLatch(3);
+        List<Object> received = new CopyOnWriteArrayList<>();
+        RedisSubscriber.Subscription subscription = redisSubscriber.psubscribe("order.*", (channel, message) -> {
+            Assert.assertEquals("order.created", channel);
+            received.add(message);
+            latch.countDown();
+        });
+        try {
+            Assert.assertTrue(awaitSubscribers("NUMPAT", null, 1));
+            Assert.assertEquals(Long.valueOf(3), redisOperater.publishAll("order.created", Arrays.asList(1, 2, 3)));
+            Assert.assertEquals(Long.valueOf(0), redisOperater.publishAll("user.created", Arrays.asList(1, 2)));
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(3, received.size());
+            Assert.assertTrue(received.containsAll(Arrays.asList(1, 2, 3)));
+        } finally {
+            subscription.unsubscribe();
+        }
+    }
+
+    @Test
+    public void shardedPublishRejectedInCluster() {
+        RedisProperties.PubSub config = new RedisProperties.PubSub();
+        config.setSharded(true);
+        LettuceConnectionFactory clusterFactory = new LettuceConnectionFactory(
+                new RedisClusterConfiguration(Collections.singletonList("127.0.0.1:7000")));
+        RedisSubscriber subscriber = new RedisSubscriber(clusterFactory, "", redisTemplate.getValueSerializer(),
+                config, Runnable::run);
+        try {
+            subscriber.afterPropertiesSet();
+            Assert.fail();
+        } catch (IllegalStateException ex) {
+            log.info("sharded pub/sub rejected: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * 订阅在监听容器中异步完成，发布前通过 PUBSUB NUMSUB/NUMPAT 等待订阅生效
+     */
+    private boolean awaitSubscribers(String subcommand, String channel, long expected) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            if (subscribers(subcommand, channel) == expected) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+
+    private long subscribers(String subcommand, String channel) {
+        return (Long) redisTemplate.execute((RedisConnection connection) -> {
+            RedisCommands<byte[], byte[]> commands =
+                    ((RedisAsyncCommands<byte[], byte[]>) connection.getNativeConnection()).getStatefulConnection().sync();
+            if ("NUMPAT".equals(subcommand)) {
+                return commands.pubsubNumpat();
+            }
+            Map<byte[], Long> counts = commands.pubsubNumsub(bytes(redisOperater.getNamespace() + channel));
+            return counts.values().iterator().next();
+        }, true);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,343 @@
+package com.easysoft;
+
+import com.easysoft.redis.ConsistentHashRing;
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.RedisOperater;
+import com.easysoft.redis.ShardMigrator;
+import com.easysoft.redis.ShardedRedisOperater;
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import com.easysoft.redis.embedded.EmbeddedRedisServer;
+import com.easysoft.redis.pubsub.RedisSubscriber;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "easysoft.redis.sharding.shards=s1,s2",
+        "easysoft.redis.sharding.draining=legacy",
+        "easysoft.redis.sharding.migrate-batch-size=16"})
+@Slf4j
+public class RedisShardingTest {
+
+    private static final EmbeddedRedisServer S1_SERVER = startServer();
+
+    private static final EmbeddedRedisServer S2_SERVER = startServer();
+
+    private static final EmbeddedRedisServer LEGACY_SERVER = startServer();
+
+    @Autowired
+    @Qualifier("sharded")
+    private IRedisOperater shardedOperater;
+
+    @Autowired
+    @Qualifier("s1")
+    private IRedisOperater s1Operater;
+
+    @Autowired
+    @Qualifier("s2")
+    private IRedisOperater s2Operater;
+
+    @Autowired
+    @Qualifier("legacy")
+    private IRedisOperater legacyOperater;
+
+    @Autowired
+    private ShardMigrator shardMigrator;
+
+    @Autowired
+    private RedisSubscriber redisSubscriber;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @DynamicPropertySource
+    static void shardServers(DynamicPropertyRegistry registry) {
+        registry.add("easysoft.redis.instances.s1.port", S1_SERVER::getPort);
+        registry.add("easysoft.redis.instances.s2.port", S2_SERVER::getPort);
+        registry.add("easysoft.redis.instances.legacy.port", LEGACY_SERVER::getPort);
+    }
+
+    @AfterClass
+    public static void stopServers() {
+        S1_SERVER.close();
+        S2_SERVER.close();
+        LEGACY_SERVER.close();
+    }
+
+    private static EmbeddedRedisServer startServer() {
+        try {
+            return new EmbeddedRedisServer(0).start();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Test
+    public void ringRemapsOnlyMovedKeys() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("a", "b", "c"), 160);
+        ConsistentHashRing grown = new ConsistentHashRing(Arrays.asList("a", "b", "c", "d"), 160);
+        Map<String, Integer> counts = new HashMap<>();
+        int moved = 0;
+        for (int i = 0; i < 10000; i++) {
+            String key = "user::" + i;
+            String before = ring.nodeFor(key);
+            String after = grown.nodeFor(key);
+            counts.merge(before, 1, Integer::sum);
+            if (!before.equals(after)) {
+                Assert.assertEquals("d", after);
+                moved++;
+            }
+        }
+        counts.values().forEach(count -> Assert.assertTrue(count > 2500 && count < 4200));
+        Assert.assertTrue(moved > 1800 && moved < 3200);
+        Assert.assertEquals(ring.nodeFor("order"), ring.nodeFor("{order}:1"));
+        Assert.assertEquals(ring.nodeFor("order"), ring.nodeFor("cart:{order}:2"));
+        Assert.assertEquals(ring.nodeFor("{}:1"), new ConsistentHashRing(Arrays.asList("c", "b", "a"), 160)
+                .nodeFor("{}:1"));
+    }
+
+    @Test
+    public void shardByConsistentHash() {
+        ShardedRedisOperater sharded = (ShardedRedisOperater) shardedOperater;
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String key = "shard::" + i;
+            shardedOperater.setex(key, "v" + i, 600);
+            keys.add(key);
+        }
+        int onS1 = 0;
+        for (String key : keys) {
+            IRedisOperater owner = "s1".equals(sharded.shardOf(key)) ? s1Operater : s2Operater;
+            IRedisOperater other = owner == s1Operater ? s2Operater : s1Operater;
+            Assert.assertNotNull(owner.get(key));
+            Assert.assertNull(other.get(key));
+            onS1 += owner == s1Operater ? 1 : 0;
+        }
+        Assert.assertTrue(onS1 > 20 && onS1 < 80);
+        Assert.assertEquals(sharded.shardOf("{cart:7}:items"), sharded.shardOf("{cart:7}:total"));
+
+        Map<String, String> values = shardedOperater.getAndTouchAll(keys, 300);
+        Assert.assertEquals(keys, new ArrayList<>(values.keySet()));
+        Assert.assertEquals("v42", values.get("shard::42"));
+        Map<String, Long> ttls = shardedOperater.ttlAll(keys);
+        ttls.values().forEach(ttl -> Assert.assertTrue(ttl > 0 && ttl <= 300));
+        Assert.assertEquals(Long.valueOf(100), shardedOperater.expireAll(keys, 60));
+        try (Stream<String> scanned = shardedOperater.scan("shard::*", 10)) {
+            Assert.assertEquals(new HashSet<>(keys), scanned.collect(Collectors.toSet()));
+        }
+        Assert.assertEquals(Long.valueOf(100), shardedOperater.delByPattern("shard::*"));
+    }
+
+    @Test
+    public void migrateDrainingInstance() {
+        for (int i = 0; i < 50; i++) {
+            legacyOperater.set("legacy::" + i, "v" + i);
+        }
+        legacyOperater.setex("legacy::ttl", "t", 600);
+        Map<String, Object> hash = new HashMap<>();
+        hash.put("name", "zyp");
+        legacyOperater.hmset("legacy::hash", hash);
+        legacyOperater.rpush("legacy::list", "a", "b");
+        legacyOperater.set("legacy::newer", "old");
+        shardedOperater.set("legacy::newer", "new");
+
+        ShardMigrator.Result result = shardMigrator.migrate();
+        log.info("migrate result {}", result);
+        Assert.assertEquals(53, result.getMoved());
+        Assert.assertEquals(1, result.getSkipped());
+        Assert.assertEquals(0, result.getFailed());
+        Assert.assertEquals(0, (long) legacyOperater.delByPattern("legacy::*"));
+
+        Assert.assertEquals("v7", shardedOperater.get("legacy::7"));
+        Assert.assertTrue(shardedOperater.ttl("legacy::ttl") > 500);
+        Assert.assertEquals(Long.valueOf(-1), shardedOperater.ttl("legacy::7"));
+        Assert.assertEquals("zyp", shardedOperater.hget("legacy::hash", "name"));
+        Assert.assertEquals(Arrays.asList("a", "b"), shardedOperater.lrange("legacy::list", 0, -1));
+        Assert.assertEquals("new", shardedOperater.get("legacy::newer"));
+
+        Assert.assertEquals(0, shardMigrator.migrate().getMoved());
+        Assert.assertEquals(Long.valueOf(54), shardedOperater.delByPattern("legacy::*"));
+    }
+
+    @Test
+    public void migrateNamespaceView() {
+        IRedisOperater shardedView = shardedOperater.withNamespace("tenant");
+        for (int i = 0; i < 50; i++) {
+            shardedView.set("view::" + i, "v" + i);
+        }
+        // 分片视图写入的 key 已位于所属分片
+        Assert.assertEquals(0, shardMigrator.migrate().getMoved());
+
+        IRedisOperater legacyView = legacyOperater.withNamespace("tenant");
+        for (int i = 0; i < 20; i++) {
+            legacyView.set("view::legacy::" + i, "l" + i);
+        }
+        ShardMigrator.Result result = shardMigrator.migrate();
+        Assert.assertEquals(20, result.getMoved());
+        Assert.assertEquals(0, result.getFailed());
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals("l" + i, shardedView.get("view::legacy::" + i));
+        }
+        Assert.assertEquals("v7", shardedView.get("view::7"));
+        Assert.assertNull(shardedOperater.get("view::7"));
+        Assert.assertEquals(Long.valueOf(70), shardedView.delByPattern("view::*"));
+    }
+
+    @Test
+    public void migrateChunkedValues() {
+        Map<String, RedisOperater> nodes = new LinkedHashMap<>();
+        for (String name : Arrays.asList("s1", "s2", "legacy")) {
+            nodes.put(name, chunkedOperater(name));
+        }
+        ShardedRedisOperater sharded = new ShardedRedisOperater(nodes.entrySet().stream()
+                .filter(entry -> !"legacy".equals(entry.getKey()))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)), 160);
+        try {
+            String report = report(400);
+            RedisOperater legacy = nodes.get("legacy");
+            legacy.set("report::1", report);
+            legacy.set("{report}:2", report);
+            legacy.withNamespace("tenant").set("report::3", report);
+            RedisTemplate legacyTemplate = applicationContext.getBean("legacyRedisTemplate", RedisTemplate.class);
+            Assert.assertTrue(legacyTemplate.keys("*chunk*").size() > 3);
+
+            ShardMigrator.Result result = new ShardMigrator(nodes, sharded.getRing(), 16).migrate();
+            log.info("migrate chunked result {}", result);
+            Assert.assertTrue(result.getMoved() > 3);
+            Assert.assertEquals(0, result.getFailed());
+            Assert.assertTrue(legacyTemplate.keys("*report*").isEmpty());
+
+            Assert.assertEquals(report, sharded.get("report::1"));
+            Assert.assertEquals(report, sharded.get("{report}:2"));
+            Assert.assertEquals(report, sharded.withNamespace("tenant").get("report::3"));
+            Assert.assertEquals(0, new ShardMigrator(nodes, sharded.getRing(), 16).migrate().getMoved());
+        } finally {
+            sharded.delByPattern("*report*");
+            sharded.withNamespace("tenant").delByPattern("report*");
+            sharded.destroy();
+            nodes.values().forEach(RedisOperater::destroy);
+        }
+        for (String name : Arrays.asList("s1", "s2")) {
+            Assert.assertTrue(applicationContext.getBean(name + "RedisTemplate", RedisTemplate.class)
+                    .keys("*report*").isEmpty());
+        }
+    }
+
+    @Test
+    public void abandonedScan() throws InterruptedException {
+        Map<String, IRedisOperater> shards = new LinkedHashMap<>();
+        shards.put("s1", s1Operater);
+        shards.put("s2", s2Operater);
+        RedisProperties.Scan scan = new RedisProperties.Scan();
+        scan.setMaxThreads(1);
+        scan.setMaxIdle(Duration.ofMillis(200));
+        ShardedRedisOperater sharded = new ShardedRedisOperater(shards, 160, scan);
+        for (int i = 0; i < 100; i++) {
+            sharded.set("abandon::" + i, i);
+        }
+        try {
+            Stream<String> abandoned = sharded.scan("abandon::*", 1);
+            Iterator<String> iterator = abandoned.iterator();
+            Assert.assertTrue(iterator.hasNext());
+            iterator.next();
+            Thread.sleep(600);
+            try {
+                while (iterator.hasNext()) {
+                    iterator.next();
+                }
+                Assert.fail();
+            } catch (IllegalStateException ex) {
+                log.info("abandoned scan: {}", ex.getMessage());
+            }
+            // 放弃遍历后线程已释放，单线程仍能依次遍历两个分片
+            try (Stream<String> scanned = sharded.scan("abandon::*", 10)) {
+                Assert.assertEquals(100, scanned.count());
+            }
+            Assert.assertEquals(Long.valueOf(100), sharded.delByPattern("abandon::*"));
+        } finally {
+            sharded.destroy();
+        }
+        try {
+            sharded.scan("abandon::*", 10);
+            Assert.fail();
+        } catch (IllegalStateException ex) {
+            log.info("scan after destroy: {}", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void publishOnDefaultInstance() throws Exception {
+        ShardedRedisOperater sharded = (ShardedRedisOperater) shardedOperater;
+        Map<String, String> channels = new HashMap<>();
+        for (int i = 0; channels.size() < 2; i++) {
+            channels.putIfAbsent(sharded.shardOf("shard.event." + i), "shard.event." + i);
+        }
+        CountDownLatch latch = new CountDownLatch(2);
+        List<String> received = new CopyOnWriteArrayList<>();
+        RedisSubscriber.Subscription subscription = redisSubscriber.psubscribe("shard.event.*", (channel, message) -> {
+            if ("event".equals(message)) {
+                received.add(channel);
+                latch.countDown();
+            }
+        });
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (sharded.publish("shard.event.ready", "ready") == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            for (String channel : channels.values()) {
+                Assert.assertEquals(Long.valueOf(1), sharded.publish(channel, "event"));
+            }
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(new HashSet<>(channels.values()), new HashSet<>(received));
+        } finally {
+            subscription.unsubscribe();
+        }
+    }
+
+    private RedisOperater chunkedOperater(String instance) {
+        RedisProperties properties = new RedisProperties();
+        properties.setNamespace("redis");
+        properties.getChunk().setEnabled(true);
+        properties.getChunk().setThreshold(1024);
+        properties.getChunk().setChunkSize(300);
+        return new RedisOperater(properties, applicationContext.getBean(instance + "RedisTemplate",
+                RedisTemplate.class));
+    }
+
+    private static String report(int lines) {
+        StringBuilder report = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            report.append("line-").append(i).append(';');
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,120 @@
+package com.easysoft;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.embedded.EmbeddedRedisServer;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Slf4j
+public class RedisTracingTest {
+
+    private static final InMemorySpanExporter EXPORTER = InMemorySpanExporter.create();
+
+    @Autowired
+    private IRedisOperater redisOperater;
+
+    @Autowired
+    private OpenTelemetry openTelemetry;
+
+    @Autowired
+    private EmbeddedRedisServer embeddedRedisServer;
+
+    @Before
+    public void reset() {
+        EXPORTER.reset();
+    }
+
+    @Test
+    public void commandSpan() {
+        inParent(() -> {
+            redisOperater.set("user::10086", "zyp");
+            redisOperater.get("user::10086");
+        });
+        List<SpanData> spans = EXPORTER.getFinishedSpanItems();
+        Assert.assertEquals(3, spans.size());
+        SpanData get = spans.get(1);
+        Assert.assertEquals("GET", get.getName());
+        Assert.assertEquals(get.getParentSpanId(), spans.get(2).getSpanId());
+        Assert.assertEquals("user", get.getAttributes().get(AttributeKey.stringKey("db.redis.key_prefix")));
+        Assert.assertEquals("redis", get.getAttributes().get(AttributeKey.stringKey("db.redis.namespace")));
+        Assert.assertEquals(Long.valueOf(3), get.getAttributes().get(AttributeKey.longKey("db.redis.result_size")));
+    }
+
+    @Test
+    public void namespaceView() {
+        inParent(() -> {
+            redisOperater.get("user::1");
+            redisOperater.withNamespace("tenant1").get("user::1");
+        });
+        List<SpanData> spans = EXPORTER.getFinishedSpanItems();
+        Assert.assertEquals("redis", spans.get(0).getAttributes().get(AttributeKey.stringKey("db.redis.namespace")));
+        Assert.assertEquals("redis.tenant1",
+                spans.get(1).getAttributes().get(AttributeKey.stringKey("db.redis.namespace")));
+        String node = embeddedRedisServer.getHost() + ":" + embeddedRedisServer.getPort();
+        Assert.assertEquals(node, spans.get(1).getAttributes().get(AttributeKey.stringKey("net.peer.name")));
+    }
+
+    @Test
+    public void keyWithoutSeparator() {
+        inParent(() -> redisOperater.get("session-4f2a9c"));
+        SpanData get = EXPORTER.getFinishedSpanItems().get(0);
+        Assert.assertEquals("(none)", get.getAttributes().get(AttributeKey.stringKey("db.redis.key_prefix")));
+    }
+
+    @Test
+    public void batchSpan() {
+        inParent(() -> redisOperater.hgetAllMulti(Arrays.asList("user::1", "user::2", "user::3")));
+        List<SpanData> spans = EXPORTER.getFinishedSpanItems();
+        Assert.assertEquals(2, spans.size());
+        Assert.assertEquals("HGETALL", spans.get(0).getName());
+        Assert.assertEquals(Long.valueOf(3),
+                spans.get(0).getAttributes().get(AttributeKey.longKey("db.redis.command_count")));
+    }
+
+    @Test
+    public void noParent() {
+        redisOperater.get("user::10086");
+        Assert.assertTrue(EXPORTER.getFinishedSpanItems().isEmpty());
+    }
+
+    private void inParent(Runnable runnable) {
+        Span parent = openTelemetry.getTracer("test").spanBuilder("request").startSpan();
+        try (Scope scope = parent.makeCurrent()) {
+            runnable.run();
+        } finally {
+            parent.end();
+        }
+    }
+
+    @TestConfiguration
+    static class TracingConfig {
+
+        @Bean
+        public OpenTelemetry openTelemetry() {
+            return OpenTelemetrySdk.builder().setTracerProvider(SdkTracerProvider.builder()
+                    .addSpanProcessor(SimpleSpanProcessor.create(EXPORTER)).build()).build();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.easysoft;
+
+import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.WriteBehind;
+import com.easysoft.redis.embedded.EmbeddedRedisServer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "easysoft.redis.write-behind.enabled=true",
+        "easysoft.redis.write-behind.flush-interval=1h",
+        "easysoft.redis.write-behind.max-pending=100"})
+@Slf4j
+public class RedisWriteBehindTest {
+
+    @Autowired
+    private IRedisOperater redisOperater;
+
+    @Autowired
+    private EmbeddedRedisServer embeddedRedisServer;
+
+    @Test
+    public void coalesce() {
+        WriteBehind writeBehind = redisOperater.writeBehind();
+        writeBehind.flush();
+        WriteBehind.Stats before = writeBehind.getStats();
+        embeddedRedisServer.resetStats();
+        for (int i = 0; i < 50; i++) {
+            writeBehind.hset("wb::player::1", "x", i);
+            writeBehind.hset("wb::player::1", "y", -i);
+            writeBehind.set("wb::score::1", i);
+        }
+        writeBehind.setex("wb::session::1", "zyp", 600);
+        Assert.assertNull(redisOperater.get("wb::score::1"));
+        Assert.assertEquals(0, embeddedRedisServer.getCommandCount("HMSET"));
+
+        writeBehind.flush();
+        Assert.assertEquals(Integer.valueOf(49), redisOperater.get("wb::score::1"));
+        Assert.assertEquals(Integer.valueOf(-49), redisOperater.hget("wb::player::1", "y"));
+        Assert.assertTrue(redisOperater.ttl("wb::session::1") > 0);
+        Assert.assertEquals(1, embeddedRedisServer.getCommandCount("HMSET"));
+
+        WriteBehind.Stats stats = writeBehind.getStats();
+        Assert.assertEquals(151, stats.getWrites() - before.getWrites());
+        Assert.assertEquals(147, stats.getCoalesced() - before.getCoalesced());
+        Assert.assertEquals(4, stats.getFlushed() - before.getFlushed());
+        Assert.assertEquals(0, stats.getPending());
+    }
+
+    @Test
+    public void backpressure() {
+        WriteBehind writeBehind = redisOperater.writeBehind();
+        writeBehind.flush();
+        long before = writeBehind.getStats().getBackpressure();
+        Map<String, Integer> fields = new HashMap<>();
+        for (int i = 0; i < 150; i++) {
+            fields.put("f" + i, i);
+        }
+        writeBehind.hmset("wb::wide", fields);
+        Assert.assertEquals(1, writeBehind.getStats().getBackpressure() - before);
+        Assert.assertTrue(writeBehind.getStats().getPending() <= 100);
+        Assert.assertEquals(Integer.valueOf(0), redisOperater.hget("wb::wide", "f0"));
+        writeBehind.flush();
+        Assert.assertEquals(Integer.valueOf(149), redisOperater.hget("wb::wide", "f149"));
+    }
+}
@@ -1,16 +1,41 @@
 package com.easysoft;
 
 import com.easysoft.redis.IRedisOperater;
+import com.easysoft.redis.ReadPreference;
+import com.easysoft.redis.ReadRouting;
+import com.easysoft.redis.RedisOperater;
+import com.easysoft.redis.RedisOperationException;
+import com.easysoft.redis.ScoredLongs;
+import com.easysoft.redis.TtlJitter;
+import com.easysoft.redis.autoConfigure.RedisProperties;
+import com.easysoft.redis.cache.RedisOperaterCache;
+import com.easysoft.redis.embedded.EmbeddedRedisServer;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
@@ -20,6 +45,12 @@ public class ReidsTest {
     @Autowired
     private IRedisOperater redisOperater;
 
+    @Autowired
+    private RedisTemplate<String, Serializable> redisTemplate;
+
+    @Autowired
+    private EmbeddedRedisServer embeddedRedisServer;
+
 
     @Test
     public void set() {
@@ -33,12 +64,14 @@ public class ReidsTest {
 
     @Test
     public void getSet() {
+        redisOperater.set("abc", 8);
         Integer abc = redisOperater.getSet("abc", 9);
         log.info(abc.toString());
     }
 
     @Test
     public void getSetLong() {
+        redisOperater.set("cc", 8L);
         Long cc = redisOperater.getSetLong("cc", 9L);
         log.info(cc.toString());
     }
@@ -53,6 +86,56 @@ public class ReidsTest {
         log.info(redisOperater.setex("user::27", "zyp", 10).toString());
     }
 
+    @Test
+    public void setexNewKey() {
+        redisOperater.delete("user::38");
+        Assert.assertTrue(redisOperater.setex("user::38", "zyp", 100));
+        Assert.assertEquals("zyp", redisOperater.get("user::38"));
+        Assert.assertTrue(redisOperater.ttl("user::38") > 0);
+    }
+
+    @Test
+    public void setWith() {
+        redisOperater.delete("lock::38");
+        embeddedRedisServer.resetStats();
+        Assert.assertTrue(redisOperater.setWith("lock::38", "a").ex(100).nx().execute());
+        Assert.assertEquals(1, embeddedRedisServer.getCommandCount("SET"));
+        Assert.assertFalse(redisOperater.setWith("lock::38", "b").nx().execute());
+        Assert.assertFalse(redisOperater.setWith("lock::39", "b").xx().execute());
+        Assert.assertEquals("a", redisOperater.setWith("lock::38", "c").keepTtl().get());
+        Assert.assertEquals("c", redisOperater.get("lock::38"));
+        Assert.assertTrue(redisOperater.ttl("lock::38") > 0);
+        Assert.assertTrue(redisOperater.setWith("lock::38", "d").px(50000).execute());
+        Assert.assertTrue(redisOperater.ttl("lock::38") <= 50);
+
+        Set<Long> ttls = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            TtlJitter.with(50, () -> redisOperater.setWith("lock::38", "e").px(40000).execute());
+            long ttl = redisOperater.ttl("lock::38");
+            Assert.assertTrue(ttl >= 39 && ttl <= 60);
+            ttls.add(ttl);
+        }
+        Assert.assertTrue(ttls.size() > 1);
+
+        embeddedRedisServer.resetStats();
+        assertRejected(() -> redisOperater.setWith("lock::38", "f").ex(0));
+        assertRejected(() -> redisOperater.setWith("lock::38", "f").px(-1));
+        assertRejected(() -> redisOperater.setWith("lock::38", "f").nx().xx());
+        assertRejected(() -> redisOperater.setWith("lock::38", "f").ex(10).keepTtl());
+        assertRejected(() -> redisOperater.setWith("lock::38", "f").keepTtl().px(10));
+        Assert.assertEquals(0, embeddedRedisServer.getCommandCount("SET"));
+        Assert.assertEquals("e", redisOperater.get("lock::38"));
+    }
+
+    private void assertRejected(Runnable options) {
+        try {
+            options.run();
+            Assert.fail();
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            log.info("setWith rejected: {}", ex.getMessage());
+        }
+    }
+
     @Test
     public void setnx() {
         log.info(redisOperater.setnx("user::27", "zyp", 100).toString());
@@ -73,6 +156,65 @@ public class ReidsTest {
         log.info(redisOperater.ttl("user::27").toString());
     }
 
+    @Test
+    public void expireAll() {
+        List<String> keys = Arrays.asList("session::1::user", "session::1::cart", "session::1::missing");
+        redisOperater.set(keys.get(0), "zyp");
+        redisOperater.set(keys.get(1), "cart");
+        embeddedRedisServer.resetStats();
+        Assert.assertEquals(Long.valueOf(2), redisOperater.expireAll(keys, 1800));
+        Map<String, Long> ttls = redisOperater.ttlAll(keys);
+        Assert.assertEquals(keys, new ArrayList<>(ttls.keySet()));
+        Assert.assertTrue(ttls.get(keys.get(0)) > 1700);
+        Assert.assertEquals(Long.valueOf(-2), ttls.get(keys.get(2)));
+        Assert.assertEquals(3, embeddedRedisServer.getCommandCount("EXPIRE"));
+    }
+
+    @Test
+    public void getAndTouch() {
+        redisOperater.set("session::2::user", "zyp");
+        Assert.assertEquals("zyp", redisOperater.getAndTouch("session::2::user", 1800));
+        Assert.assertTrue(redisOperater.ttl("session::2::user") > 1700);
+        Assert.assertNull(redisOperater.getAndTouch("session::2::missing", 1800));
+        Map<String, String> values = redisOperater.getAndTouchAll(
+                Arrays.asList("session::2::user", "session::2::missing"), 600);
+        Assert.assertEquals("zyp", values.get("session::2::user"));
+        Assert.assertNull(values.get("session::2::missing"));
+        Assert.assertTrue(redisOperater.ttl("session::2::user") <= 600);
+    }
+
+    @Test
+    public void primitiveResults() {
+        redisOperater.delByPattern("ids::*");
+        redisOperater.sadd("ids::set", 1L, -7L, Long.MAX_VALUE, 42);
+        long[] members = redisOperater.smembersLong("ids::set");
+        Arrays.sort(members);
+        Assert.assertArrayEquals(new long[]{-7L, 1L, 42L, Long.MAX_VALUE}, members);
+        Assert.assertEquals(0, redisOperater.smembersLong("ids::missing").length);
+
+        redisOperater.rpush("ids::list", 3L, 2L, 1L);
+        Assert.assertArrayEquals(new long[]{2L, 1L}, redisOperater.lrangeLong("ids::list", 1, -1));
+
+        redisOperater.zdd("ids::rank", 1.5, 1001L);
+        redisOperater.zdd("ids::rank", 0.1, 1002L);
+        redisOperater.zdd("ids::rank", 1e21, 1003L);
+        ScoredLongs ranked = redisOperater.zrangeLongWithScores("ids::rank", 0, -1);
+        Assert.assertArrayEquals(new long[]{1002L, 1001L, 1003L}, ranked.getMembers());
+        Assert.assertArrayEquals(new double[]{0.1, 1.5, 1e21}, ranked.getScores(), 0);
+        ScoredLongs range = redisOperater.zrangeByScoreLongWithScores("ids::rank", 1, Double.POSITIVE_INFINITY);
+        Assert.assertEquals(2, range.size());
+        Assert.assertEquals(1001L, range.member(0));
+
+        redisOperater.sadd("ids::set", "abc");
+        try {
+            redisOperater.smembersLong("ids::set");
+            Assert.fail();
+        } catch (RedisOperationException ex) {
+            Assert.assertTrue(ex.getCause() instanceof NumberFormatException);
+        }
+        Assert.assertEquals(Long.valueOf(5), redisOperater.scard("ids::set"));
+    }
+
     @Test
     public void getLong() {
         log.info(redisOperater.getLong("cc").toString());
@@ -135,11 +277,32 @@ public class ReidsTest {
 
     @Test
     public void hmget() {
+        hmset();
         redisOperater.hmget("user1", "name", "age").forEach((value) -> {
             log.info(value.toString());
         });
     }
 
+    @Test
+    public void hmgetMulti() {
+        redisOperater.hset("user1", "name", "zyp");
+        redisOperater.hset("user2", "name", "zs");
+        Map<String, Map<String, Object>> values = redisOperater.hmgetMulti(Arrays.asList("user1", "user2", "user3"),
+                "name", "age");
+        Assert.assertEquals("zyp", values.get("user1").get("name"));
+        Assert.assertEquals("zs", values.get("user2").get("name"));
+        Assert.assertNull(values.get("user3").get("name"));
+    }
+
+    @Test
+    public void hgetAllMulti() {
+        redisOperater.delete("user3");
+        redisOperater.hset("user1", "name", "zyp");
+        Map<String, Map<String, Object>> values = redisOperater.hgetAllMulti(Arrays.asList("user1", "user3"));
+        Assert.assertEquals("zyp", values.get("user1").get("name"));
+        Assert.assertTrue(values.get("user3").isEmpty());
+    }
+
     @Test
     public void hdel() {
         log.info(redisOperater.hdel("user1", "name", "age").toString());
@@ -167,6 +330,7 @@ public class ReidsTest {
 
     @Test
     public void lpop() {
+        lpush();
         log.info(redisOperater.lpop("list").toString());
     }
 
@@ -182,6 +346,7 @@ public class ReidsTest {
 
     @Test
     public void lindex() {
+        lpush();
         log.info(redisOperater.lindex("list", 1).toString());
     }
 
@@ -214,6 +379,8 @@ public class ReidsTest {
 
     @Test
     public void lset() {
+        redisOperater.delete("list");
+        redisOperater.rpush("list", "0", "1", "2", "3", "4", "5", "6", "7", "8", "9");
         redisOperater.lset("list", 9, "age");
     }
 
@@ -262,6 +429,353 @@ public class ReidsTest {
         log.info(redisOperater.srem("set", 2).toString());
     }
 
+    @Test
+    public void zrange() {
+        redisOperater.delete("zset");
+        redisOperater.zdd("zset", 1, "a");
+        redisOperater.zdd("zset", 2, "b");
+        redisOperater.zdd("zset", 3, "c");
+        Assert.assertEquals(Long.valueOf(2), redisOperater.zcount("zset", 2, 3));
+        Assert.assertEquals(3, redisOperater.zrange("zset", 0L, -1L).size());
+        Assert.assertEquals(2, redisOperater.zrangeByScore("zset", 1, 2).size());
+        Assert.assertEquals(Long.valueOf(1), redisOperater.zrem("zset", "a"));
+        Assert.assertEquals(2, redisOperater.zrangeWithScores("zset", 0L, -1L).size());
+    }
+
+    @Test
+    public void scan() {
+        redisOperater.delByPattern("scan::*");
+        for (int i = 0; i < 120; i++) {
+            redisOperater.set("scan::" + i, i);
+        }
+        redisOperater.rpush("scan::list", "a");
+        Map<String, Object> hash = new HashMap<>();
+        for (int i = 0; i < 30; i++) {
+            hash.put("field" + i, i);
+        }
+        hash.put("other", -1);
+        redisOperater.hmset("scan::hash", hash);
+        try (Stream<String> keys = redisOperater.scan("scan::*", 16)) {
+            Set<String> scanned = keys.collect(Collectors.toSet());
+            Assert.assertEquals(122, scanned.size());
+            Assert.assertTrue(scanned.contains("scan::7"));
+        }
+        try (Stream<String> keys = redisOperater.scan("scan::*", 16, DataType.HASH)) {
+            Assert.assertEquals(Arrays.asList("scan::hash"), keys.collect(Collectors.toList()));
+        }
+        try (Stream<String> keys = redisOperater.scan("scan::1*", 5)) {
+            Assert.assertEquals(5, keys.limit(5).count());
+        }
+        try (Stream<Map.Entry<String, Integer>> entries = redisOperater.hscan("scan::hash", "field*", 8)) {
+            Assert.assertEquals(30, entries.mapToInt(Map.Entry::getValue).filter(v -> v >= 0).count());
+        }
+
+        for (int i = 0; i < 40; i++) {
+            redisOperater.sadd("scan::set", i);
+            redisOperater.zdd("scan::zset", i, "m" + i);
+        }
+        try (Stream<Integer> members = redisOperater.sscan("scan::set", null, 10)) {
+            Assert.assertEquals(40, members.distinct().count());
+        }
+        try (Stream<ZSetOperations.TypedTuple<String>> tuples = redisOperater.zscan("scan::zset", null, 10)) {
+            Assert.assertEquals(780, tuples.mapToDouble(ZSetOperations.TypedTuple::getScore).sum(), 0);
+        }
+        redisOperater.delByPattern("scan::*");
+    }
+
+    @Test
+    public void readRouting() throws Exception {
+        EmbeddedRedisServer replica = new EmbeddedRedisServer().start();
+        LettuceConnectionFactory replicaFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(replica.getHost(), replica.getPort()));
+        replicaFactory.afterPropertiesSet();
+        RedisTemplate<String, Serializable> replicaTemplate = new RedisTemplate<>();
+        replicaTemplate.setConnectionFactory(replicaFactory);
+        replicaTemplate.setKeySerializer(redisTemplate.getKeySerializer());
+        replicaTemplate.setValueSerializer(redisTemplate.getValueSerializer());
+        replicaTemplate.setHashKeySerializer(redisTemplate.getHashKeySerializer());
+        replicaTemplate.setHashValueSerializer(redisTemplate.getHashValueSerializer());
+        replicaTemplate.afterPropertiesSet();
+        RedisProperties properties = new RedisProperties();
+        properties.setNamespace("redis");
+        RedisProperties.ReadRouting routing = properties.getReadRouting();
+        routing.setCommands(new HashSet<>(Arrays.asList("GET", "HGET")));
+        routing.setPrefixes(Collections.singletonList("product::"));
+        routing.setExcludePrefixes(Collections.singletonList("product::stock::"));
+        properties.getChunk().setEnabled(true);
+        properties.getChunk().setThreshold(1024);
+        properties.getChunk().setChunkSize(300);
+        RedisOperater operater = new RedisOperater(properties, redisTemplate);
+        operater.setReadRouting(new ReadRouting(routing, replicaTemplate, replicaFactory));
+        try {
+            for (String key : Arrays.asList("product::1", "product::stock::1", "user::1")) {
+                operater.set(key, "master");
+                replicaTemplate.opsForValue().set(operater.key(key), "replica");
+            }
+            operater.hset("product::2", "name", "master");
+            replicaTemplate.opsForHash().put(operater.key("product::2"), "name", "replica");
+
+            Assert.assertEquals("replica", operater.get("product::1"));
+            Assert.assertEquals("replica", operater.hget("product::2", "name"));
+            Assert.assertEquals("master", operater.get("product::stock::1"));
+            Assert.assertEquals("master", operater.get("user::1"));
+            Assert.assertEquals("master", ReadPreference.master(() -> operater.get("product::1")));
+            Assert.assertEquals("master", ReadPreference.master(() -> operater.hget("product::2", "name")));
+            Assert.assertEquals("replica", operater.get("product::1"));
+            replicaTemplate.expire(operater.key("product::1"), 60, TimeUnit.SECONDS);
+            Assert.assertEquals(-1L, (long) operater.ttl("product::1"));
+
+            operater.set("product::3", "master");
+            Assert.assertEquals("master", redisTemplate.opsForValue().get(operater.key("product::3")));
+            Assert.assertFalse(replicaTemplate.hasKey(operater.key("product::3")));
+            Assert.assertNull(operater.get("product::3"));
+
+            // 分片存储的value同样从 replica 读取清单和分片
+            String report = report(500);
+            operater.set("product::4", report);
+            Assert.assertNull(operater.get("product::4"));
+            Assert.assertEquals(report, ReadPreference.master(() -> operater.get("product::4")));
+        } finally {
+            Arrays.asList("product::1", "product::2", "product::3", "product::4", "product::stock::1", "user::1")
+                    .forEach(operater::delete);
+            operater.destroy();
+            replicaFactory.destroy();
+            replica.close();
+        }
+    }
+
+    @Test
+    public void chunkedValue() {
+        RedisOperater chunkedOperater = chunkedOperater();
+        String report = report(500);
+        chunkedOperater.set("report", report);
+        Assert.assertEquals(report, chunkedOperater.get("report"));
+        chunkedOperater.set("report", "small");
+        Assert.assertEquals("small", chunkedOperater.get("report"));
+        chunkedOperater.setex("report", report, 60);
+        Assert.assertEquals(report, chunkedOperater.get("report"));
+        Assert.assertTrue(chunkedOperater.delete("report"));
+        Assert.assertNull(chunkedOperater.get("report"));
+        Assert.assertTrue(redisTemplate.keys("{redis.report}:chunk:*").isEmpty());
+        chunkedOperater.destroy();
+    }
+
+    @Test
+    public void chunkedValueBatch() {
+        RedisOperater chunkedOperater = chunkedOperater();
+        String report = report(500);
+        chunkedOperater.delByPattern("chunkbatch::*");
+        chunkedOperater.set("chunkbatch::taken", "small");
+        Map<String, Object> values = new HashMap<>();
+        values.put("chunkbatch::a", report);
+        values.put("chunkbatch::b", "small");
+        values.put("chunkbatch::taken", report);
+        Map<String, Boolean> written = chunkedOperater.setnxAll(values, 60);
+        Assert.assertTrue(written.get("chunkbatch::a"));
+        Assert.assertTrue(written.get("chunkbatch::b"));
+        Assert.assertFalse(written.get("chunkbatch::taken"));
+        Assert.assertTrue(redisTemplate.keys("{redis.chunkbatch::taken}:chunk:*").isEmpty());
+        assertChunkTtl("{redis.chunkbatch::a}:chunk:*", 1, 61);
+
+        Map<String, Object> all = chunkedOperater.getAll(Arrays.asList("chunkbatch::a", "chunkbatch::b",
+                "chunkbatch::taken", "chunkbatch::missing"));
+        Assert.assertEquals(report, all.get("chunkbatch::a"));
+        Assert.assertEquals("small", all.get("chunkbatch::b"));
+        Assert.assertEquals("small", all.get("chunkbatch::taken"));
+        Assert.assertNull(all.get("chunkbatch::missing"));
+        Assert.assertEquals(Long.valueOf(3), chunkedOperater.delByPattern("chunkbatch::*"));
+        chunkedOperater.destroy();
+    }
+
+    @Test
+    public void chunkedValueWithHashTag() {
+        RedisOperater chunkedOperater = chunkedOperater();
+        String report = report(500);
+        chunkedOperater.set("chunktag::{u1}::report", report);
+        chunkedOperater.set("chunktag::{u1}::name", "zyp");
+        Assert.assertEquals(report, chunkedOperater.get("chunktag::{u1}::report"));
+        Assert.assertFalse(redisTemplate.keys("redis.chunktag::{u1}::report:chunk:*").isEmpty());
+        Set<String> scanned = chunkedOperater.scan("chunktag::*", 100).collect(Collectors.toSet());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("chunktag::{u1}::report", "chunktag::{u1}::name")), scanned);
+        Assert.assertEquals(Long.valueOf(1), chunkedOperater.delByPattern("chunktag::{u1}::report"));
+        Assert.assertTrue(redisTemplate.keys("redis.chunktag::{u1}::report:chunk:*").isEmpty());
+        chunkedOperater.set("chunktag::{u1}::report", report);
+        Assert.assertEquals(Long.valueOf(2), chunkedOperater.delByPattern("chunktag::*"));
+        Assert.assertTrue(redisTemplate.keys("redis.chunktag::*").isEmpty());
+        chunkedOperater.destroy();
+    }
+
+    @Test
+    public void chunkedValueOverNonString() {
+        RedisOperater chunkedOperater = chunkedOperater();
+        redisTemplate.opsForHash().put("redis.chunkhash", "field", "value");
+        chunkedOperater.set("chunkhash", "small");
+        Assert.assertEquals("small", chunkedOperater.get("chunkhash"));
+        redisTemplate.delete("redis.chunkhash");
+        redisTemplate.opsForHash().put("redis.chunkhash", "field", "value");
+        chunkedOperater.setex("chunkhash", report(500), 60);
+        Assert.assertEquals(report(500), chunkedOperater.get("chunkhash"));
+        Assert.assertTrue(redisTemplate.getExpire("redis.chunkhash") > 0);
+        chunkedOperater.set("chunkhash", "small");
+        Assert.assertEquals(Long.valueOf(-1), redisTemplate.getExpire("redis.chunkhash"));
+        Assert.assertTrue(redisTemplate.keys("{redis.chunkhash}:chunk:*").isEmpty());
+        redisTemplate.delete("redis.chunkhash");
+        redisTemplate.opsForHash().put("redis.chunkhash", "field", "value");
+        Assert.assertTrue(chunkedOperater.expire("chunkhash", 100));
+        Assert.assertTrue(chunkedOperater.delete("chunkhash"));
+        chunkedOperater.destroy();
+    }
+
+    @Test
+    public void chunkedValueOverwrite() throws InterruptedException {
+        RedisOperater chunkedOperater = chunkedOperater();
+        String small = report(200);
+        String large = report(900);
+        chunkedOperater.set("chunkgen::a", small);
+        Assert.assertEquals(small, chunkedOperater.getSet("chunkgen::a", large));
+        Assert.assertEquals(large, chunkedOperater.get("chunkgen::a"));
+        // 旧代号的分片已删除，JSON 字符串序列化后多两个引号
+        Assert.assertEquals((large.length() + 2 + 299) / 300, redisTemplate.keys("{redis.chunkgen::a}:chunk:*").size());
+
+        // 覆盖期间读取只会读到某一次写入的完整值，连续被覆盖时返回 null
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 100; i++) {
+                chunkedOperater.set("chunkgen::a", i % 2 == 0 ? small : large);
+            }
+        });
+        writer.start();
+        try {
+            while (writer.isAlive()) {
+                Object value = chunkedOperater.get("chunkgen::a");
+                Assert.assertTrue(null == value || small.equals(value) || large.equals(value));
+            }
+        } finally {
+            writer.join();
+        }
+        Assert.assertTrue(chunkedOperater.delete("chunkgen::a"));
+        Assert.assertTrue(redisTemplate.keys("{redis.chunkgen::a}:chunk:*").isEmpty());
+        chunkedOperater.destroy();
+    }
+
+    @Test
+    public void chunkedValueExpireAndClear() {
+        RedisOperater chunkedOperater = chunkedOperater();
+        String report = report(500);
+        chunkedOperater.set("chunkttl::a", report);
+        chunkedOperater.set("chunkttl::b", report);
+        Assert.assertTrue(chunkedOperater.expire("chunkttl::a", 100));
+        assertChunkTtl("{redis.chunkttl::a}:chunk:*", 1, 101);
+        Assert.assertEquals(report, chunkedOperater.getAndTouch("chunkttl::a", 200));
+        assertChunkTtl("{redis.chunkttl::a}:chunk:*", 101, 201);
+        Assert.assertEquals(Long.valueOf(2), chunkedOperater.expireAll(Arrays.asList("chunkttl::a", "chunkttl::b",
+                "chunkttl::missing"), 50));
+        assertChunkTtl("{redis.chunkttl::*}:chunk:*", 1, 51);
+        Assert.assertEquals(report, chunkedOperater.getAndTouchAll(Arrays.asList("chunkttl::a"), 60).get("chunkttl::a"));
+
+        Assert.assertEquals(Long.valueOf(2), chunkedOperater.delByPattern("chunkttl::*"));
+        Assert.assertTrue(redisTemplate.keys("{redis.chunkttl::*}:chunk:*").isEmpty());
+
+        Cache cache = new RedisOperaterCache("chunkcache", "::", chunkedOperater, null, true, null);
+        cache.put("report", report);
+        Assert.assertEquals(report, cache.get("report", String.class));
+        cache.clear();
+        Assert.assertNull(cache.get("report"));
+        Assert.assertTrue(redisTemplate.keys("{redis.chunkcache::*}:chunk:*").isEmpty());
+
+        // 延迟写入覆盖分片value时同样清理旧分片
+        chunkedOperater.set("chunkwb::a", report);
+        chunkedOperater.writeBehind().set("chunkwb::a", "small");
+        chunkedOperater.writeBehind().flush();
+        Assert.assertEquals("small", chunkedOperater.get("chunkwb::a"));
+        Assert.assertTrue(redisTemplate.keys("{redis.chunkwb::a}:chunk:*").isEmpty());
+        chunkedOperater.delete("chunkwb::a");
+        try {
+            chunkedOperater.setWith("chunkwb::a", report);
+            Assert.fail();
+        } catch (UnsupportedOperationException ex) {
+            log.info("setWith with chunked storage rejected: {}", ex.getMessage());
+        }
+        chunkedOperater.destroy();
+    }
+
+    private RedisOperater chunkedOperater() {
+        RedisProperties properties = new RedisProperties();
+        properties.setNamespace("redis");
+        properties.getChunk().setEnabled(true);
+        properties.getChunk().setThreshold(1024);
+        properties.getChunk().setChunkSize(300);
+        properties.getWriteBehind().setEnabled(true);
+        return new RedisOperater(properties, redisTemplate);
+    }
+
+    private static String report(int lines) {
+        StringBuilder report = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            report.append("line-").append(i).append(';');
+        }
+        return report.toString();
+    }
+
+    private void assertChunkTtl(String pattern, long min, long max) {
+        Set<String> chunks = redisTemplate.keys(pattern);
+        Assert.assertFalse(chunks.isEmpty());
+        for (String chunk : chunks) {
+            long ttl = redisTemplate.getExpire(chunk);
+            Assert.assertTrue(chunk + " ttl " + ttl, ttl >= min && ttl <= max);
+        }
+    }
+
+    @Test
+    public void ttlJitter() {
+        RedisProperties properties = new RedisProperties();
+        properties.setNamespace("redis");
+        properties.getTtlJitter().setMaxSeconds(100);
+        RedisProperties.Jitter none = new RedisProperties.Jitter();
+        properties.getTtlJitter().getPrefixes().put("session::", none);
+        RedisOperater jitterOperater = new RedisOperater(properties, redisTemplate);
+        Set<Long> ttls = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            jitterOperater.set("jitter::" + i, i);
+            jitterOperater.expire("jitter::" + i, 1000);
+            long ttl = jitterOperater.ttl("jitter::" + i);
+            Assert.assertTrue(ttl >= 999 && ttl <= 1100);
+            ttls.add(ttl);
+        }
+        Assert.assertTrue(ttls.size() > 1);
+        jitterOperater.setnx("session::1", "zyp", 1000);
+        Assert.assertTrue(jitterOperater.ttl("session::1") >= 999 && jitterOperater.ttl("session::1") <= 1000);
+        TtlJitter.with(50, () -> jitterOperater.expire("session::1", 1000));
+        Assert.assertTrue(jitterOperater.ttl("session::1") <= 1500);
+        TtlJitter.none(() -> jitterOperater.expire("jitter::0", 1000));
+        Assert.assertTrue(jitterOperater.ttl("jitter::0") >= 999 && jitterOperater.ttl("jitter::0") <= 1000);
+
+        List<String> keys = new ArrayList<>();
+        keys.add("session::1");
+        for (int i = 0; i < 20; i++) {
+            keys.add("jitter::" + i);
+        }
+        jitterOperater.expireAll(keys, 2000);
+        assertPerKeyJitter(jitterOperater, keys, 2000);
+        Assert.assertEquals(21, jitterOperater.getAndTouchAll(keys, 3000).size());
+        assertPerKeyJitter(jitterOperater, keys, 3000);
+        keys.forEach(jitterOperater::delete);
+        jitterOperater.destroy();
+    }
+
+    /**
+     * session:: 前缀不加抖动，其他 key 各自加抖动
+     */
+    private static void assertPerKeyJitter(RedisOperater operater, List<String> keys, long expire) {
+        Set<Long> ttls = new HashSet<>();
+        for (String key : keys) {
+            long ttl = operater.ttl(key);
+            long max = key.startsWith("session::") ? expire : expire + 100;
+            Assert.assertTrue(key + " ttl " + ttl, ttl >= expire - 1 && ttl <= max);
+            ttls.add(ttl);
+        }
+        Assert.assertTrue(ttls.size() > 2);
+    }
+
     @Test
     public void hello() {
         log.info(String.format("helloword", "zyp"));
@@ -0,0 +1,138 @@
+package com.easysoft.redis.embedded;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 客户端连接及其会话状态(协议版本、database、事务队列、订阅)
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-21 09:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-21 09:20
+ */
+@Slf4j
+class ClientConnection implements Runnable {
+
+    final long id;
+
+    private final EmbeddedRedisServer server;
+
+    private final Socket socket;
+
+    private InputStream in;
+
+    private OutputStream out;
+
+    int protocol = 2;
+
+    int database;
+
+    String name;
+
+    boolean authenticated;
+
+    /**
+     * MULTI 之后排队的命令，未开启事务时为 null
+     */
+    List<List<byte[]>> transaction;
+
+    boolean transactionFailed;
+
+    final Set<String> channels = new HashSet<>();
+
+    final Set<String> patterns = new HashSet<>();
+
+    boolean closing;
+
+    ClientConnection(long id, EmbeddedRedisServer server, Socket socket) {
+        this.id = id;
+        this.server = server;
+        this.socket = socket;
+        this.authenticated = null == socket;
+    }
+
+    boolean isSubscribed() {
+        return !channels.isEmpty() || !patterns.isEmpty();
+    }
+
+    int subscriptionCount() {
+        return channels.size() + patterns.size();
+    }
+
+    void beginTransaction() {
+        transaction = new ArrayList<>();
+        transactionFailed = false;
+    }
+
+    void endTransaction() {
+        transaction = null;
+        transactionFailed = false;
+    }
+
+    String remoteAddress() {
+        return null == socket ? "internal" : socket.getRemoteSocketAddress().toString();
+    }
+
+    @Override
+    public void run() {
+        try {
+            in = new BufferedInputStream(socket.getInputStream());
+            out = new BufferedOutputStream(socket.getOutputStream());
+            while (!closing) {
+                List<byte[]> command = RespReader.readCommand(in);
+                if (null == command) {
+                    break;
+                }
+                if (command.isEmpty()) {
+                    continue;
+                }
+                byte[] reply = server.handle(this, command);
+                if (null == reply) {
+                    break;
+                }
+                send(reply, in.available() == 0);
+            }
+        } catch (IOException ex) {
+            log.debug("embedded redis connection {} closed: {}", id, ex.getMessage());
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * 发送应答，订阅消息由发布方线程调用
+     *
+     * @param reply
+     * @param flush 客户端 pipeline 中还有未读命令时延迟刷新
+     */
+    synchronized void send(byte[] reply, boolean flush) throws IOException {
+        if (null == out) {
+            return;
+        }
+        out.write(reply);
+        if (flush) {
+            out.flush();
+        }
+    }
+
+    void close() {
+        closing = true;
+        server.disconnected(this);
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            log.debug("close embedded redis connection {} failed", id, ex);
+        }
+    }
+}
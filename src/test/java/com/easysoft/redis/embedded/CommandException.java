@@ -0,0 +1,16 @@
+package com.easysoft.redis.embedded;
+
+/**
+ * 命令执行错误，message 作为 RESP 错误应答返回客户端(需包含 ERR/WRONGTYPE 等错误前缀)
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-21 09:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-21 09:20
+ */
+class CommandException extends RuntimeException {
+
+    CommandException(String message) {
+        super(message, null, false, false);
+    }
+}
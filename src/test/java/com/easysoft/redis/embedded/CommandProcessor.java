@@ -0,0 +1,1755 @@
+package com.easysoft.redis.embedded;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 内嵌服务的命令实现，调用方需持有服务端全局锁
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-21 09:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-21 09:20
+ */
+class CommandProcessor {
+
+    private static final String SYNTAX_ERROR = "ERR syntax error";
+
+    private static final String NOT_INTEGER = "ERR value is not an integer or out of range";
+
+    private static final String NOT_FLOAT = "ERR value is not a valid float";
+
+    private static final Comparator<String> SCAN_ORDER = Comparator.comparingLong(CommandProcessor::scanHash)
+            .thenComparing(Comparator.naturalOrder());
+
+    private static final Set<String> SUBSCRIBED_COMMANDS = new HashSet<>(Arrays.asList(
+            "SUBSCRIBE", "UNSUBSCRIBE", "PSUBSCRIBE", "PUNSUBSCRIBE", "PING", "QUIT", "RESET"));
+
+    private static final Set<String> TRANSACTION_COMMANDS = new HashSet<>(Arrays.asList(
+            "MULTI", "EXEC", "DISCARD", "WATCH", "UNWATCH", "QUIT", "RESET"));
+
+    private final EmbeddedRedisServer server;
+
+    private final Map<String, CommandSpec> commands = new HashMap<>();
+
+    CommandProcessor(EmbeddedRedisServer server) {
+        this.server = server;
+        registerConnectionCommands();
+        registerKeyCommands();
+        registerStringCommands();
+        registerHashCommands();
+        registerListCommands();
+        registerSetCommands();
+        registerZSetCommands();
+        registerScriptCommands();
+        registerPubSubCommands();
+        registerTransactionCommands();
+    }
+
+    void process(ClientConnection client, List<byte[]> args, RespWriter out) {
+        String name = new String(args.get(0), StandardCharsets.UTF_8).toUpperCase(Locale.ROOT);
+        CommandSpec spec = commands.get(name);
+        String error = validate(name, spec, args.size());
+        if (null != client.transaction && !TRANSACTION_COMMANDS.contains(name)) {
+            if (null != error) {
+                client.transactionFailed = true;
+                out.error(error);
+            } else {
+                client.transaction.add(args);
+                out.simple("QUEUED");
+            }
+            return;
+        }
+        if (null != error) {
+            out.error(error);
+            return;
+        }
+        if (client.isSubscribed() && !out.isResp3() && !SUBSCRIBED_COMMANDS.contains(name)) {
+            out.error("ERR Can't execute '" + name.toLowerCase(Locale.ROOT)
+                    + "': only (P)SUBSCRIBE / (P)UNSUBSCRIBE / PING / QUIT / RESET are allowed in this context");
+            return;
+        }
+        if (!client.authenticated && null != server.getPassword()
+                && !"AUTH".equals(name) && !"HELLO".equals(name) && !"QUIT".equals(name)) {
+            out.error("NOAUTH Authentication required.");
+            return;
+        }
+        try {
+            spec.command.execute(new Call(client, args, out, server.databases[client.database]));
+        } catch (CommandException ex) {
+            out.error(ex.getMessage());
+        } catch (NumberFormatException ex) {
+            out.error(NOT_INTEGER);
+        }
+    }
+
+    void unsubscribeAll(ClientConnection client) {
+        for (String channel : client.channels) {
+            removeSubscriber(server.channels, channel, client);
+        }
+        for (String pattern : client.patterns) {
+            removeSubscriber(server.patterns, pattern, client);
+        }
+        client.channels.clear();
+        client.patterns.clear();
+    }
+
+    private String validate(String name, CommandSpec spec, int argc) {
+        if (null == spec) {
+            return "ERR unknown command `" + name.toLowerCase(Locale.ROOT) + "`, with args beginning with: ";
+        }
+        if (spec.arity > 0 ? argc != spec.arity : argc < -spec.arity) {
+            return "ERR wrong number of arguments for '" + name.toLowerCase(Locale.ROOT) + "' command";
+        }
+        return null;
+    }
+
+    private void register(String name, int arity, Command command) {
+        commands.put(name, new CommandSpec(arity, command));
+    }
+
+    // ---------------------------------------------------------------- connection / server
+
+    private void registerConnectionCommands() {
+        register("PING", -1, call -> {
+            if (call.client.isSubscribed() && !call.out.isResp3()) {
+                call.out.array(2).text("pong").bulk(call.size() > 1 ? call.raw(1) : new byte[0]);
+            } else if (call.size() > 1) {
+                call.out.bulk(call.raw(1));
+            } else {
+                call.out.simple("PONG");
+            }
+        });
+        register("ECHO", 2, call -> call.out.bulk(call.raw(1)));
+        register("QUIT", -1, call -> {
+            call.client.closing = true;
+            call.out.ok();
+        });
+        register("SELECT", 2, call -> {
+            int index = (int) call.longArg(1);
+            if (index < 0 || index >= EmbeddedRedisServer.DATABASES) {
+                throw new CommandException("ERR DB index is out of range");
+            }
+            call.client.database = index;
+            call.out.ok();
+        });
+        register("AUTH", -2, call -> {
+            auth(call.client, call.arg(call.size() - 1));
+            call.out.ok();
+        });
+        register("HELLO", -1, this::hello);
+        register("CLIENT", -2, this::client);
+        register("INFO", -1, this::info);
+        register("COMMAND", -1, call -> call.out.array(0));
+        register("CONFIG", -2, call -> {
+            if ("GET".equals(call.option(1))) {
+                call.out.map(0);
+            } else {
+                call.out.ok();
+            }
+        });
+        register("TIME", 1, call -> {
+            long micros = System.currentTimeMillis() * 1000;
+            call.out.array(2).text(Long.toString(micros / 1000000)).text(Long.toString(micros % 1000000));
+        });
+        register("DBSIZE", 1, call -> call.out.integer(call.db.size()));
+        register("FLUSHDB", -1, call -> {
+            call.db.clear();
+            call.out.ok();
+        });
+        register("FLUSHALL", -1, call -> {
+            for (Keyspace keyspace : server.databases) {
+                keyspace.clear();
+            }
+            call.out.ok();
+        });
+        register("RESET", 1, call -> {
+            unsubscribeAll(call.client);
+            call.client.endTransaction();
+            call.client.database = 0;
+            call.client.protocol = 2;
+            call.client.name = null;
+            call.out.simple("RESET");
+        });
+    }
+
+    private void auth(ClientConnection client, String password) {
+        String expected = server.getPassword();
+        if (null != expected && !expected.equals(password)) {
+            throw new CommandException("WRONGPASS invalid username-password pair");
+        }
+        client.authenticated = true;
+    }
+
+    private void hello(Call call) {
+        int protocol = call.client.protocol;
+        int index = 1;
+        if (call.size() > 1) {
+            protocol = (int) call.longArg(1);
+            if (protocol != 2 && protocol != 3) {
+                throw new CommandException("NOPROTO unsupported protocol version");
+            }
+            index = 2;
+        }
+        while (index < call.size()) {
+            String option = call.option(index);
+            if ("AUTH".equals(option) && index + 2 < call.size()) {
+                auth(call.client, call.arg(index + 2));
+                index += 3;
+            } else if ("SETNAME".equals(option) && index + 1 < call.size()) {
+                call.client.name = call.arg(index + 1);
+                index += 2;
+            } else {
+                throw new CommandException(SYNTAX_ERROR);
+            }
+        }
+        call.client.protocol = protocol;
+        RespWriter out = call.out.protocol(protocol);
+        out.map(7);
+        out.text("server").text("redis");
+        out.text("version").text(EmbeddedRedisServer.VERSION);
+        out.text("proto").integer(protocol);
+        out.text("id").integer(call.client.id);
+        out.text("mode").text("standalone");
+        out.text("role").text("master");
+        out.text("modules").array(0);
+    }
+
+    private void client(Call call) {
+        switch (call.option(1)) {
+            case "SETNAME":
+                call.client.name = call.arg(2);
+                call.out.ok();
+                break;
+            case "GETNAME":
+                call.out.bulk(call.client.name);
+                break;
+            case "ID":
+                call.out.integer(call.client.id);
+                break;
+            case "LIST":
+                StringBuilder list = new StringBuilder();
+                for (ClientConnection connection : server.connections()) {
+                    list.append("id=").append(connection.id).append(" addr=").append(connection.remoteAddress())
+                            .append(" name=").append(null == connection.name ? "" : connection.name)
+                            .append(" db=").append(connection.database).append('\n');
+                }
+                call.out.text(list.toString());
+                break;
+            case "SETINFO":
+                call.out.ok();
+                break;
+            default:
+                throw new CommandException("ERR unknown subcommand '" + call.arg(1) + "'");
+        }
+    }
+
+    private void info(Call call) {
+        StringBuilder info = new StringBuilder();
+        info.append("# Server\r\n")
+                .append("redis_version:").append(EmbeddedRedisServer.VERSION).append("\r\n")
+                .append("redis_mode:standalone\r\n")
+                .append("tcp_port:").append(server.getPort()).append("\r\n")
+                .append("\r\n# Clients\r\n")
+                .append("connected_clients:").append(server.connectionCount()).append("\r\n")
+                .append("\r\n# Replication\r\n")
+                .append("role:master\r\n")
+                .append("connected_slaves:0\r\n")
+                .append("\r\n# Keyspace\r\n");
+        for (int i = 0; i < server.databases.length; i++) {
+            int size = server.databases[i].size();
+            if (size > 0) {
+                info.append("db").append(i).append(":keys=").append(size).append(",expires=0,avg_ttl=0\r\n");
+            }
+        }
+        call.out.text(info.toString());
+    }
+
+    // ---------------------------------------------------------------- keys
+
+    private void registerKeyCommands() {
+        Command delete = call -> {
+            long removed = 0;
+            for (int i = 1; i < call.size(); i++) {
+                if (call.db.remove(call.arg(i))) {
+                    removed++;
+                }
+            }
+            call.out.integer(removed);
+        };
+        register("DEL", -2, delete);
+        register("UNLINK", -2, delete);
+        register("EXISTS", -2, call -> {
+            long count = 0;
+            for (int i = 1; i < call.size(); i++) {
+                if (call.db.exists(call.arg(i))) {
+                    count++;
+                }
+            }
+            call.out.integer(count);
+        });
+        register("TYPE", 2, call -> {
+            Keyspace.Entry entry = call.db.lookup(call.arg(1));
+            call.out.simple(null == entry ? "none" : entry.type());
+        });
+        register("EXPIRE", 3, call -> expire(call, System.currentTimeMillis() + call.longArg(2) * 1000));
+        register("PEXPIRE", 3, call -> expire(call, System.currentTimeMillis() + call.longArg(2)));
+        register("EXPIREAT", 3, call -> expire(call, call.longArg(2) * 1000));
+        register("PEXPIREAT", 3, call -> expire(call, call.longArg(2)));
+        register("TTL", 2, call -> call.out.integer(ttl(call, false)));
+        register("PTTL", 2, call -> call.out.integer(ttl(call, true)));
+        register("PERSIST", 2, call -> {
+            Keyspace.Entry entry = call.db.lookup(call.arg(1));
+            boolean volatileKey = null != entry && entry.expireAt >= 0;
+            if (volatileKey) {
+                entry.expireAt = -1;
+            }
+            call.out.integer(volatileKey ? 1 : 0);
+        });
+        register("KEYS", 2, call -> {
+            List<String> keys = new ArrayList<>();
+            for (String key : call.db.keys()) {
+                if (Glob.matches(call.arg(1), key)) {
+                    keys.add(key);
+                }
+            }
+            writeStrings(call.out, keys);
+        });
+        register("SCAN", -2, this::scan);
+        register("RENAME", 3, call -> {
+            rename(call);
+            call.out.ok();
+        });
+        register("RENAMENX", 3, call -> {
+            if (call.db.exists(call.arg(2))) {
+                call.out.integer(0);
+                return;
+            }
+            rename(call);
+            call.out.integer(1);
+        });
+        register("DUMP", 2, call -> {
+            Keyspace.Entry entry = call.db.lookup(call.arg(1));
+            call.out.bulk(null == entry ? null : DumpPayload.serialize(entry.value));
+        });
+        register("RESTORE", -4, this::restore);
+        register("OBJECT", -2, this::object);
+        register("MEMORY", -2, this::memory);
+    }
+
+    /**
+     * OBJECT ENCODING key，按 Redis 6.0 的默认阈值推断编码
+     */
+    private void object(Call call) {
+        if (!"ENCODING".equals(call.option(1))) {
+            throw new CommandException("ERR unknown subcommand '" + call.arg(1) + "'");
+        }
+        if (call.size() != 3) {
+            throw new CommandException(SYNTAX_ERROR);
+        }
+        Keyspace.Entry entry = call.db.lookup(call.arg(2));
+        call.out.bulk(null == entry ? null : encoding(entry.value));
+    }
+
+    private static String encoding(Object value) {
+        if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            if (bytes.length <= 20 && isInteger(bytes)) {
+                return "int";
+            }
+            return bytes.length <= 44 ? "embstr" : "raw";
+        }
+        if (value instanceof Map) {
+            Map<String, byte[]> hash = (Map<String, byte[]>) value;
+            boolean compact = hash.size() <= 512 && hash.entrySet().stream()
+                    .allMatch(e -> e.getKey().length() <= 64 && e.getValue().length <= 64);
+            return compact ? "ziplist" : "hashtable";
+        }
+        if (value instanceof List) {
+            return "quicklist";
+        }
+        if (value instanceof Set) {
+            Set<String> set = (Set<String>) value;
+            boolean integers = set.size() <= 512 && set.stream()
+                    .allMatch(member -> isInteger(member.getBytes(StandardCharsets.ISO_8859_1)));
+            return integers ? "intset" : "hashtable";
+        }
+        ZSetValue zset = (ZSetValue) value;
+        if (zset.size() > 128) {
+            return "skiplist";
+        }
+        for (ZSetValue.Member member : zset.members()) {
+            if (member.name.length() > 64) {
+                return "skiplist";
+            }
+        }
+        return "ziplist";
+    }
+
+    private static boolean isInteger(byte[] bytes) {
+        try {
+            return String.valueOf(parseLong(bytes)).length() == bytes.length;
+        } catch (CommandException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * MEMORY USAGE key [SAMPLES count]，按 DUMP 的长度估算占用的字节数
+     */
+    private void memory(Call call) {
+        if (!"USAGE".equals(call.option(1))) {
+            throw new CommandException("ERR unknown subcommand '" + call.arg(1) + "'");
+        }
+        if (call.size() != 3 && !(call.size() == 5 && "SAMPLES".equals(call.option(3)))) {
+            throw new CommandException(SYNTAX_ERROR);
+        }
+        Keyspace.Entry entry = call.db.lookup(call.arg(2));
+        if (null == entry) {
+            call.out.bulk((byte[]) null);
+            return;
+        }
+        // dictEntry、redisObject 及 key 的 sds 头部
+        call.out.integer(56 + call.raw(2).length + DumpPayload.serialize(entry.value).length);
+    }
+
+    /**
+     * RESTORE key ttl payload [REPLACE]，ttl 单位毫秒，0 表示不过期
+     */
+    private void restore(Call call) {
+        boolean replace = false;
+        for (int i = 4; i < call.size(); i++) {
+            if (!"REPLACE".equalsIgnoreCase(call.arg(i))) {
+                throw new CommandException(SYNTAX_ERROR);
+            }
+            replace = true;
+        }
+        long ttl = call.longArg(2);
+        if (ttl < 0) {
+            throw new CommandException("ERR Invalid TTL value, must be >= 0");
+        }
+        if (!replace && call.db.exists(call.arg(1))) {
+            throw new CommandException("BUSYKEY Target key name already exists.");
+        }
+        Object value = DumpPayload.deserialize(call.raw(3));
+        call.db.put(call.arg(1), value);
+        if (ttl > 0) {
+            call.db.lookup(call.arg(1)).expireAt = System.currentTimeMillis() + ttl;
+        }
+        call.out.ok();
+    }
+
+    private void expire(Call call, long expireAt) {
+        Keyspace.Entry entry = call.db.lookup(call.arg(1));
+        if (null == entry) {
+            call.out.integer(0);
+            return;
+        }
+        if (expireAt <= System.currentTimeMillis()) {
+            call.db.remove(call.arg(1));
+        } else {
+            entry.expireAt = expireAt;
+        }
+        call.out.integer(1);
+    }
+
+    private long ttl(Call call, boolean millis) {
+        Keyspace.Entry entry = call.db.lookup(call.arg(1));
+        if (null == entry) {
+            return -2;
+        }
+        if (entry.expireAt < 0) {
+            return -1;
+        }
+        long remaining = entry.expireAt - System.currentTimeMillis();
+        return millis ? remaining : (remaining + 500) / 1000;
+    }
+
+    private void rename(Call call) {
+        Keyspace.Entry entry = call.db.lookup(call.arg(1));
+        if (null == entry) {
+            throw new CommandException("ERR no such key");
+        }
+        call.db.remove(call.arg(1));
+        call.db.put(call.arg(2), entry.value);
+        call.db.lookup(call.arg(2)).expireAt = entry.expireAt;
+    }
+
+    private void scan(Call call) {
+        ScanOptions options = new ScanOptions(call, 2);
+        List<String> page = new ArrayList<>();
+        long next = scanPage(call.db.keys(), call.longArg(1), options.count, page);
+        List<String> matched = new ArrayList<>();
+        for (String key : page) {
+            if (options.matches(key) && (null == options.type || options.type.equals(call.db.lookup(key).type()))) {
+                matched.add(key);
+            }
+        }
+        call.out.array(2).text(Long.toString(next));
+        writeStrings(call.out, matched);
+    }
+
+    // ---------------------------------------------------------------- strings
+
+    private void registerStringCommands() {
+        register("GET", 2, call -> call.out.bulk(call.db.getString(call.arg(1))));
+        register("SET", -3, this::set);
+        register("SETEX", 4, call -> setWithExpire(call, call.longArg(2) * 1000, "setex"));
+        register("PSETEX", 4, call -> setWithExpire(call, call.longArg(2), "psetex"));
+        register("SETNX", 3, call -> {
+            if (call.db.exists(call.arg(1))) {
+                call.out.integer(0);
+                return;
+            }
+            call.db.put(call.arg(1), call.raw(2));
+            call.out.integer(1);
+        });
+        register("GETSET", 3, call -> {
+            byte[] previous = call.db.getString(call.arg(1));
+            call.db.put(call.arg(1), call.raw(2));
+            call.out.bulk(previous);
+        });
+        register("GETDEL", 2, call -> {
+            byte[] previous = call.db.getString(call.arg(1));
+            call.db.remove(call.arg(1));
+            call.out.bulk(previous);
+        });
+        register("MGET", -2, call -> {
+            call.out.array(call.size() - 1);
+            for (int i = 1; i < call.size(); i++) {
+                Keyspace.Entry entry = call.db.lookup(call.arg(i));
+                call.out.bulk(null != entry && entry.value instanceof byte[] ? (byte[]) entry.value : null);
+            }
+        });
+        register("MSET", -3, call -> {
+            requirePairs(call, 1);
+            for (int i = 1; i < call.size(); i += 2) {
+                call.db.put(call.arg(i), call.raw(i + 1));
+            }
+            call.out.ok();
+        });
+        register("MSETNX", -3, call -> {
+            requirePairs(call, 1);
+            for (int i = 1; i < call.size(); i += 2) {
+                if (call.db.exists(call.arg(i))) {
+                    call.out.integer(0);
+                    return;
+                }
+            }
+            for (int i = 1; i < call.size(); i += 2) {
+                call.db.put(call.arg(i), call.raw(i + 1));
+            }
+            call.out.integer(1);
+        });
+        register("STRLEN", 2, call -> {
+            byte[] value = call.db.getString(call.arg(1));
+            call.out.integer(null == value ? 0 : value.length);
+        });
+        register("GETRANGE", 4, call -> {
+            byte[] value = call.db.getString(call.arg(1));
+            long length = null == value ? 0 : value.length;
+            long start = call.longArg(2) < 0 ? Math.max(0, length + call.longArg(2)) : call.longArg(2);
+            long end = Math.min(length - 1, call.longArg(3) < 0 ? length + call.longArg(3) : call.longArg(3));
+            call.out.bulk(start > end ? new byte[0] : Arrays.copyOfRange(value, (int) start, (int) end + 1));
+        });
+        register("APPEND", 3, call -> {
+            byte[] value = call.db.getString(call.arg(1));
+            byte[] suffix = call.raw(2);
+            byte[] appended = null == value ? suffix : Arrays.copyOf(value, value.length + suffix.length);
+            if (null != value) {
+                System.arraycopy(suffix, 0, appended, value.length, suffix.length);
+            }
+            call.db.replace(call.arg(1), appended);
+            call.out.integer(appended.length);
+        });
+        register("INCR", 2, call -> incrBy(call, 1));
+        register("DECR", 2, call -> incrBy(call, -1));
+        register("INCRBY", 3, call -> incrBy(call, call.longArg(2)));
+        register("DECRBY", 3, call -> incrBy(call, -call.longArg(2)));
+        register("INCRBYFLOAT", 3, call -> {
+            byte[] value = call.db.getString(call.arg(1));
+            double result = (null == value ? 0 : parseDouble(value)) + call.doubleArg(2);
+            byte[] stored = RespWriter.formatDouble(result).getBytes(StandardCharsets.US_ASCII);
+            call.db.replace(call.arg(1), stored);
+            call.out.bulk(stored);
+        });
+    }
+
+    private void set(Call call) {
+        long expireAt = -1;
+        boolean keepTtl = false;
+        boolean nx = false;
+        boolean xx = false;
+        boolean get = false;
+        for (int i = 3; i < call.size(); i++) {
+            String option = call.option(i);
+            boolean hasValue = i + 1 < call.size();
+            if ("NX".equals(option)) {
+                nx = true;
+            } else if ("XX".equals(option)) {
+                xx = true;
+            } else if ("GET".equals(option)) {
+                get = true;
+            } else if ("KEEPTTL".equals(option)) {
+                keepTtl = true;
+            } else if (hasValue && ("EX".equals(option) || "PX".equals(option)
+                    || "EXAT".equals(option) || "PXAT".equals(option))) {
+                long value = call.longArg(++i);
+                if (value <= 0) {
+                    throw new CommandException("ERR invalid expire time in 'set' command");
+                }
+                long now = System.currentTimeMillis();
+                switch (option) {
+                    case "EX":
+                        expireAt = now + value * 1000;
+                        break;
+                    case "PX":
+                        expireAt = now + value;
+                        break;
+                    case "EXAT":
+                        expireAt = value * 1000;
+                        break;
+                    default:
+                        expireAt = value;
+                }
+            } else {
+                throw new CommandException(SYNTAX_ERROR);
+            }
+        }
+        if (nx && xx || keepTtl && expireAt >= 0) {
+            throw new CommandException(SYNTAX_ERROR);
+        }
+        String key = call.arg(1);
+        byte[] previous = get ? call.db.getString(key) : null;
+        Keyspace.Entry existing = call.db.lookup(key);
+        if (nx && null != existing || xx && null == existing) {
+            if (get) {
+                call.out.bulk(previous);
+            } else {
+                call.out.nullValue();
+            }
+            return;
+        }
+        long previousExpireAt = null == existing ? -1 : existing.expireAt;
+        call.db.put(key, call.raw(2));
+        call.db.lookup(key).expireAt = keepTtl ? previousExpireAt : expireAt;
+        if (get) {
+            call.out.bulk(previous);
+        } else {
+            call.out.ok();
+        }
+    }
+
+    private void setWithExpire(Call call, long millis, String command) {
+        if (millis <= 0) {
+            throw new CommandException("ERR invalid expire time in '" + command + "' command");
+        }
+        call.db.put(call.arg(1), call.raw(3));
+        call.db.lookup(call.arg(1)).expireAt = System.currentTimeMillis() + millis;
+        call.out.ok();
+    }
+
+    private void incrBy(Call call, long delta) {
+        byte[] value = call.db.getString(call.arg(1));
+        long current = null == value ? 0 : parseLong(value);
+        long result = current + delta;
+        if (((current ^ result) & (delta ^ result)) < 0) {
+            throw new CommandException("ERR increment or decrement would overflow");
+        }
+        call.db.replace(call.arg(1), Long.toString(result).getBytes(StandardCharsets.US_ASCII));
+        call.out.integer(result);
+    }
+
+    // ---------------------------------------------------------------- hashes
+
+    private void registerHashCommands() {
+        register("HSET", -4, call -> {
+            requirePairs(call, 2);
+            Map<String, byte[]> hash = call.db.getHash(call.arg(1), true);
+            long added = 0;
+            for (int i = 2; i < call.size(); i += 2) {
+                if (null == hash.put(call.arg(i), call.raw(i + 1))) {
+                    added++;
+                }
+            }
+            call.out.integer(added);
+        });
+        register("HMSET", -4, call -> {
+            requirePairs(call, 2);
+            Map<String, byte[]> hash = call.db.getHash(call.arg(1), true);
+            for (int i = 2; i < call.size(); i += 2) {
+                hash.put(call.arg(i), call.raw(i + 1));
+            }
+            call.out.ok();
+        });
+        register("HSETNX", 4, call -> {
+            Map<String, byte[]> hash = call.db.getHash(call.arg(1), true);
+            call.out.integer(null == hash.putIfAbsent(call.arg(2), call.raw(3)) ? 1 : 0);
+        });
+        register("HGET", 3, call -> {
+            Map<String, byte[]> hash = call.db.getHash(call.arg(1), false);
+            call.out.bulk(null == hash ? null : hash.get(call.arg(2)));
+        });
+        register("HMGET", -3, call -> {
+            Map<String, byte[]> hash = call.db.getHash(call.arg(1), false);
+            call.out.array(call.size() - 2);
+            for (int i = 2; i < call.size(); i++) {
+                call.out.bulk(null == hash ? null : hash.get(call.arg(i)));
+            }
+        });
+        register("HGETALL", 2, call -> {
+            Map<String, byte[]> hash = call.db.getHash(call.arg(1), false);
+            if (null == hash) {
+                call.out.map(0);
+                return;
+            }
+            call.out.map(hash.size());
+            for (Map.Entry<String, byte[]> entry : hash.entrySet()) {
+                call.out.bulk(entry.getKey()).bulk(entry.getValue());
+            }
+        });
+        register("HDEL", -3, call -> {
+            Map<String, byte[]> hash = call.db.getHash(call.arg(1), false);
+            long removed = 0;
+            for (int i = 2; null != hash && i < call.size(); i++) {
+                if (null != hash.remove(call.arg(i))) {
+                    removed++;
+                }
+            }
+            call.db.removeIfEmpty(call.arg(1));
+            call.out.integer(removed);
+        });
+        register("HEXISTS", 3, call -> {
+            Map<String, byte[]> hash = call.db.getHash(call.arg(1), false);
+            call.out.integer(null != hash && hash.containsKey(call.arg(2)) ? 1 : 0);
+        });
+        register("HLEN", 2, call -> {
+            Map<String, byte[]> hash = call.db.getHash(call.arg(1), false);
+            call.out.integer(null == hash ? 0 : hash.size());
+        });
+        register("HSTRLEN", 3, call -> {
+            Map<String, byte[]> hash = call.db.getHash(call.arg(1), false);
+            byte[] value = null == hash ? null : hash.get(call.arg(2));
+            call.out.integer(null == value ? 0 : value.length);
+        });
+        register("HKEYS", 2, call -> {
+            Map<String, byte[]> hash = call.db.getHash(call.arg(1), false);
+            writeStrings(call.out, null == hash ? new ArrayList<>() : new ArrayList<>(hash.keySet()));
+        });
+        register("HVALS", 2, call -> {
+            Map<String, byte[]> hash = call.db.getHash(call.arg(1), false);
+            writeBytes(call.out, null == hash ? new ArrayList<>() : new ArrayList<>(hash.values()));
+        });
+        register("HINCRBY", 4, call -> {
+            Map<String, byte[]> hash = call.db.getHash(call.arg(1), true);
+            byte[] value = hash.get(call.arg(2));
+            long result = (null == value ? 0 : parseLong(value)) + call.longArg(3);
+            hash.put(call.arg(2), Long.toString(result).getBytes(StandardCharsets.US_ASCII));
+            call.out.integer(result);
+        });
+        register("HINCRBYFLOAT", 4, call -> {
+            Map<String, byte[]> hash = call.db.getHash(call.arg(1), true);
+            byte[] value = hash.get(call.arg(2));
+            double result = (null == value ? 0 : parseDouble(value)) + call.doubleArg(3);
+            byte[] stored = RespWriter.formatDouble(result).getBytes(StandardCharsets.US_ASCII);
+            hash.put(call.arg(2), stored);
+            call.out.bulk(stored);
+        });
+        register("HSCAN", -3, call -> {
+            Map<String, byte[]> hash = call.db.getHash(call.arg(1), false);
+            List<String> fields = null == hash ? new ArrayList<>() : new ArrayList<>(hash.keySet());
+            scanElements(call, fields, field -> hash.get(field));
+        });
+    }
+
+    // ---------------------------------------------------------------- lists
+
+    private void registerListCommands() {
+        register("LPUSH", -3, call -> push(call, true, true));
+        register("RPUSH", -3, call -> push(call, false, true));
+        register("LPUSHX", -3, call -> push(call, true, false));
+        register("RPUSHX", -3, call -> push(call, false, false));
+        register("LPOP", -2, call -> pop(call, true));
+        register("RPOP", -2, call -> pop(call, false));
+        register("LLEN", 2, call -> {
+            LinkedList<byte[]> list = call.db.getList(call.arg(1), false);
+            call.out.integer(null == list ? 0 : list.size());
+        });
+        register("LRANGE", 4, call -> {
+            LinkedList<byte[]> list = call.db.getList(call.arg(1), false);
+            int[] range = null == list ? null : range(call.longArg(2), call.longArg(3), list.size());
+            writeBytes(call.out, null == range ? new ArrayList<>() : list.subList(range[0], range[1] + 1));
+        });
+        register("LINDEX", 3, call -> {
+            LinkedList<byte[]> list = call.db.getList(call.arg(1), false);
+            int index = null == list ? -1 : index(call.longArg(2), list.size());
+            call.out.bulk(index < 0 ? null : list.get(index));
+        });
+        register("LSET", 4, call -> {
+            LinkedList<byte[]> list = call.db.getList(call.arg(1), false);
+            if (null == list) {
+                throw new CommandException("ERR no such key");
+            }
+            int index = index(call.longArg(2), list.size());
+            if (index < 0) {
+                throw new CommandException("ERR index out of range");
+            }
+            list.set(index, call.raw(3));
+            call.out.ok();
+        });
+        register("LREM", 4, this::lrem);
+        register("LTRIM", 4, call -> {
+            LinkedList<byte[]> list = call.db.getList(call.arg(1), false);
+            if (null != list) {
+                int[] range = range(call.longArg(2), call.longArg(3), list.size());
+                List<byte[]> kept = null == range ? new ArrayList<>() : new ArrayList<>(
+                        list.subList(range[0], range[1] + 1));
+                list.clear();
+                list.addAll(kept);
+                call.db.removeIfEmpty(call.arg(1));
+            }
+            call.out.ok();
+        });
+        register("LINSERT", 5, call -> {
+            String where = call.option(2);
+            if (!"BEFORE".equals(where) && !"AFTER".equals(where)) {
+                throw new CommandException(SYNTAX_ERROR);
+            }
+            LinkedList<byte[]> list = call.db.getList(call.arg(1), false);
+            if (null == list) {
+                call.out.integer(0);
+                return;
+            }
+            ListIterator<byte[]> iterator = list.listIterator();
+            while (iterator.hasNext()) {
+                if (Arrays.equals(iterator.next(), call.raw(3))) {
+                    if ("BEFORE".equals(where)) {
+                        iterator.previous();
+                    }
+                    iterator.add(call.raw(4));
+                    call.out.integer(list.size());
+                    return;
+                }
+            }
+            call.out.integer(-1);
+        });
+    }
+
+    private void push(Call call, boolean left, boolean create) {
+        LinkedList<byte[]> list = call.db.getList(call.arg(1), create);
+        if (null == list) {
+            call.out.integer(0);
+            return;
+        }
+        for (int i = 2; i < call.size(); i++) {
+            if (left) {
+                list.addFirst(call.raw(i));
+            } else {
+                list.addLast(call.raw(i));
+            }
+        }
+        call.out.integer(list.size());
+    }
+
+    private void pop(Call call, boolean left) {
+        LinkedList<byte[]> list = call.db.getList(call.arg(1), false);
+        if (call.size() > 2) {
+            long count = call.longArg(2);
+            if (null == list) {
+                call.out.nullArray();
+                return;
+            }
+            List<byte[]> popped = new ArrayList<>();
+            while (popped.size() < count && !list.isEmpty()) {
+                popped.add(left ? list.removeFirst() : list.removeLast());
+            }
+            call.db.removeIfEmpty(call.arg(1));
+            writeBytes(call.out, popped);
+            return;
+        }
+        byte[] value = null == list || list.isEmpty() ? null : left ? list.removeFirst() : list.removeLast();
+        call.db.removeIfEmpty(call.arg(1));
+        call.out.bulk(value);
+    }
+
+    private void lrem(Call call) {
+        LinkedList<byte[]> list = call.db.getList(call.arg(1), false);
+        long count = call.longArg(2);
+        long removed = 0;
+        if (null != list) {
+            Iterator<byte[]> iterator = count < 0 ? list.descendingIterator() : list.iterator();
+            long limit = count == 0 ? Long.MAX_VALUE : Math.abs(count);
+            while (iterator.hasNext() && removed < limit) {
+                if (Arrays.equals(iterator.next(), call.raw(3))) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+            call.db.removeIfEmpty(call.arg(1));
+        }
+        call.out.integer(removed);
+    }
+
+    // ---------------------------------------------------------------- sets
+
+    private void registerSetCommands() {
+        register("SADD", -3, call -> {
+            Set<String> set = call.db.getSet(call.arg(1), true);
+            long added = 0;
+            for (int i = 2; i < call.size(); i++) {
+                if (set.add(call.arg(i))) {
+                    added++;
+                }
+            }
+            call.out.integer(added);
+        });
+        register("SREM", -3, call -> {
+            Set<String> set = call.db.getSet(call.arg(1), false);
+            long removed = 0;
+            for (int i = 2; null != set && i < call.size(); i++) {
+                if (set.remove(call.arg(i))) {
+                    removed++;
+                }
+            }
+            call.db.removeIfEmpty(call.arg(1));
+            call.out.integer(removed);
+        });
+        register("SMEMBERS", 2, call -> {
+            Set<String> set = call.db.getSet(call.arg(1), false);
+            writeSet(call.out, null == set ? new HashSet<>() : set);
+        });
+        register("SISMEMBER", 3, call -> {
+            Set<String> set = call.db.getSet(call.arg(1), false);
+            call.out.integer(null != set && set.contains(call.arg(2)) ? 1 : 0);
+        });
+        register("SMISMEMBER", -3, call -> {
+            Set<String> set = call.db.getSet(call.arg(1), false);
+            call.out.array(call.size() - 2);
+            for (int i = 2; i < call.size(); i++) {
+                call.out.integer(null != set && set.contains(call.arg(i)) ? 1 : 0);
+            }
+        });
+        register("SCARD", 2, call -> {
+            Set<String> set = call.db.getSet(call.arg(1), false);
+            call.out.integer(null == set ? 0 : set.size());
+        });
+        register("SPOP", -2, call -> {
+            Set<String> set = call.db.getSet(call.arg(1), false);
+            List<String> members = randomMembers(set, call.size() > 2 ? call.longArg(2) : 1);
+            if (null != set) {
+                set.removeAll(members);
+                call.db.removeIfEmpty(call.arg(1));
+            }
+            if (call.size() > 2) {
+                writeStrings(call.out, members);
+            } else {
+                call.out.bulk(members.isEmpty() ? null : members.get(0));
+            }
+        });
+        register("SRANDMEMBER", -2, call -> {
+            Set<String> set = call.db.getSet(call.arg(1), false);
+            if (call.size() == 2) {
+                List<String> members = randomMembers(set, 1);
+                call.out.bulk(members.isEmpty() ? null : members.get(0));
+                return;
+            }
+            long count = call.longArg(2);
+            if (count >= 0 || null == set || set.isEmpty()) {
+                writeStrings(call.out, randomMembers(set, count));
+                return;
+            }
+            List<String> all = new ArrayList<>(set);
+            List<String> members = new ArrayList<>();
+            for (long i = 0; i < -count; i++) {
+                members.add(all.get(ThreadLocalRandom.current().nextInt(all.size())));
+            }
+            writeStrings(call.out, members);
+        });
+        register("SINTER", -2, call -> writeSet(call.out, combine(call, 1, "SINTER")));
+        register("SUNION", -2, call -> writeSet(call.out, combine(call, 1, "SUNION")));
+        register("SDIFF", -2, call -> writeSet(call.out, combine(call, 1, "SDIFF")));
+        register("SSCAN", -3, call -> {
+            Set<String> set = call.db.getSet(call.arg(1), false);
+            List<String> members = null == set ? new ArrayList<>() : new ArrayList<>(set);
+            scanElements(call, members, null);
+        });
+    }
+
+    private static List<String> randomMembers(Set<String> set, long count) {
+        if (null == set || set.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<String> members = new ArrayList<>(set);
+        Collections.shuffle(members, ThreadLocalRandom.current());
+        return members.subList(0, (int) Math.min(count, members.size()));
+    }
+
+    private Set<String> combine(Call call, int from, String operation) {
+        Set<String> result = null;
+        for (int i = from; i < call.size(); i++) {
+            Set<String> set = call.db.getSet(call.arg(i), false);
+            Set<String> members = null == set ? new HashSet<>() : set;
+            if (null == result) {
+                result = new LinkedHashSet<>(members);
+            } else if ("SINTER".equals(operation)) {
+                result.retainAll(members);
+            } else if ("SUNION".equals(operation)) {
+                result.addAll(members);
+            } else {
+                result.removeAll(members);
+            }
+        }
+        return result;
+    }
+
+    // ---------------------------------------------------------------- sorted sets
+
+    private void registerZSetCommands() {
+        register("ZADD", -4, this::zadd);
+        register("ZINCRBY", 4, call -> {
+            ZSetValue zset = call.db.getZSet(call.arg(1), true);
+            Double score = zset.score(call.arg(3));
+            double result = (null == score ? 0 : score) + call.doubleArg(2);
+            zset.put(call.arg(3), result);
+            call.out.doubleValue(result);
+        });
+        register("ZSCORE", 3, call -> {
+            ZSetValue zset = call.db.getZSet(call.arg(1), false);
+            Double score = null == zset ? null : zset.score(call.arg(2));
+            if (null == score) {
+                call.out.nullValue();
+            } else {
+                call.out.doubleValue(score);
+            }
+        });
+        register("ZREM", -3, call -> {
+            ZSetValue zset = call.db.getZSet(call.arg(1), false);
+            long removed = 0;
+            for (int i = 2; null != zset && i < call.size(); i++) {
+                if (zset.remove(call.arg(i))) {
+                    removed++;
+                }
+            }
+            call.db.removeIfEmpty(call.arg(1));
+            call.out.integer(removed);
+        });
+        register("ZCARD", 2, call -> {
+            ZSetValue zset = call.db.getZSet(call.arg(1), false);
+            call.out.integer(null == zset ? 0 : zset.size());
+        });
+        register("ZCOUNT", 4, call -> {
+            ZSetValue zset = call.db.getZSet(call.arg(1), false);
+            call.out.integer(null == zset ? 0 : zset.rangeByScore(call.bound(2), call.bound(3), false).size());
+        });
+        register("ZRANK", 3, call -> rank(call, false));
+        register("ZREVRANK", 3, call -> rank(call, true));
+        register("ZRANGE", -4, call -> zrange(call, false));
+        register("ZREVRANGE", -4, call -> zrange(call, true));
+        register("ZRANGEBYSCORE", -4, call -> zrangeByScore(call, false));
+        register("ZREVRANGEBYSCORE", -4, call -> zrangeByScore(call, true));
+        register("ZREMRANGEBYSCORE", 4, call -> {
+            ZSetValue zset = call.db.getZSet(call.arg(1), false);
+            List<ZSetValue.Member> members = null == zset ? new ArrayList<>()
+                    : zset.rangeByScore(call.bound(2), call.bound(3), false);
+            for (ZSetValue.Member member : members) {
+                zset.remove(member.name);
+            }
+            call.db.removeIfEmpty(call.arg(1));
+            call.out.integer(members.size());
+        });
+        register("ZREMRANGEBYRANK", 4, call -> {
+            ZSetValue zset = call.db.getZSet(call.arg(1), false);
+            int[] range = null == zset ? null : range(call.longArg(2), call.longArg(3), zset.size());
+            List<ZSetValue.Member> members = null == range ? new ArrayList<>()
+                    : zset.range(range[0], range[1], false);
+            for (ZSetValue.Member member : members) {
+                zset.remove(member.name);
+            }
+            call.db.removeIfEmpty(call.arg(1));
+            call.out.integer(members.size());
+        });
+        register("ZSCAN", -3, call -> {
+            ZSetValue zset = call.db.getZSet(call.arg(1), false);
+            List<String> members = new ArrayList<>();
+            if (null != zset) {
+                for (ZSetValue.Member member : zset.members()) {
+                    members.add(member.name);
+                }
+            }
+            scanElements(call, members, member -> RespWriter.formatDouble(zset.score(member))
+                    .getBytes(StandardCharsets.US_ASCII));
+        });
+    }
+
+    private void zadd(Call call) {
+        boolean nx = false;
+        boolean xx = false;
+        boolean gt = false;
+        boolean lt = false;
+        boolean ch = false;
+        boolean incr = false;
+        int index = 2;
+        for (; index < call.size(); index++) {
+            String option = call.option(index);
+            if ("NX".equals(option)) {
+                nx = true;
+            } else if ("XX".equals(option)) {
+                xx = true;
+            } else if ("GT".equals(option)) {
+                gt = true;
+            } else if ("LT".equals(option)) {
+                lt = true;
+            } else if ("CH".equals(option)) {
+                ch = true;
+            } else if ("INCR".equals(option)) {
+                incr = true;
+            } else {
+                break;
+            }
+        }
+        int pairs = call.size() - index;
+        if (pairs == 0 || pairs % 2 != 0 || nx && (xx || gt || lt) || gt && lt || incr && pairs != 2) {
+            throw new CommandException(SYNTAX_ERROR);
+        }
+        double[] scores = new double[pairs / 2];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = call.doubleArg(index + i * 2);
+        }
+        ZSetValue zset = call.db.getZSet(call.arg(1), !xx);
+        long added = 0;
+        long changed = 0;
+        Double result = null;
+        for (int i = 0; null != zset && i < scores.length; i++) {
+            String member = call.arg(index + i * 2 + 1);
+            Double current = zset.score(member);
+            double score = incr ? (null == current ? 0 : current) + scores[i] : scores[i];
+            boolean skip = nx && null != current || xx && null == current
+                    || null != current && (gt && score <= current || lt && score >= current);
+            if (skip) {
+                continue;
+            }
+            if (zset.put(member, score)) {
+                added++;
+                changed++;
+            } else if (current != score) {
+                changed++;
+            }
+            result = score;
+        }
+        if (null != zset) {
+            call.db.removeIfEmpty(call.arg(1));
+        }
+        if (incr) {
+            if (null == result) {
+                call.out.nullValue();
+            } else {
+                call.out.doubleValue(result);
+            }
+        } else {
+            call.out.integer(ch ? changed : added);
+        }
+    }
+
+    private void rank(Call call, boolean reverse) {
+        ZSetValue zset = call.db.getZSet(call.arg(1), false);
+        int rank = null == zset ? -1 : zset.rank(call.arg(2), reverse);
+        if (rank < 0) {
+            call.out.nullValue();
+        } else {
+            call.out.integer(rank);
+        }
+    }
+
+    private void zrange(Call call, boolean reverse) {
+        boolean withScores = false;
+        for (int i = 4; i < call.size(); i++) {
+            if (!"WITHSCORES".equals(call.option(i))) {
+                throw new CommandException(SYNTAX_ERROR);
+            }
+            withScores = true;
+        }
+        ZSetValue zset = call.db.getZSet(call.arg(1), false);
+        int[] range = null == zset ? null : range(call.longArg(2), call.longArg(3), zset.size());
+        writeMembers(call.out, null == range ? new ArrayList<>() : zset.range(range[0], range[1], reverse),
+                withScores);
+    }
+
+    private void zrangeByScore(Call call, boolean reverse) {
+        boolean withScores = false;
+        long offset = 0;
+        long count = -1;
+        for (int i = 4; i < call.size(); i++) {
+            String option = call.option(i);
+            if ("WITHSCORES".equals(option)) {
+                withScores = true;
+            } else if ("LIMIT".equals(option) && i + 2 < call.size()) {
+                offset = call.longArg(i + 1);
+                count = call.longArg(i + 2);
+                i += 2;
+            } else {
+                throw new CommandException(SYNTAX_ERROR);
+            }
+        }
+        ZSetValue zset = call.db.getZSet(call.arg(1), false);
+        List<ZSetValue.Member> members = new ArrayList<>();
+        if (null != zset) {
+            ZSetValue.ScoreBound min = call.bound(reverse ? 3 : 2);
+            ZSetValue.ScoreBound max = call.bound(reverse ? 2 : 3);
+            List<ZSetValue.Member> all = zset.rangeByScore(min, max, reverse);
+            for (long i = Math.max(offset, 0); i < all.size() && (count < 0 || members.size() < count); i++) {
+                members.add(all.get((int) i));
+            }
+        }
+        writeMembers(call.out, members, withScores);
+    }
+
+    private static void writeMembers(RespWriter out, List<ZSetValue.Member> members, boolean withScores) {
+        if (!withScores) {
+            out.array(members.size());
+            for (ZSetValue.Member member : members) {
+                out.bulk(member.name);
+            }
+            return;
+        }
+        if (out.isResp3()) {
+            out.array(members.size());
+            for (ZSetValue.Member member : members) {
+                out.array(2).bulk(member.name).doubleValue(member.score);
+            }
+            return;
+        }
+        out.array(members.size() * 2);
+        for (ZSetValue.Member member : members) {
+            out.bulk(member.name).doubleValue(member.score);
+        }
+    }
+
+    // ---------------------------------------------------------------- scripts
+
+    private void registerScriptCommands() {
+        register("EVAL", -3, call -> {
+            String script = call.utf8(1);
+            server.scripts.put(sha1(script), script);
+            eval(call, script);
+        });
+        register("EVALSHA", -3, call -> {
+            String script = server.scripts.get(call.arg(1).toLowerCase(Locale.ROOT));
+            if (null == script) {
+                throw new CommandException("NOSCRIPT No matching script. Please use EVAL.");
+            }
+            eval(call, script);
+        });
+        register("SCRIPT", -2, call -> {
+            switch (call.option(1)) {
+                case "LOAD":
+                    String script = call.utf8(2);
+                    String sha = sha1(script);
+                    server.scripts.put(sha, script);
+                    call.out.text(sha);
+                    break;
+                case "EXISTS":
+                    call.out.array(call.size() - 2);
+                    for (int i = 2; i < call.size(); i++) {
+                        call.out.integer(server.scripts.containsKey(call.arg(i).toLowerCase(Locale.ROOT)) ? 1 : 0);
+                    }
+                    break;
+                case "FLUSH":
+                    server.scripts.clear();
+                    call.out.ok();
+                    break;
+                case "KILL":
+                    throw new CommandException("NOTBUSY No scripts in execution right now.");
+                default:
+                    throw new CommandException("ERR unknown subcommand '" + call.arg(1) + "'");
+            }
+        });
+    }
+
+    private void eval(Call call, String script) {
+        EmbeddedScript stub = server.scriptStubs.get(script);
+        if (null == stub) {
+            throw new CommandException("ERR scripting is not supported by the embedded redis server, "
+                    + "register a stub with EmbeddedRedisServer#registerScript");
+        }
+        int numKeys = (int) call.longArg(2);
+        if (numKeys < 0 || 3 + numKeys > call.size()) {
+            throw new CommandException("ERR Number of keys can't be greater than number of args");
+        }
+        List<byte[]> keys = new ArrayList<>(call.args.subList(3, 3 + numKeys));
+        List<byte[]> args = new ArrayList<>(call.args.subList(3 + numKeys, call.size()));
+        Object result;
+        try {
+            result = stub.execute(keys, args);
+        } catch (IllegalStateException ex) {
+            throw new CommandException(ex.getMessage());
+        }
+        writeScriptResult(call.out, result);
+    }
+
+    private static void writeScriptResult(RespWriter out, Object result) {
+        if (null == result || Boolean.FALSE.equals(result)) {
+            out.nullValue();
+        } else if (Boolean.TRUE.equals(result)) {
+            out.integer(1);
+        } else if (result instanceof Number) {
+            out.integer(((Number) result).longValue());
+        } else if (result instanceof byte[]) {
+            out.bulk((byte[]) result);
+        } else if (result instanceof List) {
+            List<?> items = (List<?>) result;
+            out.array(items.size());
+            for (Object item : items) {
+                writeScriptResult(out, item);
+            }
+        } else {
+            out.text(result.toString());
+        }
+    }
+
+    static String sha1(String script) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    // ---------------------------------------------------------------- pub/sub
+
+    private void registerPubSubCommands() {
+        register("SUBSCRIBE", -2, call -> {
+            for (int i = 1; i < call.size(); i++) {
+                String channel = call.arg(i);
+                if (call.client.channels.add(channel)) {
+                    server.channels.computeIfAbsent(channel, k -> new LinkedHashSet<>()).add(call.client);
+                }
+                subscription(call, "subscribe", channel);
+            }
+        });
+        register("PSUBSCRIBE", -2, call -> {
+            for (int i = 1; i < call.size(); i++) {
+                String pattern = call.arg(i);
+                if (call.client.patterns.add(pattern)) {
+                    server.patterns.computeIfAbsent(pattern, k -> new LinkedHashSet<>()).add(call.client);
+                }
+                subscription(call, "psubscribe", pattern);
+            }
+        });
+        register("UNSUBSCRIBE", -1, call -> unsubscribe(call, call.client.channels, server.channels,
+                "unsubscribe"));
+        register("PUNSUBSCRIBE", -1, call -> unsubscribe(call, call.client.patterns, server.patterns,
+                "punsubscribe"));
+        register("PUBLISH", 3, call -> call.out.integer(publish(call.arg(1), call.raw(2))));
+        register("PUBSUB", -2, call -> {
+            switch (call.option(1)) {
+                case "CHANNELS":
+                    List<String> channels = new ArrayList<>();
+                    for (String channel : server.channels.keySet()) {
+                        if (call.size() < 3 || Glob.matches(call.arg(2), channel)) {
+                            channels.add(channel);
+                        }
+                    }
+                    writeStrings(call.out, channels);
+                    break;
+                case "NUMSUB":
+                    call.out.map(call.size() - 2);
+                    for (int i = 2; i < call.size(); i++) {
+                        Set<ClientConnection> subscribers = server.channels.get(call.arg(i));
+                        call.out.bulk(call.arg(i)).integer(null == subscribers ? 0 : subscribers.size());
+                    }
+                    break;
+                case "NUMPAT":
+                    call.out.integer(server.patterns.size());
+                    break;
+                default:
+                    throw new CommandException("ERR unknown subcommand '" + call.arg(1) + "'");
+            }
+        });
+    }
+
+    private void subscription(Call call, String kind, String channel) {
+        call.out.push(3).text(kind);
+        if (null == channel) {
+            call.out.nullValue();
+        } else {
+            call.out.bulk(channel);
+        }
+        call.out.integer(call.client.subscriptionCount());
+    }
+
+    private void unsubscribe(Call call, Set<String> subscribed, Map<String, Set<ClientConnection>> registry,
+                             String kind) {
+        List<String> targets = new ArrayList<>();
+        for (int i = 1; i < call.size(); i++) {
+            targets.add(call.arg(i));
+        }
+        if (targets.isEmpty()) {
+            targets.addAll(subscribed);
+        }
+        if (targets.isEmpty()) {
+            subscription(call, kind, null);
+            return;
+        }
+        for (String target : targets) {
+            if (subscribed.remove(target)) {
+                removeSubscriber(registry, target, call.client);
+            }
+            subscription(call, kind, target);
+        }
+    }
+
+    private static void removeSubscriber(Map<String, Set<ClientConnection>> registry, String name,
+                                         ClientConnection client) {
+        Set<ClientConnection> subscribers = registry.get(name);
+        if (null != subscribers) {
+            subscribers.remove(client);
+            if (subscribers.isEmpty()) {
+                registry.remove(name);
+            }
+        }
+    }
+
+    private long publish(String channel, byte[] message) {
+        long receivers = 0;
+        Set<ClientConnection> subscribers = server.channels.get(channel);
+        if (null != subscribers) {
+            for (ClientConnection subscriber : subscribers) {
+                RespWriter out = new RespWriter(subscriber.protocol);
+                out.push(3).text("message").bulk(channel).bulk(message);
+                deliver(subscriber, out);
+                receivers++;
+            }
+        }
+        for (Map.Entry<String, Set<ClientConnection>> entry : server.patterns.entrySet()) {
+            if (!Glob.matches(entry.getKey(), channel)) {
+                continue;
+            }
+            for (ClientConnection subscriber : entry.getValue()) {
+                RespWriter out = new RespWriter(subscriber.protocol);
+                out.push(4).text("pmessage").bulk(entry.getKey()).bulk(channel).bulk(message);
+                deliver(subscriber, out);
+                receivers++;
+            }
+        }
+        return receivers;
+    }
+
+    private static void deliver(ClientConnection subscriber, RespWriter out) {
+        try {
+            subscriber.send(out.toByteArray(), true);
+        } catch (IOException ex) {
+            subscriber.closing = true;
+        }
+    }
+
+    // ---------------------------------------------------------------- transactions
+
+    private void registerTransactionCommands() {
+        register("MULTI", 1, call -> {
+            if (null != call.client.transaction) {
+                throw new CommandException("ERR MULTI calls can not be nested");
+            }
+            call.client.beginTransaction();
+            call.out.ok();
+        });
+        register("EXEC", 1, call -> {
+            List<List<byte[]>> queued = call.client.transaction;
+            boolean failed = call.client.transactionFailed;
+            if (null == queued) {
+                throw new CommandException("ERR EXEC without MULTI");
+            }
+            call.client.endTransaction();
+            if (failed) {
+                throw new CommandException("EXECABORT Transaction discarded because of previous errors.");
+            }
+            call.out.array(queued.size());
+            for (List<byte[]> command : queued) {
+                process(call.client, command, call.out);
+            }
+        });
+        register("DISCARD", 1, call -> {
+            if (null == call.client.transaction) {
+                throw new CommandException("ERR DISCARD without MULTI");
+            }
+            call.client.endTransaction();
+            call.out.ok();
+        });
+        register("WATCH", -2, call -> call.out.ok());
+        register("UNWATCH", 1, call -> call.out.ok());
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    private void scanElements(Call call, List<String> elements, ValueLookup values) {
+        ScanOptions options = new ScanOptions(call, 3);
+        List<String> page = new ArrayList<>();
+        long next = scanPage(elements, call.longArg(2), options.count, page);
+        List<byte[]> matched = new ArrayList<>();
+        for (String element : page) {
+            if (options.matches(element)) {
+                matched.add(element.getBytes(StandardCharsets.ISO_8859_1));
+                if (null != values) {
+                    matched.add(values.lookup(element));
+                }
+            }
+        }
+        call.out.array(2).text(Long.toString(next));
+        writeBytes(call.out, matched);
+    }
+
+    /**
+     * 按 (哈希值, 元素) 排序遍历，游标为下一个元素的哈希值加 1，0 表示开始或结束。
+     * 与 Redis 相同，遍历期间一直存在的元素一定会返回，期间增删其他元素不影响游标位置；哈希值相同的元素在同一页返回
+     *
+     * @param items  所有元素
+     * @param cursor 游标
+     * @param count  本页的元素数量
+     * @param page   本页的元素
+     * @return 下一页的游标
+     */
+    private static long scanPage(Collection<String> items, long cursor, long count, List<String> page) {
+        List<String> sorted = new ArrayList<>(items);
+        sorted.sort(SCAN_ORDER);
+        int index = 0;
+        while (index < sorted.size() && scanHash(sorted.get(index)) + 1 < cursor) {
+            index++;
+        }
+        while (index < sorted.size() && (page.size() < count
+                || scanHash(sorted.get(index)) == scanHash(page.get(page.size() - 1)))) {
+            page.add(sorted.get(index++));
+        }
+        return index >= sorted.size() ? 0 : scanHash(sorted.get(index)) + 1;
+    }
+
+    private static long scanHash(String element) {
+        return element.hashCode() & 0x7fffffffL;
+    }
+
+    private static void requirePairs(Call call, int from) {
+        if ((call.size() - from) % 2 != 0) {
+            throw new CommandException("ERR wrong number of arguments for '"
+                    + call.arg(0).toLowerCase(Locale.ROOT) + "' command");
+        }
+    }
+
+    /**
+     * 负数下标转换为正数并截断到 [0, size)
+     *
+     * @return 空区间返回 null
+     */
+    private static int[] range(long start, long stop, int size) {
+        long from = start < 0 ? Math.max(size + start, 0) : start;
+        long to = stop < 0 ? size + stop : Math.min(stop, size - 1L);
+        if (from > to || from >= size) {
+            return null;
+        }
+        return new int[]{(int) from, (int) to};
+    }
+
+    private static int index(long index, int size) {
+        long position = index < 0 ? size + index : index;
+        return position < 0 || position >= size ? -1 : (int) position;
+    }
+
+    private static long parseLong(byte[] value) {
+        try {
+            return Long.parseLong(new String(value, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException ex) {
+            throw new CommandException(NOT_INTEGER);
+        }
+    }
+
+    private static double parseDouble(byte[] value) {
+        try {
+            return Double.parseDouble(new String(value, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException ex) {
+            throw new CommandException(NOT_FLOAT);
+        }
+    }
+
+    private static void writeStrings(RespWriter out, List<String> values) {
+        out.array(values.size());
+        for (String value : values) {
+            out.bulk(value);
+        }
+    }
+
+    private static void writeBytes(RespWriter out, List<byte[]> values) {
+        out.array(values.size());
+        for (byte[] value : values) {
+            out.bulk(value);
+        }
+    }
+
+    private static void writeSet(RespWriter out, Set<String> values) {
+        out.set(values.size());
+        for (String value : values) {
+            out.bulk(value);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Command {
+
+        void execute(Call call);
+    }
+
+    @FunctionalInterface
+    private interface ValueLookup {
+
+        byte[] lookup(String element);
+    }
+
+    private static final class CommandSpec {
+
+        /**
+         * 与 Redis 一致：正数表示参数个数(含命令名)固定，负数表示最少参数个数
+         */
+        private final int arity;
+
+        private final Command command;
+
+        private CommandSpec(int arity, Command command) {
+            this.arity = arity;
+            this.command = command;
+        }
+    }
+
+    /**
+     * SCAN 系列命令的 MATCH/COUNT/TYPE 参数
+     */
+    private static final class ScanOptions {
+
+        private String pattern;
+
+        private long count = 10;
+
+        private String type;
+
+        private ScanOptions(Call call, int from) {
+            for (int i = from; i < call.size(); i += 2) {
+                if (i + 1 >= call.size()) {
+                    throw new CommandException(SYNTAX_ERROR);
+                }
+                switch (call.option(i)) {
+                    case "MATCH":
+                        pattern = call.arg(i + 1);
+                        break;
+                    case "COUNT":
+                        count = call.longArg(i + 1);
+                        if (count < 1) {
+                            throw new CommandException(SYNTAX_ERROR);
+                        }
+                        break;
+                    case "TYPE":
+                        type = call.arg(i + 1).toLowerCase(Locale.ROOT);
+                        break;
+                    default:
+                        throw new CommandException(SYNTAX_ERROR);
+                }
+            }
+        }
+
+        private boolean matches(String value) {
+            return null == pattern || Glob.matches(pattern, value);
+        }
+    }
+
+    /**
+     * 一次命令调用的上下文
+     */
+    private static final class Call {
+
+        private final ClientConnection client;
+
+        private final List<byte[]> args;
+
+        private final RespWriter out;
+
+        private final Keyspace db;
+
+        private Call(ClientConnection client, List<byte[]> args, RespWriter out, Keyspace db) {
+            this.client = client;
+            this.args = args;
+            this.out = out;
+            this.db = db;
+        }
+
+        private int size() {
+            return args.size();
+        }
+
+        private byte[] raw(int index) {
+            return args.get(index);
+        }
+
+        /**
+         * key/field/member 使用 ISO-8859-1 字符串，与原始字节一一对应
+         */
+        private String arg(int index) {
+            return new String(args.get(index), StandardCharsets.ISO_8859_1);
+        }
+
+        private String utf8(int index) {
+            return new String(args.get(index), StandardCharsets.UTF_8);
+        }
+
+        private String option(int index) {
+            return arg(index).toUpperCase(Locale.ROOT);
+        }
+
+        private long longArg(int index) {
+            return parseLong(args.get(index));
+        }
+
+        private double doubleArg(int index) {
+            String value = arg(index);
+            if ("+inf".equalsIgnoreCase(value) || "inf".equalsIgnoreCase(value)) {
+                return Double.POSITIVE_INFINITY;
+            }
+            if ("-inf".equalsIgnoreCase(value)) {
+                return Double.NEGATIVE_INFINITY;
+            }
+            try {
+                double result = Double.parseDouble(value);
+                if (Double.isNaN(result)) {
+                    throw new CommandException(NOT_FLOAT);
+                }
+                return result;
+            } catch (NumberFormatException ex) {
+                throw new CommandException(NOT_FLOAT);
+            }
+        }
+
+        private ZSetValue.ScoreBound bound(int index) {
+            try {
+                return new ZSetValue.ScoreBound(arg(index));
+            } catch (NumberFormatException ex) {
+                throw new CommandException("ERR min or max is not a float");
+            }
+        }
+    }
+}
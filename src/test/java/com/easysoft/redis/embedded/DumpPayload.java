@@ -0,0 +1,168 @@
+package com.easysoft.redis.embedded;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DUMP/RESTORE 使用的序列化格式：魔数、类型标记和按类型写入的内容。
+ * <p>
+ * 与 Redis 的 RDB 格式不兼容，只能在嵌入式服务器之间迁移数据；内容不完整或魔数不符时 RESTORE 返回错误
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-02-04 10:00
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-02-04 10:00
+ */
+final class DumpPayload {
+
+    private static final int MAGIC = 0x45524442;
+
+    private static final byte STRING = 0;
+
+    private static final byte HASH = 1;
+
+    private static final byte LIST = 2;
+
+    private static final byte SET = 3;
+
+    private static final byte ZSET = 4;
+
+    private DumpPayload() {
+    }
+
+    static byte[] serialize(Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            if (value instanceof byte[]) {
+                out.writeByte(STRING);
+                writeBytes(out, (byte[]) value);
+            } else if (value instanceof Map) {
+                Map<String, byte[]> hash = (Map<String, byte[]>) value;
+                out.writeByte(HASH);
+                out.writeInt(hash.size());
+                for (Map.Entry<String, byte[]> field : hash.entrySet()) {
+                    writeString(out, field.getKey());
+                    writeBytes(out, field.getValue());
+                }
+            } else if (value instanceof LinkedList) {
+                LinkedList<byte[]> list = (LinkedList<byte[]>) value;
+                out.writeByte(LIST);
+                out.writeInt(list.size());
+                for (byte[] element : list) {
+                    writeBytes(out, element);
+                }
+            } else if (value instanceof Set) {
+                Set<String> set = (Set<String>) value;
+                out.writeByte(SET);
+                out.writeInt(set.size());
+                for (String member : set) {
+                    writeString(out, member);
+                }
+            } else {
+                ZSetValue zset = (ZSetValue) value;
+                out.writeByte(ZSET);
+                out.writeInt(zset.size());
+                for (ZSetValue.Member member : zset.members()) {
+                    writeString(out, member.name);
+                    out.writeDouble(member.score);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Object deserialize(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            if (in.readInt() != MAGIC) {
+                throw invalid();
+            }
+            Object value;
+            int size;
+            switch (in.readByte()) {
+                case STRING:
+                    value = readBytes(in);
+                    break;
+                case HASH:
+                    size = in.readInt();
+                    Map<String, byte[]> hash = new HashMap<>();
+                    for (int i = 0; i < size; i++) {
+                        hash.put(readString(in), readBytes(in));
+                    }
+                    value = hash;
+                    break;
+                case LIST:
+                    size = in.readInt();
+                    LinkedList<byte[]> list = new LinkedList<>();
+                    for (int i = 0; i < size; i++) {
+                        list.add(readBytes(in));
+                    }
+                    value = list;
+                    break;
+                case SET:
+                    size = in.readInt();
+                    Set<String> set = new HashSet<>();
+                    for (int i = 0; i < size; i++) {
+                        set.add(readString(in));
+                    }
+                    value = set;
+                    break;
+                case ZSET:
+                    size = in.readInt();
+                    ZSetValue zset = new ZSetValue();
+                    for (int i = 0; i < size; i++) {
+                        zset.put(readString(in), in.readDouble());
+                    }
+                    value = zset;
+                    break;
+                default:
+                    throw invalid();
+            }
+            if (in.available() > 0) {
+                throw invalid();
+            }
+            return value;
+        } catch (IOException ex) {
+            throw invalid();
+        }
+    }
+
+    private static CommandException invalid() {
+        return new CommandException("ERR DUMP payload version or checksum are wrong");
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw invalid();
+        }
+        byte[] value = new byte[length];
+        in.readFully(value);
+        return value;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,34 @@
+package com.easysoft.redis.embedded;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 内嵌 Redis 模拟服务配置，用于离线测试和基准测试，启用后连接工厂指向内嵌服务
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-21 09:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-21 09:20
+ */
+@Data
+@ConfigurationProperties(prefix = "easysoft.redis.embedded")
+public class EmbeddedProperties {
+
+    /**
+     * 是否启用
+     */
+    private boolean enabled = false;
+
+    /**
+     * 监听端口，0 表示随机端口
+     */
+    private int port = 0;
+
+    /**
+     * 所有命令的固定延迟，用于模拟网络延迟
+     */
+    private Duration latency = Duration.ZERO;
+}
@@ -0,0 +1,413 @@
+package com.easysoft.redis.embedded;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内 Redis 模拟服务，用于离线测试和基准测试。
+ * <p>
+ * 支持 RESP2/RESP3(HELLO)，实现字符串、哈希、列表、集合、有序集合、SCAN、过期、事务和发布订阅等常用命令，
+ * 脚本只能通过 {@link #registerScript(String, EmbeddedScript)} 注册桩实现。命令在全局锁内串行执行，与 Redis 单线程语义一致。
+ * <p>
+ * 支持延迟和故障注入：
+ * <pre>
+ * server.setLatency("GET", Duration.ofMillis(50));
+ * server.failNext("HGETALL", 1);
+ * server.dropNext("*", 1);
+ * </pre>
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-21 09:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-21 09:20
+ */
+@Slf4j
+public class EmbeddedRedisServer implements Closeable {
+
+    /**
+     * 匹配所有命令
+     */
+    public static final String ANY_COMMAND = "*";
+
+    public static final String DEFAULT_FAULT = "ERR injected fault";
+
+    /**
+     * INFO/HELLO 返回的版本号
+     */
+    static final String VERSION = "6.0.0";
+
+    static final int DATABASES = 16;
+
+    private final int requestedPort;
+
+    private final AtomicLong connectionIds = new AtomicLong();
+
+    private final Set<ClientConnection> connections = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, Duration> latencies = new ConcurrentHashMap<>();
+
+    private final Map<String, Fault> faults = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> commandStats = new ConcurrentHashMap<>();
+
+    /**
+     * 命令执行锁，所有数据、订阅关系和脚本都在锁内访问
+     */
+    final Object lock = new Object();
+
+    final Keyspace[] databases = new Keyspace[DATABASES];
+
+    final Map<String, Set<ClientConnection>> channels = new HashMap<>();
+
+    final Map<String, Set<ClientConnection>> patterns = new HashMap<>();
+
+    final Map<String, String> scripts = new HashMap<>();
+
+    final Map<String, EmbeddedScript> scriptStubs = new HashMap<>();
+
+    private final CommandProcessor processor = new CommandProcessor(this);
+
+    private volatile String password;
+
+    private ServerSocket serverSocket;
+
+    private ExecutorService executor;
+
+    public EmbeddedRedisServer() {
+        this(0);
+    }
+
+    /**
+     * @param port 监听端口，0 表示随机端口
+     */
+    public EmbeddedRedisServer(int port) {
+        this.requestedPort = port;
+        for (int i = 0; i < DATABASES; i++) {
+            databases[i] = new Keyspace();
+        }
+    }
+
+    /**
+     * 在 127.0.0.1 上启动监听
+     *
+     * @return
+     * @throws IOException
+     */
+    public synchronized EmbeddedRedisServer start() throws IOException {
+        if (isRunning()) {
+            return this;
+        }
+        serverSocket = new ServerSocket(requestedPort, 128, InetAddress.getLoopbackAddress());
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("easysoft-embedded-redis-");
+        threadFactory.setDaemon(true);
+        executor = Executors.newCachedThreadPool(threadFactory);
+        executor.execute(this::accept);
+        log.info("embedded redis server started on {}:{}", getHost(), getPort());
+        return this;
+    }
+
+    public boolean isRunning() {
+        return null != serverSocket && !serverSocket.isClosed();
+    }
+
+    public String getHost() {
+        return InetAddress.getLoopbackAddress().getHostAddress();
+    }
+
+    public int getPort() {
+        return null == serverSocket ? requestedPort : serverSocket.getLocalPort();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!isRunning()) {
+            return;
+        }
+        try {
+            serverSocket.close();
+        } catch (IOException ex) {
+            log.debug("close embedded redis server socket failed", ex);
+        }
+        dropConnections();
+        executor.shutdownNow();
+        log.info("embedded redis server on port {} stopped", getPort());
+    }
+
+    /**
+     * 设置后客户端需要 AUTH，默认不校验密码
+     *
+     * @param password
+     */
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    String getPassword() {
+        return password;
+    }
+
+    /**
+     * 所有命令的固定延迟
+     *
+     * @param latency null 或 0 表示取消
+     */
+    public void setLatency(Duration latency) {
+        setLatency(ANY_COMMAND, latency);
+    }
+
+    /**
+     * 指定命令的固定延迟，在命令执行前等待，不占用命令执行锁
+     *
+     * @param command 命令名，{@link #ANY_COMMAND} 表示所有命令
+     * @param latency null 或 0 表示取消
+     */
+    public void setLatency(String command, Duration latency) {
+        String name = command.toUpperCase(Locale.ROOT);
+        if (null == latency || latency.isZero() || latency.isNegative()) {
+            latencies.remove(name);
+        } else {
+            latencies.put(name, latency);
+        }
+    }
+
+    /**
+     * 接下来的 times 次命令返回 {@link #DEFAULT_FAULT} 错误
+     *
+     * @param command 命令名，{@link #ANY_COMMAND} 表示所有命令
+     * @param times   次数，小于0表示直到 {@link #clearFaults()}
+     */
+    public void failNext(String command, int times) {
+        failNext(command, times, DEFAULT_FAULT);
+    }
+
+    /**
+     * 接下来的 times 次命令返回指定错误
+     *
+     * @param command 命令名，{@link #ANY_COMMAND} 表示所有命令
+     * @param times   次数，小于0表示直到 {@link #clearFaults()}
+     * @param error   错误信息，需包含 ERR 等错误前缀
+     */
+    public void failNext(String command, int times, String error) {
+        faults.put(command.toUpperCase(Locale.ROOT), new Fault(error, times));
+    }
+
+    /**
+     * 接下来的 times 次命令不返回应答并直接断开连接，模拟网络故障
+     *
+     * @param command 命令名，{@link #ANY_COMMAND} 表示所有命令
+     * @param times   次数，小于0表示直到 {@link #clearFaults()}
+     */
+    public void dropNext(String command, int times) {
+        faults.put(command.toUpperCase(Locale.ROOT), new Fault(null, times));
+    }
+
+    /**
+     * 清除所有延迟和故障注入
+     */
+    public void clearFaults() {
+        latencies.clear();
+        faults.clear();
+    }
+
+    /**
+     * 断开所有客户端连接
+     */
+    public void dropConnections() {
+        for (ClientConnection connection : new ArrayList<>(connections)) {
+            connection.close();
+        }
+    }
+
+    /**
+     * 注册脚本桩，EVAL/EVALSHA 执行该脚本时调用
+     *
+     * @param script 脚本内容
+     * @param stub
+     * @return 脚本 sha1
+     */
+    public String registerScript(String script, EmbeddedScript stub) {
+        synchronized (lock) {
+            String sha = CommandProcessor.sha1(script);
+            scripts.put(sha, script);
+            scriptStubs.put(script, stub);
+            return sha;
+        }
+    }
+
+    /**
+     * 在 db0 上直接执行命令，用于准备测试数据和在脚本桩中访问数据
+     *
+     * @param command 命令及参数
+     * @return 简单字符串为 String，整数为 Long，bulk string 为 byte[]，数组为 List
+     * @throws IllegalStateException 命令返回错误时
+     */
+    public Object call(String... command) {
+        List<byte[]> args = new ArrayList<>(command.length);
+        for (String arg : command) {
+            args.add(arg.getBytes(StandardCharsets.UTF_8));
+        }
+        ClientConnection client = new ClientConnection(0, this, null);
+        RespWriter out = new RespWriter(2);
+        synchronized (lock) {
+            processor.process(client, args, out);
+        }
+        try {
+            return RespReader.readReply(new ByteArrayInputStream(out.toByteArray()));
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * 清空所有 database
+     */
+    public void flushAll() {
+        synchronized (lock) {
+            for (Keyspace keyspace : databases) {
+                keyspace.clear();
+            }
+        }
+    }
+
+    /**
+     * @param command 命令名
+     * @return 启动或 {@link #resetStats()} 以来该命令执行的次数
+     */
+    public long getCommandCount(String command) {
+        LongAdder count = commandStats.get(command.toUpperCase(Locale.ROOT));
+        return null == count ? 0 : count.sum();
+    }
+
+    public void resetStats() {
+        commandStats.clear();
+    }
+
+    /**
+     * 执行一条命令
+     *
+     * @return 应答，返回 null 时断开连接
+     */
+    byte[] handle(ClientConnection client, List<byte[]> command) {
+        String name = new String(command.get(0), StandardCharsets.UTF_8).toUpperCase(Locale.ROOT);
+        commandStats.computeIfAbsent(name, k -> new LongAdder()).increment();
+        delay(name);
+        Fault fault = takeFault(name);
+        RespWriter out = new RespWriter(client.protocol);
+        if (null != fault) {
+            if (null == fault.error) {
+                return null;
+            }
+            return out.error(fault.error).toByteArray();
+        }
+        synchronized (lock) {
+            processor.process(client, command, out);
+        }
+        return out.toByteArray();
+    }
+
+    void disconnected(ClientConnection client) {
+        if (connections.remove(client)) {
+            synchronized (lock) {
+                processor.unsubscribeAll(client);
+            }
+        }
+    }
+
+    int connectionCount() {
+        return connections.size();
+    }
+
+    List<ClientConnection> connections() {
+        return new ArrayList<>(connections);
+    }
+
+    private void accept() {
+        while (isRunning()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                ClientConnection connection = new ClientConnection(connectionIds.incrementAndGet(), this, socket);
+                connections.add(connection);
+                executor.execute(connection);
+            } catch (IOException ex) {
+                if (isRunning()) {
+                    log.warn("embedded redis server accept connection failed", ex);
+                }
+            }
+        }
+    }
+
+    private void delay(String name) {
+        Duration latency = latencies.get(name);
+        if (null == latency) {
+            latency = latencies.get(ANY_COMMAND);
+        }
+        if (null != latency) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(latency.toNanos());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Fault takeFault(String name) {
+        Fault fault = faults.get(name);
+        if (null == fault || !fault.take()) {
+            fault = faults.get(ANY_COMMAND);
+            if (null == fault || !fault.take()) {
+                return null;
+            }
+        }
+        return fault;
+    }
+
+    /**
+     * 故障注入规则
+     */
+    private static class Fault {
+
+        private final String error;
+
+        private final AtomicInteger remaining;
+
+        Fault(String error, int times) {
+            this.error = error;
+            this.remaining = new AtomicInteger(times);
+        }
+
+        boolean take() {
+            while (true) {
+                int current = remaining.get();
+                if (current == 0) {
+                    return false;
+                }
+                if (current < 0 || remaining.compareAndSet(current, current - 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
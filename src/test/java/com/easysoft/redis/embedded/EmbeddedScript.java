@@ -0,0 +1,27 @@
+package com.easysoft.redis.embedded;
+
+import java.util.List;
+
+/**
+ * 内嵌服务不执行 Lua，EVAL/EVALSHA 由注册的脚本桩代替执行
+ * <p>
+ * 返回值按 Lua 到 RESP 的转换规则输出：Long/Integer 为整数，byte[]/String 为 bulk string，List 为数组，
+ * Boolean.TRUE 为 1，null 及 Boolean.FALSE 为 null。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-21 09:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-21 09:20
+ */
+@FunctionalInterface
+public interface EmbeddedScript {
+
+    /**
+     * 需要读写数据时可通过 {@link EmbeddedRedisServer#call(String...)} 执行命令
+     *
+     * @param keys KEYS
+     * @param args ARGV
+     * @return
+     */
+    Object execute(List<byte[]> keys, List<byte[]> args);
+}
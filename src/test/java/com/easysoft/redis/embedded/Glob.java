@@ -0,0 +1,107 @@
+package com.easysoft.redis.embedded;
+
+/**
+ * Redis 风格的 glob 匹配(KEYS/SCAN MATCH/PSUBSCRIBE)，支持 *、?、[abc]、[^a]、[a-z] 及 \ 转义
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-21 09:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-21 09:20
+ */
+final class Glob {
+
+    private Glob() {
+    }
+
+    static boolean matches(String pattern, String value) {
+        return matches(pattern, 0, value, 0);
+    }
+
+    private static boolean matches(String pattern, int p, String value, int v) {
+        while (p < pattern.length()) {
+            char c = pattern.charAt(p);
+            switch (c) {
+                case '*':
+                    while (p + 1 < pattern.length() && pattern.charAt(p + 1) == '*') {
+                        p++;
+                    }
+                    if (p + 1 == pattern.length()) {
+                        return true;
+                    }
+                    for (int i = v; i <= value.length(); i++) {
+                        if (matches(pattern, p + 1, value, i)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                case '?':
+                    if (v >= value.length()) {
+                        return false;
+                    }
+                    v++;
+                    p++;
+                    break;
+                case '[':
+                    if (v >= value.length()) {
+                        return false;
+                    }
+                    int end = pattern.indexOf(']', p + 2);
+                    if (end < 0) {
+                        return literal(c, value, v) && matches(pattern, p + 1, value, v + 1);
+                    }
+                    if (!matchesClass(pattern.substring(p + 1, end), value.charAt(v))) {
+                        return false;
+                    }
+                    v++;
+                    p = end + 1;
+                    break;
+                case '\\':
+                    if (p + 1 < pattern.length()) {
+                        p++;
+                    }
+                    if (!literal(pattern.charAt(p), value, v)) {
+                        return false;
+                    }
+                    v++;
+                    p++;
+                    break;
+                default:
+                    if (!literal(c, value, v)) {
+                        return false;
+                    }
+                    v++;
+                    p++;
+            }
+        }
+        return v == value.length();
+    }
+
+    private static boolean literal(char c, String value, int v) {
+        return v < value.length() && value.charAt(v) == c;
+    }
+
+    private static boolean matchesClass(String group, char c) {
+        boolean negate = group.startsWith("^");
+        int i = negate ? 1 : 0;
+        boolean matched = false;
+        while (i < group.length()) {
+            char from = group.charAt(i);
+            if (from == '\\' && i + 1 < group.length()) {
+                from = group.charAt(++i);
+            }
+            if (i + 2 < group.length() && group.charAt(i + 1) == '-') {
+                char to = group.charAt(i + 2);
+                if (c >= Math.min(from, to) && c <= Math.max(from, to)) {
+                    matched = true;
+                }
+                i += 3;
+            } else {
+                if (c == from) {
+                    matched = true;
+                }
+                i++;
+            }
+        }
+        return negate != matched;
+    }
+}
@@ -0,0 +1,187 @@
+package com.easysoft.redis.embedded;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 单个 database 的键空间，过期key在访问时惰性删除。
+ * <p>
+ * key、hash field、集合 member 均以 ISO-8859-1 字符串保存，与原始字节一一对应；
+ * 字符串value保存原始字节。调用方需持有服务端全局锁。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-21 09:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-21 09:20
+ */
+class Keyspace {
+
+    static final String WRONG_TYPE = "WRONGTYPE Operation against a key holding the wrong kind of value";
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    Entry lookup(String key) {
+        Entry entry = entries.get(key);
+        if (null != entry && entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    boolean exists(String key) {
+        return null != lookup(key);
+    }
+
+    boolean remove(String key) {
+        return null != lookup(key) && null != entries.remove(key);
+    }
+
+    void put(String key, Object value) {
+        entries.put(key, new Entry(value));
+    }
+
+    /**
+     * 写入value，保留原有过期时间
+     */
+    void replace(String key, Object value) {
+        Entry entry = lookup(key);
+        if (null == entry) {
+            put(key, value);
+        } else {
+            entry.value = value;
+        }
+    }
+
+    int size() {
+        purgeExpired();
+        return entries.size();
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    List<String> keys() {
+        purgeExpired();
+        List<String> keys = new ArrayList<>(entries.keySet());
+        keys.sort(null);
+        return keys;
+    }
+
+    byte[] getString(String key) {
+        return typed(key, byte[].class);
+    }
+
+    Map<String, byte[]> getHash(String key, boolean create) {
+        Map<String, byte[]> hash = typed(key, HashMap.class);
+        if (null == hash && create) {
+            hash = new HashMap<>();
+            put(key, hash);
+        }
+        return hash;
+    }
+
+    LinkedList<byte[]> getList(String key, boolean create) {
+        LinkedList<byte[]> list = typed(key, LinkedList.class);
+        if (null == list && create) {
+            list = new LinkedList<>();
+            put(key, list);
+        }
+        return list;
+    }
+
+    Set<String> getSet(String key, boolean create) {
+        Set<String> set = typed(key, HashSet.class);
+        if (null == set && create) {
+            set = new HashSet<>();
+            put(key, set);
+        }
+        return set;
+    }
+
+    ZSetValue getZSet(String key, boolean create) {
+        ZSetValue zset = typed(key, ZSetValue.class);
+        if (null == zset && create) {
+            zset = new ZSetValue();
+            put(key, zset);
+        }
+        return zset;
+    }
+
+    /**
+     * 集合类型为空时删除key，与 Redis 行为一致
+     */
+    void removeIfEmpty(String key) {
+        Entry entry = lookup(key);
+        if (null == entry) {
+            return;
+        }
+        Object value = entry.value;
+        boolean empty = value instanceof Map && ((Map) value).isEmpty()
+                || value instanceof List && ((List) value).isEmpty()
+                || value instanceof Set && ((Set) value).isEmpty()
+                || value instanceof ZSetValue && ((ZSetValue) value).size() == 0;
+        if (empty) {
+            entries.remove(key);
+        }
+    }
+
+    private <T> T typed(String key, Class<?> type) {
+        Entry entry = lookup(key);
+        if (null == entry) {
+            return null;
+        }
+        if (!type.isInstance(entry.value)) {
+            throw new CommandException(WRONG_TYPE);
+        }
+        return (T) entry.value;
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.isExpired(now));
+    }
+
+    /**
+     * key 对应的value及过期时间
+     */
+    static class Entry {
+
+        Object value;
+
+        /**
+         * 过期时间戳(毫秒)，-1 表示不过期
+         */
+        long expireAt = -1;
+
+        Entry(Object value) {
+            this.value = value;
+        }
+
+        boolean isExpired(long now) {
+            return expireAt >= 0 && expireAt <= now;
+        }
+
+        String type() {
+            if (value instanceof byte[]) {
+                return "string";
+            }
+            if (value instanceof Map) {
+                return "hash";
+            }
+            if (value instanceof List) {
+                return "list";
+            }
+            if (value instanceof Set) {
+                return "set";
+            }
+            return "zset";
+        }
+    }
+}
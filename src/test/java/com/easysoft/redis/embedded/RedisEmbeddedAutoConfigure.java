@@ -0,0 +1,56 @@
+package com.easysoft.redis.embedded;
+
+import io.lettuce.core.resource.ClientResources;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.io.IOException;
+
+/**
+ * 内嵌 Redis 模拟服务，easysoft.redis.embedded.enabled=true 时启动并替代 spring.redis 的连接配置，
+ * 用于测试环境离线运行。只随 test-jar 发布，由 test-jar 中的 META-INF/spring.factories 注册
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-21 09:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-21 09:20
+ */
+@Configuration
+@ConditionalOnClass(LettuceConnectionFactory.class)
+@ConditionalOnProperty(prefix = "easysoft.redis.embedded", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(EmbeddedProperties.class)
+@AutoConfigureBefore(RedisAutoConfiguration.class)
+public class RedisEmbeddedAutoConfigure {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean(EmbeddedRedisServer.class)
+    public EmbeddedRedisServer embeddedRedisServer(EmbeddedProperties embedded) throws IOException {
+        EmbeddedRedisServer server = new EmbeddedRedisServer(embedded.getPort());
+        server.setLatency(embedded.getLatency());
+        return server.start();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(RedisConnectionFactory.class)
+    public LettuceConnectionFactory redisConnectionFactory(EmbeddedRedisServer embeddedRedisServer,
+                                                           ObjectProvider<ClientResources> clientResources,
+                                                           ObjectProvider<LettuceClientConfigurationBuilderCustomizer> customizers) {
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder builder = LettuceClientConfiguration.builder();
+        clientResources.ifAvailable(builder::clientResources);
+        customizers.orderedStream().forEach(customizer -> customizer.customize(builder));
+        return new LettuceConnectionFactory(new RedisStandaloneConfiguration(embeddedRedisServer.getHost(),
+                embeddedRedisServer.getPort()), builder.build());
+    }
+}
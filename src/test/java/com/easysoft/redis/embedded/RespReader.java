@@ -0,0 +1,129 @@
+package com.easysoft.redis.embedded;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RESP 解码：读取客户端命令(multi bulk 或 inline)，以及解码 RESP2 应答
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-21 09:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-21 09:20
+ */
+final class RespReader {
+
+    private RespReader() {
+    }
+
+    /**
+     * @param in
+     * @return 命令及参数，连接关闭时返回 null
+     * @throws IOException
+     */
+    static List<byte[]> readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type < 0) {
+            return null;
+        }
+        if (type != '*') {
+            return readInline(type, in);
+        }
+        int count = (int) readLong(in);
+        List<byte[]> args = new ArrayList<>(Math.max(count, 0));
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$') {
+                throw new IOException("Protocol error: expected '$'");
+            }
+            args.add(readBulk(in, (int) readLong(in)));
+        }
+        return args;
+    }
+
+    /**
+     * 解码 RESP2 应答：简单字符串为 String，整数为 Long，bulk string 为 byte[]，数组为 List，错误抛出异常
+     *
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    static Object readReply(InputStream in) throws IOException {
+        int type = in.read();
+        switch (type) {
+            case '+':
+                return readLine(in);
+            case '-':
+                throw new IllegalStateException(readLine(in));
+            case ':':
+                return readLong(in);
+            case '$':
+                int length = (int) readLong(in);
+                return length < 0 ? null : readBulk(in, length);
+            case '*':
+                int size = (int) readLong(in);
+                if (size < 0) {
+                    return null;
+                }
+                List<Object> items = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    items.add(readReply(in));
+                }
+                return items;
+            default:
+                throw new IOException("Protocol error: unexpected reply type " + type);
+        }
+    }
+
+    private static List<byte[]> readInline(int first, InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder().append((char) first);
+        line.append(readLine(in));
+        List<byte[]> args = new ArrayList<>();
+        for (String arg : line.toString().trim().split("\\s+")) {
+            if (!arg.isEmpty()) {
+                args.add(arg.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return args;
+    }
+
+    private static byte[] readBulk(InputStream in, int length) throws IOException {
+        byte[] bulk = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(bulk, offset, length - offset);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            offset += read;
+        }
+        in.read();
+        in.read();
+        return bulk;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException();
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    private static long readLong(InputStream in) throws IOException {
+        try {
+            return Long.parseLong(readLine(in));
+        } catch (NumberFormatException ex) {
+            throw new IOException("Protocol error: invalid length", ex);
+        }
+    }
+}
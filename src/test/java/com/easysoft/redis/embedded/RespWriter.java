@@ -0,0 +1,134 @@
+package com.easysoft.redis.embedded;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * RESP 应答编码，按连接协商的协议版本输出。
+ * <p>
+ * RESP2 下 map/set/push 按普通数组输出，double 按 bulk string 输出，null 按 {@code $-1} 输出。
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-21 09:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-21 09:20
+ */
+class RespWriter {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+
+    private int protocol;
+
+    RespWriter(int protocol) {
+        this.protocol = protocol;
+    }
+
+    /**
+     * 切换后续应答的协议版本(HELLO)
+     */
+    RespWriter protocol(int protocol) {
+        this.protocol = protocol;
+        return this;
+    }
+
+    boolean isResp3() {
+        return protocol >= 3;
+    }
+
+    RespWriter simple(String value) {
+        return line('+', value);
+    }
+
+    RespWriter error(String message) {
+        return line('-', message);
+    }
+
+    RespWriter ok() {
+        return simple("OK");
+    }
+
+    RespWriter integer(long value) {
+        return line(':', Long.toString(value));
+    }
+
+    RespWriter bulk(byte[] value) {
+        if (null == value) {
+            return nullValue();
+        }
+        line('$', Integer.toString(value.length));
+        buffer.write(value, 0, value.length);
+        buffer.write(CRLF, 0, CRLF.length);
+        return this;
+    }
+
+    /**
+     * 写出 key/member，内部使用 ISO-8859-1 字符串逐字节保存二进制内容
+     *
+     * @param value
+     * @return
+     */
+    RespWriter bulk(String value) {
+        return bulk(null == value ? null : value.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    RespWriter text(String value) {
+        return bulk(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    RespWriter nullValue() {
+        return isResp3() ? line('_', "") : line('$', "-1");
+    }
+
+    RespWriter nullArray() {
+        return isResp3() ? line('_', "") : line('*', "-1");
+    }
+
+    RespWriter array(int size) {
+        return line('*', Integer.toString(size));
+    }
+
+    RespWriter map(int size) {
+        return isResp3() ? line('%', Integer.toString(size)) : array(size * 2);
+    }
+
+    RespWriter set(int size) {
+        return isResp3() ? line('~', Integer.toString(size)) : array(size);
+    }
+
+    RespWriter push(int size) {
+        return isResp3() ? line('>', Integer.toString(size)) : array(size);
+    }
+
+    RespWriter doubleValue(double value) {
+        String text = formatDouble(value);
+        return isResp3() ? line(',', text) : bulk(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    byte[] toByteArray() {
+        return buffer.toByteArray();
+    }
+
+    int size() {
+        return buffer.size();
+    }
+
+    static String formatDouble(double value) {
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "inf" : "-inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e17) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private RespWriter line(char type, String value) {
+        buffer.write(type);
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.write(bytes, 0, bytes.length);
+        buffer.write(CRLF, 0, CRLF.length);
+        return this;
+    }
+}
@@ -0,0 +1,149 @@
+package com.easysoft.redis.embedded;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * 有序集合：member -> score 的哈希表加按 (score, member) 排序的 TreeSet
+ *
+ * @author： zyp[2305658511@qq.com]
+ * @date： 2020-01-21 09:20
+ * @version： V1.0
+ * @review: zyp[2305658511@qq.com]/2020-01-21 09:20
+ */
+class ZSetValue {
+
+    private final Map<String, Double> scores = new HashMap<>();
+
+    private final TreeSet<Member> sorted = new TreeSet<>();
+
+    int size() {
+        return scores.size();
+    }
+
+    Double score(String member) {
+        return scores.get(member);
+    }
+
+    /**
+     * @return 新增返回 true，更新分数返回 false
+     */
+    boolean put(String member, double score) {
+        Double previous = scores.put(member, score);
+        if (null != previous) {
+            sorted.remove(new Member(previous, member));
+        }
+        sorted.add(new Member(score, member));
+        return null == previous;
+    }
+
+    boolean remove(String member) {
+        Double previous = scores.remove(member);
+        if (null == previous) {
+            return false;
+        }
+        sorted.remove(new Member(previous, member));
+        return true;
+    }
+
+    int rank(String member, boolean reverse) {
+        Double score = scores.get(member);
+        if (null == score) {
+            return -1;
+        }
+        int rank = sorted.headSet(new Member(score, member)).size();
+        return reverse ? size() - 1 - rank : rank;
+    }
+
+    List<Member> range(int start, int stop, boolean reverse) {
+        List<Member> result = new ArrayList<>();
+        Iterator<Member> iterator = reverse ? sorted.descendingIterator() : sorted.iterator();
+        int index = 0;
+        while (iterator.hasNext() && index <= stop) {
+            Member member = iterator.next();
+            if (index >= start) {
+                result.add(member);
+            }
+            index++;
+        }
+        return result;
+    }
+
+    List<Member> rangeByScore(ScoreBound min, ScoreBound max, boolean reverse) {
+        List<Member> result = new ArrayList<>();
+        NavigableSet<Member> view = reverse ? sorted.descendingSet() : sorted;
+        for (Member member : view) {
+            if (min.acceptsAsMin(member.score) && max.acceptsAsMax(member.score)) {
+                result.add(member);
+            }
+        }
+        return result;
+    }
+
+    Iterable<Member> members() {
+        return sorted;
+    }
+
+    /**
+     * 分数区间端点，支持 -inf/+inf 和 "(" 开区间
+     */
+    static class ScoreBound {
+
+        private final double value;
+
+        private final boolean exclusive;
+
+        ScoreBound(String text) {
+            exclusive = text.startsWith("(");
+            String number = exclusive ? text.substring(1) : text;
+            if ("-inf".equalsIgnoreCase(number)) {
+                value = Double.NEGATIVE_INFINITY;
+            } else if ("+inf".equalsIgnoreCase(number) || "inf".equalsIgnoreCase(number)) {
+                value = Double.POSITIVE_INFINITY;
+            } else {
+                value = Double.parseDouble(number);
+            }
+        }
+
+        boolean acceptsAsMin(double score) {
+            return exclusive ? score > value : score >= value;
+        }
+
+        boolean acceptsAsMax(double score) {
+            return exclusive ? score < value : score <= value;
+        }
+    }
+
+    static final class Member implements Comparable<Member> {
+
+        final double score;
+
+        final String name;
+
+        Member(double score, String name) {
+            this.score = score;
+            this.name = name;
+        }
+
+        @Override
+        public int compareTo(Member other) {
+            int result = Double.compare(score, other.score);
+            return result != 0 ? result : name.compareTo(other.name);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Member && compareTo((Member) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Double.hashCode(score) + name.hashCode();
+        }
+    }
+}